@@ -1,16 +1,15 @@
 package vku.chatapp.client;
 
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import vku.chatapp.client.util.ViewRegistry;
 
 public class ClientApp extends Application {
     @Override
     public void start(Stage primaryStage) throws Exception {
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/login.fxml"));
-        Scene scene = new Scene(loader.load(), 500, 500);
-        scene.getStylesheets().add(getClass().getResource("/css/styles.css").toExternalForm());
+        ViewRegistry views = ViewRegistry.getInstance();
+        Scene scene = views.createScene(views.take("/view/login.fxml").getRoot(), 500, 500);
 
         primaryStage.setTitle("VKU Chat");
         primaryStage.setScene(scene);
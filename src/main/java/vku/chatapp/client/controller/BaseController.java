@@ -3,8 +3,8 @@ package vku.chatapp.client.controller;
 import javafx.stage.Stage;
 import javafx.scene.Scene;
 import javafx.scene.Node;
-import javafx.fxml.FXMLLoader;
 import javafx.event.ActionEvent;
+import vku.chatapp.client.util.ViewRegistry;
 
 public abstract class BaseController {
     protected Stage stage;
@@ -15,12 +15,11 @@ public abstract class BaseController {
 
     protected void switchScene(String fxmlPath, double width, double height) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
-            Scene scene = new Scene(loader.load(), width, height);
-            scene.getStylesheets().add(getClass().getResource("/css/styles.css").toExternalForm());
+            ViewRegistry views = ViewRegistry.getInstance();
+            ViewRegistry.View<BaseController> view = views.take(fxmlPath);
+            Scene scene = views.createScene(view.getRoot(), width, height);
 
-            BaseController controller = loader.getController();
-            controller.setStage(stage);
+            view.getController().setStage(stage);
 
             stage.setScene(scene);
         } catch (Exception e) {
@@ -3,32 +3,49 @@
 
 package vku.chatapp.client.controller;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.*;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.util.Duration;
 import vku.chatapp.client.model.CallSession;
 import vku.chatapp.client.model.ChatSession;
 import vku.chatapp.client.model.UserSession;
 import vku.chatapp.client.p2p.P2PMessageHandler;
 import vku.chatapp.client.p2p.P2PServer;
+import vku.chatapp.client.service.AvatarService;
+import vku.chatapp.client.service.ConversationPrefetcher;
 import vku.chatapp.client.service.FileTransferService;
 import vku.chatapp.client.service.MessageService;
+import vku.chatapp.client.service.MessageSyncService;
+import vku.chatapp.client.service.ThumbnailService;
+import vku.chatapp.client.service.UnreadCounterService;
+import vku.chatapp.client.storage.LocalMessageStore;
 import vku.chatapp.client.rmi.RMIClient;
+import vku.chatapp.client.rmi.RMIGateway;
+import vku.chatapp.client.util.FxWatchdog;
+import vku.chatapp.client.util.UiUpdateScheduler;
+import vku.chatapp.client.util.ViewRegistry;
 import vku.chatapp.common.dto.UserDTO;
+import vku.chatapp.common.constants.AppConstants;
 import vku.chatapp.common.enums.CallType;
 import vku.chatapp.common.enums.MessageStatus;
 import vku.chatapp.common.enums.MessageType;
@@ -48,10 +65,10 @@ import java.util.*;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 public class ChatController extends BaseController {
-    @FXML private VBox messagesContainer;
-    @FXML private ScrollPane messagesScrollPane;
+    @FXML private ListView<Message> messagesList;
     @FXML private TextArea messageInput;
     @FXML private Button sendButton;
     @FXML private Button attachButton;
@@ -63,20 +80,53 @@ public class ChatController extends BaseController {
     @FXML public Region avatarFriend;
 
     private MessageService messageService;
+    private RMIGateway gateway;
+    private UnreadCounterService unreadCounterService;
     private FileTransferService fileTransferService;
+    private ThumbnailService thumbnailService;
+    private AvatarService avatarService;
+    private static final double AVATAR_SIZE = AppConstants.CHAT_AVATAR_SIZE;
     private P2PMessageHandler messageHandler;
+    private final P2PMessageHandler.MessageListener incomingListener = this::handleIncomingMessage;
+    private final MessageSyncService.SyncListener syncListener = this::handleOfflineChangesSynced;
+    // Listeners registered on the app-wide services, see setMessageHandler
+    private boolean attached;
+    // Opens any friend's chat the way the friend list does; set by MainController
+    private Consumer<Long> conversationOpener;
     private Map<Long, ChatSession> chatSessions;
     private ChatSession currentChatSession;
+    // nanoTime of the last openChat until its messages are shown, for FxWatchdog; 0 otherwise
+    private long chatOpenedAt;
     private DateTimeFormatter timeFormatter;
     private Set<String> displayedMessageIds;
+    // Image file name -> source, null when the file is missing; FX thread only
+    private final Map<String, ThumbnailService.Source> imageSources = new HashMap<>();
+    private final Map<String, CompletableFuture<ThumbnailService.Source>> resolvingImages = new HashMap<>();
     private boolean isSending = false;
     private P2PServer localP2PServer;
     private final AtomicBoolean isSending2 = new AtomicBoolean(false);
+    private static final int HISTORY_PAGE_SIZE = AppConstants.CHAT_HISTORY_PAGE;
+    private LocalMessageStore localStore;
+    private MessageSyncService syncService;
+    private UiUpdateScheduler ui;
+    private static final String SENT_BUBBLE_STYLE = "-fx-background-color: #0078d4; -fx-background-radius: 18px;";
+    private static final String RECEIVED_BUBBLE_STYLE = "-fx-background-color: #f3f3f3; -fx-background-radius: 18px;";
+    private static final String SENT_TEXT_STYLE = "-fx-text-fill: white; -fx-font-size: 14px;";
+    private static final String RECEIVED_TEXT_STYLE = "-fx-text-fill: #323130; -fx-font-size: 14px;";
+    private static final String SENT_META_STYLE = "-fx-text-fill: rgba(255,255,255,0.7); -fx-font-size: 11px;";
+    private static final String RECEIVED_META_STYLE = "-fx-text-fill: #605e5c; -fx-font-size: 11px;";
 
     @FXML
     public void initialize() {
         messageService = new MessageService();
+        gateway = RMIGateway.getInstance();
+        unreadCounterService = UnreadCounterService.getInstance();
+        localStore = LocalMessageStore.getInstance();
+        syncService = MessageSyncService.getInstance();
+        ui = UiUpdateScheduler.getInstance();
         fileTransferService = new FileTransferService();
+        thumbnailService = ThumbnailService.getInstance();
+        avatarService = AvatarService.getInstance();
         chatSessions = new HashMap<>();
         timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
         displayedMessageIds = new HashSet<>();
@@ -84,9 +134,8 @@ public class ChatController extends BaseController {
         setupMessageInput();
         setupMessageListener();
 
-        messagesContainer.heightProperty().addListener((obs, oldVal, newVal) -> {
-            messagesScrollPane.setVvalue(1.0);
-        });
+        // ✅ Virtualized: only the visible bubbles exist as nodes, recycled while scrolling
+        messagesList.setCellFactory(list -> new MessageCell());
     }
 
     private void setupMessageInput() {
@@ -110,16 +159,40 @@ public class ChatController extends BaseController {
 
     private void setupMessageListener() {
         if (messageHandler != null) {
-            messageHandler.addListener(this::handleIncomingMessage);
+            messageHandler.addListener(incomingListener);
         }
     }
 
+    /** Attaches the view to the app-wide services; call once the view is taken into use. */
     public void setMessageHandler(P2PMessageHandler handler) {
+        // ✅ Not in initialize(): a preloaded spare that is never shown must not hold listeners
+        if (!attached) {
+            syncService.addListener(syncListener);
+            attached = true;
+        }
+        if (messageHandler != null) {
+            messageHandler.removeListener(incomingListener);
+        }
         this.messageHandler = handler;
         setupMessageListener();
     }
 
+    public void setConversationOpener(Consumer<Long> opener) {
+        this.conversationOpener = opener;
+    }
+
+    /** Detaches from the app-wide services; call when the chat view is thrown away (logout, exit). */
+    public void dispose() {
+        syncService.removeListener(syncListener);
+        attached = false;
+        if (messageHandler != null) {
+            messageHandler.removeListener(incomingListener);
+        }
+        currentChatSession = null;
+    }
+
     public void openChat(UserDTO friend) {
+        chatOpenedAt = System.nanoTime();
         Long friendId = friend.getId();
 
         if (!chatSessions.containsKey(friendId)) {
@@ -127,24 +200,32 @@ public class ChatController extends BaseController {
         }
 
         currentChatSession = chatSessions.get(friendId);
+        unreadCounterService.markRead(friendId);
 
         chatTitleLabel.setText(friend.getDisplayName() != null ? friend.getDisplayName() : "Friend");
 
-        new Thread(() -> {
-            try {
-                UserDTO freshUser = RMIClient.getInstance()
-                        .getUserService()
-                        .getUserById(friendId);
+        // ✅ Prefetched (hover, or a recent conversation after login): no round trip
+        UserDTO prefetched = ConversationPrefetcher.getInstance().getFreshUser(friendId);
+        if (prefetched != null) {
+            updateChatStatus(prefetched);
+        } else {
+            gateway.execute(() -> {
+                try {
+                    UserDTO freshUser = RMIClient.getInstance()
+                            .getUserService()
+                            .getUserById(friendId);
 
-                Platform.runLater(() -> updateChatStatus(freshUser));
+                    ui.post("chat.status", () -> updateChatStatus(freshUser));
 
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    chatStatusLabel.setText("Offline");
-                    chatStatusLabel.setStyle("-fx-text-fill: gray;");
-                });
-            }
-        }).start();
+                } catch (Exception e) {
+                    showStatusUnknown();
+                }
+            }).exceptionally(e -> {
+                // Gateway timed out or was full: the task's own catch never ran
+                showStatusUnknown();
+                return null;
+            });
+        }
         if (friend.getAvatarUrl() != null && !friend.getAvatarUrl().isEmpty()) {
             loadAvatar(friend.getAvatarUrl());
         }
@@ -156,6 +237,13 @@ public class ChatController extends BaseController {
         loadMessages();
     }
 
+    private void showStatusUnknown() {
+        ui.post("chat.status", () -> {
+            chatStatusLabel.setText("Offline");
+            chatStatusLabel.setStyle("-fx-text-fill: gray;");
+        });
+    }
+
     // ✅ NEW: Handle audio call
     @FXML
     private void handleAudioCall() {
@@ -188,22 +276,17 @@ public class ChatController extends BaseController {
 
     private void initiateCall(UserDTO friend, CallType callType) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/video-call.fxml"));
-            VBox callView = loader.load();
+            // ✅ Preloaded after login: no FXML parsing before the window shows
+            ViewRegistry views = ViewRegistry.getInstance();
+            ViewRegistry.View<VideoCallController> callView = views.take("/view/video-call.fxml");
 
-            VideoCallController callController = loader.getController();
+            VideoCallController callController = callView.getController();
             callController.setMessageHandler(messageHandler);
 
             Stage callStage = new Stage();
             callController.setStage(callStage);
 
-            Scene scene = new Scene(callView, 1000, 750);
-
-            try {
-                scene.getStylesheets().add(getClass().getResource("/css/styles.css").toExternalForm());
-            } catch (Exception e) {
-                System.out.println("⚠️ CSS not found, using default styles");
-            }
+            Scene scene = views.createScene(callView.getRoot(), 1000, 750);
 
             callStage.setTitle("📞 " + (callType == CallType.VIDEO ? "Video" : "Audio") +
                     " Call - " + friend.getDisplayName());
@@ -223,44 +306,89 @@ public class ChatController extends BaseController {
         }
     }
 
+    // ✅ Render the local cache at once, then fetch only what is newer than it
     private void loadMessages() {
-        messagesContainer.getChildren().clear();
+        messagesList.getItems().clear();
         displayedMessageIds.clear();
+        imageSources.clear();
 
         if (currentChatSession == null) {
             return;
         }
 
-        new Thread(() -> {
-            try {
-                Long currentUserId = UserSession.getInstance().getCurrentUser().getId();
-                Long friendId = currentChatSession.getFriend().getId();
+        ChatSession session = currentChatSession;
+        Long currentUserId = UserSession.getInstance().getCurrentUser().getId();
+        Long friendId = session.getFriend().getId();
 
-                List<Message> messages = RMIClient.getInstance()
-                        .getMessageService()
-                        .getConversationHistory(currentUserId, friendId, 100);
+        localStore.loadRecent(friendId, HISTORY_PAGE_SIZE).whenComplete((cached, error) -> Platform.runLater(() -> {
+            if (currentChatSession != session) {
+                return;
+            }
+            long highWatermark = 0;
+            if (cached != null) {
+                session.getMessages().clear();
+                cached.getMessages().forEach(session::addMessage);
+                displayMessages(cached.getMessages());
+                highWatermark = cached.getHighWatermark();
+                System.out.println("✅ Loaded " + cached.getMessages().size() + " cached messages");
+            }
+            // Written while offline, not on the server yet
+            List<Message> pending = syncService.getPendingMessages(friendId);
+            pending.forEach(session::addMessage);
+            displayMessages(pending);
+            if (chatOpenedAt != 0) {
+                FxWatchdog.getInstance().recordOnNextFrame("Open chat", chatOpenedAt);
+                chatOpenedAt = 0;
+            }
+            syncMessages(session, currentUserId, friendId, highWatermark);
+        }));
+    }
 
-                Platform.runLater(() -> {
-                    currentChatSession.getMessages().clear();
+    // ✅ Offline messages got server ids: re-render the open chat from the cache
+    private void handleOfflineChangesSynced(Set<Long> friendIds) {
+        ui.post("chat.reload", () -> {
+            if (currentChatSession != null && friendIds.contains(currentChatSession.getFriend().getId())) {
+                loadMessages();
+            }
+        });
+    }
 
-                    for (int i = messages.size() - 1; i >= 0; i--) {
-                        Message msg = messages.get(i);
-                        currentChatSession.addMessage(msg);
-                        displayMessage(msg, false);
+    private void syncMessages(ChatSession session, Long currentUserId, Long friendId, long highWatermark) {
+        gateway.execute(() -> {
+            try {
+                MessageService.NewerMessages newer = messageService.fetchNewer(currentUserId, friendId, highWatermark, HISTORY_PAGE_SIZE);
+                newer.applyTo(localStore, friendId);
+                boolean replaced = newer.replacesCache();
+                List<Message> toShow = new ArrayList<>(newer.getMessages());
+
+                ui.post(() -> {
+                    if (currentChatSession != session) {
+                        return;
                     }
-
-                    System.out.println("✅ Loaded " + messages.size() + " messages from database");
+                    if (replaced && highWatermark > 0) {
+                        session.getMessages().clear();
+                        messagesList.getItems().clear();
+                        displayedMessageIds.clear();
+                        // Still on its way up; the reset cache does not have it
+                        syncService.getPendingMessages(friendId).forEach(toShow::add);
+                    }
+                    toShow.forEach(session::addMessage);
+                    displayMessages(toShow);
+                    System.out.println("✅ Synced " + toShow.size() + " new messages from server");
                 });
 
             } catch (Exception e) {
                 System.err.println("❌ Error loading messages: " + e.getMessage());
-                e.printStackTrace();
             }
-        }).start();
+        }).exceptionally(e -> {
+            System.err.println("❌ Message sync not run: " + e.getMessage());
+            return null;
+        });
     }
 
     @FXML
     private void handleSendMessage() {
+        long inputAt = System.nanoTime();
 
         // 🔒 Chống double click / Enter + Click
         if (!isSending2.compareAndSet(false, true)) {
@@ -287,6 +415,7 @@ public class ChatController extends BaseController {
 
         String messageToSend = content;
         messageInput.clear();
+        unreadCounterService.onOutgoingMessage(receiverId, messageToSend, LocalDateTime.now());
 
         new Thread(() -> {
             try {
@@ -298,9 +427,8 @@ public class ChatController extends BaseController {
                 message.setStatus(MessageStatus.SENDING);
                 message.setSentAt(LocalDateTime.now());
 
-                Message savedMessage = RMIClient.getInstance()
-                        .getMessageService()
-                        .saveMessage(message);
+                // ✅ Queued locally while the server is down, uploaded after reconnect
+                Message savedMessage = syncService.save(receiverId, message);
 
                 boolean p2pSuccess = messageService.sendTextMessage(receiverId, messageToSend);
 
@@ -308,25 +436,22 @@ public class ChatController extends BaseController {
                         ? MessageStatus.SENT
                         : MessageStatus.FAILED;
 
-                RMIClient.getInstance()
-                        .getMessageService()
-                        .updateMessageStatus(savedMessage.getId(), finalStatus.name());
-
-                savedMessage.setStatus(finalStatus);
+                syncService.updateStatus(receiverId, savedMessage, finalStatus);
+                localStore.append(receiverId, savedMessage);
 
-                Platform.runLater(() -> {
+                ui.post(() -> {
                     currentChatSession.addMessage(savedMessage);
                     displayMessage(savedMessage, false);
-
+                    FxWatchdog.getInstance().recordOnNextFrame("Send message", inputAt);
                 });
 
             } catch (Exception e) {
-                Platform.runLater(() -> {
+                ui.post(() -> {
                     showError("Send Failed", e.getMessage());
                     messageInput.setText(messageToSend);
                 });
             } finally {
-                Platform.runLater(() -> {
+                ui.post(() -> {
                     isSending2.set(false);
                     sendButton.setDisable(false);
                 });
@@ -391,27 +516,16 @@ public class ChatController extends BaseController {
                 }
 
 
-                Message savedMessage = RMIClient.getInstance()
-                        .getMessageService()
-                        .saveMessage(message);
+                Message savedMessage = syncService.save(receiverId, message);
 
-                System.out.println("✅ " + messageType + " message saved to DB with ID: " + savedMessage.getId());
+                System.out.println("✅ " + messageType + " message saved with ID: " + savedMessage.getId());
 
                 boolean success = fileTransferService.sendFile(receiverId, file);
 
-                if (success) {
-                    savedMessage.setStatus(MessageStatus.SENT);
-                    RMIClient.getInstance()
-                            .getMessageService()
-                            .updateMessageStatus(savedMessage.getId(), MessageStatus.SENT.name());
-                } else {
-                    savedMessage.setStatus(MessageStatus.FAILED);
-                    RMIClient.getInstance()
-                            .getMessageService()
-                            .updateMessageStatus(savedMessage.getId(), MessageStatus.FAILED.name());
-                }
+                syncService.updateStatus(receiverId, savedMessage, success ? MessageStatus.SENT : MessageStatus.FAILED);
+                localStore.append(receiverId, savedMessage);
 
-                Platform.runLater(() -> {
+                ui.post(() -> {
                     currentChatSession.addMessage(savedMessage);
                     displayMessage(savedMessage, false);
 
@@ -428,7 +542,7 @@ public class ChatController extends BaseController {
                 System.err.println("❌ Error sending file: " + e.getMessage());
                 e.printStackTrace();
 
-                Platform.runLater(() -> {
+                ui.post(() -> {
                     showError("Send Failed", "Error sending file: " + e.getMessage());
                 });
             }
@@ -444,7 +558,7 @@ public class ChatController extends BaseController {
     }
 
     private void handleIncomingTextMessage(P2PMessage p2pMessage) {
-        Platform.runLater(() -> {
+        ui.post(() -> {
             Long senderId = p2pMessage.getSenderId();
 
             if (p2pMessage.getContent() == null || p2pMessage.getContent().trim().isEmpty()) {
@@ -461,12 +575,12 @@ public class ChatController extends BaseController {
             if (!chatSessions.containsKey(senderId)) {
                 System.out.println("⚠️ No chat session for sender: " + senderId + ", creating one...");
 
-                new Thread(() -> {
+                gateway.execute(() -> {
                     try {
                         UserDTO sender = RMIClient.getInstance().getUserService().getUserById(senderId);
 
                         if (sender != null) {
-                            Platform.runLater(() -> {
+                            ui.post(() -> {
                                 chatSessions.put(senderId, new ChatSession(sender));
                                 System.out.println("✅ Created chat session for: " + sender.getDisplayName());
                                 processIncomingTextMessage(p2pMessage, senderId);
@@ -477,7 +591,10 @@ public class ChatController extends BaseController {
                     } catch (Exception e) {
                         System.err.println("❌ Error getting user info: " + e.getMessage());
                     }
-                }).start();
+                }).exceptionally(e -> {
+                    System.err.println("❌ Message from " + senderId + " dropped: " + e.getMessage());
+                    return null;
+                });
 
                 return;
             }
@@ -493,7 +610,7 @@ public class ChatController extends BaseController {
             return;
         }
 
-        new Thread(() -> {
+        gateway.execute(() -> {
             try {
                 Message message = new Message();
                 message.setSenderId(senderId);
@@ -502,29 +619,34 @@ public class ChatController extends BaseController {
                 message.setType(p2pMessage.getContentType());
                 message.setStatus(MessageStatus.DELIVERED);
                 message.setSentAt(LocalDateTime.now());
+                if (p2pMessage.getMessageId() != null) {
+                    // A retransmitted P2P message maps to the same history entry
+                    message.setClientMessageId("p2p:" + p2pMessage.getMessageId());
+                }
 
-                Message savedMessage = RMIClient.getInstance()
-                        .getMessageService()
-                        .saveMessage(message);
+                Message savedMessage = syncService.save(senderId, message);
+                localStore.append(senderId, savedMessage);
 
-                Platform.runLater(() -> {
+                ui.post(() -> {
                     session.addMessage(savedMessage);
 
-                    if (currentChatSession != null &&
-                            currentChatSession.getFriend().getId().equals(senderId)) {
+                    boolean chatOpen = currentChatSession != null &&
+                            currentChatSession.getFriend().getId().equals(senderId);
+                    unreadCounterService.onIncomingMessage(senderId, savedMessage.getContent(),
+                            savedMessage.getSentAt(), chatOpen);
+
+                    if (chatOpen) {
                         displayMessage(savedMessage, false);
 
                         messageService.sendReadReceipt(senderId, p2pMessage.getMessageId());
 
-                        new Thread(() -> {
-                            try {
-                                RMIClient.getInstance()
-                                        .getMessageService()
-                                        .updateMessageStatus(savedMessage.getId(), MessageStatus.READ.name());
-                            } catch (Exception e) {
-                                System.err.println("❌ Error updating to READ: " + e.getMessage());
-                            }
-                        }).start();
+                        gateway.execute(() -> {
+                            syncService.updateStatus(senderId, savedMessage, MessageStatus.READ);
+                            localStore.append(senderId, savedMessage);
+                        }).exceptionally(e -> {
+                            System.err.println("⚠️ Read status not saved: " + e.getMessage());
+                            return null;
+                        });
                     }
 
                     System.out.println("✅ Incoming message saved and displayed");
@@ -534,11 +656,14 @@ public class ChatController extends BaseController {
                 System.err.println("❌ Error saving incoming message: " + e.getMessage());
                 e.printStackTrace();
             }
-        }).start();
+        }).exceptionally(e -> {
+            System.err.println("❌ Incoming message not saved: " + e.getMessage());
+            return null;
+        });
     }
 
     private void handleIncomingFileTransfer(P2PMessage p2pMessage) {
-        Platform.runLater(() -> {
+        ui.post(() -> {
             Long senderId = p2pMessage.getSenderId();
 
             if (!chatSessions.containsKey(senderId)) {
@@ -553,7 +678,7 @@ public class ChatController extends BaseController {
                     ? p2pMessage.getContentType()
                     : MessageType.FILE;
 
-            new Thread(() -> {
+            gateway.execute(() -> {
                 try {
                     Message message = new Message();
                     message.setSenderId(senderId);
@@ -570,15 +695,22 @@ public class ChatController extends BaseController {
                         message.setContent("📎 " + p2pMessage.getFileName());
                     }
 
-                    Message savedMessage = RMIClient.getInstance()
-                            .getMessageService()
-                            .saveMessage(message);
+                    if (p2pMessage.getMessageId() != null) {
+                        message.setClientMessageId("p2p:" + p2pMessage.getMessageId());
+                    }
+
+                    Message savedMessage = syncService.save(senderId, message);
+                    localStore.append(senderId, savedMessage);
 
-                    Platform.runLater(() -> {
+                    ui.post(() -> {
                         session.addMessage(savedMessage);
 
-                        if (currentChatSession != null &&
-                                currentChatSession.getFriend().getId().equals(senderId)) {
+                        boolean chatOpen = currentChatSession != null &&
+                                currentChatSession.getFriend().getId().equals(senderId);
+                        unreadCounterService.onIncomingMessage(senderId, savedMessage.getContent(),
+                                savedMessage.getSentAt(), chatOpen);
+
+                        if (chatOpen) {
                             displayMessage(savedMessage, false);
                         }
 
@@ -590,226 +722,273 @@ public class ChatController extends BaseController {
                 } catch (Exception e) {
                     System.err.println("❌ Error saving file transfer: " + e.getMessage());
                 }
-            }).start();
+            }).exceptionally(e -> {
+                System.err.println("❌ File transfer not saved: " + e.getMessage());
+                return null;
+            });
         });
     }
 
     private void displayMessage(Message message, boolean addToSession) {
-        if (message.getContent() == null || message.getContent().trim().isEmpty()) {
-            if (message.getType() != MessageType.FILE && message.getType() != MessageType.IMAGE) {
-                return;
+        displayMessages(List.of(message));
+    }
+
+    // ✅ One list change (and one layout pass) per batch, not per message
+    private void displayMessages(List<Message> messages) {
+        List<Message> toAdd = new ArrayList<>();
+        for (Message message : messages) {
+            if (message.getContent() == null || message.getContent().trim().isEmpty()) {
+                if (message.getType() != MessageType.FILE && message.getType() != MessageType.IMAGE) {
+                    continue;
+                }
             }
-        }
 
-        String messageId = message.getSenderId() + "_" +
-                message.getReceiverId() + "_" +
-                (message.getId() != null ? message.getId() : message.getContent()) + "_" +
-                message.getSentAt();
+            String messageId = message.getSenderId() + "_" +
+                    message.getReceiverId() + "_" +
+                    (message.getId() != null ? message.getId() : message.getContent()) + "_" +
+                    message.getSentAt();
 
-        if (displayedMessageIds.contains(messageId)) {
+            if (displayedMessageIds.add(messageId)) {
+                toAdd.add(message);
+            }
+        }
+        if (toAdd.isEmpty()) {
             return;
         }
+        messagesList.getItems().addAll(toAdd);
+        messagesList.scrollTo(messagesList.getItems().size() - 1);
+    }
 
-        displayedMessageIds.add(messageId);
-
-        boolean isSent = message.getSenderId().equals(
-                UserSession.getInstance().getCurrentUser().getId()
-        );
-
-        HBox messageBox = new HBox(10);
-        messageBox.setPadding(new Insets(5, 10, 5, 10));
-        messageBox.setAlignment(isSent ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
-
-        VBox messageContent = new VBox(5);
-        messageContent.setMaxWidth(400);
-
-        VBox bubble = new VBox(5);
-        bubble.setPadding(new Insets(10, 15, 10, 15));
-        bubble.setStyle(
-                "-fx-background-color: " + (isSent ? "#0078d4" : "#f3f3f3") + ";" +
-                        "-fx-background-radius: 18px;"
-        );
+    // ✅ Stat each image file once per conversation and off the FX thread; cells scroll on the result
+    private CompletableFuture<ThumbnailService.Source> resolveImageSource(String fileName) {
+        return resolvingImages.computeIfAbsent(fileName, name -> thumbnailService.resolve(List.of(
+                new File(fileTransferService.getImageCachePath(), name),
+                new File(fileTransferService.getDownloadPath(), name))));
+    }
 
-        // ✅ TEXT MESSAGE
-        if (message.getType() == MessageType.TEXT) {
-            Label contentLabel = new Label(message.getContent());
-            contentLabel.setWrapText(true);
-            contentLabel.setMaxWidth(370);
-            contentLabel.setStyle(
-                    "-fx-text-fill: " + (isSent ? "white" : "#323130") + ";" +
-                            "-fx-font-size: 14px;"
-            );
-            bubble.getChildren().add(contentLabel);
-        }
-        // ✅ IMAGE MESSAGE - Display inline
-        else if (message.getType() == MessageType.IMAGE) {
-            VBox imageContainer = createImageBubble(message, isSent);
-            bubble.getChildren().add(imageContainer);
-        }
-        // ✅ FILE MESSAGE - Show download button
-        else if (message.getType() == MessageType.FILE) {
-            VBox fileContainer = createFileBubbleWithOpen(message, isSent);
-            bubble.getChildren().add(fileContainer);
+    /**
+     * Message bubble of the virtualized message list. The list only creates as many cells as
+     * fit on screen and reuses them while scrolling, so each cell builds its text, image and
+     * file layouts once and {@link #updateItem} only refills them.
+     */
+    private class MessageCell extends ListCell<Message> {
+        private final HBox row = new HBox(10);
+        private final VBox bubble = new VBox(5);
+        private final HBox statusBox = new HBox(5);
+        private final Label timeLabel = new Label();
+        private final Label statusLabel = new Label();
+
+        // Built on first use; a cell may never show an image or a file
+        private Label textLabel;
+        private ImageView imageView;
+        private Label imageErrorLabel;
+        private VBox fileBox;
+        private Label fileIconLabel;
+        private Label fileNameLabel;
+        private Label fileSizeLabel;
+        private Button openButton;
+
+        MessageCell() {
+            row.setPadding(new Insets(5, 10, 5, 10));
+            bubble.setPadding(new Insets(10, 15, 10, 15));
+            bubble.setMaxWidth(400);
+            statusBox.setAlignment(Pos.CENTER_RIGHT);
+            row.getChildren().add(bubble);
+            // Let the list width, not the content, decide the cell width
+            setPrefWidth(0);
+            setText(null);
         }
 
-        // ✅ Status box (time + status icon)
-        HBox statusBox = new HBox(5);
-        statusBox.setAlignment(Pos.CENTER_RIGHT);
+        @Override
+        protected void updateItem(Message message, boolean empty) {
+            super.updateItem(message, empty);
+            if (empty || message == null) {
+                setGraphic(null);
+                return;
+            }
 
-        if (message.getSentAt() != null) {
-            Label timeLabel = new Label(message.getSentAt().format(timeFormatter));
-            timeLabel.setStyle(
-                    "-fx-text-fill: " + (isSent ? "rgba(255,255,255,0.7)" : "#605e5c") + ";" +
-                            "-fx-font-size: 11px;"
-            );
-            statusBox.getChildren().add(timeLabel);
-        }
+            boolean isSent = message.getSenderId().equals(UserSession.getInstance().getCurrentUser().getId());
+            row.setAlignment(isSent ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
+            bubble.setStyle(isSent ? SENT_BUBBLE_STYLE : RECEIVED_BUBBLE_STYLE);
 
-        if (isSent && message.getStatus() != null) {
-            String statusIcon = switch (message.getStatus()) {
-                case SENDING -> "⏳";
-                case SENT -> "✓";
-                case DELIVERED -> "✓✓";
-                case READ -> "✓✓";
-                case FAILED -> "❌";
+            Node content = switch (message.getType()) {
+                case IMAGE -> imageContent(message);
+                case FILE -> fileContent(message, isSent);
+                default -> textContent(message, isSent);
             };
-
-            Label statusLabel = new Label(statusIcon);
-            statusLabel.setStyle(
-                    "-fx-text-fill: " + (isSent ? "rgba(255,255,255,0.7)" : "#605e5c") + ";" +
-                            "-fx-font-size: 11px;"
-            );
-            statusBox.getChildren().add(statusLabel);
-        }
-
-        bubble.getChildren().add(statusBox);
-
-        messageContent.getChildren().add(bubble);
-        messageBox.getChildren().add(messageContent);
-
-        messagesContainer.getChildren().add(messageBox);
-    }
-
-    private VBox createImageBubble(Message message, boolean isSent) {
-        VBox container = new VBox(8);
-        container.setAlignment(Pos.CENTER_LEFT);
-
-        try {
-            File imageFile = new File(
-                    fileTransferService.getImageCachePath(),
-                    message.getFileName()
-            );
-
-            if (!imageFile.exists()) {
-                imageFile = new File(
-                        fileTransferService.getDownloadPath(),
-                        message.getFileName()
-                );
+            if (bubble.getChildren().isEmpty() || bubble.getChildren().get(0) != content) {
+                bubble.getChildren().setAll(content, statusBox);
             }
 
-            if (!imageFile.exists()) {
-                throw new RuntimeException("Image file not found: " + message.getFileName());
+            String metaStyle = isSent ? SENT_META_STYLE : RECEIVED_META_STYLE;
+            timeLabel.setText(message.getSentAt() != null ? message.getSentAt().format(timeFormatter) : "");
+            timeLabel.setStyle(metaStyle);
+            statusLabel.setStyle(metaStyle);
+            if (isSent && message.getStatus() != null) {
+                statusLabel.setText(switch (message.getStatus()) {
+                    case SENDING -> "⏳";
+                    case SENT -> "✓";
+                    case DELIVERED -> "✓✓";
+                    case READ -> "✓✓";
+                    case FAILED -> "❌";
+                });
+                statusBox.getChildren().setAll(timeLabel, statusLabel);
+            } else {
+                statusBox.getChildren().setAll(timeLabel);
             }
 
-            Image image = new Image(imageFile.toURI().toString(), true);
-            ImageView imageView = new ImageView(image);
-
-            imageView.setFitWidth(280);
-            imageView.setPreserveRatio(true);
-            imageView.setSmooth(true);
-
-            File finalImageFile = imageFile;
-            imageView.setOnMouseClicked(e -> {
-                try {
-                    Desktop.getDesktop().open(finalImageFile);
-                } catch (Exception ex) {
-                    showError("Open Error", ex.getMessage());
-                }
-            });
-
-            container.getChildren().add(imageView);
-
-        } catch (Exception e) {
-            Label error = new Label("🖼️ Image not available");
-            error.setStyle("-fx-text-fill: red;");
-            container.getChildren().add(error);
+            setGraphic(row);
         }
 
-        return container;
-    }
-
-    private VBox createFileBubbleWithOpen(Message message, boolean isSent) {
-        VBox container = new VBox(8);
-
-        String fileIcon = getFileIcon(message.getFileName());
-
-        // File info
-        HBox fileInfoBox = new HBox(8);
-        fileInfoBox.setAlignment(Pos.CENTER_LEFT);
-
-        Label iconLabel = new Label(fileIcon);
-        iconLabel.setStyle("-fx-font-size: 24px;");
-
-        VBox fileDetails = new VBox(2);
-
-        Label fileNameLabel = new Label(message.getFileName());
-        fileNameLabel.setStyle(
-                "-fx-text-fill: " + (isSent ? "white" : "#323130") + ";" +
-                        "-fx-font-size: 13px;" +
-                        "-fx-font-weight: bold;"
-        );
-        fileNameLabel.setWrapText(true);
-        fileNameLabel.setMaxWidth(250);
+        private Label textContent(Message message, boolean isSent) {
+            if (textLabel == null) {
+                textLabel = new Label();
+                textLabel.setWrapText(true);
+                textLabel.setMaxWidth(370);
+            }
+            textLabel.setText(message.getContent());
+            textLabel.setStyle(isSent ? SENT_TEXT_STYLE : RECEIVED_TEXT_STYLE);
+            return textLabel;
+        }
 
-        Label fileSizeLabel = new Label(
-                message.getFileSize() != null
-                        ? formatFileSize(message.getFileSize())
-                        : "Unknown size"
-        );
-        fileSizeLabel.setStyle(
-                "-fx-text-fill: " + (isSent ? "rgba(255,255,255,0.8)" : "#605e5c") + ";" +
-                        "-fx-font-size: 11px;"
-        );
+        private Node imageContent(Message message) {
+            String fileName = message.getFileName();
+            if (fileName != null && !imageSources.containsKey(fileName)) {
+                // Blank until the file is found, then rebuilt from imageSources
+                resolveImageSource(fileName).whenComplete((source, error) -> ui.post(() -> {
+                    imageSources.put(fileName, source);
+                    resolvingImages.remove(fileName);
+                    if (getItem() == message) {
+                        Node content = imageContent(message);
+                        if (bubble.getChildren().get(0) != content) {
+                            bubble.getChildren().set(0, content);
+                        }
+                    }
+                }));
+                ensureImageView();
+                imageView.setImage(null);
+                return imageView;
+            }
+            ThumbnailService.Source source = fileName != null ? imageSources.get(fileName) : null;
+            if (source == null) {
+                return imageError("🖼️ Image not available");
+            }
+            // ✅ Known bad: no re-hash and retry on every scroll
+            if (thumbnailService.hasFailed(source)) {
+                return imageError("🖼️ Preview not available");
+            }
 
-        fileDetails.getChildren().addAll(fileNameLabel, fileSizeLabel);
-        fileInfoBox.getChildren().addAll(iconLabel, fileDetails);
-
-        // ✅ OPEN button
-        Button openButton = new Button("📂 Open");
-        openButton.setStyle(
-                "-fx-background-color: " + (isSent ? "#005a9e" : "#0078d4") + ";" +
-                        "-fx-text-fill: white;" +
-                        "-fx-font-size: 12px;" +
-                        "-fx-padding: 6 18 6 18;" +
-                        "-fx-background-radius: 15px;" +
-                        "-fx-cursor: hand;"
-        );
+            ensureImageView();
+            // ✅ Thumbnail only; the full image is decoded by whatever opens the file
+            Image thumbnail = thumbnailService.getCached(source);
+            imageView.setImage(thumbnail);
+            if (thumbnail == null) {
+                thumbnailService.load(source).whenComplete((loaded, error) -> ui.post(() -> {
+                    // The cell may show another message by now
+                    if (getItem() != message) {
+                        return;
+                    }
+                    if (error != null) {
+                        bubble.getChildren().set(0, imageError("🖼️ Preview not available"));
+                    } else {
+                        imageView.setImage(loaded);
+                    }
+                }));
+            }
+            return imageView;
+        }
 
-        openButton.setOnAction(e -> openFile(message));
-        // ✅ OPEN FOLDER button
-        Button openFolderButton = new Button("📂 Open Folder");
-        openFolderButton.setStyle(
-                "-fx-background-color: #5a5a5a;" +
-                        "-fx-text-fill: white;" +
-                        "-fx-font-size: 12px;" +
-                        "-fx-padding: 6 14 6 14;" +
-                        "-fx-background-radius: 15px;" +
-                        "-fx-cursor: hand;"
-        );
-        openFolderButton.setOnAction(e -> openFileLocation(message));
+        private void ensureImageView() {
+
+            if (imageView == null) {
+                imageView = new ImageView();
+                imageView.setFitWidth(AppConstants.THUMBNAIL_WIDTH);
+                imageView.setPreserveRatio(true);
+                imageView.setSmooth(true);
+                imageView.setOnMouseClicked(e -> {
+                    ThumbnailService.Source source = getItem() != null && getItem().getFileName() != null
+                            ? imageSources.get(getItem().getFileName()) : null;
+                    if (source == null) {
+                        return;
+                    }
+                    try {
+                        Desktop.getDesktop().open(source.getFile());
+                    } catch (Exception ex) {
+                        showError("Open Error", ex.getMessage());
+                    }
+                });
+            }
+        }
 
-        HBox buttonBox = new HBox(8, openButton, openFolderButton);
-        buttonBox.setAlignment(Pos.CENTER_LEFT);
+        private Label imageError(String text) {
+            if (imageErrorLabel == null) {
+                imageErrorLabel = new Label();
+                imageErrorLabel.setStyle("-fx-text-fill: red;");
+            }
+            imageErrorLabel.setText(text);
+            return imageErrorLabel;
+        }
 
-        container.getChildren().addAll(fileInfoBox, buttonBox);
+        private VBox fileContent(Message message, boolean isSent) {
+            if (fileBox == null) {
+                fileIconLabel = new Label();
+                fileIconLabel.setStyle("-fx-font-size: 24px;");
+
+                fileNameLabel = new Label();
+                fileNameLabel.setWrapText(true);
+                fileNameLabel.setMaxWidth(250);
+                fileNameLabel.setOnMouseClicked(e -> {
+                    if (e.getClickCount() == 2 && getItem() != null) {
+                        openFileLocation(getItem());
+                    }
+                });
+                fileSizeLabel = new Label();
+
+                HBox fileInfoBox = new HBox(8, fileIconLabel, new VBox(2, fileNameLabel, fileSizeLabel));
+                fileInfoBox.setAlignment(Pos.CENTER_LEFT);
+
+                // ✅ OPEN button
+                openButton = new Button("📂 Open");
+                openButton.setOnAction(e -> openFile(getItem()));
+                // ✅ OPEN FOLDER button
+                Button openFolderButton = new Button("📂 Open Folder");
+                openFolderButton.setStyle(
+                        "-fx-background-color: #5a5a5a;" +
+                                "-fx-text-fill: white;" +
+                                "-fx-font-size: 12px;" +
+                                "-fx-padding: 6 14 6 14;" +
+                                "-fx-background-radius: 15px;" +
+                                "-fx-cursor: hand;"
+                );
+                openFolderButton.setOnAction(e -> openFileLocation(getItem()));
 
-        fileNameLabel.setOnMouseClicked(e -> {
-            if (e.getClickCount() == 2) {
-                openFileLocation(message);
+                HBox buttonBox = new HBox(8, openButton, openFolderButton);
+                buttonBox.setAlignment(Pos.CENTER_LEFT);
+                fileBox = new VBox(8, fileInfoBox, buttonBox);
             }
-        });
 
-        return container;
+            fileIconLabel.setText(getFileIcon(message.getFileName()));
+            fileNameLabel.setText(message.getFileName());
+            fileNameLabel.setStyle(
+                    "-fx-text-fill: " + (isSent ? "white" : "#323130") + ";" +
+                            "-fx-font-size: 13px;" +
+                            "-fx-font-weight: bold;"
+            );
+            fileSizeLabel.setText(message.getFileSize() != null ? formatFileSize(message.getFileSize()) : "Unknown size");
+            fileSizeLabel.setStyle(
+                    "-fx-text-fill: " + (isSent ? "rgba(255,255,255,0.8)" : "#605e5c") + ";" +
+                            "-fx-font-size: 11px;"
+            );
+            openButton.setStyle(
+                    "-fx-background-color: " + (isSent ? "#005a9e" : "#0078d4") + ";" +
+                            "-fx-text-fill: white;" +
+                            "-fx-font-size: 12px;" +
+                            "-fx-padding: 6 18 6 18;" +
+                            "-fx-background-radius: 15px;" +
+                            "-fx-cursor: hand;"
+            );
+            return fileBox;
+        }
     }
 
     private void openFile(Message message) {
@@ -882,6 +1061,81 @@ public class ChatController extends BaseController {
         return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
     }
 
+    // ✅ Full-text search over every cached conversation (see LocalMessageStore#search)
+    @FXML
+    private void handleSearchHistory() {
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.setTitle("Search Messages");
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        TextField queryField = new TextField();
+        queryField.setPromptText("Words, or \"an exact phrase\"");
+        ListView<Message> results = new ListView<>();
+        results.setPrefSize(460, 360);
+        results.setPlaceholder(new Label("No messages found"));
+        results.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(Message message, boolean empty) {
+                super.updateItem(message, empty);
+                if (empty || message == null) {
+                    setText(null);
+                    return;
+                }
+                String time = message.getSentAt() != null ? message.getSentAt().format(DateTimeFormatter.ofPattern("dd/MM HH:mm")) : "";
+                setText(conversationName(message) + " · " + time + "\n" + message.getContent());
+            }
+        });
+        results.setOnMouseClicked(event -> {
+            Message selected = results.getSelectionModel().getSelectedItem();
+            if (event.getClickCount() != 2 || selected == null) {
+                return;
+            }
+            // Cached conversations include chats not opened since login
+            Long friendId = friendIdOf(selected);
+            ChatSession session = chatSessions.get(friendId);
+            if (conversationOpener != null) {
+                dialog.close();
+                conversationOpener.accept(friendId);
+            } else if (session != null) {
+                dialog.close();
+                openChat(session.getFriend());
+            }
+        });
+
+        PauseTransition debounce = new PauseTransition(Duration.millis(AppConstants.USER_SEARCH_DEBOUNCE_MS));
+        debounce.setOnFinished(event -> {
+            String query = queryField.getText();
+            localStore.search(query, AppConstants.MESSAGE_SEARCH_LIMIT).thenAccept(found -> Platform.runLater(() -> {
+                // Drop answers to queries the user has already typed past
+                if (query.equals(queryField.getText())) {
+                    results.getItems().setAll(found);
+                }
+            }));
+        });
+        queryField.textProperty().addListener((obs, oldVal, newVal) -> debounce.playFromStart());
+
+        VBox content = new VBox(10, queryField, results);
+        content.setPadding(new Insets(10));
+        dialog.getDialogPane().setContent(content);
+        dialog.initOwner(stage);
+        Platform.runLater(queryField::requestFocus);
+        dialog.showAndWait();
+        debounce.stop();
+    }
+
+    private Long friendIdOf(Message message) {
+        Long currentUserId = UserSession.getInstance().getCurrentUser().getId();
+        return currentUserId.equals(message.getSenderId()) ? message.getReceiverId() : message.getSenderId();
+    }
+
+    private String conversationName(Message message) {
+        ChatSession session = chatSessions.get(friendIdOf(message));
+        if (session == null || session.getFriend().getDisplayName() == null) {
+            return "User " + friendIdOf(message);
+        }
+        return session.getFriend().getDisplayName();
+    }
+
     private void updateChatStatus(UserDTO user) {
         if (user == null || user.getStatus() == null) {
             chatStatusLabel.setText("Offline");
@@ -911,31 +1165,23 @@ public class ChatController extends BaseController {
             return;
         }
 
-        CompletableFuture.runAsync(() -> {
-            try {
-                Image image;
-
-                if (avatarUrl.startsWith("http")) {
-                    image = new Image(avatarUrl, true);
-                } else {
-                    File file = new File(avatarUrl);
-                    image = file.exists()
-                            ? new Image(file.toURI().toString())
-                            : new Image(getClass().getResourceAsStream(avatarUrl));
-                }
-
-                Platform.runLater(() -> {
-                    if (image.isError()) {
-                        loadDefaultAvatar();
-                    } else {
-                        setRegionBackgroundImage(avatarFriend, image);
-                    }
-                });
-
-            } catch (Exception e) {
-                Platform.runLater(this::loadDefaultAvatar);
+        // ✅ Shared cache: instant after the first chat open, no network after a restart
+        Image cached = avatarService.getCached(avatarUrl, AVATAR_SIZE);
+        if (cached != null) {
+            setRegionBackgroundImage(avatarFriend, cached);
+            return;
+        }
+        ChatSession session = currentChatSession;
+        avatarService.load(avatarUrl, AVATAR_SIZE).whenComplete((image, error) -> ui.post(() -> {
+            if (currentChatSession != session) {
+                return;
             }
-        });
+            if (image == null) {
+                loadDefaultAvatar();
+            } else {
+                setRegionBackgroundImage(avatarFriend, image);
+            }
+        }));
     }
 
     private void setRegionBackgroundImage(Region region, Image image) {
@@ -18,6 +18,8 @@ import vku.chatapp.client.model.UserSession;
 import vku.chatapp.client.rmi.ServiceLocator;
 import vku.chatapp.client.service.AuthService;
 import vku.chatapp.client.rmi.RMIClient;
+import vku.chatapp.client.rmi.RMIGateway;
+import vku.chatapp.client.util.ViewRegistry;
 
 public class LoginController extends BaseController {
     @FXML private TextField emailField;
@@ -36,6 +38,9 @@ public class LoginController extends BaseController {
             ServiceLocator.getInstance().initialize();
             authService = new AuthService();
             errorLabel.setVisible(false);
+
+            // ✅ The main window embeds the chat view; parse it while credentials are typed
+            ViewRegistry.getInstance().preload("/view/chat.fxml");
         } catch (Exception e) {
             showError("Connection Error", "Unable to connect to server: " + e.getMessage());
         }
@@ -54,8 +59,10 @@ public class LoginController extends BaseController {
 
         loginButton.setDisable(true);
 
-        new Thread(() -> {
-            AuthResponse response = authService.login(email, password, rememberMe);
+        RMIGateway.getInstance().submit(() -> authService.login(email, password, rememberMe)).whenComplete((result, error) -> {
+            AuthResponse response = error != null
+                    ? new AuthResponse(false, "Connection error: " + error.getMessage())
+                    : result;
 
             javafx.application.Platform.runLater(() -> {
                 loginButton.setDisable(false);
@@ -65,16 +72,15 @@ public class LoginController extends BaseController {
                     UserSession.getInstance().setSessionToken(response.getSessionToken());
 
                     // ✅ OPTIMIZED: Update status ASYNC (non-blocking)
-                    new Thread(() -> {
-                        try {
-                            RMIClient.getInstance()
-                                    .getUserService()
-                                    .updateStatus(response.getUser().getId(), UserStatus.ONLINE);
-                            System.out.println("✅ User status updated to ONLINE");
-                        } catch (Exception e) {
-                            System.err.println("⚠️ Failed to update status: " + e.getMessage());
-                        }
-                    }).start();
+                    RMIGateway.getInstance().execute(() -> {
+                        RMIClient.getInstance()
+                                .getUserService()
+                                .updateStatus(response.getUser().getId(), UserStatus.ONLINE);
+                        System.out.println("✅ User status updated to ONLINE");
+                    }).exceptionally(e -> {
+                        System.err.println("⚠️ Failed to update status: " + e.getMessage());
+                        return null;
+                    });
 
                     // Switch scene immediately without waiting
                     if (stage == null) {
@@ -85,7 +91,7 @@ public class LoginController extends BaseController {
                     showErrorMessage(response.getMessage());
                 }
             });
-        }).start();
+        });
     }
 
     @FXML
@@ -124,8 +130,8 @@ public class LoginController extends BaseController {
             loadingAlert.setContentText("Vui lòng đợi...");
             loadingAlert.show();
 
-            new Thread(() -> {
-                boolean success = authService.sendPasswordResetOtp(email);
+            RMIGateway.getInstance().submit(() -> authService.sendPasswordResetOtp(email)).whenComplete((result, error) -> {
+                boolean success = error == null && Boolean.TRUE.equals(result);
 
                 javafx.application.Platform.runLater(() -> {
                     loadingAlert.close();
@@ -153,7 +159,7 @@ public class LoginController extends BaseController {
                         showError("Lỗi", "Không thể gửi mã OTP. Vui lòng kiểm tra email và thử lại.");
                     }
                 });
-            }).start();
+            });
         });
     }
 
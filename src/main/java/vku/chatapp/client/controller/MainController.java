@@ -4,30 +4,47 @@
 package vku.chatapp.client.controller;
 
     import javafx.application.Platform;
+    import javafx.beans.binding.Bindings;
     import javafx.collections.FXCollections;
     import javafx.collections.ObservableList;
     import javafx.fxml.FXML;
-    import javafx.fxml.FXMLLoader;
     import javafx.geometry.Insets;
     import javafx.geometry.Pos;
+    import javafx.scene.Node;
     import javafx.scene.Parent;
     import javafx.scene.Scene;
     import javafx.scene.control.*;
     import javafx.scene.image.Image;
     import javafx.scene.layout.*;
     import javafx.scene.text.Font;
+    import javafx.stage.FileChooser;
     import javafx.stage.Modality;
     import javafx.stage.Stage;
     import vku.chatapp.client.controller.component.ProfileEditorController;
     import vku.chatapp.client.model.CallSession;
+    import vku.chatapp.client.model.FriendSearchIndex;
+    import vku.chatapp.client.model.FriendViewModel;
     import vku.chatapp.client.model.UserSession;
     import vku.chatapp.client.p2p.P2PServer;
     import vku.chatapp.client.p2p.P2PMessageHandler;
     import vku.chatapp.client.p2p.PeerRegistry;
     import vku.chatapp.client.service.AuthService;
+    import vku.chatapp.client.service.AvatarService;
+    import vku.chatapp.client.service.ConversationPrefetcher;
     import vku.chatapp.client.service.FriendService;
+    import vku.chatapp.client.service.MessageSyncService;
+    import vku.chatapp.client.service.PeerDiscoveryService;
     import vku.chatapp.client.service.StatusUpdateService;
+    import vku.chatapp.client.service.UnreadCounterService;
+    import vku.chatapp.client.service.UserSearchService;
     import vku.chatapp.client.service.UserService;
+    import vku.chatapp.client.storage.LocalMessageStore;
+    import vku.chatapp.client.util.FxWatchdog;
+    import vku.chatapp.client.util.ListDiff;
+    import vku.chatapp.client.util.UiUpdateScheduler;
+    import vku.chatapp.client.util.ViewRegistry;
+    import vku.chatapp.common.constants.AppConstants;
+    import vku.chatapp.common.dto.ConversationSummary;
     import vku.chatapp.common.dto.PeerInfo;
     import vku.chatapp.common.dto.UserDTO;
     import vku.chatapp.common.enums.CallType;
@@ -37,16 +54,26 @@ package vku.chatapp.client.controller;
     import vku.chatapp.common.protocol.P2PMessage;
     import vku.chatapp.common.protocol.P2PMessageType;
     import vku.chatapp.client.rmi.RMIClient;
+    import vku.chatapp.client.rmi.RMIConnectionManager;
+    import vku.chatapp.client.rmi.RMIGateway;
+    import vku.chatapp.client.rmi.RMIMetrics;
+    import vku.chatapp.common.rmi.socket.SocketStats;
 
 import java.io.IOException;
 import java.net.InetAddress;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.function.Function;
     import java.util.concurrent.*;
     import java.io.File;
 import java.io.IOException;
@@ -71,7 +98,7 @@ public class MainController extends BaseController {
 
     // Friend List Components
     @FXML private TextField filterFriendField;
-    @FXML private ListView<UserDTO> friendListView;
+    @FXML private ListView<FriendViewModel> friendListView;
     @FXML private ListView<String> chatListView;
     @FXML private VBox chatAreaContainer;
     @FXML private VBox sidebarContainer;
@@ -87,16 +114,41 @@ public class MainController extends BaseController {
     private FriendService friendService;
     private UserDTO selectedFriend;
     private UserDTO searchedUser;
-    private ObservableList<UserDTO> friendList;
-    private ObservableList<UserDTO> allFriends;
-    private Timer heartbeatTimer;
+    private ObservableList<FriendViewModel> friendList;
+    private ObservableList<FriendViewModel> allFriends;
+    // Same models as allFriends, for O(1) presence and unread updates
+    private final Map<Long, FriendViewModel> friendsById = new HashMap<>();
+    // Substring index over allFriends for the filter box; friendList is allFriends filtered by it
+    private final FriendSearchIndex friendIndex = new FriendSearchIndex();
+    // Request cards by request id, reused across the 1 s refreshes
+    private final Map<Long, RequestCard> receivedCards = new HashMap<>();
+    private final Map<Long, RequestCard> sentCards = new HashMap<>();
+    // Request id -> failed user lookups, and when its card may be built again (ms); FX thread
+    private final Map<Long, Integer> requestLookupFailures = new HashMap<>();
+    private final Map<Long, Long> requestRetryAt = new HashMap<>();
+    private static final long REQUEST_RETRY_MAX_MS = 60000;
+    // Unread summaries arrived; with the friend list, enough to rank conversations for prefetch
+    private boolean summariesLoaded;
+    private Node receivedEmptyState;
+    private Node sentEmptyState;
     private StatusUpdateService statusUpdateService;
+    // Kept so logout removes the same instance (a second method reference would not match)
+    private final StatusUpdateService.StatusUpdateListener statusListener = this::handleStatusUpdate;
     private User currentUser;
 
     private ScheduledExecutorService requestRefreshScheduler;
 
-    // ✅ Thread pool for async operations
-    private ExecutorService executorService;
+    // ✅ All RMI work goes through the bounded gateway
+    private RMIGateway gateway;
+    private UserService userService;
+    private PeerDiscoveryService peerDiscoveryService;
+    private RMIConnectionManager.ConnectionListener connectionListener;
+    private UnreadCounterService unreadCounterService;
+    private UnreadCounterService.UnreadListener unreadListener;
+    private ContextMenu searchSuggestions;
+    private UiUpdateScheduler ui;
+    private AvatarService avatarService;
+    private static final double OWN_AVATAR_SIZE = 45;
 
     @FXML
     public void initialize() {
@@ -104,14 +156,19 @@ public class MainController extends BaseController {
         statusLabel.setText("Online");
 
         friendService = new FriendService();
+        ui = UiUpdateScheduler.getInstance();
+        avatarService = AvatarService.getInstance();
         statusUpdateService = StatusUpdateService.getInstance();
         friendList = FXCollections.observableArrayList();
         allFriends = FXCollections.observableArrayList();
         friendListView.setItems(friendList);
         friendListView.setCellFactory(lv -> new FriendListCell());
 
-        // ✅ Create thread pool
-        executorService = Executors.newCachedThreadPool();
+        gateway = RMIGateway.getInstance();
+        userService = new UserService();
+        LocalMessageStore.getInstance().open(UserSession.getInstance().getCurrentUser().getId());
+        MessageSyncService.getInstance().start();
+        peerDiscoveryService = new PeerDiscoveryService();
 
         initializeP2PServer();
         registerPeerWithServer();
@@ -121,18 +178,33 @@ public class MainController extends BaseController {
         setupMessageHandlers();
         setupFriendSelection();
         setupFriendFilter();
-        startHeartbeat();
+        setupUserSearch();
         startStatusPolling();
+        loadUnreadCounters();
+        watchConnection();
         loadFriendRequests();
         startRequestAutoRefresh();
+
+        // ✅ Parse the call window now, so calls open without it
+        ViewRegistry.getInstance().keepWarm("/view/video-call.fxml");
+        FxWatchdog.getInstance().start();
+
         Platform.runLater(() -> {
             Stage stage = (Stage) usernameLabel.getScene().getWindow();
             this.stage = stage; // gán cho BaseController
+            FxWatchdog.getInstance().attach(usernameLabel.getScene());
 
             stage.setOnCloseRequest(event -> {
                 System.out.println("🚪 App window closed");
                 handleAppExit();
             });
+
+            // ✅ Heartbeat interval follows window activity
+            statusUpdateService.setWindowFocused(stage.isFocused());
+            stage.focusedProperty().addListener((obs, oldVal, newVal) ->
+                    statusUpdateService.setWindowFocused(newVal));
+            stage.iconifiedProperty().addListener((obs, oldVal, newVal) ->
+                    statusUpdateService.setWindowMinimized(newVal));
         });
 
     }
@@ -211,175 +283,276 @@ public class MainController extends BaseController {
 
     private void registerPeerWithServer() {
         // ✅ Async registration for faster startup
-        executorService.submit(() -> {
-            try {
-                if (p2pServer != null && p2pServer.getPort() > 0) {
-                    Long userId = UserSession.getInstance().getCurrentUser().getId();
-                    String localIP = getLocalIPAddress();
-
-                    PeerInfo peerInfo = new PeerInfo(userId, localIP, p2pServer.getPort());
-
-//                    PeerInfo peerInfo = new PeerInfo(
-//                            userId,
-//                            "localhost",
-//                            p2pServer.getPort()
-//                    );
-
-                    boolean registered = RMIClient.getInstance()
-                            .getPeerDiscoveryService()
-                            .registerPeer(peerInfo);
+        gateway.execute(() -> {
+            if (p2pServer != null && p2pServer.getPort() > 0) {
+                Long userId = UserSession.getInstance().getCurrentUser().getId();
+                String localIP = getLocalIPAddress();
 
-                    if (registered) {
-                        System.out.println("✅ Peer registered: " + localIP + ":" + p2pServer.getPort());
+                PeerInfo peerInfo = new PeerInfo(userId, localIP, p2pServer.getPort());
 
-                        // Update status async
-                        RMIClient.getInstance()
-                                .getUserService()
-                                .updateStatus(userId, UserStatus.ONLINE);
+                if (peerDiscoveryService.registerPeer(peerInfo)) {
+                    System.out.println("✅ Peer registered: " + localIP + ":" + p2pServer.getPort());
 
-                        System.out.println("✅ Status set to ONLINE");
-                    }
+                    userService.updateStatus(userId, UserStatus.ONLINE);
+                    System.out.println("✅ Status set to ONLINE");
                 }
-            } catch (Exception e) {
-                System.err.println("❌ Registration failed: " + e.getMessage());
             }
+        }).exceptionally(e -> {
+            System.err.println("❌ Registration failed: " + e.getMessage());
+            return null;
         });
     }
 
-    private void startHeartbeat() {
-        heartbeatTimer = new Timer(true);
-        heartbeatTimer.scheduleAtFixedRate(new TimerTask() {
+    // ✅ One batch call for every friend's badge, then kept current locally
+    private void loadUnreadCounters() {
+        unreadCounterService = UnreadCounterService.getInstance();
+        unreadListener = (friendId, summary) -> {
+            FriendViewModel friend = friendsById.get(friendId);
+            if (friend != null) {
+                applySummary(friend, summary);
+            }
+        };
+        unreadCounterService.addListener(unreadListener);
+        unreadCounterService.load(UserSession.getInstance().getCurrentUser().getId()).thenRun(() -> {
+            summariesLoaded = true;
+            prefetchRecentConversations();
+        });
+    }
+
+    // ✅ Warm up the likeliest chats once both friends and summaries are in (whichever comes last)
+    private void prefetchRecentConversations() {
+        if (!summariesLoaded || friendsById.isEmpty()) {
+            return;
+        }
+        List<UserDTO> friends = new ArrayList<>(allFriends.size());
+        for (FriendViewModel friend : allFriends) {
+            friends.add(friend.getUser());
+        }
+        ConversationPrefetcher.getInstance().prefetchRecent(friends, unreadCounterService::getSummary);
+    }
+
+    // ✅ After a server restart: re-register the peer and resync presence and friends
+    private void watchConnection() {
+        connectionListener = new RMIConnectionManager.ConnectionListener() {
             @Override
-            public void run() {
-                try {
-                    Long userId = UserSession.getInstance().getCurrentUser().getId();
-                    RMIClient.getInstance()
-                            .getPeerDiscoveryService()
-                            .updateHeartbeat(userId);
-                } catch (Exception e) {
-                    System.err.println("❌ Heartbeat failed → OFFLINE");
+            public void onConnectionLost() {
+                ui.post("connectionStatus", () -> statusLabel.setText("Reconnecting..."));
+            }
 
-                }
+            @Override
+            public void onReconnected() {
+                ui.post("connectionStatus", () -> statusLabel.setText("Online"));
+                registerPeerWithServer();
+                statusUpdateService.requestFullSync();
+                loadFriendList();
+                unreadCounterService.load(UserSession.getInstance().getCurrentUser().getId());
             }
-        }, 0, 5000);
+        };
+        RMIConnectionManager.getInstance().addListener(connectionListener);
     }
 
-
-        private void startStatusPolling() {
-        statusUpdateService.addListener(this::handleStatusUpdate);
+    // ✅ Heartbeat and presence polling share one RMI call (see StatusUpdateService)
+    private void startStatusPolling() {
+        statusUpdateService.addListener(statusListener);
         statusUpdateService.startPolling();
     }
 
+    // ✅ O(1): only the cell bound to this friend repaints
     private void handleStatusUpdate(Long userId, UserStatus newStatus) {
-        for (UserDTO friend : allFriends) {
-            if (friend.getId().equals(userId)) {
-                friend.setStatus(newStatus);
-                System.out.println("🔄 Friend " + friend.getDisplayName() + " is now " + newStatus);
-                break;
-            }
+        FriendViewModel friend = friendsById.get(userId);
+        if (friend != null) {
+            friend.setStatus(newStatus);
+            System.out.println("🔄 Friend " + friend.getDisplayName() + " is now " + newStatus);
         }
+    }
 
-        friendListView.refresh();
+    private void applySummary(FriendViewModel friend, ConversationSummary summary) {
+        friend.setUnreadCount(summary != null ? summary.getUnreadCount() : 0);
+        friend.setLastMessage(summary != null ? summary.getLastMessagePreview() : null);
     }
 
     private void loadFriendList() {
         // ✅ Async loading
-        executorService.submit(() -> {
-            try {
-                Long currentUserId = UserSession.getInstance().getCurrentUser().getId();
-                List<UserDTO> friends = friendService.getFriendList(currentUserId);
-
-                Platform.runLater(() -> {
-                    allFriends.clear();
-                    friendList.clear();
+        Long currentUserId = UserSession.getInstance().getCurrentUser().getId();
+        gateway.submit(() -> friendService.getFriendList(currentUserId)).whenComplete((friends, error) -> {
+            if (error != null) {
+                System.err.println("❌ Error loading friends: " + error.getMessage());
+                return;
+            }
 
-                    for (UserDTO friend : friends) {
-                        if (friend.getStatus() == null) {
-                            friend.setStatus(UserStatus.OFFLINE);
-                        }
+            Platform.runLater(() -> {
+                // ✅ Known friends keep their model, so ListDiff leaves their rows alone
+                List<FriendViewModel> models = new ArrayList<>();
+                for (UserDTO friend : friends) {
+                    FriendViewModel model = friendsById.get(friend.getId());
+                    if (model != null) {
+                        model.update(friend);
+                    } else {
+                        model = new FriendViewModel(friend);
                     }
+                    applySummary(model, unreadCounterService != null ? unreadCounterService.getSummary(friend.getId()) : null);
+                    models.add(model);
+                }
 
-                    allFriends.addAll(friends);
-                    friendList.addAll(friends);
-
-                    System.out.println("✅ Loaded " + friends.size() + " friends");
+                friendsById.clear();
+                for (FriendViewModel model : models) {
+                    friendsById.put(model.getId(), model);
+                }
+                indexFriends(models);
+                allFriends.setAll(models);
+                applyFriendFilter();
 
-                    // Update peer registry async
-                    updatePeerRegistry();
-                });
+                System.out.println("✅ Loaded " + friends.size() + " friends");
+                prefetchRecentConversations();
 
-            } catch (Exception e) {
-                System.err.println("❌ Error loading friends: " + e.getMessage());
-            }
+                // Update peer registry async
+                updatePeerRegistry();
+            });
         });
     }
 
     private void updatePeerRegistry() {
         // ✅ Async peer registry update
-        executorService.submit(() -> {
-            try {
-                Long userId = UserSession.getInstance().getCurrentUser().getId();
-                List<PeerInfo> onlineFriends = RMIClient.getInstance()
-                        .getPeerDiscoveryService()
-                        .getOnlineFriends(userId);
+        Long userId = UserSession.getInstance().getCurrentUser().getId();
+        gateway.submit(() -> peerDiscoveryService.getOnlineFriends(userId)).whenComplete((onlineFriends, error) -> {
+            if (error != null) {
+                System.err.println("❌ Error updating peers: " + error.getMessage());
+                return;
+            }
 
-                System.out.println("📡 Received " + onlineFriends.size() + " online peers");
+            System.out.println("📡 Received " + onlineFriends.size() + " online peers");
 
-                for (PeerInfo peerInfo : onlineFriends) {
-                    PeerRegistry.getInstance().addPeer(peerInfo);
-                    System.out.println("   → Peer " + peerInfo.getUserId() + " at " +
-                            peerInfo.getAddress() + ":" + peerInfo.getPort());
-                }
+            for (PeerInfo peerInfo : onlineFriends) {
+                PeerRegistry.getInstance().addPeer(peerInfo);
+                System.out.println("   → Peer " + peerInfo.getUserId() + " at " +
+                        peerInfo.getAddress() + ":" + peerInfo.getPort());
+            }
 
-                Platform.runLater(() -> {
-                    for (UserDTO friend : allFriends) {
-                        PeerInfo peerInfo = PeerRegistry.getInstance().getPeerInfo(friend.getId());
-                        if (peerInfo != null) {
-                            friend.setStatus(UserStatus.ONLINE);
-                            friend.setP2pAddress(peerInfo.getAddress());
-                            friend.setP2pPort(peerInfo.getPort());
-                            System.out.println("✅ Friend ONLINE: " + friend.getDisplayName());
-                        } else {
-                            friend.setStatus(UserStatus.OFFLINE);
-                        }
+            ui.post(() -> {
+                // Properties only fire for friends whose state actually changed
+                for (FriendViewModel friend : allFriends) {
+                    PeerInfo peerInfo = PeerRegistry.getInstance().getPeerInfo(friend.getId());
+                    if (peerInfo != null) {
+                        friend.setStatus(UserStatus.ONLINE);
+                        friend.setP2pEndpoint(peerInfo.getAddress(), peerInfo.getPort());
+                        System.out.println("✅ Friend ONLINE: " + friend.getDisplayName());
+                    } else {
+                        friend.setStatus(UserStatus.OFFLINE);
                     }
-                    friendListView.refresh();
-                });
-
-            } catch (Exception e) {
-                System.err.println("❌ Error updating peers: " + e.getMessage());
-            }
+                }
+            });
         });
     }
 
     private void setupFriendSelection() {
         friendListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal != null) {
-                onFriendSelected(newVal);
+                onFriendSelected(newVal.getUser());
+                // ✅ Arrow keys open the neighbours next
+                int index = friendListView.getSelectionModel().getSelectedIndex();
+                ConversationPrefetcher prefetcher = ConversationPrefetcher.getInstance();
+                if (index > 0) {
+                    prefetcher.prefetch(friendList.get(index - 1).getUser());
+                }
+                if (index >= 0 && index + 1 < friendList.size()) {
+                    prefetcher.prefetch(friendList.get(index + 1).getUser());
+                }
+            } else {
+                // ✅ Nothing selected: no chat keeps the heartbeat at the active rate
+                statusUpdateService.setChatOpen(false);
             }
         });
     }
 
     private void setupFriendFilter() {
-        filterFriendField.textProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal == null || newVal.trim().isEmpty()) {
-                friendList.setAll(allFriends);
-            } else {
-                String filter = newVal.toLowerCase();
-                friendList.setAll(allFriends.filtered(friend ->
-                        friend.getDisplayName().toLowerCase().contains(filter) ||
-                                friend.getUsername().toLowerCase().contains(filter)
-                ));
+        filterFriendField.textProperty().addListener((obs, oldVal, newVal) -> applyFriendFilter());
+    }
+
+    // ✅ Only friends that were added, removed or renamed are re-indexed
+    private void indexFriends(List<FriendViewModel> models) {
+        if (friendIndex.size() == 0) {
+            friendIndex.replaceAll(models);
+            return;
+        }
+        for (FriendViewModel friend : allFriends) {
+            if (!friendsById.containsKey(friend.getId())) {
+                friendIndex.remove(friend.getId());
             }
-        });
+        }
+        List<Long> order = new ArrayList<>(models.size());
+        for (FriendViewModel model : models) {
+            friendIndex.add(model.getId(), model.getDisplayName(), model.getUsername());
+            order.add(model.getId());
+        }
+        friendIndex.reorder(order);
+    }
+
+    // ✅ Index lookup, then only the rows that changed are removed or inserted
+    private void applyFriendFilter() {
+        String filter = filterFriendField.getText();
+        List<FriendViewModel> wanted;
+        if (filter == null || filter.isBlank()) {
+            wanted = allFriends;
+        } else {
+            // Already in friend list order (see indexFriends)
+            long[] matches = friendIndex.search(filter.trim());
+            wanted = new ArrayList<>(matches.length);
+            for (long id : matches) {
+                wanted.add(friendsById.get(id));
+            }
+        }
+        ListDiff.apply(friendList, wanted);
+    }
+
+    // ✅ Search-as-you-type: debounced and cached by UserSearchService
+    private void setupUserSearch() {
+        searchSuggestions = new ContextMenu();
+        searchFriendField.textProperty().addListener((obs, oldVal, newVal) ->
+                UserSearchService.getInstance().searchAsYouType(newVal, this::showSearchSuggestions));
+    }
+
+    private void showSearchSuggestions(String query, List<UserDTO> results) {
+        searchSuggestions.getItems().clear();
+        if (!query.equals(searchFriendField.getText())) {
+            return;
+        }
+
+        Long currentUserId = UserSession.getInstance().getCurrentUser().getId();
+        for (UserDTO user : results) {
+            if (user.getId().equals(currentUserId)) {
+                continue;
+            }
+            boolean alreadyFriend = friendsById.containsKey(user.getId());
+            MenuItem item = new MenuItem(user.getDisplayName() + "  @" + user.getUsername()
+                    + (alreadyFriend ? "  ✓" : ""));
+            item.setDisable(alreadyFriend);
+            item.setOnAction(e -> showSearchResult(user));
+            searchSuggestions.getItems().add(item);
+        }
+
+        if (searchSuggestions.getItems().isEmpty()) {
+            searchSuggestions.hide();
+        } else if (!searchSuggestions.isShowing()) {
+            searchSuggestions.show(searchFriendField, javafx.geometry.Side.BOTTOM, 0, 0);
+        }
+    }
+
+    private void showSearchResult(UserDTO user) {
+        searchedUser = user;
+        searchResultName.setText(user.getDisplayName());
+        searchResultUsername.setText("@" + user.getUsername());
+        searchResultBox.setVisible(true);
+        searchResultBox.setManaged(true);
     }
 
     private void setupChatArea() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/chat.fxml"));
-            VBox chatView = loader.load();
-            chatController = loader.getController();
+            // ✅ Usually preloaded while the login screen was up
+            ViewRegistry.View<ChatController> view = ViewRegistry.getInstance().take("/view/chat.fxml");
+            Parent chatView = view.getRoot();
+            chatController = view.getController();
             chatController.setMessageHandler(messageHandler);
+            chatController.setConversationOpener(this::openConversation);
 
             chatView.setVisible(false);
             chatView.setManaged(false);
@@ -400,6 +573,7 @@ public class MainController extends BaseController {
 
     private void onFriendSelected(UserDTO friend) {
         selectedFriend = friend;
+        statusUpdateService.setChatOpen(true);
 
         if (chatAreaContainer.getChildren().size() > 1) {
             chatAreaContainer.getChildren().get(0).setVisible(false);
@@ -415,9 +589,26 @@ public class MainController extends BaseController {
         System.out.println("✅ Chat opened with: " + friend.getDisplayName());
     }
 
+    // ✅ From a message search hit: select the friend so list and chat stay in step
+    private void openConversation(Long friendId) {
+        FriendViewModel friend = friendsById.get(friendId);
+        if (friend == null) {
+            System.out.println("⚠️ Search hit is from someone no longer in the friend list: " + friendId);
+            return;
+        }
+        if (friendList.contains(friend)) {
+            friendListView.getSelectionModel().select(friend);
+            friendListView.scrollTo(friend);
+        } else {
+            // Hidden by the filter
+            onFriendSelected(friend.getUser());
+        }
+    }
+
     @FXML
     private void handleSearchUser() {
         String username = searchFriendField.getText().trim();
+        searchSuggestions.hide();
 
         if (username.isEmpty()) {
             searchResultBox.setVisible(false);
@@ -435,13 +626,13 @@ public class MainController extends BaseController {
             return;
         }
 
-        executorService.submit(() -> {
-            try {
-                UserDTO foundUser = RMIClient.getInstance().getUserService()
-                        .getUserByUsername(username);
-
-                Platform.runLater(() -> {
-                    if (foundUser == null) {
+        gateway.submit(() -> RMIClient.getInstance().getUserService().getUserByUsername(username))
+                .whenComplete((foundUser, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        searchResultBox.setVisible(false);
+                        searchResultBox.setManaged(false);
+                        showError("Search Error", "Failed to search: " + error.getMessage());
+                    } else if (foundUser == null) {
                         searchResultBox.setVisible(false);
                         searchResultBox.setManaged(false);
                         showError("Not Found", "User '" + username + "' not found");
@@ -450,22 +641,9 @@ public class MainController extends BaseController {
                         searchResultBox.setManaged(false);
                         showInfo("That's You!", "You cannot add yourself");
                     } else {
-                        searchedUser = foundUser;
-                        searchResultName.setText(foundUser.getDisplayName());
-                        searchResultUsername.setText("@" + foundUser.getUsername());
-                        searchResultBox.setVisible(true);
-                        searchResultBox.setManaged(true);
+                        showSearchResult(foundUser);
                     }
-                });
-
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    searchResultBox.setVisible(false);
-                    searchResultBox.setManaged(false);
-                    showError("Search Error", "Failed to search: " + e.getMessage());
-                });
-            }
-        });
+                }));
     }
 
     @FXML
@@ -474,7 +652,7 @@ public class MainController extends BaseController {
 
         addFriendButton.setDisable(true);
 
-        executorService.submit(() -> {
+        gateway.execute(() -> {
             Long currentUserId = UserSession.getInstance().getCurrentUser().getId();
             boolean success = friendService.sendFriendRequest(currentUserId, searchedUser.getId());
 
@@ -494,6 +672,13 @@ public class MainController extends BaseController {
                     showError("Failed", "Failed to add friend");
                 }
             });
+        }).whenComplete((ignored, error) -> {
+            if (error != null) {
+                Platform.runLater(() -> {
+                    addFriendButton.setDisable(false);
+                    showError("Failed", "Failed to add friend: " + error.getMessage());
+                });
+            }
         });
     }
 
@@ -504,29 +689,35 @@ public class MainController extends BaseController {
             return t;
         });
 
-        requestRefreshScheduler.scheduleAtFixedRate(() -> {
-            Platform.runLater(this::loadFriendRequests);
-        }, 0, 1, TimeUnit.SECONDS);
+        // Only the RMI calls need a thread; the result is posted to the UI below
+        requestRefreshScheduler.scheduleAtFixedRate(this::loadFriendRequests, 0, 1, TimeUnit.SECONDS);
     }
 
 
     private void loadFriendRequests() {
-        new Thread(() -> {
+        gateway.execute(() -> {
             try {
                 Long currentUserId = UserSession.getInstance().getCurrentUser().getId();
                 List<Friend> receivedRequests = friendService.getPendingRequests(currentUserId);
                 List<Friend> sentRequests = friendService.getSentRequests(currentUserId);
 
-                Platform.runLater(() -> {
+                // A slow frame applies only the newest result
+                ui.post("friendRequests", () -> {
                     updateRequestBadge(receivedRequests.size());
                     displayReceivedRequests(receivedRequests);
                     displaySentRequests(sentRequests);
+
+                    Set<Long> pending = new HashSet<>();
+                    receivedRequests.forEach(request -> pending.add(request.getId()));
+                    sentRequests.forEach(request -> pending.add(request.getId()));
+                    requestLookupFailures.keySet().retainAll(pending);
+                    requestRetryAt.keySet().retainAll(pending);
                 });
             } catch (Exception e) {
                 System.err.println("❌ Error loading friend requests: " + e.getMessage());
                 e.printStackTrace();
             }
-        }).start();
+        });
     }
     private void updateRequestBadge(int count) {
         if (count > 0) {
@@ -540,166 +731,206 @@ public class MainController extends BaseController {
     }
 
     private void displayReceivedRequests(List<Friend> requests) {
-        receivedRequestsBox.getChildren().clear();
-
-        if (requests.isEmpty()) {
-            receivedRequestsBox.getChildren().add(createEmptyState(
-                    "📭",
-                    "No pending requests",
-                    "You have no friend requests"
-            ));
-            return;
-        }
-
-        for (Friend request : requests) {
-            receivedRequestsBox.getChildren().add(createReceivedRequestCard(request));
+        if (receivedEmptyState == null) {
+            receivedEmptyState = createEmptyState("📭", "No pending requests", "You have no friend requests");
         }
+        reconcileRequestCards(receivedRequestsBox, receivedCards, requests, receivedEmptyState,
+                this::createReceivedRequestCard);
     }
 
     private void displaySentRequests(List<Friend> requests) {
-        sentRequestsBox.getChildren().clear();
-
-        if (requests.isEmpty()) {
-            sentRequestsBox.getChildren().add(createEmptyState(
-                    "📤",
-                    "No sent requests",
-                    "You haven't sent any requests"
-            ));
-            return;
+        if (sentEmptyState == null) {
+            sentEmptyState = createEmptyState("📤", "No sent requests", "You haven't sent any requests");
         }
+        reconcileRequestCards(sentRequestsBox, sentCards, requests, sentEmptyState,
+                this::createSentRequestCard);
+    }
 
+    // ✅ Keyed by request id: existing cards are kept as they are, only new or gone requests touch the scene
+    private void reconcileRequestCards(VBox box, Map<Long, RequestCard> cards, List<Friend> requests,
+                                       Node emptyState, Function<Friend, RequestCard> factory) {
+        List<Node> wanted = new ArrayList<>(requests.size());
+        Set<Long> current = new HashSet<>();
+        long now = System.currentTimeMillis();
         for (Friend request : requests) {
-            sentRequestsBox.getChildren().add(createSentRequestCard(request));
+            current.add(request.getId());
+            RequestCard card = cards.get(request.getId());
+            if (card == null) {
+                Long retryAt = requestRetryAt.get(request.getId());
+                if (retryAt != null && now < retryAt) {
+                    // Its user lookup failed recently; left out until the backoff is over
+                    continue;
+                }
+                card = factory.apply(request);
+                cards.put(request.getId(), card);
+            }
+            if (card.timeLabel != null) {
+                // Same text most of the time, and then the label does not even invalidate
+                card.timeLabel.setText(formatTimeAgo(card.requestedAt));
+            }
+            wanted.add(card.root);
         }
+        cards.keySet().retainAll(current);
+
+        if (wanted.isEmpty()) {
+            wanted.add(emptyState);
+        }
+        ListDiff.apply(box.getChildren(), wanted);
     }
 
-    private VBox createReceivedRequestCard(Friend request) {
-        VBox card = new VBox(8);
-        card.setStyle("-fx-background-color: white; -fx-padding: 12; -fx-background-radius: 6; " +
-                "-fx-border-color: #edebe9; -fx-border-radius: 6; -fx-border-width: 1;");
-        card.setMaxWidth(Double.MAX_VALUE);
-        VBox.setMargin(card, new Insets(0, 0, 8, 0));
+    private RequestCard createReceivedRequestCard(Friend request) {
+        RequestCard card = new RequestCard(request);
 
-        // Get sender info via RMI
-        new Thread(() -> {
+        // Get sender info via RMI, once per card
+        CompletableFuture<Void> lookup = gateway.execute(() -> {
             try {
                 UserDTO sender = RMIClient.getInstance()
                         .getUserService()
                         .getUserById(request.getUserId());
 
-                if (sender == null) return;
+                if (sender == null) {
+                    forgetRequestCard(receivedCards, request.getId(), card);
+                    return;
+                }
 
-                Platform.runLater(() -> {
+                ui.post(() -> {
                     // Header
                     HBox header = new HBox(10);
                     header.setAlignment(Pos.CENTER_LEFT);
 
-                        Region avatar = new Region();
-                        avatar.setPrefSize(36, 36);
-                        loadAvatarFriend(avatar, sender.getAvatarUrl());
+                    Region avatar = new Region();
+                    avatar.setPrefSize(36, 36);
+                    loadAvatarFriend(avatar, sender.getAvatarUrl());
 
                     VBox userInfo = new VBox(1);
                     HBox.setHgrow(userInfo, Priority.ALWAYS);
 
                     Label nameLabel = new Label(sender.getDisplayName());
-                    nameLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 13px;");
+                    nameLabel.getStyleClass().add("request-name");
 
                     Label usernameLabel = new Label("@" + sender.getUsername());
-                    usernameLabel.setStyle("-fx-text-fill: #666; -fx-font-size: 11px;");
+                    usernameLabel.getStyleClass().add("request-username");
 
                     userInfo.getChildren().addAll(nameLabel, usernameLabel);
                     header.getChildren().addAll(avatar, userInfo);
 
                     // Time
                     if (request.getRequestedAt() != null) {
-                        Label timeLabel = new Label(formatTimeAgo(request.getRequestedAt()));
-                        timeLabel.setStyle("-fx-text-fill: #999; -fx-font-size: 11px;");
-                        card.getChildren().add(timeLabel);
+                        card.timeLabel = new Label(formatTimeAgo(request.getRequestedAt()));
+                        card.timeLabel.getStyleClass().add("request-time");
+                        card.root.getChildren().add(card.timeLabel);
                     }
 
-                        // Actions
-                        HBox actions = new HBox(8);
-                        actions.setAlignment(Pos.CENTER_RIGHT);
+                    // Actions
+                    HBox actions = new HBox(8);
+                    actions.setAlignment(Pos.CENTER_RIGHT);
 
-                        Button acceptBtn = new Button("✓ Accept");
-                        acceptBtn.setStyle("-fx-background-color: #16c60c; -fx-text-fill: white; " +
-                                "-fx-font-size: 12px; -fx-padding: 6 16; -fx-cursor: hand; " +
-                                "-fx-background-radius: 4;");
-                        acceptBtn.setOnAction(e -> handleAcceptRequest(request.getId()));
+                    Button acceptBtn = new Button("✓ Accept");
+                    acceptBtn.getStyleClass().add("request-accept-button");
+                    acceptBtn.setOnAction(e -> handleAcceptRequest(request.getId()));
 
-                        Button rejectBtn = new Button("✗");
-                        rejectBtn.setStyle("-fx-background-color: #e1e1e1; -fx-text-fill: #666; " +
-                                "-fx-font-size: 12px; -fx-padding: 6 10; -fx-cursor: hand; " +
-                                "-fx-background-radius: 4;");
-                        rejectBtn.setOnAction(e -> handleRejectRequest(request.getId()));
+                    Button rejectBtn = new Button("✗");
+                    rejectBtn.getStyleClass().add("request-reject-button");
+                    rejectBtn.setOnAction(e -> handleRejectRequest(request.getId()));
 
-                        actions.getChildren().addAll(rejectBtn, acceptBtn);
+                    actions.getChildren().addAll(rejectBtn, acceptBtn);
 
-                        card.getChildren().addAll(header, actions);
-                    });
+                    card.root.getChildren().addAll(header, actions);
+                    requestLoaded(request.getId());
+                });
 
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }).start();
+            } catch (Exception e) {
+                e.printStackTrace();
+                forgetRequestCard(receivedCards, request.getId(), card);
+            }
+        });
+        // Rejected by a full gateway or timed out: the task never filled the card
+        lookup.whenComplete((ignored, error) -> {
+            if (error != null) {
+                forgetRequestCard(receivedCards, request.getId(), card);
+            }
+        });
 
-            return card;
-        }
+        return card;
+    }
 
-        private VBox createSentRequestCard(Friend request) {
-            VBox card = new VBox(8);
-            card.setStyle("-fx-background-color: white; -fx-padding: 12; -fx-background-radius: 6; " +
-                    "-fx-border-color: #edebe9; -fx-border-radius: 6; -fx-border-width: 1;");
-            card.setMaxWidth(Double.MAX_VALUE);
-            VBox.setMargin(card, new Insets(0, 0, 8, 0));
+    private RequestCard createSentRequestCard(Friend request) {
+        RequestCard card = new RequestCard(request);
 
-            // Get receiver info via RMI
-            new Thread(() -> {
-                try {
-                    UserDTO receiver = RMIClient.getInstance()
-                            .getUserService()
-                            .getUserById(request.getFriendId());
+        // Get receiver info via RMI, once per card
+        CompletableFuture<Void> lookup = gateway.execute(() -> {
+            try {
+                UserDTO receiver = RMIClient.getInstance()
+                        .getUserService()
+                        .getUserById(request.getFriendId());
+
+                if (receiver == null) {
+                    forgetRequestCard(sentCards, request.getId(), card);
+                    return;
+                }
 
-                    if (receiver == null) return;
+                ui.post(() -> {
+                    HBox header = new HBox(10);
+                    header.setAlignment(Pos.CENTER_LEFT);
 
-                    Platform.runLater(() -> {
-                        HBox header = new HBox(10);
-                        header.setAlignment(Pos.CENTER_LEFT);
+                    Region avatar = new Region();
+                    avatar.setPrefSize(36, 36);
+                    loadAvatarFriend(avatar, receiver.getAvatarUrl());
 
-                        Region avatar = new Region();
-                        avatar.setPrefSize(36, 36);
-                        loadAvatarFriend(avatar, receiver.getAvatarUrl());
+                    VBox userInfo = new VBox(1);
+                    HBox.setHgrow(userInfo, Priority.ALWAYS);
 
-                        VBox userInfo = new VBox(1);
-                        HBox.setHgrow(userInfo, Priority.ALWAYS);
+                    Label nameLabel = new Label(receiver.getDisplayName());
+                    nameLabel.getStyleClass().add("request-name");
 
-                        Label nameLabel = new Label(receiver.getDisplayName());
-                        nameLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 13px;");
+                    Label statusLabel = new Label("⏳ Pending");
+                    statusLabel.getStyleClass().add("request-pending");
 
-                        Label statusLabel = new Label("⏳ Pending");
-                        statusLabel.setStyle("-fx-text-fill: #ff8c00; -fx-font-size: 11px;");
+                    userInfo.getChildren().addAll(nameLabel, statusLabel);
 
-                        userInfo.getChildren().addAll(nameLabel, statusLabel);
+                    Button cancelBtn = new Button("Cancel");
+                    cancelBtn.getStyleClass().add("request-cancel-button");
+                    cancelBtn.setOnAction(e -> handleCancelRequest(request.getId()));
 
-                        Button cancelBtn = new Button("Cancel");
-                        cancelBtn.setStyle("-fx-background-color: #e1e1e1; -fx-text-fill: #666; " +
-                                "-fx-font-size: 11px; -fx-padding: 6 12; -fx-cursor: hand; " +
-                                "-fx-background-radius: 4;");
-                        cancelBtn.setOnAction(e -> handleCancelRequest(request.getId()));
+                    header.getChildren().addAll(avatar, userInfo, cancelBtn);
+                    card.root.getChildren().add(header);
+                    requestLoaded(request.getId());
+                });
 
-                        header.getChildren().addAll(avatar, userInfo, cancelBtn);
-                        card.getChildren().add(header);
-                    });
+            } catch (Exception e) {
+                e.printStackTrace();
+                forgetRequestCard(sentCards, request.getId(), card);
+            }
+        });
+        lookup.whenComplete((ignored, error) -> {
+            if (error != null) {
+                forgetRequestCard(sentCards, request.getId(), card);
+            }
+        });
 
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }).start();
+        return card;
+    }
+
+    // A card whose user could not be loaded stays empty; dropping it lets a later refresh retry,
+    // 2 s after the first failure, doubling up to REQUEST_RETRY_MAX_MS
+    private void forgetRequestCard(Map<Long, RequestCard> cards, Long requestId, RequestCard card) {
+        ui.post(() -> {
+            if (!cards.remove(requestId, card)) {
+                return;
+            }
+            int failures = requestLookupFailures.merge(requestId, 1, Integer::sum);
+            long delay = Math.min(REQUEST_RETRY_MAX_MS, 1000L << Math.min(failures, 16));
+            requestRetryAt.put(requestId, System.currentTimeMillis() + delay);
+        });
+    }
+
+    private void requestLoaded(Long requestId) {
+        requestLookupFailures.remove(requestId);
+        requestRetryAt.remove(requestId);
+    }
 
-            return card;
-        }
         private void handleAcceptRequest(Long requestId) {
-            new Thread(() -> {
+            gateway.execute(() -> {
                 boolean success = friendService.acceptFriendRequest(requestId);
                 Platform.runLater(() -> {
                     if (success) {
@@ -710,11 +941,15 @@ public class MainController extends BaseController {
                         showError("Error", "Failed to accept request");
                     }
                 });
-            }).start();
+            }).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    Platform.runLater(() -> showError("Error", "Failed to accept request: " + error.getMessage()));
+                }
+            });
         }
 
         private void handleRejectRequest(Long requestId) {
-            new Thread(() -> {
+            gateway.execute(() -> {
                 boolean success = friendService.rejectFriendRequest(requestId);
                 Platform.runLater(() -> {
                     if (success) {
@@ -723,11 +958,15 @@ public class MainController extends BaseController {
                         showError("Error", "Failed to reject request");
                     }
                 });
-            }).start();
+            }).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    Platform.runLater(() -> showError("Error", "Failed to reject request: " + error.getMessage()));
+                }
+            });
         }
 
         private void handleCancelRequest(Long requestId) {
-            new Thread(() -> {
+            gateway.execute(() -> {
                 Long currentUserId = UserSession.getInstance().getCurrentUser().getId();
                 boolean success = friendService.cancelFriendRequest(requestId, currentUserId);
                 Platform.runLater(() -> {
@@ -737,7 +976,11 @@ public class MainController extends BaseController {
                         showError("Error", "Failed to cancel request");
                     }
                 });
-            }).start();
+            }).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    Platform.runLater(() -> showError("Error", "Failed to cancel request: " + error.getMessage()));
+                }
+            });
         }
 
         private String formatTimeAgo(LocalDateTime dateTime) {
@@ -766,17 +1009,17 @@ public class MainController extends BaseController {
             emojiLabel.setFont(new Font(36));
 
             Label titleLabel = new Label(title);
-            titleLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #333;");
+            titleLabel.getStyleClass().add("empty-state-title");
 
             Label subtitleLabel = new Label(subtitle);
-            subtitleLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #666;");
+            subtitleLabel.getStyleClass().add("empty-state-subtitle");
 
             emptyState.getChildren().addAll(emojiLabel, titleLabel, subtitleLabel);
             return emptyState;
         }
 
     private void handleIncomingMessage(P2PMessage message) {
-        Platform.runLater(() -> {
+        ui.post(() -> {
             long senderId = message.getSenderId();
             PeerRegistry registry = PeerRegistry.getInstance();
 
@@ -798,14 +1041,12 @@ public class MainController extends BaseController {
     private void handleIncomingCall(P2PMessage message) {
         CallType callType = CallType.valueOf(message.getContent());
 
-        UserDTO caller = allFriends.stream()
-                .filter(f -> f.getId().equals(message.getSenderId()))
-                .findFirst()
-                .orElse(null);
+        FriendViewModel friend = friendsById.get(message.getSenderId());
+        UserDTO caller = friend != null ? friend.getUser() : null;
 
         if (caller == null) {
             System.out.println("⚠️ Caller not in friends, fetching...");
-            executorService.submit(() -> {
+            gateway.execute(() -> {
                 try {
                     UserDTO fetched = RMIClient.getInstance()
                             .getUserService()
@@ -850,17 +1091,17 @@ public class MainController extends BaseController {
 
     private void showCallWindow(CallSession callSession) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/video-call.fxml"));
-            VBox callView = loader.load();
+            // ✅ A spare call view is kept parsed, so an incoming call shows without FXML parsing
+            ViewRegistry views = ViewRegistry.getInstance();
+            ViewRegistry.View<VideoCallController> callView = views.take("/view/video-call.fxml");
 
-            VideoCallController callController = loader.getController();
+            VideoCallController callController = callView.getController();
             callController.setMessageHandler(messageHandler);
 
             Stage callStage = new Stage();
             callController.setStage(callStage);
 
-            Scene scene = new Scene(callView, 1000, 750);
-            scene.getStylesheets().add(getClass().getResource("/css/styles.css").toExternalForm());
+            Scene scene = views.createScene(callView.getRoot(), 1000, 750);
 
             callStage.setTitle("📞 Call - " + callSession.getPeer().getDisplayName());
             callStage.setScene(scene);
@@ -889,9 +1130,10 @@ public class MainController extends BaseController {
         ButtonType refreshButton = new ButtonType("🔄 Refresh");
         ButtonType profileButton = new ButtonType("👤 Profile");
         ButtonType logoutButton = new ButtonType("🚪 Logout");
+        ButtonType diagnosticsButton = new ButtonType("📊 Diagnostics");
         ButtonType cancelButton = new ButtonType("Cancel", ButtonBar.ButtonData.CANCEL_CLOSE);
 
-        alert.getButtonTypes().setAll(refreshButton, profileButton, logoutButton, cancelButton);
+        alert.getButtonTypes().setAll(refreshButton, profileButton, diagnosticsButton, logoutButton, cancelButton);
 
         alert.showAndWait().ifPresent(response -> {
             if (response == logoutButton) {
@@ -902,29 +1144,89 @@ public class MainController extends BaseController {
                 loadFriendList();
                 loadFriendRequests();
                 showInfo("Refreshed", "✅ Data refreshed!");
+            } else if (response == diagnosticsButton) {
+                showDiagnostics();
+            }
+        });
+    }
+
+    // ✅ RMI latency stats (see RMIMetrics) and UI responsiveness (see FxWatchdog)
+    private void showDiagnostics() {
+        RMIMetrics metrics = RMIMetrics.getInstance();
+        FxWatchdog watchdog = FxWatchdog.getInstance();
+
+        TextArea reportArea = new TextArea(metrics.formatReport()
+                + System.lineSeparator() + SocketStats.getInstance().formatReport()
+                + System.lineSeparator() + ui.formatReport()
+                + System.lineSeparator() + watchdog.formatReport());
+        reportArea.setEditable(false);
+        reportArea.setStyle("-fx-font-family: monospace; -fx-font-size: 11px;");
+        reportArea.setPrefSize(860, 360);
+
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Diagnostics");
+        alert.setHeaderText("📊 RMI call and UI latency");
+        alert.getDialogPane().setContent(reportArea);
+        alert.setResizable(true);
+
+        ButtonType exportButton = new ButtonType("💾 Export CSV");
+        ButtonType exportUiButton = new ButtonType("💾 Export UI");
+        ButtonType resetButton = new ButtonType("🔄 Reset");
+        ButtonType closeButton = new ButtonType("Close", ButtonBar.ButtonData.CANCEL_CLOSE);
+        alert.getButtonTypes().setAll(exportButton, exportUiButton, resetButton, closeButton);
+
+        alert.showAndWait().ifPresent(response -> {
+            if (response == exportButton) {
+                FileChooser fileChooser = new FileChooser();
+                fileChooser.setTitle("Export RMI Stats");
+                fileChooser.setInitialFileName("rmi-stats.csv");
+                fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+
+                File file = fileChooser.showSaveDialog(stage);
+                if (file != null) {
+                    try {
+                        metrics.exportCsv(file.toPath());
+                        showInfo("Exported", "✅ Stats saved to " + file.getAbsolutePath());
+                    } catch (IOException e) {
+                        showError("Export Failed", e.getMessage());
+                    }
+                }
+            } else if (response == exportUiButton) {
+                FileChooser fileChooser = new FileChooser();
+                fileChooser.setTitle("Export UI Latency");
+                fileChooser.setInitialFileName("ui-latency.csv");
+                fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+
+                File file = fileChooser.showSaveDialog(stage);
+                if (file != null) {
+                    try {
+                        watchdog.exportCsv(file.toPath());
+                        showInfo("Exported", "✅ UI latency and stall stacks saved next to " + file.getAbsolutePath());
+                    } catch (IOException e) {
+                        showError("Export Failed", e.getMessage());
+                    }
+                }
+            } else if (response == resetButton) {
+                metrics.reset();
+                SocketStats.getInstance().reset();
+                ui.reset();
+                watchdog.reset();
             }
         });
     }
 
         private void handlerProfile() {
             try {
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/profile_editor.fxml"));
-                VBox profileView = loader.load();
+                ViewRegistry views = ViewRegistry.getInstance();
+                ViewRegistry.View<ProfileEditorController> profileView = views.take("/view/profile_editor.fxml");
 
-                ProfileEditorController profileController = loader.getController();
+                ProfileEditorController profileController = profileView.getController();
 
                 // Tạo Stage mới cho Profile Editor
                 Stage profileStage = new Stage();
                 profileController.setStage(profileStage);
 
-                Scene scene = new Scene(profileView);
-
-                // Load CSS nếu có
-                try {
-                    scene.getStylesheets().add(getClass().getResource("/css/styles.css").toExternalForm());
-                } catch (Exception e) {
-                    System.err.println("⚠️ CSS file not found, using default styles");
-                }
+                Scene scene = views.createScene(profileView.getRoot());
 
                 profileStage.setTitle("Edit Profile");
                 profileStage.setScene(scene);
@@ -957,7 +1259,8 @@ public class MainController extends BaseController {
             Long userId = UserSession.getInstance().getCurrentUser().getId();
 
             statusUpdateService.stopPolling();
-            statusUpdateService.removeListener(this::handleStatusUpdate);
+            statusUpdateService.setChatOpen(false);
+            statusUpdateService.removeListener(statusListener);
 
             // Async cleanup
 //            executorService.submit(() -> {
@@ -1002,71 +1305,128 @@ public class MainController extends BaseController {
         }
     }
 
-    private static class FriendListCell extends ListCell<UserDTO> {
+    /** A friend request card, kept while its request is pending; filled in once the user is loaded. */
+    private static class RequestCard {
+        private final VBox root = new VBox(8);
+        private final LocalDateTime requestedAt;
+        private Label timeLabel;
+
+        RequestCard(Friend request) {
+            this.requestedAt = request.getRequestedAt();
+            root.getStyleClass().add("request-card");
+            root.setMaxWidth(Double.MAX_VALUE);
+            VBox.setMargin(root, new Insets(0, 0, 8, 0));
+        }
+    }
+
+    /**
+     * Built once per visible row; updateItem only rebinds the labels to another friend's
+     * properties, and those properties repaint the cell when presence or unread state changes.
+     */
+    private static class FriendListCell extends ListCell<FriendViewModel> {
+        private final HBox content = new HBox(10);
+        private final Region statusDot = new Region();
+        private final Label nameLabel = new Label();
+        private final Label statusLabel = new Label();
+        private final Label badge = new Label();
+
+        FriendListCell() {
+            content.setAlignment(Pos.CENTER_LEFT);
+            content.setPadding(new Insets(8));
+            statusDot.setPrefSize(10, 10);
+            nameLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 13px;");
+            statusLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #605e5c;");
+            badge.getStyleClass().add("chat-item-unread-badge");
+            badge.managedProperty().bind(badge.visibleProperty());
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+            content.getChildren().addAll(statusDot, new VBox(2, nameLabel, statusLabel), spacer, badge);
+
+            // ✅ A hovered friend is likely the next click
+            setOnMouseEntered(event -> {
+                if (getItem() != null) {
+                    ConversationPrefetcher.getInstance().prefetch(getItem().getUser());
+                }
+            });
+        }
+
         @Override
-        protected void updateItem(UserDTO friend, boolean empty) {
+        protected void updateItem(FriendViewModel friend, boolean empty) {
             super.updateItem(friend, empty);
+            nameLabel.textProperty().unbind();
+            statusLabel.textProperty().unbind();
+            statusDot.styleProperty().unbind();
+            badge.textProperty().unbind();
+            badge.visibleProperty().unbind();
 
             if (empty || friend == null) {
                 setText(null);
                 setGraphic(null);
-            } else {
-                HBox content = new HBox(10);
-                content.setAlignment(javafx.geometry.Pos.CENTER_LEFT);
-                content.setPadding(new javafx.geometry.Insets(8));
-
-                Region statusDot = new Region();
-                statusDot.setPrefSize(10, 10);
-                statusDot.setStyle(
-                        "-fx-background-color: " +
-                                (friend.getStatus() == UserStatus.ONLINE ? "#16c60c" : "#a19f9d") + ";" +
-                                "-fx-background-radius: 5px;"
-                );
-
-                VBox textBox = new VBox(2);
-                Label nameLabel = new Label(friend.getDisplayName());
-                nameLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 13px;");
-
-                Label statusLabel = new Label(friend.getStatus().toString());
-                statusLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #605e5c;");
-
-                textBox.getChildren().addAll(nameLabel, statusLabel);
-                content.getChildren().addAll(statusDot, textBox);
-                setGraphic(content);
+                return;
             }
+
+            nameLabel.textProperty().bind(friend.displayNameProperty());
+            // ✅ Last message preview when there is one, status otherwise
+            statusLabel.textProperty().bind(Bindings.createStringBinding(
+                    () -> friend.lastMessageProperty().get() != null
+                            ? friend.lastMessageProperty().get()
+                            : String.valueOf(friend.getStatus()),
+                    friend.lastMessageProperty(), friend.statusProperty()));
+            statusDot.styleProperty().bind(Bindings.createStringBinding(
+                    () -> "-fx-background-color: "
+                            + (friend.getStatus() == UserStatus.ONLINE ? "#16c60c" : "#a19f9d") + ";"
+                            + "-fx-background-radius: 5px;",
+                    friend.statusProperty()));
+            badge.textProperty().bind(Bindings.createStringBinding(
+                    () -> friend.unreadCountProperty().get() > 99 ? "99+" : String.valueOf(friend.unreadCountProperty().get()),
+                    friend.unreadCountProperty()));
+            badge.visibleProperty().bind(friend.unreadCountProperty().greaterThan(0));
+            setGraphic(content);
         }
     }
     private void handleAppExit() {
         try {
             Long userId = UserSession.getInstance().getCurrentUser().getId();
 
-            // Stop polling
+            // Stop heartbeat + presence polling
             if (statusUpdateService != null) {
                 statusUpdateService.stopPolling();
-                statusUpdateService.removeListener(this::handleStatusUpdate);
+                statusUpdateService.setChatOpen(false);
+                statusUpdateService.removeListener(statusListener);
             }
 
-            // Stop heartbeat
-            if (heartbeatTimer != null) {
-                heartbeatTimer.cancel();
+            if (connectionListener != null) {
+                RMIConnectionManager.getInstance().removeListener(connectionListener);
             }
 
-            // Async OFFLINE update
-            if (executorService != null) {
-                executorService.submit(() -> {
-                    try {
-                        RMIClient.getInstance()
-                                .getUserService()
-                                .updateStatus(userId, UserStatus.OFFLINE);
+            if (unreadCounterService != null) {
+                unreadCounterService.removeListener(unreadListener);
+                unreadCounterService.clear();
+            }
 
-                        RMIClient.getInstance()
-                                .getPeerDiscoveryService()
-                                .unregisterPeer(userId);
+            if (chatController != null) {
+                chatController.dispose();
+            }
 
-                        System.out.println("🔴 User set OFFLINE (app exit)");
-                    } catch (Exception e) {
-                        System.err.println("⚠️ Exit update failed: " + e.getMessage());
-                    }
+            UserSearchService.getInstance().cancel();
+            UserSearchService.getInstance().invalidate();
+            MessageSyncService.getInstance().stop();
+            // Before the store closes: no prefetch may write into it after that
+            ConversationPrefetcher.getInstance().clear();
+            try {
+                // ✅ Flushes the search index; the IO thread is a daemon and would die with the app
+                LocalMessageStore.getInstance().close()
+                        .get(AppConstants.LOCAL_STORE_CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                System.err.println("⚠️ Local message cache not closed cleanly: " + e.getMessage());
+            }
+
+            // Async OFFLINE update
+            if (gateway != null) {
+                gateway.execute(() -> {
+                    userService.updateStatus(userId, UserStatus.OFFLINE);
+                    peerDiscoveryService.unregisterPeer(userId);
+                    System.out.println("🔴 User set OFFLINE (app exit)");
                 });
             }
 
@@ -1074,8 +1434,8 @@ public class MainController extends BaseController {
                 p2pServer.stop();
             }
 
-            if (executorService != null) {
-                executorService.shutdownNow();
+            if (requestRefreshScheduler != null) {
+                requestRefreshScheduler.shutdownNow();
             }
 
             PeerRegistry.getInstance().clear();
@@ -1096,31 +1456,13 @@ public class MainController extends BaseController {
                 return;
             }
 
-            CompletableFuture.runAsync(() -> {
-                try {
-                    Image image;
-
-                    if (avatarUrl.startsWith("http")) {
-                        image = new Image(avatarUrl, true);
-                    } else {
-                        File file = new File(avatarUrl);
-                        image = file.exists()
-                                ? new Image(file.toURI().toString())
-                                : new Image(getClass().getResourceAsStream(avatarUrl));
-                    }
-
-                    Platform.runLater(() -> {
-                        if (image.isError()) {
-                            loadDefaultAvatar();
-                        } else {
-                            setRegionBackgroundImage(avatarFriend, image);
-                        }
-                    });
-
-                } catch (Exception e) {
-                    Platform.runLater(this::loadDefaultAvatar);
+            avatarService.load(avatarUrl, OWN_AVATAR_SIZE).whenComplete((image, error) -> ui.post(() -> {
+                if (image == null) {
+                    loadDefaultAvatar();
+                } else {
+                    setRegionBackgroundImage(avatarFriend, image);
                 }
-            });
+            }));
         }
 
         // Set avatar
@@ -1130,31 +1472,20 @@ public class MainController extends BaseController {
                 return;
             }
 
-            CompletableFuture.runAsync(() -> {
-                try {
-                    Image image;
-
-                    if (avatarUrl.startsWith("http")) {
-                        image = new Image(avatarUrl, true);
-                    } else {
-                        File file = new File(avatarUrl);
-                        image = file.exists()
-                                ? new Image(file.toURI().toString())
-                                : new Image(getClass().getResourceAsStream(avatarUrl));
-                    }
-
-                    Platform.runLater(() -> {
-                        if (image.isError()) {
-                            setDefaultAvatarfr(avatarRegion);
-                        } else {
-                            setRegionBackgroundImage(avatarRegion, image);
-                        }
-                    });
-
-                } catch (Exception e) {
-                    Platform.runLater(() -> setDefaultAvatarfr(avatarRegion));
+            // ✅ Every request card of the same user shares one load and one decoded image
+            double size = avatarRegion.getPrefWidth();
+            Image cached = avatarService.getCached(avatarUrl, size);
+            if (cached != null) {
+                setRegionBackgroundImage(avatarRegion, cached);
+                return;
+            }
+            avatarService.load(avatarUrl, size).whenComplete((image, error) -> ui.post(() -> {
+                if (image == null) {
+                    setDefaultAvatarfr(avatarRegion);
+                } else {
+                    setRegionBackgroundImage(avatarRegion, image);
                 }
-            });
+            }));
         }
 
 
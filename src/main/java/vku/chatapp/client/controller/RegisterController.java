@@ -6,6 +6,7 @@ import javafx.stage.Stage;
 import javafx.event.ActionEvent;
 import vku.chatapp.client.controller.component.VerifyOtpController;
 import vku.chatapp.common.dto.AuthResponse;
+import vku.chatapp.client.rmi.RMIGateway;
 import vku.chatapp.client.service.AuthService;
 
 public class RegisterController extends BaseController {
@@ -100,9 +101,10 @@ public class RegisterController extends BaseController {
         registerButton.setDisable(true);
 
         // --- Gọi Server ---
-        new Thread(() -> {
-            // Giả sử authService.register đã gọi RMI như các bước trước
-            AuthResponse response = authService.register(username, email, password, displayName);
+        RMIGateway.getInstance().submit(() -> authService.register(username, email, password, displayName)).whenComplete((result, error) -> {
+            AuthResponse response = error != null
+                    ? new AuthResponse(false, "Connection error: " + error.getMessage())
+                    : result;
 
             javafx.application.Platform.runLater(() -> {
                 registerButton.setDisable(false);
@@ -138,7 +140,7 @@ public class RegisterController extends BaseController {
                     showErrorMessage(response.getMessage());
                 }
             });
-        }).start();
+        });
     }
 
     @FXML
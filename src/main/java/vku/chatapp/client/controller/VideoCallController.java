@@ -11,11 +11,13 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.image.ImageView;
 import javafx.util.Duration;
+import vku.chatapp.client.rmi.RMIGateway;
 import vku.chatapp.client.media.MediaManager;
 import vku.chatapp.client.model.CallSession;
 import vku.chatapp.client.p2p.P2PMessageHandler;
 import vku.chatapp.client.rmi.RMIClient;
 import vku.chatapp.client.service.CallService;
+import vku.chatapp.client.util.UiUpdateScheduler;
 import vku.chatapp.common.dto.UserDTO;
 import vku.chatapp.common.enums.CallStatus;
 import vku.chatapp.common.enums.CallType;
@@ -135,7 +137,7 @@ public class VideoCallController extends BaseController {
 
             System.out.println("⚠️ Incomplete peer info, fetching...");
 
-            new Thread(() -> {
+            RMIGateway.getInstance().execute(() -> {
                 try {
                     UserDTO fullPeerInfo = RMIClient.getInstance()
                             .getUserService()
@@ -151,7 +153,7 @@ public class VideoCallController extends BaseController {
                 } catch (Exception e) {
                     System.err.println("❌ Error fetching peer info: " + e.getMessage());
                 }
-            }).start();
+            });
         }
 
         callStatusLabel.setText("📞 Incoming " +
@@ -320,7 +322,7 @@ public class VideoCallController extends BaseController {
             return;
         }
 
-        Platform.runLater(() -> {
+        UiUpdateScheduler.getInstance().post(() -> {
             switch (message.getType()) {
                 case CALL_ANSWER:
                     handleCallAnswer(message);
@@ -7,6 +7,7 @@ import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import vku.chatapp.client.rmi.RMIGateway;
 import vku.chatapp.client.model.UserSession;
 import vku.chatapp.client.service.FriendService;
 import vku.chatapp.common.dto.UserDTO;
@@ -42,14 +43,14 @@ public class FriendListController {
     private void loadFriends() {
         Long currentUserId = UserSession.getInstance().getCurrentUser().getId();
 
-        new Thread(() -> {
+        RMIGateway.getInstance().execute(() -> {
             List<UserDTO> friendList = friendService.getFriendList(currentUserId);
 
             javafx.application.Platform.runLater(() -> {
                 friends.clear();
                 friends.addAll(friendList);
             });
-        }).start();
+        });
     }
 
     private void filterFriends(String query) {
@@ -17,11 +17,13 @@ import vku.chatapp.client.controller.BaseController;
 import vku.chatapp.common.dto.UserDTO;
 import vku.chatapp.common.enums.UserStatus;
 import vku.chatapp.client.model.UserSession;
+import vku.chatapp.client.rmi.RMIGateway;
+import vku.chatapp.client.service.AvatarService;
 import vku.chatapp.client.service.UserService;
+import vku.chatapp.common.constants.AppConstants;
 import vku.chatapp.common.model.User;
 
 import java.io.File;
-import java.util.concurrent.CompletableFuture;
 
 public class ProfileEditorController extends BaseController {
 
@@ -244,26 +246,30 @@ public class ProfileEditorController extends BaseController {
 
         showLoading(true);
 
-        CompletableFuture.runAsync(() -> {
+        // ✅ Upload, update and reload run as one gateway task; an avatar upload gets the upload deadline
+        long timeoutMs = avatarChanged ? AppConstants.RMI_UPLOAD_TIMEOUT_MS : AppConstants.RMI_CALL_TIMEOUT_MS;
+        RMIGateway.getInstance().submit(() -> {
             try {
                 String avatarUrl = currentUser.getAvatarUrl();
 
                 // Upload avatar if changed
                 if (avatarChanged && newAvatarLocalPath != null) {
                     System.out.println("📤 Uploading new avatar...");
-                    avatarSizeLabel.setText("Uploading to Google Drive...");
+                    Platform.runLater(() -> avatarSizeLabel.setText("Resizing and uploading avatar..."));
 
                     String uploadedUrl = userService.uploadAvatar(currentUser.getId(), newAvatarLocalPath);
 
                     if (uploadedUrl != null) {
                         avatarUrl = uploadedUrl;
+                        // Uploads may reuse the URL; drop the old picture everywhere
+                        AvatarService.getInstance().invalidate(uploadedUrl);
                         System.out.println("✅ Avatar uploaded: " + uploadedUrl);
                     } else {
                         Platform.runLater(() -> {
                             showLoading(false);
                             showError("Upload Failed", "Failed to upload avatar to Google Drive");
                         });
-                        return;
+                        return null;
                     }
                 }
 
@@ -283,7 +289,7 @@ public class ProfileEditorController extends BaseController {
                         showLoading(false);
                         showError("Update Failed", "Failed to update profile");
                     });
-                    return;
+                    return null;
                 }
 
                 // Handle password change
@@ -323,11 +329,23 @@ public class ProfileEditorController extends BaseController {
                 });
 
             } catch (Exception e) {
+                // Interrupted: the deadline already reported the failure
+                if (!Thread.currentThread().isInterrupted()) {
+                    Platform.runLater(() -> {
+                        showLoading(false);
+                        showError("Error", "Failed to update profile: " + e.getMessage());
+                    });
+                }
+                e.printStackTrace();
+            }
+            return null;
+        }, timeoutMs).whenComplete((result, error) -> {
+            if (error != null) {
+                // Timed out or rejected by the gateway
                 Platform.runLater(() -> {
                     showLoading(false);
-                    showError("Error", "Failed to update profile: " + e.getMessage());
+                    showError("Error", "Failed to update profile: " + error.getMessage());
                 });
-                e.printStackTrace();
             }
         });
     }
@@ -386,38 +404,16 @@ public class ProfileEditorController extends BaseController {
             return;
         }
 
-        CompletableFuture.runAsync(() -> {
-            try {
-                Image image;
-
-                // Check if it's a URL (Cloudinary, Google Drive, or any online source)
-                if (avatarUrl.startsWith("http://") || avatarUrl.startsWith("https://")) {
-                    image = new Image(avatarUrl, true); // true = background loading
-                } else {
-                    // Try loading from local file or resources
-                    File avatarFile = new File(avatarUrl);
-                    if (avatarFile.exists()) {
-                        image = new Image(avatarFile.toURI().toString());
-                    } else {
-                        image = new Image(getClass().getResourceAsStream(avatarUrl));
-                    }
-                }
-
+        // Same cache as the main window and chat headers (see AvatarService)
+        AvatarService.getInstance().load(avatarUrl, avatarImageView.getFitWidth()).whenComplete((image, error) ->
                 Platform.runLater(() -> {
-                    if (image.isError()) {
-                        System.err.println("Error loading avatar: " + image.getException().getMessage());
+                    if (image == null) {
                         loadDefaultAvatar();
                     } else {
                         avatarImageView.setImage(image);
                         System.out.println("✅ Avatar loaded successfully");
                     }
-                });
-
-            } catch (Exception e) {
-                System.err.println("Error loading avatar: " + e.getMessage());
-                Platform.runLater(this::loadDefaultAvatar);
-            }
-        });
+                }));
     }
 
 
@@ -8,6 +8,7 @@ import javafx.scene.control.*;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import vku.chatapp.client.controller.BaseController;
+import vku.chatapp.client.rmi.RMIGateway;
 import vku.chatapp.client.service.AuthService;
 
 public class ResetPasswordController extends BaseController {
@@ -98,8 +99,8 @@ public class ResetPasswordController extends BaseController {
         resetButton.setDisable(true);
         showMessage("Đang xử lý...", "info");
 
-        new Thread(() -> {
-            boolean success = authService.resetPassword(email, otp, newPassword);
+        RMIGateway.getInstance().submit(() -> authService.resetPassword(email, otp, newPassword)).whenComplete((result, error) -> {
+            boolean success = error == null && Boolean.TRUE.equals(result);
 
             Platform.runLater(() -> {
                 resetButton.setDisable(false);
@@ -118,7 +119,7 @@ public class ResetPasswordController extends BaseController {
                     otpField.requestFocus();
                 }
             });
-        }).start();
+        });
     }
 
     /**
@@ -134,8 +135,8 @@ public class ResetPasswordController extends BaseController {
         resendButton.setDisable(true);
         showMessage("Đang gửi lại mã OTP...", "info");
 
-        new Thread(() -> {
-            boolean success = authService.sendPasswordResetOtp(email);
+        RMIGateway.getInstance().submit(() -> authService.sendPasswordResetOtp(email)).whenComplete((result, error) -> {
+            boolean success = error == null && Boolean.TRUE.equals(result);
 
             Platform.runLater(() -> {
                 resendButton.setDisable(false);
@@ -150,7 +151,7 @@ public class ResetPasswordController extends BaseController {
                     showMessage("❌ Không thể gửi lại OTP. Vui lòng thử lại!", "error");
                 }
             });
-        }).start();
+        });
     }
 
     /**
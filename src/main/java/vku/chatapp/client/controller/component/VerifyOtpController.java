@@ -1,5 +1,6 @@
 package vku.chatapp.client.controller.component;
 
+import javafx.application.Platform;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.fxml.FXML;
@@ -11,6 +12,7 @@ import javafx.scene.control.TextField;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import vku.chatapp.client.rmi.RMIClient;
+import vku.chatapp.client.rmi.RMIGateway;
 
 public class VerifyOtpController extends BaseController {
 
@@ -89,31 +91,32 @@ public class VerifyOtpController extends BaseController {
             return;
         }
 
-        try {
-            boolean isVerified = RMIClient.getInstance()
-                    .getAuthService()
-                    .verifyEmail(targetEmail, otpCode);
-
-            if (isVerified) {
-                if (timeline != null) timeline.stop();
-                showAlert("Thành công", "Xác thực thành công!");
+        // ✅ Verify off the FX thread
+        RMIGateway.getInstance()
+                .submit(() -> RMIClient.getInstance().getAuthService().verifyEmail(targetEmail, otpCode))
+                .whenComplete((isVerified, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        error.printStackTrace();
+                        showAlert("Lỗi kết nối", "Không thể kết nối đến Server: " + error.getMessage());
+                        return;
+                    }
 
-                // 👉 Dùng đúng hàm chuyển cảnh
-                handleBackToLogin();
+                    if (isVerified) {
+                        if (timeline != null) timeline.stop();
+                        showAlert("Thành công", "Xác thực thành công!");
 
-            } else {
-                showAlert("Thất bại", "Mã OTP sai hoặc hết hạn.");
+                        // 👉 Dùng đúng hàm chuyển cảnh
+                        handleBackToLogin();
 
-                otp1.setText(""); otp2.setText(""); otp3.setText("");
-                otp4.setText(""); otp5.setText(""); otp6.setText("");
+                    } else {
+                        showAlert("Thất bại", "Mã OTP sai hoặc hết hạn.");
 
-                otp1.requestFocus();
-            }
+                        otp1.setText(""); otp2.setText(""); otp3.setText("");
+                        otp4.setText(""); otp5.setText(""); otp6.setText("");
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            showAlert("Lỗi kết nối", "Không thể kết nối đến Server: " + e.getMessage());
-        }
+                        otp1.requestFocus();
+                    }
+                }));
     }
 
     @FXML
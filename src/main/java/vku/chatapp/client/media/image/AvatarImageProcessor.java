@@ -0,0 +1,140 @@
+package vku.chatapp.client.media.image;
+
+import vku.chatapp.common.constants.AppConstants;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Turns a user-picked photo into small square JPEG avatars.
+ * Decode → center crop → stepwise downscale → JPEG encode, all with AWT/ImageIO so it
+ * can run on any background thread (never call it on the FX thread for large photos).
+ */
+public class AvatarImageProcessor {
+
+    public static class Rendition {
+        private final int size;
+        private final byte[] data;
+
+        Rendition(int size, byte[] data) {
+            this.size = size;
+            this.data = data;
+        }
+
+        public int getSize() { return size; }
+        public byte[] getData() { return data; }
+    }
+
+    /**
+     * Returns one rendition per {@link AppConstants#AVATAR_SIZES}, largest first. Photos are
+     * never upscaled: sizes larger than the photo collapse into one rendition labelled with
+     * the photo's own size.
+     */
+    public List<Rendition> process(File source) throws IOException {
+        BufferedImage original = ImageIO.read(source);
+        if (original == null) {
+            throw new IOException("Unsupported image format: " + source.getName());
+        }
+
+        BufferedImage square = cropToSquare(original);
+
+        List<Rendition> renditions = new ArrayList<>();
+        BufferedImage current = square;
+        for (int size : AppConstants.AVATAR_SIZES) {
+            // Each size starts from the previous one: cheaper and sharper than scaling from the original
+            current = downscale(current, size);
+            int actual = current.getWidth();
+            if (!renditions.isEmpty() && renditions.get(renditions.size() - 1).getSize() == actual) {
+                continue;
+            }
+            renditions.add(new Rendition(actual, encodeJpeg(current)));
+        }
+        return renditions;
+    }
+
+    private BufferedImage cropToSquare(BufferedImage image) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        int x = (image.getWidth() - side) / 2;
+        int y = (image.getHeight() - side) / 2;
+
+        // Copy onto an opaque RGB canvas: JPEG has no alpha, transparent PNGs get a white background
+        BufferedImage square = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = square.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, side, side);
+            g.drawImage(image, 0, 0, side, side, x, y, x + side, y + side, null);
+        } finally {
+            g.dispose();
+        }
+        return square;
+    }
+
+    /**
+     * Halves the image until it is within 2x of the target, then does one final bilinear step.
+     * A single large bilinear step would skip most source pixels and alias badly.
+     */
+    private BufferedImage downscale(BufferedImage image, int target) {
+        BufferedImage current = image;
+        int size = current.getWidth();
+
+        if (size <= target) {
+            return current;
+        }
+
+        while (size / 2 >= target) {
+            size /= 2;
+            current = resize(current, size);
+        }
+        if (size != target) {
+            current = resize(current, target);
+        }
+        return current;
+    }
+
+    private BufferedImage resize(BufferedImage image, int size) {
+        BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, size, size, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG encoder available");
+        }
+        ImageWriter writer = writers.next();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(AppConstants.AVATAR_JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,328 @@
+package vku.chatapp.client.model;
+
+import vku.chatapp.common.util.TextNormalizer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Substring index over the friend list, for the filter box.
+ * <p>
+ * Each friend is indexed under one key, the folded display name and username
+ * ({@link TextNormalizer}, so "dat" finds "Đạt"). Every suffix of every key sits in one
+ * sorted array; the friends containing a query are the suffixes starting with it, one
+ * binary search plus a scan of the matching range. Prefix matches are the suffixes at
+ * offset 0, so no separate prefix structure is needed.
+ * <p>
+ * Suffixes are packed longs (ordinal, offset) into the key table, so the array holds no
+ * strings. Adding or removing one friend is one merge pass over the array. Results come back
+ * in ordinal order; {@link #reorder} renumbers the friends to follow the friend list, so the
+ * filtered list is built straight from the results.
+ * Not thread-safe; the friend list uses it from the FX thread.
+ */
+public class FriendSearchIndex {
+    // Query and keys are folded, so they never contain a newline: no match spans both fields
+    private static final char FIELD_SEPARATOR = '\n';
+    private static final int OFFSET_BITS = 20;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    // By ordinal; null once removed
+    private String[] keys = new String[64];
+    private long[] ids = new long[64];
+    private int nextOrdinal;
+    private int liveCount;
+    private final Map<Long, Integer> ordinalById = new HashMap<>();
+
+    // (ordinal << OFFSET_BITS | offset), sorted by the suffix text
+    private long[] suffixes = new long[0];
+
+    // ========== Updates ==========
+
+    /** Adds a friend, or re-indexes it when its names changed. */
+    public void add(long id, String displayName, String username) {
+        String key = keyOf(displayName, username);
+        Integer existing = ordinalById.get(id);
+        if (existing != null) {
+            if (keys[existing].equals(key)) {
+                return;
+            }
+            remove(id);
+        }
+
+        int ordinal = newOrdinal(id, key);
+        long[] added = suffixesOf(ordinal);
+        sort(added);
+        suffixes = merge(suffixes, added);
+    }
+
+    public void remove(long id) {
+        Integer ordinal = ordinalById.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        long[] kept = new long[suffixes.length - keys[ordinal].length()];
+        int n = 0;
+        for (long suffix : suffixes) {
+            if (ordinalOf(suffix) != ordinal) {
+                kept[n++] = suffix;
+            }
+        }
+        suffixes = kept;
+        keys[ordinal] = null;
+        liveCount--;
+
+        // Removed ordinals are dead slots; renumber once they are the majority
+        if (nextOrdinal > 64 && liveCount < nextOrdinal / 2) {
+            compact();
+        }
+    }
+
+    /** Replaces the contents with friends, in list order; one sort instead of one merge each. */
+    public void replaceAll(List<FriendViewModel> friends) {
+        keys = new String[Math.max(64, friends.size())];
+        ids = new long[keys.length];
+        nextOrdinal = 0;
+        liveCount = 0;
+        ordinalById.clear();
+
+        int total = 0;
+        for (FriendViewModel friend : friends) {
+            if (!ordinalById.containsKey(friend.getId())) {
+                int ordinal = newOrdinal(friend.getId(), keyOf(friend.getDisplayName(), friend.getUsername()));
+                total += keys[ordinal].length();
+            }
+        }
+        long[] all = new long[total];
+        int n = 0;
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            for (long suffix : suffixesOf(ordinal)) {
+                all[n++] = suffix;
+            }
+        }
+        sort(all);
+        suffixes = all;
+    }
+
+    /**
+     * Renumbers the friends to follow order (the friend list, top first), so {@link #search}
+     * returns matches in it. Indexed friends missing from order go last. The suffix texts do
+     * not change, so nothing is re-sorted.
+     */
+    public void reorder(List<Long> order) {
+        if (liveCount == nextOrdinal && order.size() == liveCount) {
+            boolean same = true;
+            for (int ordinal = 0; ordinal < nextOrdinal && same; ordinal++) {
+                same = ids[ordinal] == order.get(ordinal);
+            }
+            if (same) {
+                return;
+            }
+        }
+        int[] sequence = new int[liveCount];
+        boolean[] placed = new boolean[nextOrdinal];
+        int n = 0;
+        for (Long id : order) {
+            Integer ordinal = id != null ? ordinalById.get(id) : null;
+            if (ordinal != null && !placed[ordinal]) {
+                placed[ordinal] = true;
+                sequence[n++] = ordinal;
+            }
+        }
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (keys[ordinal] != null && !placed[ordinal]) {
+                sequence[n++] = ordinal;
+            }
+        }
+        renumber(sequence);
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    public boolean contains(long id) {
+        return ordinalById.containsKey(id);
+    }
+
+    // ========== Search ==========
+
+    /** Ids of the friends whose name or username contains query, in list order. */
+    public long[] search(String query) {
+        String q = TextNormalizer.fold(query);
+        if (q.isEmpty()) {
+            long[] all = new long[liveCount];
+            int n = 0;
+            for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+                if (keys[ordinal] != null) {
+                    all[n++] = ids[ordinal];
+                }
+            }
+            return all;
+        }
+
+        // A friend matches once per occurrence; dedupe by ordinal, which also restores list order
+        boolean[] matched = new boolean[nextOrdinal];
+        int count = 0;
+        for (int i = lowerBound(q); i < suffixes.length; i++) {
+            long suffix = suffixes[i];
+            int ordinal = ordinalOf(suffix);
+            if (!keys[ordinal].startsWith(q, offsetOf(suffix))) {
+                break;
+            }
+            if (!matched[ordinal]) {
+                matched[ordinal] = true;
+                count++;
+            }
+        }
+
+        long[] result = new long[count];
+        int n = 0;
+        for (int ordinal = 0; ordinal < nextOrdinal && n < count; ordinal++) {
+            if (matched[ordinal]) {
+                result[n++] = ids[ordinal];
+            }
+        }
+        return result;
+    }
+
+    private int lowerBound(String q) {
+        int lo = 0, hi = suffixes.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareTo(suffixes[mid], q) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // ========== Suffix array ==========
+
+    private int newOrdinal(long id, String key) {
+        if (nextOrdinal == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        int ordinal = nextOrdinal++;
+        keys[ordinal] = key;
+        ids[ordinal] = id;
+        ordinalById.put(id, ordinal);
+        liveCount++;
+        return ordinal;
+    }
+
+    private long[] suffixesOf(int ordinal) {
+        String key = keys[ordinal];
+        if (key == null) {
+            return new long[0];
+        }
+        long[] out = new long[key.length()];
+        for (int offset = 0; offset < out.length; offset++) {
+            out[offset] = ((long) ordinal << OFFSET_BITS) | offset;
+        }
+        return out;
+    }
+
+    private void compact() {
+        int[] sequence = new int[liveCount];
+        int n = 0;
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (keys[ordinal] != null) {
+                sequence[n++] = ordinal;
+            }
+        }
+        renumber(sequence);
+    }
+
+    /** Gives the live ordinals in sequence the new ordinals 0, 1, 2...; dead slots are dropped. */
+    private void renumber(int[] sequence) {
+        String[] oldKeys = keys;
+        long[] oldIds = ids;
+        int[] renumbered = new int[nextOrdinal];
+
+        keys = new String[Math.max(64, liveCount * 2)];
+        ids = new long[keys.length];
+        nextOrdinal = 0;
+        liveCount = 0;
+        ordinalById.clear();
+        for (int ordinal : sequence) {
+            renumbered[ordinal] = newOrdinal(oldIds[ordinal], oldKeys[ordinal]);
+        }
+        // Same texts, same order: only the ordinals change
+        for (int i = 0; i < suffixes.length; i++) {
+            suffixes[i] = ((long) renumbered[ordinalOf(suffixes[i])] << OFFSET_BITS) | offsetOf(suffixes[i]);
+        }
+    }
+
+    private long[] merge(long[] a, long[] b) {
+        long[] out = new long[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            out[n++] = compare(a[i], b[j]) <= 0 ? a[i++] : b[j++];
+        }
+        while (i < a.length) {
+            out[n++] = a[i++];
+        }
+        while (j < b.length) {
+            out[n++] = b[j++];
+        }
+        return out;
+    }
+
+    private void sort(long[] array) {
+        Long[] boxed = new Long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            boxed[i] = array[i];
+        }
+        Arrays.sort(boxed, this::compare);
+        for (int i = 0; i < array.length; i++) {
+            array[i] = boxed[i];
+        }
+    }
+
+    /** Compares the suffix texts without building substrings. */
+    private int compare(long a, long b) {
+        String keyA = keys[ordinalOf(a)];
+        String keyB = keys[ordinalOf(b)];
+        int i = offsetOf(a);
+        int j = offsetOf(b);
+        while (i < keyA.length() && j < keyB.length()) {
+            int c = keyA.charAt(i++) - keyB.charAt(j++);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return (keyA.length() - i) - (keyB.length() - j);
+    }
+
+    private int compareTo(long suffix, String q) {
+        String key = keys[ordinalOf(suffix)];
+        int i = offsetOf(suffix);
+        int j = 0;
+        while (i < key.length() && j < q.length()) {
+            int c = key.charAt(i++) - q.charAt(j++);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return (key.length() - i) - (q.length() - j);
+    }
+
+    // ========== Helpers ==========
+
+    private static String keyOf(String displayName, String username) {
+        return TextNormalizer.fold(displayName) + FIELD_SEPARATOR + TextNormalizer.fold(username);
+    }
+
+    private static int ordinalOf(long suffix) {
+        return (int) (suffix >>> OFFSET_BITS);
+    }
+
+    private static int offsetOf(long suffix) {
+        return (int) (suffix & OFFSET_MASK);
+    }
+}
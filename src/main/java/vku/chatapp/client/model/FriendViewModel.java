@@ -0,0 +1,113 @@
+package vku.chatapp.client.model;
+
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import vku.chatapp.common.dto.UserDTO;
+import vku.chatapp.common.enums.UserStatus;
+
+/**
+ * A friend as the friend list shows it. Cells bind to these properties, so a presence
+ * change or a new message repaints only the friend's own cell instead of the whole list.
+ * <p>
+ * The wrapped {@link UserDTO} is kept in step (status, P2P address) for code that passes
+ * it on, e.g. to open a chat. FX thread only.
+ */
+public class FriendViewModel {
+    private final UserDTO user;
+    private final StringProperty displayName;
+    private final ObjectProperty<UserStatus> status;
+    private final StringProperty p2pAddress;
+    private final IntegerProperty unreadCount = new SimpleIntegerProperty(this, "unreadCount");
+    private final StringProperty lastMessage = new SimpleStringProperty(this, "lastMessage");
+
+    public FriendViewModel(UserDTO user) {
+        this.user = user;
+        this.displayName = new SimpleStringProperty(this, "displayName", user.getDisplayName());
+        this.status = new SimpleObjectProperty<>(this, "status",
+                user.getStatus() != null ? user.getStatus() : UserStatus.OFFLINE);
+        this.p2pAddress = new SimpleStringProperty(this, "p2pAddress", user.getP2pAddress());
+        user.setStatus(status.get());
+    }
+
+    /**
+     * Takes over a reloaded profile, so a reload keeps this model (and its row) instead of
+     * replacing it. Properties only fire for values that changed.
+     */
+    public void update(UserDTO fresh) {
+        user.setUsername(fresh.getUsername());
+        user.setDisplayName(fresh.getDisplayName());
+        user.setEmail(fresh.getEmail());
+        user.setAvatarUrl(fresh.getAvatarUrl());
+        user.setBio(fresh.getBio());
+        displayName.set(fresh.getDisplayName());
+        if (fresh.getStatus() != null) {
+            setStatus(fresh.getStatus());
+        }
+        if (fresh.getP2pAddress() != null) {
+            setP2pEndpoint(fresh.getP2pAddress(), fresh.getP2pPort());
+        }
+    }
+
+    public Long getId() {
+        return user.getId();
+    }
+
+    public UserDTO getUser() {
+        return user;
+    }
+
+    public String getUsername() {
+        return user.getUsername();
+    }
+
+    public StringProperty displayNameProperty() {
+        return displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName.get();
+    }
+
+    public ObjectProperty<UserStatus> statusProperty() {
+        return status;
+    }
+
+    public UserStatus getStatus() {
+        return status.get();
+    }
+
+    public void setStatus(UserStatus newStatus) {
+        user.setStatus(newStatus);
+        status.set(newStatus);
+    }
+
+    public StringProperty p2pAddressProperty() {
+        return p2pAddress;
+    }
+
+    public void setP2pEndpoint(String address, int port) {
+        user.setP2pAddress(address);
+        user.setP2pPort(port);
+        p2pAddress.set(address);
+    }
+
+    public IntegerProperty unreadCountProperty() {
+        return unreadCount;
+    }
+
+    public void setUnreadCount(int count) {
+        unreadCount.set(count);
+    }
+
+    public StringProperty lastMessageProperty() {
+        return lastMessage;
+    }
+
+    public void setLastMessage(String preview) {
+        lastMessage.set(preview);
+    }
+}
@@ -0,0 +1,77 @@
+package vku.chatapp.client.rmi;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.Remote;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dynamic proxy around an RMI stub that times every remote call
+ * and feeds {@link RMIMetrics}.
+ */
+public class InstrumentedRemoteHandler implements InvocationHandler {
+    private final Object target;
+    private final Map<Method, RMIMetrics.MethodStats> methodStats;
+
+    private InstrumentedRemoteHandler(Class<?> serviceInterface, Object target) {
+        this.target = target;
+        this.methodStats = new HashMap<>();
+
+        RMIMetrics metrics = RMIMetrics.getInstance();
+        for (Method method : serviceInterface.getMethods()) {
+            if (method.getDeclaringClass() != Object.class) {
+                methodStats.put(method, metrics.register(serviceInterface.getSimpleName(), method.getName()));
+            }
+        }
+    }
+
+    public static <T extends Remote> T wrap(Class<T> serviceInterface, T target) {
+        Object proxy = Proxy.newProxyInstance(
+                serviceInterface.getClassLoader(),
+                new Class<?>[]{serviceInterface},
+                new InstrumentedRemoteHandler(serviceInterface, target)
+        );
+        return serviceInterface.cast(proxy);
+    }
+
+    /**
+     * Returns the raw stub behind an instrumented proxy (for identity checks).
+     */
+    public static Object unwrap(Object proxy) {
+        if (Proxy.isProxyClass(proxy.getClass())
+                && Proxy.getInvocationHandler(proxy) instanceof InstrumentedRemoteHandler) {
+            return ((InstrumentedRemoteHandler) Proxy.getInvocationHandler(proxy)).target;
+        }
+        return proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        RMIMetrics.MethodStats stats = methodStats.get(method);
+        if (stats == null) {
+            // equals/hashCode/toString
+            return invokeTarget(method, args);
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = invokeTarget(method, args);
+            failed = false;
+            return result;
+        } finally {
+            stats.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
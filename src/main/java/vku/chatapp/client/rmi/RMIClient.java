@@ -5,20 +5,36 @@ package vku.chatapp.client.rmi;
 
 import vku.chatapp.common.constants.AppConstants;
 import vku.chatapp.common.rmi.*;
+import vku.chatapp.common.rmi.socket.TunedRMISocketFactory;
 
+import java.rmi.Remote;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RMIClient {
     private static RMIClient instance;
-    private Registry registry;
-    private IAuthService authService;
-    private IUserService userService;
-    private IFriendService friendService;
-    private IPeerDiscoveryService peerDiscoveryService;
-    private IMessageService messageService; // ✅ NEW
-
-    private RMIClient() {}
+    private volatile Registry registry;
+
+    // ✅ Current (instrumented) stubs, replaced on every (re)connect
+    private final Map<Class<?>, Remote> liveStubs = new ConcurrentHashMap<>();
+    private final Map<Class<?>, String> serviceNames = new ConcurrentHashMap<>();
+
+    // ✅ Stable proxies handed out to callers; they always resolve the current stub
+    private final IAuthService authService;
+    private final IUserService userService;
+    private final IFriendService friendService;
+    private final IPeerDiscoveryService peerDiscoveryService;
+    private final IMessageService messageService; // ✅ NEW
+
+    private RMIClient() {
+        authService = resilient(IAuthService.class, AppConstants.RMI_AUTH_SERVICE);
+        userService = resilient(IUserService.class, AppConstants.RMI_USER_SERVICE);
+        friendService = resilient(IFriendService.class, AppConstants.RMI_FRIEND_SERVICE);
+        peerDiscoveryService = resilient(IPeerDiscoveryService.class, AppConstants.RMI_PEER_DISCOVERY_SERVICE);
+        messageService = resilient(IMessageService.class, AppConstants.RMI_MESSAGE_SERVICE);
+    }
 
     public static RMIClient getInstance() {
         if (instance == null) {
@@ -31,20 +47,62 @@ public class RMIClient {
         return instance;
     }
 
-    public void connect(String host, int port) throws Exception {
-        registry = LocateRegistry.getRegistry(host, port);
+    /**
+     * Looks up every service stub. Safe to call again after a server restart:
+     * the stable proxies pick up the new stubs on their next call.
+     * Prefer {@link RMIConnectionManager#connect} which also starts health checks.
+     */
+    public synchronized void connect(String host, int port) throws Exception {
+        // ✅ Without a response timeout a dead server blocks socket reads forever. It matches the
+        // gateway deadline so workers come free with their callers; slow calls lengthen it per thread
+        if (System.getProperty("sun.rmi.transport.tcp.responseTimeout") == null) {
+            System.setProperty("sun.rmi.transport.tcp.responseTimeout",
+                    String.valueOf(AppConstants.RMI_CALL_TIMEOUT_MS));
+        }
 
-        authService = (IAuthService) registry.lookup(AppConstants.RMI_AUTH_SERVICE);
-        userService = (IUserService) registry.lookup(AppConstants.RMI_USER_SERVICE);
-        friendService = (IFriendService) registry.lookup(AppConstants.RMI_FRIEND_SERVICE);
-        peerDiscoveryService = (IPeerDiscoveryService) registry.lookup(AppConstants.RMI_PEER_DISCOVERY_SERVICE);
+        // ✅ TCP_NODELAY + byte counting for default-factory connections (registry, legacy exports)
+        TunedRMISocketFactory.install();
 
-        // ✅ NEW: Lookup MessageService
-        messageService = (IMessageService) registry.lookup("MessageService");
+        Registry newRegistry = LocateRegistry.getRegistry(host, port);
+
+        // Look everything up first so a half-restarted server never leaves mixed stubs
+        Map<Class<?>, Remote> fresh = new ConcurrentHashMap<>();
+        for (Map.Entry<Class<?>, String> entry : serviceNames.entrySet()) {
+            fresh.put(entry.getKey(), lookup(newRegistry, entry.getKey(), entry.getValue()));
+        }
+
+        registry = newRegistry;
+        liveStubs.putAll(fresh);
 
         System.out.println("✅ Connected to RMI server at " + host + ":" + port);
     }
 
+    /**
+     * Cheap liveness probe: one registry round trip.
+     * Returns false when the server was restarted and our stubs point at dead objects.
+     */
+    boolean stubsAreCurrent() throws Exception {
+        Registry current = registry;
+        if (current == null) {
+            return false;
+        }
+        Remote registered = current.lookup(AppConstants.RMI_PEER_DISCOVERY_SERVICE);
+        Remote ours = liveStubs.get(IPeerDiscoveryService.class);
+        return ours != null && InstrumentedRemoteHandler.unwrap(ours).equals(registered);
+    }
+
+    private <T extends Remote> T resilient(Class<T> serviceInterface, String name) {
+        serviceNames.put(serviceInterface, name);
+        return ResilientRemoteHandler.wrap(serviceInterface, () -> serviceInterface.cast(liveStubs.get(serviceInterface)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Remote lookup(Registry registry, Class<?> serviceInterface, String name) throws Exception {
+        // ✅ Every stub is wrapped so RMIMetrics sees per-method latency
+        Class<Remote> type = (Class<Remote>) serviceInterface;
+        return InstrumentedRemoteHandler.wrap(type, type.cast(registry.lookup(name)));
+    }
+
     public IAuthService getAuthService() {
         return authService;
     }
@@ -67,6 +125,7 @@ public class RMIClient {
     }
 
     public boolean isConnected() {
-        return registry != null && authService != null;
+        return registry != null
+                && RMIConnectionManager.getInstance().getState() == RMIConnectionManager.State.CONNECTED;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,256 @@
+package vku.chatapp.client.rmi;
+
+import vku.chatapp.common.constants.AppConstants;
+
+import java.io.EOFException;
+import java.net.SocketException;
+import java.rmi.ConnectException;
+import java.rmi.ConnectIOException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.UnknownHostException;
+import java.rmi.UnmarshalException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the RMI connection alive across server restarts.
+ * Connection failures seen by any call (or by the periodic health check) switch the
+ * client to RECONNECTING; stubs are then re-looked up with exponential backoff and
+ * listeners are told to re-register peer and presence once the server is back.
+ */
+public class RMIConnectionManager {
+    private static RMIConnectionManager instance;
+
+    public enum State { DISCONNECTED, CONNECTED, RECONNECTING }
+
+    /**
+     * What calls do while reconnecting: QUEUE waits (up to the call timeout),
+     * FAIL_FAST throws {@link RMIGatewayException} with reason UNAVAILABLE.
+     */
+    public enum ReconnectPolicy { QUEUE, FAIL_FAST }
+
+    public interface ConnectionListener {
+        void onConnectionLost();
+
+        void onReconnected();
+    }
+
+    private final RMIClient rmiClient;
+    private final List<ConnectionListener> listeners;
+    private final Object stateLock = new Object();
+    private final ScheduledExecutorService monitor;
+
+    private volatile State state = State.DISCONNECTED;
+    private volatile ReconnectPolicy policy = ReconnectPolicy.QUEUE;
+    private String host;
+    private int port;
+    private int failedAttempts;
+    private ScheduledFuture<?> healthCheck;
+
+    private RMIConnectionManager() {
+        this.rmiClient = RMIClient.getInstance();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "RMI-Connection-Monitor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static RMIConnectionManager getInstance() {
+        if (instance == null) {
+            synchronized (RMIConnectionManager.class) {
+                if (instance == null) {
+                    instance = new RMIConnectionManager();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void connect(String host, int port) throws Exception {
+        synchronized (stateLock) {
+            this.host = host;
+            this.port = port;
+        }
+
+        rmiClient.connect(host, port);
+        markConnected();
+
+        synchronized (stateLock) {
+            if (healthCheck == null) {
+                healthCheck = monitor.scheduleWithFixedDelay(this::checkHealth,
+                        AppConstants.RMI_HEALTH_CHECK_MS, AppConstants.RMI_HEALTH_CHECK_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // ========== Call path ==========
+
+    /**
+     * Called before every remote call. Returns immediately when connected.
+     */
+    void awaitConnected() throws RMIGatewayException {
+        if (state == State.CONNECTED) {
+            return;
+        }
+        if (state == State.DISCONNECTED || policy == ReconnectPolicy.FAIL_FAST) {
+            throw RMIGatewayException.unavailable();
+        }
+
+        long deadline = System.currentTimeMillis() + AppConstants.RMI_CALL_TIMEOUT_MS;
+        synchronized (stateLock) {
+            while (state == State.RECONNECTING) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw RMIGatewayException.unavailable();
+                }
+                try {
+                    stateLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RMIGatewayException(RMIGatewayException.Reason.CANCELLED,
+                            "Interrupted while waiting for reconnect");
+                }
+            }
+        }
+        if (state != State.CONNECTED) {
+            throw RMIGatewayException.unavailable();
+        }
+    }
+
+    /**
+     * Called with the cause of every failed remote call; only transport failures
+     * trigger a reconnect, application exceptions are ignored.
+     */
+    void reportFailure(Throwable error) {
+        if (isConnectionFailure(error)) {
+            connectionLost(error.getMessage());
+        }
+    }
+
+    static boolean isConnectionFailure(Throwable error) {
+        if (error instanceof ConnectException
+                || error instanceof ConnectIOException
+                || error instanceof NoSuchObjectException
+                || error instanceof UnknownHostException) {
+            return true;
+        }
+        // Server died mid-call
+        return error instanceof UnmarshalException
+                && (error.getCause() instanceof EOFException || error.getCause() instanceof SocketException);
+    }
+
+    // ========== State transitions ==========
+
+    private void connectionLost(String reason) {
+        synchronized (stateLock) {
+            if (state != State.CONNECTED) {
+                return;
+            }
+            state = State.RECONNECTING;
+            failedAttempts = 0;
+        }
+
+        System.err.println("⚠️ RMI connection lost (" + reason + "), reconnecting...");
+        for (ConnectionListener listener : listeners) {
+            try {
+                listener.onConnectionLost();
+            } catch (Exception e) {
+                System.err.println("❌ Connection listener error: " + e.getMessage());
+            }
+        }
+
+        monitor.execute(this::attemptReconnect);
+    }
+
+    private void attemptReconnect() {
+        String targetHost;
+        int targetPort;
+        synchronized (stateLock) {
+            if (state != State.RECONNECTING) {
+                return;
+            }
+            targetHost = host;
+            targetPort = port;
+        }
+
+        try {
+            rmiClient.connect(targetHost, targetPort);
+        } catch (Exception e) {
+            long delay = nextBackoffMs();
+            System.err.println("⚠️ Reconnect failed: " + e.getMessage() + " (retry in " + delay + " ms)");
+            monitor.schedule(this::attemptReconnect, delay, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        markConnected();
+        System.out.println("✅ RMI connection restored");
+        for (ConnectionListener listener : listeners) {
+            try {
+                listener.onReconnected();
+            } catch (Exception e) {
+                System.err.println("❌ Connection listener error: " + e.getMessage());
+            }
+        }
+    }
+
+    private long nextBackoffMs() {
+        int attempt;
+        synchronized (stateLock) {
+            attempt = failedAttempts++;
+        }
+        long base = AppConstants.RMI_RECONNECT_MIN_MS << Math.min(attempt, 16);
+        long capped = Math.min(base, AppConstants.RMI_RECONNECT_MAX_MS);
+        // Jitter so many clients do not hammer a restarting server in lockstep
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    private void markConnected() {
+        synchronized (stateLock) {
+            state = State.CONNECTED;
+            failedAttempts = 0;
+            stateLock.notifyAll();
+        }
+    }
+
+    private void checkHealth() {
+        if (state != State.CONNECTED) {
+            return;
+        }
+        try {
+            if (!rmiClient.stubsAreCurrent()) {
+                connectionLost("server restarted");
+            }
+        } catch (Exception e) {
+            connectionLost(e.getMessage());
+        }
+    }
+
+    // ========== Accessors ==========
+
+    public State getState() {
+        return state;
+    }
+
+    public ReconnectPolicy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(ReconnectPolicy policy) {
+        this.policy = policy;
+    }
+
+    public void addListener(ConnectionListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ConnectionListener listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,209 @@
+package vku.chatapp.client.rmi;
+
+import vku.chatapp.common.constants.AppConstants;
+import vku.chatapp.common.rmi.socket.TunedClientSocketFactory;
+
+import java.rmi.RemoteException;
+import java.rmi.ServerException;
+import java.rmi.UnmarshalException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single entry point for RMI calls made off the FX thread.
+ * Calls run on a bounded pool, each with a deadline; when the pool and its queue
+ * are full, new calls are rejected instead of piling up threads.
+ */
+public class RMIGateway {
+    private static RMIGateway instance;
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService deadlineTimer;
+
+    @FunctionalInterface
+    public interface RemoteCall<T> {
+        T call() throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface RemoteTask {
+        void run() throws Exception;
+    }
+
+    private RMIGateway() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                AppConstants.RMI_GATEWAY_THREADS,
+                AppConstants.RMI_GATEWAY_THREADS,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(AppConstants.RMI_GATEWAY_QUEUE),
+                r -> new GatewayThread(r, "RMI-Gateway-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.deadlineTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "RMI-Gateway-Deadline");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static RMIGateway getInstance() {
+        if (instance == null) {
+            synchronized (RMIGateway.class) {
+                if (instance == null) {
+                    instance = new RMIGateway();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public <T> CompletableFuture<T> submit(RemoteCall<T> call) {
+        return submit(call, AppConstants.RMI_CALL_TIMEOUT_MS);
+    }
+
+    public CompletableFuture<Void> execute(RemoteTask task) {
+        return submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the call on the gateway pool.
+     * The returned future fails with {@link RMIGatewayException} on deadline or saturation;
+     * cancelling it interrupts the worker.
+     * <p>
+     * The deadline bounds the caller's wait. An interrupt does not unblock a socket read, so the
+     * worker is freed by the socket read timeout instead: the RMI response timeout that
+     * {@link RMIClient#connect} sets to {@link AppConstants#RMI_CALL_TIMEOUT_MS}, lengthened to
+     * timeoutMs for the worker while a longer call runs.
+     */
+    public <T> CompletableFuture<T> submit(RemoteCall<T> call, long timeoutMs) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    result.complete(withReadTimeout(call, timeoutMs));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(RMIGatewayException.rejected());
+            return result;
+        }
+
+        ScheduledFuture<?> deadline = deadlineTimer.schedule(() -> {
+            result.completeExceptionally(RMIGatewayException.timeout(timeoutMs));
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+
+        result.whenComplete((value, error) -> {
+            deadline.cancel(false);
+            if (error != null) {
+                // Timed out or cancelled by the caller: free the worker if it is not in a read
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    public <T> T call(RemoteCall<T> call) throws RemoteException {
+        return call(call, AppConstants.RMI_CALL_TIMEOUT_MS);
+    }
+
+    /**
+     * Blocking variant for code that is already on a background thread.
+     * Nested calls made from a gateway worker run inline under the outer deadline,
+     * so a full pool can never deadlock on itself.
+     */
+    public <T> T call(RemoteCall<T> call, long timeoutMs) throws RemoteException {
+        if (Thread.currentThread() instanceof GatewayThread) {
+            return invokeInline(call, timeoutMs);
+        }
+
+        CompletableFuture<T> future = submit(call, timeoutMs);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RMIGatewayException(RMIGatewayException.Reason.CANCELLED, "RMI call interrupted");
+        } catch (ExecutionException e) {
+            throw asRemoteException(e.getCause());
+        }
+    }
+
+    private <T> T invokeInline(RemoteCall<T> call, long timeoutMs) throws RemoteException {
+        try {
+            return withReadTimeout(call, timeoutMs);
+        } catch (Exception e) {
+            throw asRemoteException(e);
+        }
+    }
+
+    // Reads of a longer call may outlast the global response timeout
+    private static <T> T withReadTimeout(RemoteCall<T> call, long timeoutMs) throws Exception {
+        if (timeoutMs <= AppConstants.RMI_CALL_TIMEOUT_MS) {
+            return call.call();
+        }
+        int previous = TunedClientSocketFactory.setThreadReadTimeout((int) Math.min(timeoutMs, Integer.MAX_VALUE));
+        try {
+            return call.call();
+        } finally {
+            TunedClientSocketFactory.setThreadReadTimeout(previous);
+        }
+    }
+
+    /**
+     * True when error says the server does not have the called method (an older server).
+     * The server reports that as an {@link UnmarshalException} wrapped in a
+     * {@link ServerException}; a bare UnmarshalException is a broken connection instead.
+     * Looks through the gateway and proxy wrappers.
+     */
+    public static boolean isMissingOnServer(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof ServerException && t.getCause() instanceof UnmarshalException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static RemoteException asRemoteException(Throwable t) {
+        if (t instanceof RemoteException) {
+            return (RemoteException) t;
+        }
+        return new RemoteException(t.getMessage(), t);
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        deadlineTimer.shutdownNow();
+    }
+
+    private static class GatewayThread extends Thread {
+        GatewayThread(Runnable r, String name) {
+            super(r, name);
+            setDaemon(true);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package vku.chatapp.client.rmi;
+
+import java.rmi.RemoteException;
+
+/**
+ * Raised by {@link RMIGateway} when a call misses its deadline or the gateway
+ * is saturated, and by {@link RMIConnectionManager} while the server is unreachable. Extends RemoteException so existing RMI error handling applies.
+ */
+public class RMIGatewayException extends RemoteException {
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason { TIMEOUT, REJECTED, CANCELLED, UNAVAILABLE }
+
+    private final Reason reason;
+
+    public RMIGatewayException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public static RMIGatewayException timeout(long timeoutMs) {
+        return new RMIGatewayException(Reason.TIMEOUT, "RMI call timed out after " + timeoutMs + " ms");
+    }
+
+    public static RMIGatewayException rejected() {
+        return new RMIGatewayException(Reason.REJECTED, "RMI gateway saturated, call rejected");
+    }
+
+    public static RMIGatewayException unavailable() {
+        return new RMIGatewayException(Reason.UNAVAILABLE, "RMI server unavailable, reconnecting");
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,126 @@
+package vku.chatapp.client.rmi;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-method call counts, error counts and latency histograms for every RMI
+ * service handed out by {@link RMIClient}.
+ */
+public class RMIMetrics {
+    private static RMIMetrics instance;
+    private final Map<String, MethodStats> stats;
+
+    private RMIMetrics() {
+        this.stats = new ConcurrentHashMap<>();
+    }
+
+    public static RMIMetrics getInstance() {
+        if (instance == null) {
+            synchronized (RMIMetrics.class) {
+                if (instance == null) {
+                    instance = new RMIMetrics();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Stats are registered once per method when the proxy is built,
+     * so recording a call never touches this map.
+     */
+    public MethodStats register(String service, String method) {
+        return stats.computeIfAbsent(service + "." + method, MethodStats::new);
+    }
+
+    public List<MethodStats> snapshot() {
+        List<MethodStats> list = new ArrayList<>();
+        for (MethodStats s : stats.values()) {
+            if (s.getCalls() > 0) {
+                list.add(s);
+            }
+        }
+        list.sort(Comparator.comparingLong((MethodStats s) -> s.getHistogram().getTotalMicros()).reversed());
+        return list;
+    }
+
+    public void reset() {
+        for (MethodStats s : stats.values()) {
+            s.reset();
+        }
+    }
+
+    /**
+     * Human-readable table, slowest methods (by total time) first.
+     */
+    public String formatReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-48s %8s %6s %9s %9s %9s %9s%n",
+                "Method", "Calls", "Errors", "Mean ms", "p50 ms", "p99 ms", "Max ms"));
+
+        for (MethodStats s : snapshot()) {
+            LatencyHistogram h = s.getHistogram();
+            sb.append(String.format("%-48s %8d %6d %9.2f %9.2f %9.2f %9.2f%n",
+                    s.getName(), s.getCalls(), s.getErrors(),
+                    h.getMeanMicros() / 1000.0,
+                    h.percentileMicros(50) / 1000.0,
+                    h.percentileMicros(99) / 1000.0,
+                    h.getMaxMicros() / 1000.0));
+        }
+        return sb.toString();
+    }
+
+    public void exportCsv(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("method,calls,errors,mean_us,p50_us,p90_us,p99_us,p999_us,max_us");
+            for (MethodStats s : snapshot()) {
+                LatencyHistogram h = s.getHistogram();
+                out.printf("%s,%d,%d,%.1f,%d,%d,%d,%d,%d%n",
+                        s.getName(), s.getCalls(), s.getErrors(), h.getMeanMicros(),
+                        h.percentileMicros(50), h.percentileMicros(90),
+                        h.percentileMicros(99), h.percentileMicros(99.9),
+                        h.getMaxMicros());
+            }
+        }
+    }
+
+    public static class MethodStats {
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        MethodStats(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, boolean failed) {
+            calls.increment();
+            if (failed) {
+                errors.increment();
+            }
+            histogram.recordNanos(nanos);
+        }
+
+        void reset() {
+            calls.reset();
+            errors.reset();
+            histogram.reset();
+        }
+
+        public String getName() { return name; }
+        public long getCalls() { return calls.sum(); }
+        public long getErrors() { return errors.sum(); }
+        public LatencyHistogram getHistogram() { return histogram; }
+    }
+}
@@ -0,0 +1,66 @@
+package vku.chatapp.client.rmi;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.Remote;
+import java.util.function.Supplier;
+
+/**
+ * Stable proxy handed out by {@link RMIClient}. Each call resolves the current stub,
+ * so a reconnect swaps stubs without callers noticing, and connection failures
+ * are reported to {@link RMIConnectionManager}.
+ */
+public class ResilientRemoteHandler implements InvocationHandler {
+    private final String serviceName;
+    private final Supplier<?> currentStub;
+
+    private ResilientRemoteHandler(String serviceName, Supplier<?> currentStub) {
+        this.serviceName = serviceName;
+        this.currentStub = currentStub;
+    }
+
+    public static <T extends Remote> T wrap(Class<T> serviceInterface, Supplier<T> currentStub) {
+        Object proxy = Proxy.newProxyInstance(
+                serviceInterface.getClassLoader(),
+                new Class<?>[]{serviceInterface},
+                new ResilientRemoteHandler(serviceInterface.getSimpleName(), currentStub)
+        );
+        return serviceInterface.cast(proxy);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeObjectMethod(proxy, method, args);
+        }
+
+        RMIConnectionManager connectionManager = RMIConnectionManager.getInstance();
+        // QUEUE policy waits here while reconnecting, FAIL_FAST throws
+        connectionManager.awaitConnected();
+
+        Object target = currentStub.get();
+        if (target == null) {
+            throw RMIGatewayException.unavailable();
+        }
+
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            connectionManager.reportFailure(e.getCause());
+            throw e.getCause();
+        }
+    }
+
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "ResilientProxy[" + serviceName + "]";
+        }
+    }
+}
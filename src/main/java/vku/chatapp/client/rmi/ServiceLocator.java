@@ -22,7 +22,8 @@ public class ServiceLocator {
     }
 
     public void initialize() throws Exception {
-        rmiClient.connect(AppConstants.RMI_HOST, AppConstants.RMI_PORT);
+        // ✅ Connection manager also health-checks and reconnects after server restarts
+        RMIConnectionManager.getInstance().connect(AppConstants.RMI_HOST, AppConstants.RMI_PORT);
     }
 
     public RMIClient getRMIClient() {
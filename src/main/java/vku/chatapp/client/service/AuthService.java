@@ -2,18 +2,21 @@ package vku.chatapp.client.service;
 
 import vku.chatapp.common.dto.*;
 import vku.chatapp.client.rmi.RMIClient;
+import vku.chatapp.client.rmi.RMIGateway;
 
 public class AuthService {
     private final RMIClient rmiClient;
+    private final RMIGateway gateway;
 
     public AuthService() {
         this.rmiClient = RMIClient.getInstance();
+        this.gateway = RMIGateway.getInstance();
     }
 
     public AuthResponse login(String email, String password, boolean rememberMe) {
         try {
             LoginRequest request = new LoginRequest(email, password, rememberMe);
-            return rmiClient.getAuthService().login(request);
+            return gateway.call(() -> rmiClient.getAuthService().login(request));
         } catch (Exception e) {
             e.printStackTrace();
             return new AuthResponse(false, "Connection error: " + e.getMessage());
@@ -23,7 +26,7 @@ public class AuthService {
     public AuthResponse register(String username, String email, String password, String displayName) {
         try {
             RegisterRequest request = new RegisterRequest(username, email, password, displayName);
-            return rmiClient.getAuthService().register(request);
+            return gateway.call(() -> rmiClient.getAuthService().register(request));
         } catch (Exception e) {
             e.printStackTrace();
             return new AuthResponse(false, "Connection error: " + e.getMessage());
@@ -32,7 +35,7 @@ public class AuthService {
 
     public boolean logout(String sessionToken) {
         try {
-            return rmiClient.getAuthService().logout(sessionToken);
+            return gateway.call(() -> rmiClient.getAuthService().logout(sessionToken));
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -41,7 +44,7 @@ public class AuthService {
 
     public boolean verifyEmail(String email, String otp) {
         try {
-            return rmiClient.getAuthService().verifyEmail(email, otp);
+            return gateway.call(() -> rmiClient.getAuthService().verifyEmail(email, otp));
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -50,7 +53,7 @@ public class AuthService {
 
     public boolean sendPasswordResetOtp(String email) {
         try {
-            return rmiClient.getAuthService().sendPasswordResetOtp(email);
+            return gateway.call(() -> rmiClient.getAuthService().sendPasswordResetOtp(email));
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -59,7 +62,7 @@ public class AuthService {
 
     public boolean resetPassword(String email, String otp, String newPassword) {
         try {
-            return rmiClient.getAuthService().resetPassword(email, otp, newPassword);
+            return gateway.call(() -> rmiClient.getAuthService().resetPassword(email, otp, newPassword));
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -0,0 +1,225 @@
+package vku.chatapp.client.service;
+
+import javafx.scene.image.Image;
+import javafx.stage.Screen;
+import vku.chatapp.client.util.ImageCache;
+import vku.chatapp.common.constants.AppConstants;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One place that turns avatar URLs into {@link Image}s, shared by every controller.
+ * <p>
+ * Images are decoded at the size they are shown (times the screen scale) and kept in an
+ * {@link ImageCache} keyed by URL and size. Remote avatars are stored under {@code ~/.vkuchat/avatars}, named by the
+ * SHA-256 of their URL, with the server's ETag next to them: a stored avatar is used without
+ * any network access, and after {@link #invalidate} it is revalidated with
+ * {@code If-None-Match}, so an unchanged picture is not downloaded again.
+ * Local paths, {@code file:} URIs and classpath resources are read directly.
+ */
+public class AvatarService {
+    private static AvatarService instance;
+
+    private final Path directory;
+    // "size@url" -> decoded avatar
+    private final ImageCache cache;
+
+    // Remote URL -> times it was invalidated, and the count its stored copy was last
+    // checked against; a stored copy behind its URL is revalidated first. Guarded by this
+    private final Map<String, Long> versions = new HashMap<>();
+    private final Map<String, Long> validated = new HashMap<>();
+
+    private AvatarService() {
+        this.directory = Path.of(System.getProperty("user.home"), ".vkuchat", "avatars");
+        this.cache = new ImageCache("Avatar", AppConstants.AVATAR_LOAD_THREADS, Thread.NORM_PRIORITY,
+                AppConstants.AVATAR_MEMORY_BYTES);
+    }
+
+    public static AvatarService getInstance() {
+        if (instance == null) {
+            synchronized (AvatarService.class) {
+                if (instance == null) {
+                    instance = new AvatarService();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** The avatar if it is already decoded at this size; for the FX thread. */
+    public Image getCached(String url, double size) {
+        return url == null || url.isEmpty() ? null : cache.getCached(key(url, pixels(size)));
+    }
+
+    /**
+     * Avatar at url, decoded for a size x size display. Completes on a pool thread;
+     * fails when there is no usable image at url.
+     */
+    public CompletableFuture<Image> load(String url, double size) {
+        if (url == null || url.isEmpty()) {
+            return CompletableFuture.failedFuture(new IOException("No avatar"));
+        }
+        int pixels = pixels(size);
+        return cache.load(key(url, pixels), () -> decode(url, pixels));
+    }
+
+    /** The picture behind url may have changed (e.g. after a profile update): reload it on next use. */
+    public void invalidate(String url) {
+        if (url == null) {
+            return;
+        }
+        if (isRemote(url)) {
+            synchronized (this) {
+                versions.merge(url, 1L, Long::sum);
+            }
+        }
+        // Every size, including ones being decoded from the old picture right now
+        cache.invalidate(key -> key.substring(key.indexOf('@') + 1).equals(url));
+    }
+
+    public void clearMemory() {
+        cache.clearMemory();
+    }
+
+    // ========== Pool threads ==========
+
+    private Image decode(String url, int pixels) throws IOException {
+        try {
+            byte[] bytes = isRemote(url) ? remoteBytes(url) : localBytes(url);
+            Image image = new Image(new ByteArrayInputStream(bytes), pixels, pixels, true, true);
+            if (image.isError()) {
+                throw new IOException("Cannot decode avatar " + url);
+            }
+            return image;
+        } catch (IOException e) {
+            System.err.println("⚠️ Avatar unavailable: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private byte[] remoteBytes(String url) throws IOException {
+        String name = sha256(url);
+        Path stored = directory.resolve(name + ".img");
+        Path etagFile = directory.resolve(name + ".etag");
+        long version;
+        boolean revalidate;
+        synchronized (this) {
+            version = versions.getOrDefault(url, 0L);
+            revalidate = validated.getOrDefault(url, 0L) < version;
+        }
+        if (Files.exists(stored) && !revalidate) {
+            return Files.readAllBytes(stored);
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        connection.setConnectTimeout((int) AppConstants.RMI_CALL_TIMEOUT_MS);
+        connection.setReadTimeout((int) AppConstants.RMI_CALL_TIMEOUT_MS);
+        if (Files.exists(stored) && Files.exists(etagFile)) {
+            connection.setRequestProperty("If-None-Match", Files.readString(etagFile, StandardCharsets.UTF_8));
+        }
+        try {
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                markValidated(url, version);
+                return Files.readAllBytes(stored);
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + status + " for " + url);
+            }
+            byte[] bytes;
+            try (InputStream in = connection.getInputStream()) {
+                bytes = in.readAllBytes();
+            }
+            store(stored, etagFile, bytes, connection.getHeaderField("ETag"));
+            markValidated(url, version);
+            System.out.println("📡 Downloaded avatar (" + bytes.length + " bytes)");
+            return bytes;
+        } catch (IOException e) {
+            // Offline: an old picture beats none
+            if (Files.exists(stored)) {
+                return Files.readAllBytes(stored);
+            }
+            throw e;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private byte[] localBytes(String url) throws IOException {
+        if (url.startsWith("file:")) {
+            return Files.readAllBytes(Path.of(URI.create(url)));
+        }
+        File file = new File(url);
+        if (file.exists()) {
+            return Files.readAllBytes(file.toPath());
+        }
+        try (InputStream in = getClass().getResourceAsStream(url)) {
+            if (in == null) {
+                throw new IOException("Avatar not found: " + url);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    private void store(Path target, Path etagFile, byte[] bytes, String etag) {
+        try {
+            ImageCache.store(target, bytes);
+            if (etag != null) {
+                Files.writeString(etagFile, etag, StandardCharsets.UTF_8);
+            } else {
+                Files.deleteIfExists(etagFile);
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not store avatar: " + e.getMessage());
+        }
+    }
+
+    // Other sizes of the URL may now use the stored copy as is
+    private synchronized void markValidated(String url, long version) {
+        validated.merge(url, version, Math::max);
+    }
+
+    // ========== Helpers ==========
+
+    private static String key(String url, int pixels) {
+        return pixels + "@" + url;
+    }
+
+    // Sharp on HiDPI screens; falls back to 1x before the toolkit is up
+    private static int pixels(double size) {
+        double scale;
+        try {
+            scale = Screen.getPrimary().getOutputScaleX();
+        } catch (Exception e) {
+            scale = 1;
+        }
+        return (int) Math.ceil(size * Math.max(1, scale));
+    }
+
+    private static boolean isRemote(String url) {
+        return url.startsWith("http://") || url.startsWith("https://");
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
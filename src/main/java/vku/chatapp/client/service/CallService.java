@@ -4,7 +4,6 @@ import vku.chatapp.client.model.UserSession;
 import vku.chatapp.client.p2p.P2PClient;
 import vku.chatapp.client.p2p.P2PServer;
 import vku.chatapp.client.p2p.PeerRegistry;
-import vku.chatapp.client.rmi.RMIClient;
 import vku.chatapp.common.dto.PeerInfo;
 import vku.chatapp.common.enums.CallType;
 import vku.chatapp.common.protocol.P2PMessage;
@@ -14,10 +13,12 @@ import java.util.UUID;
 
 public class CallService {
     private final P2PClient p2pClient;
+    private final PeerDiscoveryService peerDiscoveryService;
     private P2PServer localP2PServer; // ✅ Store reference to local server
 
     public CallService() {
         this.p2pClient = new P2PClient();
+        this.peerDiscoveryService = new PeerDiscoveryService();
     }
 
     // ✅ NEW: Set local P2P server reference
@@ -27,7 +28,7 @@ public class CallService {
 
     public boolean initiateCall(Long receiverId, CallType callType) {
         try {
-            PeerInfo peerInfo = fetchFreshPeerInfo(receiverId);
+            PeerInfo peerInfo = peerDiscoveryService.getPeerInfo(receiverId);
             if (peerInfo == null) {
                 System.err.println("❌ Peer not found or offline: " + receiverId);
                 return false;
@@ -69,7 +70,7 @@ public class CallService {
 
     public boolean answerCall(Long callerId, String callId) {
         try {
-            PeerInfo peerInfo = fetchFreshPeerInfo(callerId);
+            PeerInfo peerInfo = peerDiscoveryService.getPeerInfo(callerId);
             if (peerInfo == null) {
                 System.err.println("❌ Caller peer not found: " + callerId);
                 return false;
@@ -113,7 +114,7 @@ public class CallService {
 
             if (peerInfo == null) {
                 System.out.println("⚠️ Peer not in registry, fetching from server...");
-                peerInfo = fetchFreshPeerInfo(peerId);
+                peerInfo = peerDiscoveryService.getPeerInfo(peerId);
             }
 
             if (peerInfo == null) {
@@ -153,7 +154,7 @@ public class CallService {
 
     public boolean rejectCall(Long callerId, String callId) {
         try {
-            PeerInfo peerInfo = fetchFreshPeerInfo(callerId);
+            PeerInfo peerInfo = peerDiscoveryService.getPeerInfo(callerId);
             if (peerInfo == null) {
                 System.err.println("❌ Caller peer not found: " + callerId);
                 return false;
@@ -186,25 +187,4 @@ public class CallService {
             return false;
         }
     }
-
-    private PeerInfo fetchFreshPeerInfo(Long userId) {
-        try {
-            PeerInfo peerInfo = RMIClient.getInstance()
-                    .getPeerDiscoveryService()
-                    .getPeerInfo(userId);
-
-            if (peerInfo != null) {
-                System.out.println("✅ Fetched peer info for " + userId +
-                        ": " + peerInfo.getAddress() + ":" + peerInfo.getPort());
-            } else {
-                System.err.println("❌ Peer info not found for: " + userId);
-            }
-
-            return peerInfo;
-
-        } catch (Exception e) {
-            System.err.println("❌ Error fetching peer info: " + e.getMessage());
-            return null;
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,218 @@
+package vku.chatapp.client.service;
+
+import vku.chatapp.client.model.UserSession;
+import vku.chatapp.client.p2p.PeerRegistry;
+import vku.chatapp.client.rmi.RMIClient;
+import vku.chatapp.client.rmi.RMIGateway;
+import vku.chatapp.client.storage.LocalMessageStore;
+import vku.chatapp.common.constants.AppConstants;
+import vku.chatapp.common.dto.ConversationSummary;
+import vku.chatapp.common.dto.PeerInfo;
+import vku.chatapp.common.dto.UserDTO;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Warms up conversations before they are opened, so opening one renders from local state.
+ * <p>
+ * For a friend this fetches the fresh profile (kept for {@link #getFreshUser}), the peer
+ * address (into {@link PeerRegistry}), the history newer than the local cache (into
+ * {@link LocalMessageStore}, which the chat renders from) and the chat header avatar (into
+ * {@link AvatarService}). After login the most likely conversations are prefetched: unread
+ * ones first, then by last message time. Hovering a friend prefetches that one.
+ * <p>
+ * Work runs on {@link AppConstants#PREFETCH_THREADS} low-priority threads, one conversation
+ * per thread at a time, so it never takes more than that from the RMI gateway. A friend is
+ * prefetched at most once per {@link AppConstants#PREFETCH_TTL_MS}.
+ * <p>
+ * Each task belongs to the login session it was queued in. {@link #clear} starts a new
+ * session and interrupts the old tasks; one that still gets through writes nothing.
+ */
+public class ConversationPrefetcher {
+    private static ConversationPrefetcher instance;
+
+    private ExecutorService pool;
+    private final RMIGateway gateway;
+    private final MessageService messageService;
+    private final PeerDiscoveryService peerDiscoveryService;
+
+    // Friend id -> when its prefetch started (ms)
+    private final Map<Long, Long> prefetchedAt = new ConcurrentHashMap<>();
+    private final Map<Long, FreshUser> freshUsers = new ConcurrentHashMap<>();
+    // Bumped by clear(); tasks of an older session must not write. Guarded by this
+    private long session;
+
+    private static final class FreshUser {
+        final UserDTO user;
+        final long fetchedAt;
+
+        FreshUser(UserDTO user, long fetchedAt) {
+            this.user = user;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private ConversationPrefetcher() {
+        this.pool = createPool();
+        this.gateway = RMIGateway.getInstance();
+        this.messageService = new MessageService();
+        this.peerDiscoveryService = new PeerDiscoveryService();
+    }
+
+    private static ExecutorService createPool() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(AppConstants.PREFETCH_THREADS, r -> {
+            Thread t = new Thread(r, "Prefetch-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    public static ConversationPrefetcher getInstance() {
+        if (instance == null) {
+            synchronized (ConversationPrefetcher.class) {
+                if (instance == null) {
+                    instance = new ConversationPrefetcher();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Prefetches the {@link AppConstants#PREFETCH_CONVERSATIONS} conversations most likely to
+     * be opened next. Friends without any message are skipped. FX thread (reads summaries).
+     */
+    public void prefetchRecent(Collection<UserDTO> friends, Function<Long, ConversationSummary> summaries) {
+        Map<UserDTO, ConversationSummary> ranked = new HashMap<>();
+        for (UserDTO friend : friends) {
+            ConversationSummary summary = summaries.apply(friend.getId());
+            if (summary != null && summary.getLastMessageAt() != null) {
+                ranked.put(friend, summary);
+            }
+        }
+
+        List<UserDTO> order = new ArrayList<>(ranked.keySet());
+        order.sort(Comparator
+                .comparing((UserDTO friend) -> ranked.get(friend).getUnreadCount() == 0)
+                .thenComparing(friend -> ranked.get(friend).getLastMessageAt(), Comparator.reverseOrder()));
+
+        List<UserDTO> top = order.subList(0, Math.min(order.size(), AppConstants.PREFETCH_CONVERSATIONS));
+        System.out.println("📡 Prefetching " + top.size() + " recent conversations");
+        top.forEach(this::prefetch);
+    }
+
+    /** Prefetches one conversation, unless it was done recently (any thread). */
+    public void prefetch(UserDTO friend) {
+        if (friend == null || friend.getId() == null || UserSession.getInstance().getCurrentUser() == null) {
+            return;
+        }
+        Long friendId = friend.getId();
+        Long userId = UserSession.getInstance().getCurrentUser().getId();
+
+        long now = System.currentTimeMillis();
+        Long previous = prefetchedAt.get(friendId);
+        if (previous != null && now - previous < AppConstants.PREFETCH_TTL_MS) {
+            return;
+        }
+        // Hover and ranking may race for the same friend; one of them wins
+        boolean claimed = previous == null
+                ? prefetchedAt.putIfAbsent(friendId, now) == null
+                : prefetchedAt.replace(friendId, previous, now);
+        if (claimed) {
+            synchronized (this) {
+                long taskSession = session;
+                pool.execute(() -> prefetchNow(taskSession, userId, friend));
+            }
+        }
+    }
+
+    /** The friend's profile if it was fetched within {@link AppConstants#PREFETCH_TTL_MS}, else null. */
+    public UserDTO getFreshUser(Long friendId) {
+        FreshUser fresh = freshUsers.get(friendId);
+        if (fresh == null || System.currentTimeMillis() - fresh.fetchedAt >= AppConstants.PREFETCH_TTL_MS) {
+            return null;
+        }
+        return fresh.user;
+    }
+
+    /** Forgets everything and drops queued and running prefetches (logout). */
+    public synchronized void clear() {
+        session++;
+        pool.shutdownNow();
+        pool = createPool();
+        prefetchedAt.clear();
+        freshUsers.clear();
+    }
+
+    // ========== Pool threads ==========
+
+    private void prefetchNow(long taskSession, Long userId, UserDTO friend) {
+        long start = System.nanoTime();
+        Long friendId = friend.getId();
+        try {
+            UserDTO fresh = gateway.call(() -> RMIClient.getInstance().getUserService().getUserById(friendId));
+            if (fresh != null) {
+                synchronized (this) {
+                    if (taskSession != session) {
+                        return;
+                    }
+                    freshUsers.put(friendId, new FreshUser(fresh, System.currentTimeMillis()));
+                }
+            }
+            UserDTO profile = fresh != null ? fresh : friend;
+
+            // Avatar decodes on its own pool meanwhile
+            if (profile.getAvatarUrl() != null && !profile.getAvatarUrl().isEmpty()) {
+                AvatarService.getInstance().load(profile.getAvatarUrl(), AppConstants.CHAT_AVATAR_SIZE);
+            }
+
+            PeerInfo peerInfo = peerDiscoveryService.getPeerInfo(friendId);
+            synchronized (this) {
+                if (taskSession != session) {
+                    return;
+                }
+                if (peerInfo != null) {
+                    PeerRegistry.getInstance().addPeer(peerInfo);
+                }
+            }
+
+            prefetchHistory(taskSession, userId, friendId);
+
+            System.out.println("✅ Prefetched conversation with " + profile.getDisplayName()
+                    + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            // Let the next hover try again
+            prefetchedAt.remove(friendId);
+            System.err.println("⚠️ Prefetch failed for " + friendId + ": " + e.getMessage());
+        }
+    }
+
+    // Same sync as the chat's own, so opening it finds nothing left to fetch
+    private void prefetchHistory(long taskSession, Long userId, Long friendId) throws Exception {
+        LocalMessageStore store = LocalMessageStore.getInstance();
+        long highWatermark = store.loadRecent(friendId, 0).join().getHighWatermark();
+        MessageService.NewerMessages newer = messageService.fetchNewer(userId, friendId, highWatermark,
+                AppConstants.CHAT_HISTORY_PAGE);
+        // Queued before clear() returns, so it lands ahead of the store's close
+        synchronized (this) {
+            if (taskSession == session) {
+                newer.applyTo(store, friendId);
+            }
+        }
+    }
+}
@@ -3,7 +3,6 @@ package vku.chatapp.client.service;
 import vku.chatapp.client.model.UserSession;
 import vku.chatapp.client.p2p.P2PClient;
 import vku.chatapp.client.p2p.PeerRegistry;
-import vku.chatapp.client.rmi.RMIClient;
 import vku.chatapp.common.dto.PeerInfo;
 import vku.chatapp.common.enums.MessageType;
 import vku.chatapp.common.protocol.P2PMessage;
@@ -23,6 +22,7 @@ import java.util.UUID;
 
 public class FileTransferService {
     private final P2PClient p2pClient;
+    private final PeerDiscoveryService peerDiscoveryService;
     private final PeerRegistry peerRegistry;
     private final String downloadPath;
     private final String imageCachePath;
@@ -47,6 +47,7 @@ public class FileTransferService {
 
     public FileTransferService() {
         this.p2pClient = new P2PClient();
+        this.peerDiscoveryService = new PeerDiscoveryService();
         this.peerRegistry = PeerRegistry.getInstance();
         this.downloadPath = System.getProperty("user.home") + "/Downloads/VKUChat/";
         this.imageCachePath = System.getProperty("user.home") + "/Downloads/images/";
@@ -72,7 +73,7 @@ public class FileTransferService {
     public boolean sendFile(Long receiverId, File file) {
         try {
             // Fetch fresh peer info
-            PeerInfo peerInfo = fetchFreshPeerInfo(receiverId);
+            PeerInfo peerInfo = peerDiscoveryService.getPeerInfo(receiverId);
             if (peerInfo == null) {
                 System.err.println("❌ Peer not found: " + receiverId);
                 return false;
@@ -194,27 +195,6 @@ public class FileTransferService {
         return outputFile;
     }
 
-    /**
-     * ✅ Fetch fresh peer info from server
-     */
-    private PeerInfo fetchFreshPeerInfo(Long userId) {
-        try {
-            PeerInfo peerInfo = RMIClient.getInstance()
-                    .getPeerDiscoveryService()
-                    .getPeerInfo(userId);
-
-            if (peerInfo != null) {
-                System.out.println("✅ Fetched peer info for " + userId +
-                        ": " + peerInfo.getAddress() + ":" + peerInfo.getPort());
-            }
-
-            return peerInfo;
-
-        } catch (Exception e) {
-            System.err.println("❌ Error fetching peer info: " + e.getMessage());
-            return null;
-        }
-    }
 
     /**
      * ✅ Format file size to human-readable
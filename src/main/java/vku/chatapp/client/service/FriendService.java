@@ -3,20 +3,23 @@ package vku.chatapp.client.service;
 import vku.chatapp.common.dto.UserDTO;
 import vku.chatapp.common.model.Friend;
 import vku.chatapp.client.rmi.RMIClient;
+import vku.chatapp.client.rmi.RMIGateway;
 
 import java.util.Collections;
 import java.util.List;
 
 public class FriendService {
     private final RMIClient rmiClient;
+    private final RMIGateway gateway;
 
     public FriendService() {
         this.rmiClient = RMIClient.getInstance();
+        this.gateway = RMIGateway.getInstance();
     }
 
     public boolean sendFriendRequest(Long userId, Long friendId) {
         try {
-            return rmiClient.getFriendService().sendFriendRequest(userId, friendId);
+            return gateway.call(() -> rmiClient.getFriendService().sendFriendRequest(userId, friendId));
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -25,7 +28,7 @@ public class FriendService {
 
     public boolean acceptFriendRequest(Long requestId) {
         try {
-            return rmiClient.getFriendService().acceptFriendRequest(requestId);
+            return gateway.call(() -> rmiClient.getFriendService().acceptFriendRequest(requestId));
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -34,7 +37,7 @@ public class FriendService {
 
     public boolean rejectFriendRequest(Long requestId) {
         try {
-            return rmiClient.getFriendService().rejectFriendRequest(requestId);
+            return gateway.call(() -> rmiClient.getFriendService().rejectFriendRequest(requestId));
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -43,7 +46,7 @@ public class FriendService {
 
     public boolean cancelFriendRequest(Long requestId, Long userId) {
         try {
-            return rmiClient.getFriendService().cancelFriendRequest(requestId, userId);
+            return gateway.call(() -> rmiClient.getFriendService().cancelFriendRequest(requestId, userId));
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -52,7 +55,7 @@ public class FriendService {
 
     public boolean removeFriend(Long userId, Long friendId) {
         try {
-            return rmiClient.getFriendService().removeFriend(userId, friendId);
+            return gateway.call(() -> rmiClient.getFriendService().removeFriend(userId, friendId));
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -61,7 +64,7 @@ public class FriendService {
 
     public List<UserDTO> getFriendList(Long userId) {
         try {
-            return rmiClient.getFriendService().getFriendList(userId);
+            return gateway.call(() -> rmiClient.getFriendService().getFriendList(userId));
         } catch (Exception e) {
             e.printStackTrace();
             return Collections.emptyList();
@@ -70,7 +73,7 @@ public class FriendService {
 
     public List<Friend> getPendingRequests(Long userId) {
         try {
-            return rmiClient.getFriendService().getPendingRequests(userId);
+            return gateway.call(() -> rmiClient.getFriendService().getPendingRequests(userId));
         } catch (Exception e) {
             e.printStackTrace();
             return Collections.emptyList();
@@ -79,7 +82,7 @@ public class FriendService {
 
     public List<Friend> getSentRequests(Long userId) {
         try {
-            return rmiClient.getFriendService().getSentRequests(userId);
+            return gateway.call(() -> rmiClient.getFriendService().getSentRequests(userId));
         } catch (Exception e) {
             e.printStackTrace();
             return Collections.emptyList();
@@ -88,7 +91,7 @@ public class FriendService {
 
     public UserDTO searchUserByUsername(String username) {
         try {
-            return rmiClient.getFriendService().searchUserByUsername(username);
+            return gateway.call(() -> rmiClient.getFriendService().searchUserByUsername(username));
         } catch (Exception e) {
             e.printStackTrace();
             return null;
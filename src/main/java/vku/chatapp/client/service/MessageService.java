@@ -5,19 +5,65 @@ import vku.chatapp.client.p2p.P2PClient;
 import vku.chatapp.client.p2p.P2PServer;
 import vku.chatapp.client.p2p.PeerRegistry;
 import vku.chatapp.client.rmi.RMIClient;
+import vku.chatapp.client.rmi.RMIGateway;
+import vku.chatapp.client.storage.LocalMessageStore;
+import vku.chatapp.common.dto.ConversationSummary;
 import vku.chatapp.common.dto.PeerInfo;
+import vku.chatapp.common.enums.MessageStatus;
 import vku.chatapp.common.enums.MessageType;
+import vku.chatapp.common.model.Message;
 import vku.chatapp.common.protocol.P2PMessage;
 import vku.chatapp.common.protocol.P2PMessageType;
 
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class MessageService {
     private final P2PClient p2pClient;
+    private final PeerDiscoveryService peerDiscoveryService;
+    private final RMIClient rmiClient;
+    private final RMIGateway gateway;
     private P2PServer localP2PServer; // ✅ Store reference to local server
 
+    /** Server messages a conversation's cache is missing, from {@link #fetchNewer}. */
+    public static final class NewerMessages {
+        private final List<Message> messages;
+        private final boolean replacesCache;
+
+        NewerMessages(List<Message> messages, boolean replacesCache) {
+            this.messages = messages;
+            this.replacesCache = replacesCache;
+        }
+
+        /** Oldest first. */
+        public List<Message> getMessages() {
+            return messages;
+        }
+
+        /** True when these are the newest page and the cache must start over from them. */
+        public boolean replacesCache() {
+            return replacesCache;
+        }
+
+        public void applyTo(LocalMessageStore store, long friendId) {
+            if (replacesCache) {
+                store.reset(friendId, messages);
+            } else {
+                store.append(friendId, messages);
+            }
+        }
+    }
+
     public MessageService() {
         this.p2pClient = new P2PClient();
+        this.peerDiscoveryService = new PeerDiscoveryService();
+        this.rmiClient = RMIClient.getInstance();
+        this.gateway = RMIGateway.getInstance();
     }
 
     // ✅ NEW: Set local P2P server reference
@@ -27,7 +73,7 @@ public class MessageService {
 
     public boolean sendTextMessage(Long receiverId, String content) {
         try {
-            PeerInfo peerInfo = fetchFreshPeerInfo(receiverId);
+            PeerInfo peerInfo = peerDiscoveryService.getPeerInfo(receiverId);
             if (peerInfo == null) {
                 System.err.println("❌ Receiver not online: " + receiverId);
                 return false;
@@ -71,7 +117,7 @@ public class MessageService {
             PeerInfo peerInfo = PeerRegistry.getInstance().getPeerInfo(receiverId);
 
             if (peerInfo == null) {
-                peerInfo = fetchFreshPeerInfo(receiverId);
+                peerInfo = peerDiscoveryService.getPeerInfo(receiverId);
                 if (peerInfo == null) {
                     return;
                 }
@@ -107,7 +153,7 @@ public class MessageService {
             PeerInfo peerInfo = PeerRegistry.getInstance().getPeerInfo(senderId);
 
             if (peerInfo == null) {
-                peerInfo = fetchFreshPeerInfo(senderId);
+                peerInfo = peerDiscoveryService.getPeerInfo(senderId);
                 if (peerInfo == null) {
                     return;
                 }
@@ -138,22 +184,115 @@ public class MessageService {
         }
     }
 
-    private PeerInfo fetchFreshPeerInfo(Long userId) {
+    // ========== Message history (RMI) ==========
+
+    public Message saveMessage(Message message) {
         try {
-            PeerInfo peerInfo = RMIClient.getInstance()
-                    .getPeerDiscoveryService()
-                    .getPeerInfo(userId);
+            return gateway.call(() -> rmiClient.getMessageService().saveMessage(message));
+        } catch (Exception e) {
+            System.err.println("❌ Error saving message: " + e.getMessage());
+            return null;
+        }
+    }
 
-            if (peerInfo != null) {
-                System.out.println("✅ Fetched peer info for " + userId +
-                        ": " + peerInfo.getAddress() + ":" + peerInfo.getPort());
+    public List<Message> getConversationHistory(Long userId, Long friendId, int limit) {
+        try {
+            return gateway.call(() -> rmiClient.getMessageService().getConversationHistory(userId, friendId, limit));
+        } catch (Exception e) {
+            System.err.println("❌ Error loading conversation: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * ✅ Messages newer than afterMessageId, oldest first (see IMessageService#getMessagesSince).
+     * Falls back to the latest history page on servers without the call.
+     * Throws on failure so callers can tell "nothing new" from "could not check".
+     */
+    public List<Message> getMessagesSince(Long userId, Long friendId, long afterMessageId, int limit) throws RemoteException {
+        try {
+            return gateway.call(() -> rmiClient.getMessageService().getMessagesSince(userId, friendId, afterMessageId, limit));
+        } catch (RemoteException e) {
+            if (!RMIGateway.isMissingOnServer(e)) {
+                throw e;
+            }
+            List<Message> newestFirst = gateway.call(() -> rmiClient.getMessageService().getConversationHistory(userId, friendId, limit));
+            List<Message> result = new ArrayList<>();
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                Message message = newestFirst.get(i);
+                if (message.getId() != null && message.getId() > afterMessageId) {
+                    result.add(message);
+                }
             }
+            return result;
+        }
+    }
 
-            return peerInfo;
+    /**
+     * ✅ What the cache with the given high watermark lacks: the messages after it, or the
+     * newest page when nothing is cached or the server is a page or more ahead. Appending
+     * that page to the old cache would leave a hole, so it replaces the cache instead.
+     */
+    public NewerMessages fetchNewer(Long userId, Long friendId, long highWatermark, int page) throws RemoteException {
+        List<Message> fresh = highWatermark > 0
+                ? getMessagesSince(userId, friendId, highWatermark, page)
+                : null;
+        if (fresh != null && fresh.size() < page) {
+            return new NewerMessages(fresh, false);
+        }
+        List<Message> newestFirst = gateway.call(() -> rmiClient.getMessageService().getConversationHistory(userId, friendId, page));
+        List<Message> oldestFirst = new ArrayList<>(newestFirst);
+        Collections.reverse(oldestFirst);
+        return new NewerMessages(oldestFirst, true);
+    }
 
+    public boolean updateMessageStatus(Long messageId, MessageStatus status) {
+        try {
+            return gateway.call(() -> rmiClient.getMessageService().updateMessageStatus(messageId, status.name()));
         } catch (Exception e) {
-            System.err.println("❌ Error fetching peer info: " + e.getMessage());
-            return null;
+            System.err.println("❌ Error updating message status: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public int getUnreadCount(Long userId) {
+        try {
+            return gateway.call(() -> rmiClient.getMessageService().getUnreadCount(userId));
+        } catch (Exception e) {
+            System.err.println("❌ Error fetching unread count: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Per-friend unread counts and previews in one call.
+     * Falls back to bare counts on servers without summaries. Throws on failure, so a
+     * failed refresh is not mistaken for "no unread messages".
+     */
+    public Map<Long, ConversationSummary> getConversationSummaries(Long userId) throws RemoteException {
+        try {
+            return gateway.call(() -> rmiClient.getMessageService().getConversationSummaries(userId));
+        } catch (RemoteException e) {
+            if (!RMIGateway.isMissingOnServer(e)) {
+                throw e;
+            }
+            Map<Long, Integer> counts = gateway.call(() -> rmiClient.getMessageService().getUnreadCounts(userId));
+            Map<Long, ConversationSummary> summaries = new HashMap<>();
+            counts.forEach((friendId, count) -> {
+                ConversationSummary summary = new ConversationSummary(friendId);
+                summary.setUnreadCount(count);
+                summaries.put(friendId, summary);
+            });
+            return summaries;
+        }
+    }
+
+    public int markConversationRead(Long userId, Long friendId) {
+        try {
+            return gateway.call(() -> rmiClient.getMessageService().markConversationRead(userId, friendId));
+        } catch (Exception e) {
+            System.err.println("❌ Error marking conversation read: " + e.getMessage());
+            return 0;
         }
     }
-}
\ No newline at end of file
+}
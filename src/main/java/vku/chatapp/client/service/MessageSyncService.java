@@ -0,0 +1,340 @@
+package vku.chatapp.client.service;
+
+import vku.chatapp.client.rmi.RMIClient;
+import vku.chatapp.client.rmi.RMIConnectionManager;
+import vku.chatapp.client.rmi.RMIGateway;
+import vku.chatapp.client.storage.LocalMessageStore;
+import vku.chatapp.client.storage.PendingOperation;
+import vku.chatapp.common.constants.AppConstants;
+import vku.chatapp.common.enums.MessageStatus;
+import vku.chatapp.common.model.Message;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps chat history writable while the RMI server is down.
+ * <p>
+ * Saves and status changes go straight to the server when it is reachable. Otherwise
+ * they are queued as {@link PendingOperation}s in the {@link LocalMessageStore} outbox and
+ * the caller carries on with the local copy. After a reconnect the outbox is replayed in
+ * order: status changes of queued messages are folded into their saves, saves go up in
+ * batches via the idempotent {@code saveMessages}, the rest via {@code updateMessageStatuses}.
+ * Catching up costs one call per batch of changes, never a reload; conversations pull
+ * newer messages themselves from their cached high watermark when opened.
+ * <p>
+ * Every message gets a client message id before it is saved, so a replay interrupted
+ * after the server stored it cannot create a duplicate.
+ */
+public class MessageSyncService {
+    private static MessageSyncService instance;
+
+    // A status change queued after its save is replayed within a few batches at most
+    private static final int MAX_REPLAYED_IDS = 4 * AppConstants.MESSAGE_SYNC_BATCH;
+
+    public interface SyncListener {
+        /** Queued changes of these conversations reached the server (sync thread). */
+        void onSynced(Set<Long> friendIds);
+    }
+
+    private final LocalMessageStore store;
+    private final RMIGateway gateway;
+    private final RMIClient rmiClient;
+    private final List<SyncListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService syncThread;
+    // Mirror of the outbox, oldest first; guarded by this
+    private final List<PendingOperation> pending = new ArrayList<>();
+    // client id -> server id of recent replayed saves, for status changes queued while they
+    // were uploading; oldest dropped past MAX_REPLAYED_IDS (sync thread only)
+    private final Map<String, Long> replayedIds = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_REPLAYED_IDS;
+        }
+    };
+    private RMIConnectionManager.ConnectionListener connectionListener;
+    private boolean retryScheduled;
+
+    private MessageSyncService() {
+        this.store = LocalMessageStore.getInstance();
+        this.gateway = RMIGateway.getInstance();
+        this.rmiClient = RMIClient.getInstance();
+        this.syncThread = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MessageSync");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static MessageSyncService getInstance() {
+        if (instance == null) {
+            synchronized (MessageSyncService.class) {
+                if (instance == null) {
+                    instance = new MessageSyncService();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // ========== Lifecycle ==========
+
+    /** Call after {@link LocalMessageStore#open}; replays what an earlier session left queued. */
+    public void start() {
+        store.loadPending().thenAccept(loaded -> {
+            synchronized (this) {
+                // Anything queued meanwhile is newer than the file's contents
+                pending.addAll(0, loaded);
+            }
+            if (!loaded.isEmpty()) {
+                System.out.println("📡 " + loaded.size() + " offline changes waiting for the server");
+                requestSync();
+            }
+        });
+
+        connectionListener = new RMIConnectionManager.ConnectionListener() {
+            @Override
+            public void onConnectionLost() {
+                // Nothing to do; writes start queueing on their own
+            }
+
+            @Override
+            public void onReconnected() {
+                requestSync();
+            }
+        };
+        RMIConnectionManager.getInstance().addListener(connectionListener);
+    }
+
+    public void stop() {
+        if (connectionListener != null) {
+            RMIConnectionManager.getInstance().removeListener(connectionListener);
+            connectionListener = null;
+        }
+        synchronized (this) {
+            pending.clear();
+        }
+        syncThread.execute(replayedIds::clear);
+    }
+
+    public void addListener(SyncListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SyncListener listener) {
+        listeners.remove(listener);
+    }
+
+    // ========== Writes (any thread but FX; they may block on RMI) ==========
+
+    /**
+     * Saves a message of the conversation with friendId.
+     * @return the server's copy, or the message itself (no id yet) when it was queued
+     */
+    public Message save(long friendId, Message message) {
+        if (message.getClientMessageId() == null) {
+            message.setClientMessageId(UUID.randomUUID().toString());
+        }
+        // Queue behind earlier offline changes so history keeps its order
+        if (isOnline() && !hasPending()) {
+            try {
+                Message saved = gateway.call(() -> rmiClient.getMessageService().saveMessage(message));
+                if (saved != null) {
+                    return saved;
+                }
+            } catch (Exception e) {
+                System.err.println("⚠️ Save failed, queueing offline: " + e.getMessage());
+            }
+        }
+        enqueue(PendingOperation.save(friendId, message));
+        return message;
+    }
+
+    /** Sets a message's status on the server, or queues the change. */
+    public void updateStatus(long friendId, Message message, MessageStatus status) {
+        message.setStatus(status);
+        if (message.getId() != null && isOnline() && !hasPending()) {
+            try {
+                if (gateway.call(() -> rmiClient.getMessageService().updateMessageStatus(message.getId(), status.name()))) {
+                    return;
+                }
+            } catch (Exception e) {
+                System.err.println("⚠️ Status update failed, queueing offline: " + e.getMessage());
+            }
+        }
+        enqueue(PendingOperation.status(friendId, message.getId(), message.getClientMessageId(), status));
+    }
+
+    /** Messages of a conversation still waiting in the outbox, oldest first. */
+    public synchronized List<Message> getPendingMessages(long friendId) {
+        List<Message> messages = new ArrayList<>();
+        for (PendingOperation operation : pending) {
+            if (operation.getKind() == PendingOperation.Kind.SAVE && operation.getFriendId() == friendId) {
+                messages.add(operation.getMessage());
+            }
+        }
+        return messages;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public void requestSync() {
+        syncThread.execute(this::sync);
+    }
+
+    // ========== Replay (sync thread) ==========
+
+    private void sync() {
+        List<PendingOperation> batch;
+        synchronized (this) {
+            retryScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+        }
+
+        try {
+            Map<Long, List<Message>> savedByFriend = replay(batch);
+            store.removePending(batch.size()).join();
+            synchronized (this) {
+                pending.subList(0, batch.size()).clear();
+            }
+            savedByFriend.forEach(store::append);
+            System.out.println("✅ Synced " + batch.size() + " offline changes");
+
+            for (SyncListener listener : listeners) {
+                try {
+                    listener.onSynced(savedByFriend.keySet());
+                } catch (Exception e) {
+                    System.err.println("❌ Sync listener error: " + e.getMessage());
+                }
+            }
+            if (hasPending()) {
+                requestSync();
+            }
+        } catch (Exception e) {
+            // Everything stays queued; replays are idempotent, so retrying from the top is safe
+            System.err.println("⚠️ Offline sync failed, will retry: " + e.getMessage());
+            scheduleRetry();
+        }
+    }
+
+    private Map<Long, List<Message>> replay(List<PendingOperation> batch) throws Exception {
+        // Queued saves by client id, with later status changes folded in
+        Map<String, Message> saves = new LinkedHashMap<>();
+        Map<String, Long> friendOfSave = new HashMap<>();
+        Map<Long, MessageStatus> statuses = new LinkedHashMap<>();
+        Map<Long, Long> friendOfStatus = new HashMap<>();
+        for (PendingOperation operation : batch) {
+            if (operation.getKind() == PendingOperation.Kind.SAVE) {
+                saves.put(operation.getClientMessageId(), operation.getMessage());
+                friendOfSave.put(operation.getClientMessageId(), operation.getFriendId());
+            } else if (operation.getMessageId() == null && saves.containsKey(operation.getClientMessageId())) {
+                saves.get(operation.getClientMessageId()).setStatus(operation.getStatus());
+            } else {
+                Long messageId = operation.getMessageId() != null
+                        ? operation.getMessageId()
+                        : replayedIds.get(operation.getClientMessageId());
+                if (messageId == null) {
+                    System.err.println("⚠️ Dropping status change of an unknown message");
+                    continue;
+                }
+                statuses.put(messageId, operation.getStatus());
+                friendOfStatus.put(messageId, operation.getFriendId());
+            }
+        }
+
+        Map<Long, List<Message>> savedByFriend = new HashMap<>();
+        List<Message> toSave = new ArrayList<>(saves.values());
+        for (int from = 0; from < toSave.size(); from += AppConstants.MESSAGE_SYNC_BATCH) {
+            List<Message> chunk = new ArrayList<>(toSave.subList(from, Math.min(toSave.size(), from + AppConstants.MESSAGE_SYNC_BATCH)));
+            List<Message> saved = saveBatch(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                String clientId = chunk.get(i).getClientMessageId();
+                replayedIds.put(clientId, saved.get(i).getId());
+                savedByFriend.computeIfAbsent(friendOfSave.get(clientId), id -> new ArrayList<>()).add(saved.get(i));
+            }
+        }
+
+        if (!statuses.isEmpty()) {
+            Map<Long, String> names = new LinkedHashMap<>();
+            statuses.forEach((id, status) -> names.put(id, status.name()));
+            updateStatusBatch(names);
+            friendOfStatus.values().forEach(friendId -> savedByFriend.computeIfAbsent(friendId, id -> new ArrayList<>()));
+        }
+        return savedByFriend;
+    }
+
+    /** Falls back to one call per message on servers without the batch calls. */
+    private List<Message> saveBatch(List<Message> chunk) throws Exception {
+        try {
+            return gateway.call(() -> rmiClient.getMessageService().saveMessages(chunk));
+        } catch (RemoteException e) {
+            if (!RMIGateway.isMissingOnServer(e)) {
+                throw e;
+            }
+            List<Message> saved = new ArrayList<>();
+            for (Message message : chunk) {
+                saved.add(gateway.call(() -> rmiClient.getMessageService().saveMessage(message)));
+            }
+            return saved;
+        }
+    }
+
+    private void updateStatusBatch(Map<Long, String> statuses) throws Exception {
+        try {
+            gateway.call(() -> rmiClient.getMessageService().updateMessageStatuses(statuses));
+        } catch (RemoteException e) {
+            if (!RMIGateway.isMissingOnServer(e)) {
+                throw e;
+            }
+            for (Map.Entry<Long, String> entry : statuses.entrySet()) {
+                gateway.call(() -> rmiClient.getMessageService().updateMessageStatus(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    // ========== Helpers ==========
+
+    private void enqueue(PendingOperation operation) {
+        synchronized (this) {
+            pending.add(operation);
+        }
+        store.appendPending(operation);
+        if (isOnline()) {
+            // Queued only to keep order behind earlier changes; flush now
+            requestSync();
+        }
+    }
+
+    private void scheduleRetry() {
+        synchronized (this) {
+            if (retryScheduled) {
+                return;
+            }
+            retryScheduled = true;
+        }
+        syncThread.schedule(this::sync, AppConstants.MESSAGE_SYNC_RETRY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    private static boolean isOnline() {
+        return RMIConnectionManager.getInstance().getState() == RMIConnectionManager.State.CONNECTED;
+    }
+}
@@ -0,0 +1,67 @@
+package vku.chatapp.client.service;
+
+import vku.chatapp.client.rmi.RMIClient;
+import vku.chatapp.client.rmi.RMIGateway;
+import vku.chatapp.common.dto.PeerInfo;
+
+import java.util.Collections;
+import java.util.List;
+
+public class PeerDiscoveryService {
+    private final RMIClient rmiClient;
+    private final RMIGateway gateway;
+
+    public PeerDiscoveryService() {
+        this.rmiClient = RMIClient.getInstance();
+        this.gateway = RMIGateway.getInstance();
+    }
+
+    public boolean registerPeer(PeerInfo peerInfo) {
+        try {
+            return gateway.call(() -> rmiClient.getPeerDiscoveryService().registerPeer(peerInfo));
+        } catch (Exception e) {
+            System.err.println("❌ Error registering peer: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean unregisterPeer(Long userId) {
+        try {
+            return gateway.call(() -> rmiClient.getPeerDiscoveryService().unregisterPeer(userId));
+        } catch (Exception e) {
+            System.err.println("❌ Error unregistering peer: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public List<PeerInfo> getOnlineFriends(Long userId) {
+        try {
+            return gateway.call(() -> rmiClient.getPeerDiscoveryService().getOnlineFriends(userId));
+        } catch (Exception e) {
+            System.err.println("❌ Error fetching online friends: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * ✅ Fetch fresh peer info from server
+     */
+    public PeerInfo getPeerInfo(Long userId) {
+        try {
+            PeerInfo peerInfo = gateway.call(() -> rmiClient.getPeerDiscoveryService().getPeerInfo(userId));
+
+            if (peerInfo != null) {
+                System.out.println("✅ Fetched peer info for " + userId +
+                        ": " + peerInfo.getAddress() + ":" + peerInfo.getPort());
+            } else {
+                System.err.println("❌ Peer info not found for: " + userId);
+            }
+
+            return peerInfo;
+
+        } catch (Exception e) {
+            System.err.println("❌ Error fetching peer info: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -1,24 +1,42 @@
 // FILE: vku/chatapp/client/service/StatusUpdateService.java
-// ✅ NEW: Service để poll status updates từ server
+// ✅ Heartbeat + presence in one RMI call, interval adapts to window activity
 
 package vku.chatapp.client.service;
 
-import javafx.application.Platform;
 import vku.chatapp.client.model.UserSession;
 import vku.chatapp.client.p2p.PeerRegistry;
 import vku.chatapp.client.rmi.RMIClient;
+import vku.chatapp.client.rmi.RMIGateway;
+import vku.chatapp.client.util.UiUpdateScheduler;
+import vku.chatapp.common.constants.AppConstants;
 import vku.chatapp.common.dto.PeerInfo;
+import vku.chatapp.common.dto.PresenceUpdate;
 import vku.chatapp.common.enums.UserStatus;
+import vku.chatapp.common.rmi.IPeerDiscoveryService;
 
+import java.rmi.RemoteException;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class StatusUpdateService {
     private static StatusUpdateService instance;
-    private Timer pollTimer;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> nextTick;
     private List<StatusUpdateListener> listeners;
     private Set<Long> currentlyOnline;
 
+    private volatile long presenceVersion;
+    private volatile boolean legacyServer;
+
+    // Window activity, drives the heartbeat interval
+    private volatile boolean windowFocused = true;
+    private volatile boolean windowMinimized;
+    private volatile boolean chatOpen;
+
     private StatusUpdateService() {
         this.listeners = new CopyOnWriteArrayList<>();
         this.currentlyOnline = new HashSet<>();
@@ -35,72 +53,187 @@ public class StatusUpdateService {
         return instance;
     }
 
-    public void startPolling() {
-        if (pollTimer != null) {
-            pollTimer.cancel();
+    public synchronized void startPolling() {
+        stopScheduler();
+
+        presenceVersion = 0;
+        legacyServer = false;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Heartbeat-Thread");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduleNext(0);
+
+        System.out.println("✅ Heartbeat started");
+    }
+
+    public synchronized void stopPolling() {
+        stopScheduler();
+        currentlyOnline.clear();
+        presenceVersion = 0;
+        System.out.println("✅ Heartbeat stopped");
+    }
+
+    private void stopScheduler() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            nextTick = null;
         }
+    }
 
-        pollTimer = new Timer(true);
-        pollTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                checkStatusUpdates();
-            }
-        }, 2000, 8000); // Poll every 10 seconds
+    /**
+     * Drops the presence version so the next heartbeat returns a full snapshot,
+     * and sends it right away (used after a reconnect).
+     */
+    public void requestFullSync() {
+        presenceVersion = 0;
+        legacyServer = false;
+        reschedule(0);
+    }
 
-        System.out.println("✅ Status polling started");
+    // ========== Activity state ==========
+
+    public void setWindowFocused(boolean focused) {
+        boolean wasSlow = currentIntervalMs() > AppConstants.HEARTBEAT_ACTIVE_MS;
+        this.windowFocused = focused;
+        if (wasSlow && focused) {
+            // User came back: refresh presence now instead of waiting out the slow interval
+            reschedule(0);
+        }
     }
 
-    public void stopPolling() {
-        if (pollTimer != null) {
-            pollTimer.cancel();
-            pollTimer = null;
+    public void setWindowMinimized(boolean minimized) {
+        this.windowMinimized = minimized;
+        if (!minimized) {
+            reschedule(0);
         }
-        currentlyOnline.clear();
-        System.out.println("✅ Status polling stopped");
     }
 
-    private void checkStatusUpdates() {
-        try {
-            Long userId = UserSession.getInstance().getCurrentUser().getId();
-            List<PeerInfo> onlineFriends = RMIClient.getInstance()
-                    .getPeerDiscoveryService()
-                    .getOnlineFriends(userId);
+    /** True while a chat is selected, focused or not; an open chat keeps the fast interval. */
+    public void setChatOpen(boolean chatOpen) {
+        this.chatOpen = chatOpen;
+    }
 
-            Set<Long> newOnlineSet = new HashSet<>();
+    long currentIntervalMs() {
+        if (windowMinimized) {
+            return AppConstants.HEARTBEAT_MINIMIZED_MS;
+        }
+        if (windowFocused || chatOpen) {
+            return AppConstants.HEARTBEAT_ACTIVE_MS;
+        }
+        return AppConstants.HEARTBEAT_IDLE_MS;
+    }
 
-            // Update peer registry and collect online user IDs
-            for (PeerInfo peerInfo : onlineFriends) {
-                PeerRegistry.getInstance().addPeer(peerInfo);
-                newOnlineSet.add(peerInfo.getUserId());
-            }
+    private synchronized void reschedule(long delayMs) {
+        if (scheduler == null) {
+            return;
+        }
+        if (nextTick != null && nextTick.getDelay(TimeUnit.MILLISECONDS) <= delayMs) {
+            return;
+        }
+        if (nextTick != null) {
+            nextTick.cancel(false);
+        }
+        scheduleNext(delayMs);
+    }
 
-            // Detect newly online users
-            Set<Long> justCameOnline = new HashSet<>(newOnlineSet);
-            justCameOnline.removeAll(currentlyOnline);
+    private synchronized void scheduleNext(long delayMs) {
+        if (scheduler == null || scheduler.isShutdown()) {
+            return;
+        }
+        nextTick = scheduler.schedule(this::tick, delayMs, TimeUnit.MILLISECONDS);
+    }
 
-            // Detect newly offline users
-            Set<Long> justWentOffline = new HashSet<>(currentlyOnline);
-            justWentOffline.removeAll(newOnlineSet);
+    private void tick() {
+        try {
+            sendHeartbeat();
+        } finally {
+            scheduleNext(currentIntervalMs());
+        }
+    }
 
-            // Update current state
-            currentlyOnline = newOnlineSet;
+    // ========== Heartbeat ==========
 
-            // Notify listeners on JavaFX thread
-            if (!justCameOnline.isEmpty() || !justWentOffline.isEmpty()) {
-                Platform.runLater(() -> {
-                    for (Long friendId : justCameOnline) {
-                        notifyStatusChanged(friendId, UserStatus.ONLINE);
-                    }
-                    for (Long friendId : justWentOffline) {
-                        notifyStatusChanged(friendId, UserStatus.OFFLINE);
-                        PeerRegistry.getInstance().removePeer(friendId);
+    private void sendHeartbeat() {
+        try {
+            Long userId = UserSession.getInstance().getCurrentUser().getId();
+            IPeerDiscoveryService discovery = RMIClient.getInstance().getPeerDiscoveryService();
+            RMIGateway gateway = RMIGateway.getInstance();
+
+            if (!legacyServer) {
+                try {
+                    long version = presenceVersion;
+                    PresenceUpdate update = gateway.call(() -> discovery.heartbeat(userId, version));
+                    applyUpdate(update);
+                    return;
+                } catch (RemoteException e) {
+                    if (!RMIGateway.isMissingOnServer(e)) {
+                        throw e;
                     }
-                });
+                    // Server predates heartbeat(): fall back to the two-call protocol
+                    System.out.println("⚠️ Server has no combined heartbeat, using legacy polling");
+                    legacyServer = true;
+                }
             }
 
+            gateway.call(() -> discovery.updateHeartbeat(userId));
+            List<PeerInfo> onlineFriends = gateway.call(() -> discovery.getOnlineFriends(userId));
+            applyUpdate(new PresenceUpdate(0, true, onlineFriends, new ArrayList<>()));
+
         } catch (Exception e) {
-            System.err.println("❌ Error checking status updates: " + e.getMessage());
+            System.err.println("❌ Heartbeat failed: " + e.getMessage());
+        }
+    }
+
+    private void applyUpdate(PresenceUpdate update) {
+        if (update == null) {
+            return;
+        }
+        presenceVersion = update.getVersion();
+        if (update.isEmpty()) {
+            return;
+        }
+
+        Set<Long> justCameOnline = new HashSet<>();
+        Set<Long> justWentOffline = new HashSet<>();
+
+        for (PeerInfo peerInfo : update.getOnline()) {
+            PeerRegistry.getInstance().addPeer(peerInfo);
+            if (!currentlyOnline.contains(peerInfo.getUserId())) {
+                justCameOnline.add(peerInfo.getUserId());
+            }
+        }
+
+        if (update.isFullSnapshot()) {
+            Set<Long> newOnlineSet = new HashSet<>();
+            for (PeerInfo peerInfo : update.getOnline()) {
+                newOnlineSet.add(peerInfo.getUserId());
+            }
+            justWentOffline.addAll(currentlyOnline);
+            justWentOffline.removeAll(newOnlineSet);
+            currentlyOnline = newOnlineSet;
+        } else {
+            for (Long friendId : update.getOffline()) {
+                if (currentlyOnline.remove(friendId)) {
+                    justWentOffline.add(friendId);
+                }
+            }
+            currentlyOnline.addAll(justCameOnline);
+        }
+
+        // Notify listeners on JavaFX thread
+        if (!justCameOnline.isEmpty() || !justWentOffline.isEmpty()) {
+            UiUpdateScheduler.getInstance().post(() -> {
+                for (Long friendId : justCameOnline) {
+                    notifyStatusChanged(friendId, UserStatus.ONLINE);
+                }
+                for (Long friendId : justWentOffline) {
+                    notifyStatusChanged(friendId, UserStatus.OFFLINE);
+                    PeerRegistry.getInstance().removePeer(friendId);
+                }
+            });
         }
     }
 
@@ -125,4 +258,4 @@ public class StatusUpdateService {
     public interface StatusUpdateListener {
         void onStatusChanged(Long userId, UserStatus newStatus);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,209 @@
+package vku.chatapp.client.service;
+
+import javafx.scene.image.Image;
+import vku.chatapp.client.media.image.ThumbnailRenderer;
+import vku.chatapp.client.util.ImageCache;
+import vku.chatapp.common.constants.AppConstants;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chat image thumbnails at bubble width.
+ * <p>
+ * Lookups go memory → disk → decode. Decoded {@link Image}s are kept in an {@link ImageCache}
+ * of {@link AppConstants#THUMBNAIL_MEMORY_BYTES}. Rendered thumbnails are stored under
+ * {@code ~/.vkuchat/thumbnails} named by the SHA-256 of the source, so the same picture
+ * received twice, or renamed, is rendered once. A small {@code .ref} file keyed by the source's
+ * path, size and mtime points at that thumbnail, so a disk hit never reads the source.
+ * Decoding runs on a small background pool; the full-size image is never loaded here, only by
+ * whatever opens the file.
+ * <p>
+ * Callers {@link #resolve} a file once into a {@link Source}, which reads its size and mtime
+ * off the FX thread; lookups by source then touch no disk.
+ * <p>
+ * A source that failed is not tried again until it changes or {@link #clearMemory} is called.
+ */
+public class ThumbnailService {
+    private static ThumbnailService instance;
+
+    private final ThumbnailRenderer renderer = new ThumbnailRenderer();
+    private final Path directory;
+    // Source file (path, size, mtime) -> decoded thumbnail
+    private final ImageCache cache;
+    // Memory keys whose thumbnail could not be made
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+
+    private ThumbnailService() {
+        this.directory = Path.of(System.getProperty("user.home"), ".vkuchat", "thumbnails");
+        this.cache = new ImageCache("Thumbnail", AppConstants.THUMBNAIL_THREADS, Thread.MIN_PRIORITY,
+                AppConstants.THUMBNAIL_MEMORY_BYTES);
+    }
+
+    public static ThumbnailService getInstance() {
+        if (instance == null) {
+            synchronized (ThumbnailService.class) {
+                if (instance == null) {
+                    instance = new ThumbnailService();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * The first of candidates that exists, as a source; null when none does.
+     * Completes on a pool thread.
+     */
+    public CompletableFuture<Source> resolve(List<File> candidates) {
+        return cache.supplyAsync(() -> {
+            for (File file : candidates) {
+                if (file.isFile()) {
+                    return new Source(file, memoryKey(file));
+                }
+            }
+            return null;
+        });
+    }
+
+    /** The thumbnail if it is in memory; cheap enough for the FX thread. */
+    public Image getCached(Source source) {
+        return cache.getCached(source.key);
+    }
+
+    /**
+     * Thumbnail of source at {@link AppConstants#THUMBNAIL_WIDTH}.
+     * Completes on a pool thread; fails when the file cannot be read as an image.
+     */
+    public CompletableFuture<Image> load(Source source) {
+        if (failed.contains(source.key)) {
+            return CompletableFuture.failedFuture(new IOException("No thumbnail for " + source.file.getName()));
+        }
+        return cache.load(source.key, () -> decode(source.key, source.file));
+    }
+
+    /** Whether the thumbnail of source failed before; cheap enough for the FX thread. */
+    public boolean hasFailed(Source source) {
+        return failed.contains(source.key);
+    }
+
+    public void clearMemory() {
+        cache.clearMemory();
+        failed.clear();
+    }
+
+    public long getMemoryBytes() {
+        return cache.getMemoryBytes();
+    }
+
+    // ========== Pool threads ==========
+
+    private Image decode(String key, File source) throws IOException {
+        try {
+            Path ref = directory.resolve(sha256(key + "|" + AppConstants.THUMBNAIL_WIDTH) + ".ref");
+            byte[] jpeg = readRef(ref);
+            if (jpeg == null) {
+                String name = contentHash(source) + "-" + AppConstants.THUMBNAIL_WIDTH + ".jpg";
+                Path cached = directory.resolve(name);
+                if (Files.exists(cached)) {
+                    jpeg = Files.readAllBytes(cached);
+                } else {
+                    jpeg = renderer.render(source, AppConstants.THUMBNAIL_WIDTH);
+                    store(cached, jpeg);
+                }
+                store(ref, name.getBytes(StandardCharsets.UTF_8));
+            }
+
+            Image image = new Image(new ByteArrayInputStream(jpeg));
+            if (image.isError()) {
+                throw new IOException("Cannot decode thumbnail of " + source.getName());
+            }
+            return image;
+        } catch (IOException e) {
+            failed.add(key);
+            System.err.println("⚠️ Thumbnail failed for " + source.getName() + ": " + e.getMessage());
+            throw e;
+        } catch (RuntimeException e) {
+            // ImageIO reports some corrupt files with IllegalArgumentException or index errors
+            failed.add(key);
+            System.err.println("⚠️ Thumbnail failed for " + source.getName() + ": " + e);
+            throw new IOException("Cannot render thumbnail of " + source.getName(), e);
+        }
+    }
+
+    // The thumbnail a ref points at, or null when either is gone
+    private byte[] readRef(Path ref) {
+        try {
+            String name = new String(Files.readAllBytes(ref), StandardCharsets.UTF_8);
+            return Files.readAllBytes(directory.resolve(name));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void store(Path target, byte[] bytes) {
+        try {
+            ImageCache.store(target, bytes);
+        } catch (IOException e) {
+            // Only the disk cache is lost; the thumbnail itself is fine
+            System.err.println("⚠️ Could not cache thumbnail: " + e.getMessage());
+        }
+    }
+
+    // ========== Helpers ==========
+
+    /** A source image with its path, size and mtime read once; the cache key of its thumbnail. */
+    public static final class Source {
+        private final File file;
+        private final String key;
+
+        private Source(File file, String key) {
+            this.file = file;
+            this.key = key;
+        }
+
+        public File getFile() {
+            return file;
+        }
+    }
+
+    private static String memoryKey(File source) {
+        return source.getAbsolutePath() + "|" + source.length() + "|" + source.lastModified();
+    }
+
+    private static String contentHash(File source) throws IOException {
+        try (InputStream in = Files.newInputStream(source.toPath())) {
+            MessageDigest digest = sha256();
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+    }
+
+    private static String sha256(String text) throws IOException {
+        return HexFormat.of().formatHex(sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package vku.chatapp.client.service;
+
+import javafx.application.Platform;
+import vku.chatapp.client.rmi.RMIGateway;
+import vku.chatapp.common.dto.ConversationSummary;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Per-friend unread badges and last-message previews.
+ * Loaded once at login with a single batch call, then kept current from incoming
+ * P2P messages and local reads; nothing is ever recounted.
+ * All state is confined to the FX thread.
+ */
+public class UnreadCounterService {
+    private static UnreadCounterService instance;
+
+    private static final int PREVIEW_LENGTH = 40;
+
+    private final Map<Long, ConversationSummary> summaries;
+    private final List<UnreadListener> listeners;
+    private final MessageService messageService;
+    private Long userId;
+
+    private UnreadCounterService() {
+        this.summaries = new HashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.messageService = new MessageService();
+    }
+
+    public static UnreadCounterService getInstance() {
+        if (instance == null) {
+            synchronized (UnreadCounterService.class) {
+                if (instance == null) {
+                    instance = new UnreadCounterService();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Fetches all summaries in one RMI call (FX thread). The result completes on the FX
+     * thread once they are applied, or once loading gave up, leaving the current ones.
+     */
+    public CompletableFuture<Void> load(Long userId) {
+        this.userId = userId;
+        CompletableFuture<Void> applied = new CompletableFuture<>();
+        RMIGateway.getInstance()
+                .submit(() -> messageService.getConversationSummaries(userId))
+                .whenComplete((loaded, error) -> Platform.runLater(() -> {
+                    if (error != null || !userId.equals(this.userId)) {
+                        if (error != null) {
+                            // Keep the counters we have; the next reconnect or login retries
+                            System.err.println("⚠️ Unread counters not refreshed: " + error.getMessage());
+                        }
+                        applied.complete(null);
+                        return;
+                    }
+                    summaries.clear();
+                    summaries.putAll(loaded);
+                    System.out.println("✅ Loaded unread counters for " + loaded.size() + " conversations");
+                    for (ConversationSummary summary : loaded.values()) {
+                        notifyChanged(summary);
+                    }
+                    applied.complete(null);
+                }));
+        return applied;
+    }
+
+    public void clear() {
+        userId = null;
+        summaries.clear();
+    }
+
+    // ========== Updates (FX thread) ==========
+
+    public void onIncomingMessage(Long friendId, String content, LocalDateTime sentAt, boolean chatOpen) {
+        ConversationSummary summary = summaries.computeIfAbsent(friendId, ConversationSummary::new);
+        updatePreview(summary, friendId, content, sentAt);
+        if (!chatOpen) {
+            summary.setUnreadCount(summary.getUnreadCount() + 1);
+        }
+        notifyChanged(summary);
+    }
+
+    public void onOutgoingMessage(Long friendId, String content, LocalDateTime sentAt) {
+        ConversationSummary summary = summaries.computeIfAbsent(friendId, ConversationSummary::new);
+        updatePreview(summary, userId, content, sentAt);
+        notifyChanged(summary);
+    }
+
+    /**
+     * Conversation opened: clear the badge now and tell the server in the background.
+     */
+    public void markRead(Long friendId) {
+        ConversationSummary summary = summaries.get(friendId);
+        if (summary == null || summary.getUnreadCount() == 0) {
+            return;
+        }
+        summary.setUnreadCount(0);
+        notifyChanged(summary);
+
+        Long currentUserId = userId;
+        if (currentUserId != null) {
+            RMIGateway.getInstance().execute(() -> messageService.markConversationRead(currentUserId, friendId));
+        }
+    }
+
+    private void updatePreview(ConversationSummary summary, Long senderId, String content, LocalDateTime sentAt) {
+        String preview = content == null ? "" : content.replace('\n', ' ');
+        if (preview.length() > PREVIEW_LENGTH) {
+            preview = preview.substring(0, PREVIEW_LENGTH) + "…";
+        }
+        summary.setLastMessagePreview(preview);
+        summary.setLastSenderId(senderId);
+        summary.setLastMessageAt(sentAt);
+    }
+
+    // ========== Queries (FX thread) ==========
+
+    public int getUnreadCount(Long friendId) {
+        ConversationSummary summary = summaries.get(friendId);
+        return summary != null ? summary.getUnreadCount() : 0;
+    }
+
+    public ConversationSummary getSummary(Long friendId) {
+        return summaries.get(friendId);
+    }
+
+    public int getTotalUnread() {
+        int total = 0;
+        for (ConversationSummary summary : summaries.values()) {
+            total += summary.getUnreadCount();
+        }
+        return total;
+    }
+
+    // ========== Listeners ==========
+
+    public void addListener(UnreadListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(UnreadListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyChanged(ConversationSummary summary) {
+        for (UnreadListener listener : listeners) {
+            listener.onUnreadChanged(summary.getFriendId(), summary);
+        }
+    }
+
+    public interface UnreadListener {
+        void onUnreadChanged(Long friendId, ConversationSummary summary);
+    }
+}
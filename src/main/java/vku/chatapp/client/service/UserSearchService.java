@@ -0,0 +1,128 @@
+package vku.chatapp.client.service;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+import vku.chatapp.client.rmi.RMIClient;
+import vku.chatapp.client.rmi.RMIGateway;
+import vku.chatapp.common.constants.AppConstants;
+import vku.chatapp.common.dto.UserDTO;
+import vku.chatapp.common.util.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Search-as-you-type for the add-friend box.
+ * Keystrokes are debounced ({@link AppConstants#USER_SEARCH_DEBOUNCE_MS}), so a typed name
+ * costs one RMI call instead of one per character, and results are cached per folded query
+ * for {@link AppConstants#USER_SEARCH_CACHE_TTL_MS}, so backspacing never hits the server.
+ * Only the answer to the latest query is delivered. All state is confined to the FX thread.
+ */
+public class UserSearchService {
+    private static UserSearchService instance;
+
+    private static final int CACHE_SIZE = 64;
+
+    public interface ResultListener {
+        void onResults(String query, List<UserDTO> results);
+    }
+
+    private static final class CachedResult {
+        final List<UserDTO> users;
+        final long fetchedAt;
+
+        CachedResult(List<UserDTO> users, long fetchedAt) {
+            this.users = users;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private final Map<String, CachedResult> cache;
+    private PauseTransition debounce;
+    private String latestKey = "";
+
+    private UserSearchService() {
+        // Access-ordered LRU
+        this.cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+    }
+
+    public static UserSearchService getInstance() {
+        if (instance == null) {
+            synchronized (UserSearchService.class) {
+                if (instance == null) {
+                    instance = new UserSearchService();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Call on every keystroke (FX thread). Cached queries answer immediately,
+     * others once typing pauses. A blank query cancels and answers with an empty list.
+     */
+    public void searchAsYouType(String query, ResultListener listener) {
+        String key = TextNormalizer.fold(query);
+        latestKey = key;
+        if (debounce != null) {
+            debounce.stop();
+        }
+
+        if (key.isEmpty()) {
+            listener.onResults(query, new ArrayList<>());
+            return;
+        }
+
+        CachedResult cached = cache.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt < AppConstants.USER_SEARCH_CACHE_TTL_MS) {
+            listener.onResults(query, cached.users);
+            return;
+        }
+
+        if (debounce == null) {
+            debounce = new PauseTransition(Duration.millis(AppConstants.USER_SEARCH_DEBOUNCE_MS));
+        }
+        debounce.setOnFinished(e -> fetch(query, key, listener));
+        debounce.playFromStart();
+    }
+
+    /** Drops pending work, e.g. when the search box is cleared or the view closes. */
+    public void cancel() {
+        latestKey = "";
+        if (debounce != null) {
+            debounce.stop();
+        }
+    }
+
+    /** Forget cached results, e.g. after a profile rename could change them. */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    private void fetch(String query, String key, ResultListener listener) {
+        RMIGateway.getInstance()
+                .submit(() -> RMIClient.getInstance().getUserService().searchUsers(query))
+                .whenComplete((found, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        System.err.println("⚠️ User search failed: " + error.getMessage());
+                    } else {
+                        // Cache even stale answers: the user may type their way back to them
+                        cache.put(key, new CachedResult(found != null ? found : new ArrayList<>(),
+                                System.currentTimeMillis()));
+                    }
+                    if (!key.equals(latestKey)) {
+                        return;
+                    }
+                    CachedResult result = cache.get(key);
+                    listener.onResults(query, result != null ? result.users : new ArrayList<>());
+                }));
+    }
+}
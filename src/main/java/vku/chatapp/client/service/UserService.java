@@ -1,6 +1,9 @@
 package vku.chatapp.client.service;
 
+import vku.chatapp.client.media.image.AvatarImageProcessor;
 import vku.chatapp.client.rmi.RMIClient;
+import vku.chatapp.client.rmi.RMIGateway;
+import vku.chatapp.common.constants.AppConstants;
 import vku.chatapp.common.dto.UserDTO;
 import vku.chatapp.common.enums.UserStatus;
 
@@ -8,18 +11,23 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.rmi.RemoteException;
+import java.util.Arrays;
 import java.util.List;
 
 public class UserService {
     private final RMIClient rmiClient;
+    private final RMIGateway gateway;
+    private final AvatarImageProcessor avatarProcessor;
 
     public UserService() {
         this.rmiClient = RMIClient.getInstance();
+        this.gateway = RMIGateway.getInstance();
+        this.avatarProcessor = new AvatarImageProcessor();
     }
 
     public UserDTO getUserById(Long userId){
         try {
-            return rmiClient.getUserService().getUserById(userId);
+            return gateway.call(() -> rmiClient.getUserService().getUserById(userId));
         } catch (RemoteException e) {
             e.printStackTrace();
             return null;
@@ -28,7 +36,7 @@ public class UserService {
 
     public UserDTO getUserByUsername(String username){
         try {
-            return rmiClient.getUserService().getUserByUsername(username);
+            return gateway.call(() -> rmiClient.getUserService().getUserByUsername(username));
         } catch (RemoteException e) {
             e.printStackTrace();
             return null;
@@ -37,7 +45,7 @@ public class UserService {
 
     public List<UserDTO> searchUsers(String query){
         try {
-            return rmiClient.getUserService().searchUsers(query);
+            return gateway.call(() -> rmiClient.getUserService().searchUsers(query));
         } catch (RemoteException e) {
             e.printStackTrace();
             return null;
@@ -46,7 +54,7 @@ public class UserService {
 
     public boolean updateProfile(Long userId, String displayName, String bio, String avatarUrl){
         try {
-            return rmiClient.getUserService().updateProfile(userId, displayName, bio, avatarUrl);
+            return gateway.call(() -> rmiClient.getUserService().updateProfile(userId, displayName, bio, avatarUrl));
         } catch (RemoteException e) {
             e.printStackTrace();
             return false;
@@ -55,7 +63,7 @@ public class UserService {
 
     public boolean updateStatus(Long userId, UserStatus status){
         try {
-            return rmiClient.getUserService().updateStatus(userId, status);
+            return gateway.call(() -> rmiClient.getUserService().updateStatus(userId, status));
         } catch (RemoteException e) {
             e.printStackTrace();
             return false;
@@ -63,22 +71,45 @@ public class UserService {
     }
 
     /**
-     * Upload avatar image to server (which then uploads to Cloudinary)
+     * Upload avatar image to server (which then uploads to Cloudinary).
+     * The photo is cropped and downscaled to {@link AppConstants#AVATAR_SIZES} first,
+     * so upload size depends on display size, not camera resolution.
+     * Call from a background thread: decoding a large photo takes a while.
      * @param userId User ID
      * @param localFilePath Path to local image file
      * @return Cloudinary URL of uploaded avatar, or null if failed
      */
     public String uploadAvatar(Long userId, String localFilePath) {
         try {
-            // Read file as byte array
             Path path = Path.of(localFilePath);
-            byte[] imageData = Files.readAllBytes(path);
-            String fileName = path.getFileName().toString();
+            String fileName = baseName(path.getFileName().toString()) + ".jpg";
 
-            System.out.println("📤 Uploading avatar: " + fileName + " (" + imageData.length + " bytes)");
+            long start = System.currentTimeMillis();
+            List<AvatarImageProcessor.Rendition> renditions = avatarProcessor.process(path.toFile());
 
-            // Send to server via RMI
-            String cloudinaryUrl = rmiClient.getUserService().uploadAvatar(userId, imageData, fileName);
+            long total = 0;
+            for (AvatarImageProcessor.Rendition r : renditions) {
+                total += r.getData().length;
+            }
+            System.out.println("📤 Uploading avatar: " + fileName + " (" + Files.size(path) + " bytes -> "
+                    + total + " bytes in " + renditions.size() + " sizes, processed in "
+                    + (System.currentTimeMillis() - start) + " ms)");
+
+            String cloudinaryUrl;
+            try {
+                cloudinaryUrl = uploadChunked(userId, fileName, renditions);
+            } catch (RemoteException e) {
+                if (!RMIGateway.isMissingOnServer(e)) {
+                    throw e;
+                }
+                // Server predates the chunked API: send the largest rendition in one call
+                System.out.println("⚠️ Server has no chunked avatar upload, using legacy call");
+                byte[] largest = renditions.get(0).getData();
+                cloudinaryUrl = gateway.call(
+                        () -> rmiClient.getUserService().uploadAvatar(userId, largest, fileName),
+                        AppConstants.RMI_UPLOAD_TIMEOUT_MS
+                );
+            }
 
             if (cloudinaryUrl != null) {
                 System.out.println("✅ Avatar uploaded successfully: " + cloudinaryUrl);
@@ -88,10 +119,63 @@ public class UserService {
 
             return cloudinaryUrl;
 
+        } catch (RemoteException e) {
+            System.err.println("❌ Avatar upload failed: " + e.getMessage());
+            return null;
         } catch (IOException e) {
             System.err.println("❌ Failed to read file: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
     }
-}
\ No newline at end of file
+
+    private String uploadChunked(Long userId, String fileName,
+                                 List<AvatarImageProcessor.Rendition> renditions) throws RemoteException {
+        int[] sizes = new int[renditions.size()];
+        long[] lengths = new long[renditions.size()];
+        for (int i = 0; i < renditions.size(); i++) {
+            sizes[i] = renditions.get(i).getSize();
+            lengths[i] = renditions.get(i).getData().length;
+        }
+
+        String uploadId = gateway.call(() -> rmiClient.getUserService().beginAvatarUpload(userId, fileName, sizes, lengths));
+        if (uploadId == null) {
+            return null;
+        }
+
+        try {
+            for (AvatarImageProcessor.Rendition rendition : renditions) {
+                byte[] data = rendition.getData();
+                for (int offset = 0; offset < data.length; offset += AppConstants.AVATAR_CHUNK_BYTES) {
+                    byte[] chunk = Arrays.copyOfRange(data, offset,
+                            Math.min(data.length, offset + AppConstants.AVATAR_CHUNK_BYTES));
+                    long chunkOffset = offset;
+                    boolean accepted = gateway.call(() -> rmiClient.getUserService()
+                            .uploadAvatarChunk(uploadId, rendition.getSize(), chunkOffset, chunk),
+                            AppConstants.RMI_CHUNK_TIMEOUT_MS);
+                    if (!accepted) {
+                        throw new RemoteException("Chunk rejected at " + rendition.getSize() + "px offset " + offset);
+                    }
+                }
+            }
+            return gateway.call(() -> rmiClient.getUserService().completeAvatarUpload(uploadId),
+                    AppConstants.RMI_UPLOAD_TIMEOUT_MS);
+
+        } catch (RemoteException e) {
+            try {
+                gateway.call(() -> {
+                    rmiClient.getUserService().abortAvatarUpload(uploadId);
+                    return null;
+                });
+            } catch (RemoteException abortError) {
+                System.err.println("⚠️ Failed to abort avatar upload: " + abortError.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    private static String baseName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+}
@@ -0,0 +1,651 @@
+package vku.chatapp.client.storage;
+
+import vku.chatapp.client.util.PreferenceManager;
+import vku.chatapp.common.constants.AppConstants;
+import vku.chatapp.common.model.Message;
+import vku.chatapp.common.util.MessageCodec;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of chat history for the logged-in user, so opening a chat renders at once
+ * and only messages newer than the cached high watermark are fetched from the server.
+ * <p>
+ * Layout under {@code ~/.vkuchat/<userId>/messages/}: per conversation an append-only
+ * {@code <friendId>.log} of AES-GCM encrypted {@link MessageCodec} records and a
+ * {@code <friendId>.idx} of fixed 16-byte (message id, log offset) entries. Reading the
+ * last N messages touches the index tail and N records, never the whole log. A status change
+ * appends a new record and repoints the message's index entry at it in place.
+ * <p>
+ * The key is random per user and kept in the user's {@link PreferenceManager} node, which
+ * keeps the cache unreadable in copied folders and backups but not from the same OS account.
+ * The server stays the source of truth: any unreadable file is simply dropped and refetched.
+ * <p>
+ * The exception is {@code outbox.log}: {@link PendingOperation}s made while the server was
+ * down, in the same record format, kept until they are uploaded.
+ * <p>
+ * Cached messages are also indexed for full-text {@link #search} in {@code ../search/},
+ * see {@link MessageSearchIndex}; new postings reach disk within
+ * {@link AppConstants#MESSAGE_SEARCH_FLUSH_MS}.
+ * All file access runs on one IO thread, so the store needs no locks.
+ */
+public class LocalMessageStore {
+    private static LocalMessageStore instance;
+
+    private static final int INDEX_ENTRY_BYTES = 16;
+    private static final String KEY_PREFERENCE = "local_store_key_";
+    private static final String OUTBOX_FILE = "outbox.log";
+    private static final int MAX_SEARCH_READS = 5000;
+    // Status of an entry whose record was not read since the conversation was opened
+    private static final byte UNKNOWN_STATUS = Byte.MIN_VALUE;
+
+    public static final class CachedHistory {
+        private final List<Message> messages;
+        private final long highWatermark;
+
+        CachedHistory(List<Message> messages, long highWatermark) {
+            this.messages = messages;
+            this.highWatermark = highWatermark;
+        }
+
+        /** Oldest first. */
+        public List<Message> getMessages() {
+            return messages;
+        }
+
+        /** Largest cached message id, 0 when nothing is cached. */
+        public long getHighWatermark() {
+            return highWatermark;
+        }
+    }
+
+    /** One conversation's log and index, loaded on first use. IO-thread confined. */
+    private static final class Conversation {
+        final FileChannel log;
+        final FileChannel index;
+        final byte[] associatedData;
+        // Message id -> its entry
+        final Map<Long, Integer> positions = new HashMap<>();
+        long[] entryIds = new long[16];
+        long[] entryOffsets = new long[16];
+        byte[] entryStatuses = new byte[16];
+        int size;
+        long highWatermark;
+
+        Conversation(FileChannel log, FileChannel index, byte[] associatedData) {
+            this.log = log;
+            this.index = index;
+            this.associatedData = associatedData;
+        }
+
+        void addEntry(long id, long offset, byte status) {
+            if (size == entryIds.length) {
+                entryIds = Arrays.copyOf(entryIds, size * 2);
+                entryOffsets = Arrays.copyOf(entryOffsets, size * 2);
+                entryStatuses = Arrays.copyOf(entryStatuses, size * 2);
+            }
+            entryIds[size] = id;
+            entryOffsets[size] = offset;
+            entryStatuses[size] = status;
+            positions.put(id, size);
+            size++;
+            highWatermark = Math.max(highWatermark, id);
+        }
+
+        void close() {
+            try {
+                log.force(false);
+                index.force(false);
+                log.close();
+                index.close();
+            } catch (IOException e) {
+                System.err.println("⚠️ Failed to close local conversation: " + e.getMessage());
+            }
+        }
+    }
+
+    private final ScheduledExecutorService io;
+    private final Map<Long, Conversation> conversations = new HashMap<>();
+    private FileChannel outbox;
+    private byte[] outboxAssociatedData;
+    private Path directory;
+    private RecordCipher cipher;
+    private MessageSearchIndex searchIndex;
+    private Long userId;
+    private boolean flushScheduled;
+
+    private LocalMessageStore() {
+        this.io = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LocalStore-IO");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static LocalMessageStore getInstance() {
+        if (instance == null) {
+            synchronized (LocalMessageStore.class) {
+                if (instance == null) {
+                    instance = new LocalMessageStore();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // ========== Lifecycle ==========
+
+    public void open(Long userId) {
+        io.execute(() -> {
+            closeAll();
+            try {
+                Path dir = Path.of(System.getProperty("user.home"), ".vkuchat", String.valueOf(userId), "messages");
+                SecretKey userKey = loadOrCreateKey(userId, dir);
+                Files.createDirectories(dir);
+                this.directory = dir;
+                this.cipher = new RecordCipher(userKey);
+                this.userId = userId;
+                System.out.println("✅ Local message cache at " + dir);
+                openSearchIndex(dir.resolveSibling("search"));
+            } catch (Exception e) {
+                System.err.println("⚠️ Local message cache unavailable: " + e.getMessage());
+                this.directory = null;
+            }
+        });
+    }
+
+    /** Completes once every file is flushed and closed; wait on it before the JVM exits. */
+    public CompletableFuture<Void> close() {
+        return CompletableFuture.runAsync(this::closeAll, io);
+    }
+
+    // ========== Read / write ==========
+
+    /**
+     * The last {@code limit} cached messages of a conversation plus its high watermark.
+     * Completes with an empty history when nothing is cached or the cache is unusable.
+     */
+    public CompletableFuture<CachedHistory> loadRecent(long friendId, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            Conversation conversation = conversation(friendId);
+            if (conversation == null || conversation.size == 0) {
+                return new CachedHistory(new ArrayList<>(), 0);
+            }
+            try {
+                int from = Math.max(0, conversation.size - limit);
+                List<Message> messages = new ArrayList<>(conversation.size - from);
+                for (int i = from; i < conversation.size; i++) {
+                    Message message = readRecord(conversation, conversation.entryOffsets[i]);
+                    conversation.entryStatuses[i] = MessageCodec.statusToByte(message.getStatus());
+                    messages.add(message);
+                }
+                // Log order is arrival order; the server's order is by id
+                messages.sort(Comparator.comparing(Message::getId));
+                return new CachedHistory(messages, conversation.highWatermark);
+            } catch (IOException | GeneralSecurityException | IllegalArgumentException e) {
+                System.err.println("⚠️ Local history for " + friendId + " unreadable, dropping it: " + e.getMessage());
+                drop(friendId);
+                return new CachedHistory(new ArrayList<>(), 0);
+            }
+        }, io);
+    }
+
+    public void append(long friendId, Message message) {
+        if (message != null) {
+            append(friendId, Collections.singletonList(message));
+        }
+    }
+
+    /**
+     * Adds messages not cached yet and stores the status of cached ones where it changed
+     * (by id); messages without a server id are skipped.
+     */
+    public void append(long friendId, Collection<Message> messages) {
+        List<Message> copy = new ArrayList<>(messages);
+        io.execute(() -> {
+            Conversation conversation = conversation(friendId);
+            if (conversation != null) {
+                write(friendId, conversation, copy);
+            }
+        });
+    }
+
+    /**
+     * Replaces the cached conversation with messages, for when the server is too far ahead
+     * to page through and the cache would otherwise keep a hole between old and new messages.
+     */
+    public void reset(long friendId, Collection<Message> messages) {
+        List<Message> copy = new ArrayList<>(messages);
+        io.execute(() -> {
+            if (directory == null) {
+                return;
+            }
+            drop(friendId);
+            Conversation conversation = conversation(friendId);
+            if (conversation != null) {
+                write(friendId, conversation, copy);
+            }
+        });
+    }
+
+    /**
+     * Cached messages of every conversation matching the query, newest first.
+     * Words must all occur; the last one may be a prefix; a query in double quotes
+     * must match as a phrase. Diacritics and case are ignored.
+     */
+    public CompletableFuture<List<Message>> search(String query, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Message> results = new ArrayList<>();
+            MessageSearchIndex.Query parsed = MessageSearchIndex.Query.parse(query);
+            if (searchIndex == null || parsed.isEmpty()) {
+                return results;
+            }
+            try {
+                MessageSearchIndex.Hits hits = searchIndex.candidates(parsed);
+                int reads = 0;
+                while (results.size() < limit && reads < MAX_SEARCH_READS && hits.next()) {
+                    Conversation conversation = conversation(hits.friendId);
+                    if (conversation == null || hits.offset >= conversation.log.size()) {
+                        continue;
+                    }
+                    reads++;
+                    Message message;
+                    try {
+                        message = readRecord(conversation, hits.offset);
+                    } catch (IOException | GeneralSecurityException | IllegalArgumentException e) {
+                        continue;
+                    }
+                    // A dropped and refetched conversation leaves stale offsets behind
+                    if (message.getId() != null && message.getId() == hits.id && parsed.matches(message)) {
+                        results.add(message);
+                    }
+                }
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                System.err.println("⚠️ Message search failed: " + e.getMessage());
+            }
+            return results;
+        }, io);
+    }
+
+    // ========== Outbox ==========
+
+    /** Every queued operation, oldest first; empty when the store is not open. */
+    public CompletableFuture<List<PendingOperation>> loadPending() {
+        return CompletableFuture.supplyAsync(() -> {
+            List<PendingOperation> operations = new ArrayList<>();
+            FileChannel channel = outbox();
+            if (channel == null) {
+                return operations;
+            }
+            long offset = 0;
+            try {
+                long size = channel.size();
+                while (offset < size) {
+                    long end = RecordCipher.recordEnd(channel, offset);
+                    if (end < 0 || end > size) {
+                        break;
+                    }
+                    byte[] plain = cipher.unseal(RecordCipher.read(channel, offset), outboxAssociatedData);
+                    operations.add(PendingOperation.decode(ByteBuffer.wrap(plain)));
+                    offset = end;
+                }
+                // Drop a torn tail from a crash mid-append
+                channel.truncate(offset);
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                System.err.println("⚠️ Outbox unreadable after " + operations.size() + " operations: " + e.getMessage());
+                try {
+                    channel.truncate(offset);
+                } catch (IOException ignored) {
+                    // keep what was read
+                }
+            }
+            return operations;
+        }, io);
+    }
+
+    /** Appends and forces to disk: an operation in the outbox must survive a crash. */
+    public void appendPending(PendingOperation operation) {
+        io.execute(() -> {
+            FileChannel channel = outbox();
+            if (channel == null) {
+                return;
+            }
+            try {
+                RecordCipher.append(channel, cipher.seal(operation.encode(), outboxAssociatedData));
+                channel.force(false);
+            } catch (IOException | GeneralSecurityException e) {
+                System.err.println("⚠️ Failed to queue offline change: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Removes the oldest {@code count} operations once the server has them. */
+    public CompletableFuture<Void> removePending(int count) {
+        return CompletableFuture.runAsync(() -> {
+            FileChannel channel = outbox();
+            if (channel == null) {
+                return;
+            }
+            try {
+                long size = channel.size();
+                long offset = 0;
+                for (int i = 0; i < count && offset < size; i++) {
+                    long end = RecordCipher.recordEnd(channel, offset);
+                    offset = end >= 0 ? end : size;
+                }
+                if (offset >= size) {
+                    channel.truncate(0);
+                    channel.force(false);
+                    return;
+                }
+                // Rarely hit: something was queued while uploading. Rewrite the remainder.
+                Path file = directory.resolve(OUTBOX_FILE);
+                Path temp = directory.resolve(OUTBOX_FILE + ".tmp");
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    channel.transferTo(offset, size - offset, out);
+                    out.force(false);
+                }
+                channel.close();
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                outbox = null;
+            } catch (IOException e) {
+                System.err.println("⚠️ Failed to trim outbox: " + e.getMessage());
+            }
+        }, io);
+    }
+
+    // ========== Internals (IO thread) ==========
+
+    private Conversation conversation(long friendId) {
+        if (directory == null) {
+            return null;
+        }
+        Conversation conversation = conversations.get(friendId);
+        if (conversation != null) {
+            return conversation;
+        }
+        try {
+            conversation = openConversation(friendId);
+            conversations.put(friendId, conversation);
+            return conversation;
+        } catch (IOException e) {
+            System.err.println("⚠️ Failed to open local history for " + friendId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private FileChannel outbox() {
+        if (directory == null) {
+            return null;
+        }
+        if (outbox == null) {
+            try {
+                outbox = FileChannel.open(directory.resolve(OUTBOX_FILE),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                outboxAssociatedData = (userId + ":outbox").getBytes(StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                System.err.println("⚠️ Failed to open outbox: " + e.getMessage());
+                return null;
+            }
+        }
+        return outbox;
+    }
+
+    private Conversation openConversation(long friendId) throws IOException {
+        FileChannel log = FileChannel.open(directory.resolve(friendId + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel index = FileChannel.open(directory.resolve(friendId + ".idx"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        byte[] associatedData = (userId + ":" + friendId).getBytes(StandardCharsets.UTF_8);
+        Conversation conversation = new Conversation(log, index, associatedData);
+
+        // A crash can leave a torn index entry or log records the index never saw
+        long entries = index.size() / INDEX_ENTRY_BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (entries * INDEX_ENTRY_BYTES));
+        while (buffer.hasRemaining() && index.read(buffer, buffer.position()) > 0) {
+            // keep reading
+        }
+        buffer.flip();
+        long logSize = log.size();
+        long logEnd = 0;
+        while (buffer.remaining() >= INDEX_ENTRY_BYTES) {
+            long id = buffer.getLong();
+            long offset = buffer.getLong();
+            long recordEnd = offset < logSize ? RecordCipher.recordEnd(log, offset) : -1;
+            if (recordEnd < 0 || recordEnd > logSize) {
+                break;
+            }
+            conversation.addEntry(id, offset, UNKNOWN_STATUS);
+            logEnd = Math.max(logEnd, recordEnd);
+        }
+        index.truncate((long) conversation.size * INDEX_ENTRY_BYTES);
+        log.truncate(logEnd);
+        return conversation;
+    }
+
+    private void write(long friendId, Conversation conversation, List<Message> messages) {
+        try {
+            for (Message message : messages) {
+                if (message.getId() == null) {
+                    continue;
+                }
+                byte status = MessageCodec.statusToByte(message.getStatus());
+                Integer position = conversation.positions.get(message.getId());
+                if (position == null) {
+                    long offset = writeRecord(conversation, message);
+                    writeEntry(conversation, conversation.size, message.getId(), offset);
+                    conversation.addEntry(message.getId(), offset, status);
+                    indexForSearch(friendId, message, offset);
+                    continue;
+                }
+
+                if (conversation.entryStatuses[position] == UNKNOWN_STATUS) {
+                    Message cached = readRecord(conversation, conversation.entryOffsets[position]);
+                    conversation.entryStatuses[position] = MessageCodec.statusToByte(cached.getStatus());
+                }
+                if (message.getStatus() == null || conversation.entryStatuses[position] == status) {
+                    continue;
+                }
+                // Upsert: the old record stays in the log (and keeps serving search hits)
+                long offset = writeRecord(conversation, message);
+                writeEntry(conversation, position, message.getId(), offset);
+                conversation.entryOffsets[position] = offset;
+                conversation.entryStatuses[position] = status;
+            }
+        } catch (IOException | GeneralSecurityException | IllegalArgumentException e) {
+            System.err.println("⚠️ Failed to cache messages for " + friendId + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeEntry(Conversation conversation, int position, long id, long offset) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        entry.putLong(id).putLong(offset).flip();
+        conversation.index.write(entry, (long) position * INDEX_ENTRY_BYTES);
+    }
+
+    private long writeRecord(Conversation conversation, Message message) throws IOException, GeneralSecurityException {
+        // The codec leaves status to the server's status table; keep a snapshot of it here
+        byte[] encoded = MessageCodec.encode(message);
+        byte[] plain = new byte[1 + encoded.length];
+        plain[0] = MessageCodec.statusToByte(message.getStatus());
+        System.arraycopy(encoded, 0, plain, 1, encoded.length);
+        return RecordCipher.append(conversation.log, cipher.seal(plain, conversation.associatedData));
+    }
+
+    private Message readRecord(Conversation conversation, long offset) throws IOException, GeneralSecurityException {
+        byte[] plain = cipher.unseal(RecordCipher.read(conversation.log, offset), conversation.associatedData);
+        Message message = MessageCodec.decode(ByteBuffer.wrap(plain, 1, plain.length - 1));
+        message.setStatus(MessageCodec.statusFromByte(plain[0]));
+        return message;
+    }
+
+    private void openSearchIndex(Path dir) {
+        try {
+            searchIndex = new MessageSearchIndex(dir, cipher, (userId + ":search").getBytes(StandardCharsets.UTF_8));
+            if (searchIndex.needsRebuild()) {
+                rebuildSearchIndex();
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Message search unavailable: " + e.getMessage());
+            searchIndex = null;
+        }
+    }
+
+    /**
+     * Re-indexes every cached conversation, streaming one record at a time. Each conversation
+     * is its own IO task, so chats keep loading while a large cache is re-indexed.
+     */
+    private void rebuildSearchIndex() throws IOException {
+        long start = System.currentTimeMillis();
+        MessageSearchIndex index = searchIndex;
+        List<Long> friendIds = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".idx"))
+                    .forEach(name -> friendIds.add(Long.parseLong(name.substring(0, name.length() - 4))));
+        }
+        int[] indexed = new int[1];
+        for (long friendId : friendIds) {
+            io.execute(() -> {
+                Conversation conversation = searchIndex == index ? conversation(friendId) : null;
+                if (conversation == null) {
+                    return;
+                }
+                for (int i = 0; i < conversation.size; i++) {
+                    try {
+                        index.add(friendId, readRecord(conversation, conversation.entryOffsets[i]), conversation.entryOffsets[i]);
+                        indexed[0]++;
+                    } catch (IllegalArgumentException | GeneralSecurityException e) {
+                        // Unreadable record; the conversation is dropped when it is next read
+                    } catch (IOException e) {
+                        System.err.println("⚠️ Failed to index " + friendId + ": " + e.getMessage());
+                        return;
+                    }
+                }
+            });
+        }
+        io.execute(() -> {
+            if (searchIndex != index) {
+                return;
+            }
+            try {
+                index.rebuilt();
+                System.out.println("✅ Indexed " + indexed[0] + " cached messages for search in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            } catch (IOException | GeneralSecurityException e) {
+                System.err.println("⚠️ Failed to save search index: " + e.getMessage());
+            }
+        });
+    }
+
+    private void indexForSearch(long friendId, Message message, long offset) {
+        if (searchIndex == null) {
+            return;
+        }
+        try {
+            searchIndex.add(friendId, message, offset);
+        } catch (IOException | GeneralSecurityException e) {
+            System.err.println("⚠️ Failed to index message for search: " + e.getMessage());
+        }
+        if (!flushScheduled && searchIndex.hasUnflushed()) {
+            // Bounds what a crash loses: no rebuild of the whole index for a few chat messages
+            flushScheduled = true;
+            MessageSearchIndex index = searchIndex;
+            io.schedule(() -> {
+                flushScheduled = false;
+                if (searchIndex != index) {
+                    return;
+                }
+                try {
+                    index.flush();
+                } catch (IOException | GeneralSecurityException e) {
+                    System.err.println("⚠️ Failed to flush search index: " + e.getMessage());
+                }
+            }, AppConstants.MESSAGE_SEARCH_FLUSH_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drop(long friendId) {
+        Conversation conversation = conversations.remove(friendId);
+        if (conversation != null) {
+            conversation.close();
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(friendId + ".log"));
+            Files.deleteIfExists(directory.resolve(friendId + ".idx"));
+        } catch (IOException e) {
+            System.err.println("⚠️ Failed to drop local history: " + e.getMessage());
+        }
+    }
+
+    private void closeAll() {
+        conversations.values().forEach(Conversation::close);
+        conversations.clear();
+        if (searchIndex != null) {
+            searchIndex.close();
+            searchIndex = null;
+        }
+        if (outbox != null) {
+            try {
+                outbox.close();
+            } catch (IOException e) {
+                System.err.println("⚠️ Failed to close outbox: " + e.getMessage());
+            }
+            outbox = null;
+        }
+        directory = null;
+        cipher = null;
+        userId = null;
+    }
+
+    /**
+     * Reuses the user's key; a missing key means existing files can never be read,
+     * so they are wiped and a new key is made.
+     */
+    private static SecretKey loadOrCreateKey(Long userId, Path dir) throws GeneralSecurityException, IOException {
+        PreferenceManager prefs = PreferenceManager.getInstance();
+        String stored = prefs.getPreference(KEY_PREFERENCE + userId, null);
+        if (stored != null) {
+            return new SecretKeySpec(Base64.getDecoder().decode(stored), "AES");
+        }
+
+        if (Files.isDirectory(dir)) {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        SecretKey key = generator.generateKey();
+        prefs.savePreference(KEY_PREFERENCE + userId, Base64.getEncoder().encodeToString(key.getEncoded()));
+        return key;
+    }
+}
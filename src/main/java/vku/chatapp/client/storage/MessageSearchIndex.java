@@ -0,0 +1,746 @@
+package vku.chatapp.client.storage;
+
+import vku.chatapp.common.model.Message;
+import vku.chatapp.common.util.TextNormalizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index over the content and file names of cached messages, across all conversations.
+ * <p>
+ * Each word maps to a posting list of (message id, friend id, log offset), sorted by id, so a
+ * hit is read straight from its conversation log with no other lookup. New postings collect
+ * in memory and are written out as immutable segments: encrypted posting records per word
+ * followed by a sorted term dictionary. Only the dictionaries stay on the heap; posting
+ * lists are read per query. Once there are too many segments, the run of
+ * {@link #MERGE_FACTOR} neighbouring segments that is smallest on disk is merged into one, so
+ * a flush of a few chat messages never rewrites the whole index; large old segments are only
+ * rewritten once enough similar-sized ones have piled up next to them. Merging neighbours keeps
+ * the segments in age order, which decides which posting of an upserted message wins.
+ * <p>
+ * A marker file exists while unflushed postings are in memory; finding it at open means
+ * a crash lost some, and the index is rebuilt from the logs. The owner flushes on a timer
+ * as well, so that window stays short. IO-thread confined.
+ */
+final class MessageSearchIndex {
+    private static final int SEGMENT_MAGIC = 0x4D534958; // "MSIX"
+    private static final int FLUSH_POSTINGS = 50_000;
+    private static final int MAX_SEGMENTS = 8;
+    private static final int MERGE_FACTOR = 4;
+    private static final int MAX_PREFIX_TERMS = 512;
+    private static final int MIN_PREFIX = 2;
+    private static final String DIRTY_MARKER = "unflushed";
+
+    /** Posting lists in parallel arrays, sorted by message id once finished. */
+    static final class Postings {
+        static final Postings EMPTY = new Postings(0);
+
+        long[] ids;
+        long[] friends;
+        long[] offsets;
+        int size;
+
+        Postings(int capacity) {
+            ids = new long[capacity];
+            friends = new long[capacity];
+            offsets = new long[capacity];
+        }
+
+        void add(long id, long friendId, long offset) {
+            if (size == ids.length) {
+                int capacity = Math.max(4, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                friends = Arrays.copyOf(friends, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+            }
+            ids[size] = id;
+            friends[size] = friendId;
+            offsets[size] = offset;
+            size++;
+        }
+
+        /** Buffered postings arrive in cache order, not id order. */
+        Postings sorted() {
+            boolean ordered = true;
+            for (int i = 1; i < size && ordered; i++) {
+                ordered = ids[i - 1] < ids[i];
+            }
+            if (ordered) {
+                return this;
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            // Stable, so of two postings for one id the later (newer) one comes last
+            Arrays.sort(order, Comparator.comparingLong(i -> ids[i]));
+            Postings result = new Postings(size);
+            for (int i : order) {
+                result.addOrReplace(ids[i], friends[i], offsets[i]);
+            }
+            return result;
+        }
+
+        private void addOrReplace(long id, long friendId, long offset) {
+            if (size > 0 && ids[size - 1] == id) {
+                size--;
+            }
+            add(id, friendId, offset);
+        }
+
+        /**
+         * Union of many sorted lists (prefix expansions) by a k-way merge, so the cost grows
+         * with the number of postings rather than postings times lists. On equal ids the
+         * entry from the later list wins.
+         */
+        static Postings unionAll(List<Postings> lists) {
+            if (lists.isEmpty()) {
+                return EMPTY;
+            }
+            if (lists.size() == 1) {
+                return lists.get(0);
+            }
+            int total = 0;
+            for (Postings list : lists) {
+                total += list.size;
+            }
+            int[] cursors = new int[lists.size()];
+            PriorityQueue<Integer> heap = new PriorityQueue<>(lists.size(), (x, y) -> {
+                int byId = Long.compare(lists.get(x).ids[cursors[x]], lists.get(y).ids[cursors[y]]);
+                return byId != 0 ? byId : Integer.compare(y, x);
+            });
+            for (int i = 0; i < lists.size(); i++) {
+                if (lists.get(i).size > 0) {
+                    heap.add(i);
+                }
+            }
+            Postings result = new Postings(total);
+            while (!heap.isEmpty()) {
+                int list = heap.poll();
+                Postings source = lists.get(list);
+                long id = source.ids[cursors[list]];
+                if (result.size == 0 || result.ids[result.size - 1] != id) {
+                    result.add(id, source.friends[cursors[list]], source.offsets[cursors[list]]);
+                }
+                if (++cursors[list] < source.size) {
+                    heap.add(list);
+                }
+            }
+            return result;
+        }
+
+        /** Entries of {@code a} whose id is also in {@code b}; pass the shorter list as a. */
+        static Postings intersect(Postings a, Postings b) {
+            Postings result = new Postings(a.size);
+            int j = 0;
+            for (int i = 0; i < a.size && j < b.size; i++) {
+                long id = a.ids[i];
+                // Gallop through the longer list
+                int step = 1;
+                while (j + step < b.size && b.ids[j + step] < id) {
+                    j += step;
+                    step <<= 1;
+                }
+                while (j < b.size && b.ids[j] < id) {
+                    j++;
+                }
+                if (j < b.size && b.ids[j] == id) {
+                    result.add(id, a.friends[i], a.offsets[i]);
+                }
+            }
+            return result;
+        }
+
+        byte[] encode() {
+            ByteBuffer buffer = ByteBuffer.allocate(4 + size * 3 * 10);
+            buffer.putInt(size);
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                putVarLong(buffer, ids[i] - previous);
+                putVarLong(buffer, friends[i]);
+                putVarLong(buffer, offsets[i]);
+                previous = ids[i];
+            }
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+
+        static Postings decode(byte[] bytes) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int count = buffer.getInt();
+            Postings postings = new Postings(count);
+            long id = 0;
+            for (int i = 0; i < count; i++) {
+                id += getVarLong(buffer);
+                postings.add(id, getVarLong(buffer), getVarLong(buffer));
+            }
+            return postings;
+        }
+    }
+
+    /** Candidate hits, newest first, produced lazily so a limited search stops early. */
+    abstract static class Hits {
+        long id;
+        long friendId;
+        long offset;
+
+        /** Moves to the next older hit; false when there are none left. */
+        abstract boolean next();
+
+        /** Moves to the next hit with an id at most {@code target}. */
+        abstract boolean skipTo(long target);
+    }
+
+    private static final class ArrayHits extends Hits {
+        private final Postings postings;
+        private int index;
+        // Position of the list among the merged ones; later lists are newer
+        int order;
+
+        ArrayHits(Postings postings) {
+            this.postings = postings;
+            this.index = postings.size;
+        }
+
+        @Override
+        boolean next() {
+            if (--index < 0) {
+                return false;
+            }
+            load();
+            return true;
+        }
+
+        @Override
+        boolean skipTo(long target) {
+            int found = Arrays.binarySearch(postings.ids, 0, index, target);
+            index = found >= 0 ? found : -found - 2;
+            if (index < 0) {
+                return false;
+            }
+            load();
+            return true;
+        }
+
+        private void load() {
+            id = postings.ids[index];
+            friendId = postings.friends[index];
+            offset = postings.offsets[index];
+        }
+    }
+
+    /** Descending k-way merge of prefix expansions; of equal ids the later list wins. */
+    private static final class MergedHits extends Hits {
+        private final PriorityQueue<ArrayHits> heap;
+
+        MergedHits(List<Postings> lists) {
+            heap = new PriorityQueue<>(Math.max(1, lists.size()), (a, b) -> {
+                int byId = Long.compare(b.id, a.id);
+                return byId != 0 ? byId : Integer.compare(b.order, a.order);
+            });
+            for (int i = 0; i < lists.size(); i++) {
+                ArrayHits hits = new ArrayHits(lists.get(i));
+                hits.order = i;
+                if (hits.next()) {
+                    heap.add(hits);
+                }
+            }
+        }
+
+        @Override
+        boolean next() {
+            ArrayHits top = heap.poll();
+            if (top == null) {
+                return false;
+            }
+            id = top.id;
+            friendId = top.friendId;
+            offset = top.offset;
+            if (top.next()) {
+                heap.add(top);
+            }
+            // Skip the same message in other lists
+            while (!heap.isEmpty() && heap.peek().id == id) {
+                ArrayHits duplicate = heap.poll();
+                if (duplicate.next()) {
+                    heap.add(duplicate);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        boolean skipTo(long target) {
+            List<ArrayHits> moved = new ArrayList<>();
+            while (!heap.isEmpty() && heap.peek().id > target) {
+                ArrayHits hits = heap.poll();
+                if (hits.skipTo(target)) {
+                    moved.add(hits);
+                }
+            }
+            heap.addAll(moved);
+            return next();
+        }
+    }
+
+    /** Hits of {@code exact} also found in {@code merged}, leapfrogging both newest first. */
+    private static final class IntersectedHits extends Hits {
+        private final Hits exact;
+        private final Hits merged;
+
+        IntersectedHits(Hits exact, Hits merged) {
+            this.exact = exact;
+            this.merged = merged;
+        }
+
+        @Override
+        boolean next() {
+            if (!exact.next() || !merged.next()) {
+                return false;
+            }
+            while (exact.id != merged.id) {
+                boolean more = exact.id > merged.id ? exact.skipTo(merged.id) : merged.skipTo(exact.id);
+                if (!more) {
+                    return false;
+                }
+            }
+            id = exact.id;
+            friendId = exact.friendId;
+            offset = exact.offset;
+            return true;
+        }
+
+        @Override
+        boolean skipTo(long target) {
+            while (next()) {
+                if (id <= target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A parsed query: every word must match. Without quotes the last word is a prefix
+     * ("hel" finds "hello"); a query in double quotes must match as a phrase.
+     */
+    static final class Query {
+        final List<String> terms;
+        final String prefix;
+        final boolean phrase;
+
+        private Query(List<String> terms, String prefix, boolean phrase) {
+            this.terms = terms;
+            this.prefix = prefix;
+            this.phrase = phrase;
+        }
+
+        static Query parse(String text) {
+            String trimmed = text != null ? text.trim() : "";
+            boolean phrase = trimmed.length() > 1 && trimmed.startsWith("\"") && trimmed.endsWith("\"");
+            List<String> words = TextNormalizer.words(phrase ? trimmed.substring(1, trimmed.length() - 1) : trimmed);
+            String last = words.isEmpty() ? "" : words.get(words.size() - 1);
+            // A one-letter prefix would expand to most of the vocabulary
+            if (phrase || last.length() < MIN_PREFIX || Character.isWhitespace(text.charAt(text.length() - 1))) {
+                return new Query(words, null, phrase);
+            }
+            return new Query(new ArrayList<>(words.subList(0, words.size() - 1)), words.get(words.size() - 1), false);
+        }
+
+        boolean isEmpty() {
+            return terms.isEmpty() && prefix == null;
+        }
+
+        /** Postings only say the words occur; a phrase also needs them in order. */
+        boolean matches(Message message) {
+            if (!phrase) {
+                return true;
+            }
+            List<String> words = TextNormalizer.words(message.getContent());
+            if (message.getFileName() != null) {
+                words.addAll(TextNormalizer.words(message.getFileName()));
+            }
+            return (" " + String.join(" ", words) + " ").contains(" " + String.join(" ", terms) + " ");
+        }
+    }
+
+    private static final class Segment {
+        final Path file;
+        final FileChannel channel;
+        final String[] terms;
+        final long[] offsets;
+
+        Segment(Path file, FileChannel channel, String[] terms, long[] offsets) {
+            this.file = file;
+            this.channel = channel;
+            this.terms = terms;
+            this.offsets = offsets;
+        }
+    }
+
+    private final Path directory;
+    private final RecordCipher cipher;
+    private final byte[] associatedData;
+    private final List<Segment> segments = new ArrayList<>();
+    private final TreeMap<String, Postings> buffer = new TreeMap<>();
+    private int bufferedPostings;
+    private int nextSegment;
+    private boolean needsRebuild;
+
+    MessageSearchIndex(Path directory, RecordCipher cipher, byte[] associatedData) throws IOException {
+        this.directory = directory;
+        this.cipher = cipher;
+        this.associatedData = associatedData;
+
+        boolean existed = Files.isDirectory(directory);
+        Files.createDirectories(directory);
+        if (!existed || Files.exists(directory.resolve(DIRTY_MARKER))) {
+            needsRebuild = true;
+            deleteAll();
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.getFileName().toString().endsWith(".seg")).sorted()::iterator) {
+                segments.add(loadSegment(file));
+                nextSegment = Math.max(nextSegment, highestNumber(file) + 1);
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            System.err.println("⚠️ Search index unreadable, rebuilding: " + e.getMessage());
+            needsRebuild = true;
+            deleteAll();
+        }
+    }
+
+    /** True when the index is new or was lost; the caller re-adds every cached message. */
+    boolean needsRebuild() {
+        return needsRebuild;
+    }
+
+    void rebuilt() throws IOException, GeneralSecurityException {
+        flush();
+        needsRebuild = false;
+    }
+
+    boolean hasUnflushed() {
+        return bufferedPostings > 0;
+    }
+
+    void add(long friendId, Message message, long offset) throws IOException, GeneralSecurityException {
+        if (message.getId() == null) {
+            return;
+        }
+        if (bufferedPostings == 0) {
+            Files.write(directory.resolve(DIRTY_MARKER), new byte[0]);
+        }
+        for (String word : indexedWords(message)) {
+            buffer.computeIfAbsent(word, w -> new Postings(2)).add(message.getId(), friendId, offset);
+            bufferedPostings++;
+        }
+        if (bufferedPostings >= FLUSH_POSTINGS) {
+            flush();
+        }
+    }
+
+    /** Messages holding every query word, newest first. */
+    Hits candidates(Query query) throws IOException, GeneralSecurityException {
+        List<Postings> exact = new ArrayList<>();
+        for (String term : new LinkedHashSet<>(query.terms)) {
+            exact.add(Postings.unionAll(lookup(term, false)));
+        }
+        exact.sort(Comparator.comparingInt(p -> p.size));
+        Postings result = exact.isEmpty() ? null : exact.get(0);
+        for (int i = 1; i < exact.size() && result.size > 0; i++) {
+            result = Postings.intersect(result, exact.get(i));
+        }
+        if (query.prefix == null) {
+            return new ArrayHits(result);
+        }
+        if (result != null && result.size == 0) {
+            return new ArrayHits(Postings.EMPTY);
+        }
+        // Prefix expansions can cover a large part of the index: merge them lazily
+        Hits expansions = new MergedHits(lookup(query.prefix, true));
+        return result == null ? expansions : new IntersectedHits(new ArrayHits(result), expansions);
+    }
+
+    void flush() throws IOException, GeneralSecurityException {
+        if (bufferedPostings > 0) {
+            TreeMap<String, Postings> sorted = new TreeMap<>();
+            buffer.forEach((term, postings) -> sorted.put(term, postings.sorted()));
+            segments.add(writeSegment(sorted));
+            buffer.clear();
+            bufferedPostings = 0;
+        }
+        while (segments.size() > MAX_SEGMENTS) {
+            merge();
+        }
+        Files.deleteIfExists(directory.resolve(DIRTY_MARKER));
+    }
+
+    void close() {
+        try {
+            flush();
+        } catch (IOException | GeneralSecurityException e) {
+            System.err.println("⚠️ Failed to flush search index: " + e.getMessage());
+        }
+        for (Segment segment : segments) {
+            try {
+                segment.channel.close();
+            } catch (IOException ignored) {
+                // read-only
+            }
+        }
+        segments.clear();
+    }
+
+    // ========== Internals ==========
+
+    /** Posting lists of the term (or of every term with the prefix), oldest segment first. */
+    private List<Postings> lookup(String term, boolean prefix) throws IOException, GeneralSecurityException {
+        List<Postings> lists = new ArrayList<>();
+        for (Segment segment : segments) {
+            int index = Arrays.binarySearch(segment.terms, term);
+            if (!prefix) {
+                if (index >= 0) {
+                    lists.add(readPostings(segment, index));
+                }
+                continue;
+            }
+            int from = index >= 0 ? index : -index - 1;
+            for (int i = from; i < segment.terms.length && i < from + MAX_PREFIX_TERMS
+                    && segment.terms[i].startsWith(term); i++) {
+                lists.add(readPostings(segment, i));
+            }
+        }
+        SortedMap<String, Postings> buffered = prefix
+                ? buffer.subMap(term, term + Character.MAX_VALUE)
+                : buffer.subMap(term, true, term, true);
+        for (Postings postings : buffered.values()) {
+            lists.add(postings.sorted());
+        }
+        return lists;
+    }
+
+    private Postings readPostings(Segment segment, int index) throws IOException, GeneralSecurityException {
+        return Postings.decode(cipher.unseal(RecordCipher.read(segment.channel, segment.offsets[index]), associatedData));
+    }
+
+    /**
+     * Rewrites the smallest run of {@link #MERGE_FACTOR} neighbouring segments as one, posting
+     * lists merged term by term. The result is named after the run's newest segment plus a
+     * generation ({@code 00000012.00000030.seg}), so it keeps the run's place in age order
+     * when the segments are loaded again.
+     */
+    private void merge() throws IOException, GeneralSecurityException {
+        long start = System.currentTimeMillis();
+        int from = 0;
+        long smallest = Long.MAX_VALUE;
+        for (int i = 0; i + MERGE_FACTOR <= segments.size(); i++) {
+            long bytes = 0;
+            for (int j = i; j < i + MERGE_FACTOR; j++) {
+                bytes += segments.get(j).channel.size();
+            }
+            if (bytes < smallest) {
+                smallest = bytes;
+                from = i;
+            }
+        }
+        List<Segment> old = new ArrayList<>(segments.subList(from, from + MERGE_FACTOR));
+        TreeSet<String> terms = new TreeSet<>();
+        for (Segment segment : old) {
+            terms.addAll(Arrays.asList(segment.terms));
+        }
+        int newest = segmentNumber(old.get(old.size() - 1).file);
+        Path target = directory.resolve(String.format("%08d.%08d.seg", newest, nextSegment++));
+        Segment merged = writeSegment(target, new TermSource() {
+            @Override
+            public Iterable<String> terms() {
+                return terms;
+            }
+
+            @Override
+            public Postings postings(String term) throws IOException, GeneralSecurityException {
+                List<Postings> lists = new ArrayList<>();
+                for (Segment segment : old) {
+                    int index = Arrays.binarySearch(segment.terms, term);
+                    if (index >= 0) {
+                        lists.add(readPostings(segment, index));
+                    }
+                }
+                return Postings.unionAll(lists);
+            }
+        });
+        segments.subList(from, from + MERGE_FACTOR).clear();
+        segments.add(from, merged);
+        for (Segment segment : old) {
+            segment.channel.close();
+            Files.deleteIfExists(segment.file);
+        }
+        System.out.println("✅ Merged " + old.size() + " search segments (" + terms.size() + " terms, "
+                + smallest / 1024 + " KB) in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private interface TermSource {
+        Iterable<String> terms();
+
+        Postings postings(String term) throws IOException, GeneralSecurityException;
+    }
+
+    private Segment writeSegment(TreeMap<String, Postings> postings) throws IOException, GeneralSecurityException {
+        Path file = directory.resolve(String.format("%08d.seg", nextSegment++));
+        return writeSegment(file, new TermSource() {
+            @Override
+            public Iterable<String> terms() {
+                return postings.keySet();
+            }
+
+            @Override
+            public Postings postings(String term) {
+                return postings.get(term);
+            }
+        });
+    }
+
+    /** Segment file: [posting records][dictionary record][long dictionary offset][int magic]. */
+    private Segment writeSegment(Path file, TermSource source) throws IOException, GeneralSecurityException {
+        Path temp = directory.resolve(file.getFileName() + ".tmp");
+        List<String> terms = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            for (String term : source.terms()) {
+                terms.add(term);
+                offsets.add(RecordCipher.append(out, cipher.seal(source.postings(term).encode(), associatedData)));
+            }
+
+            int dictionaryBytes = 4;
+            byte[][] encodedTerms = new byte[terms.size()][];
+            for (int i = 0; i < encodedTerms.length; i++) {
+                encodedTerms[i] = terms.get(i).getBytes(StandardCharsets.UTF_8);
+                dictionaryBytes += 4 + encodedTerms[i].length + 8;
+            }
+            ByteBuffer dictionary = ByteBuffer.allocate(dictionaryBytes);
+            dictionary.putInt(encodedTerms.length);
+            for (int i = 0; i < encodedTerms.length; i++) {
+                dictionary.putInt(encodedTerms[i].length).put(encodedTerms[i]).putLong(offsets.get(i));
+            }
+            long dictionaryOffset = RecordCipher.append(out, cipher.seal(dictionary.array(), associatedData));
+            ByteBuffer trailer = ByteBuffer.allocate(12);
+            trailer.putLong(dictionaryOffset).putInt(SEGMENT_MAGIC).flip();
+            RecordCipher.append(out, trailer);
+            out.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long[] offsetArray = new long[offsets.size()];
+        for (int i = 0; i < offsetArray.length; i++) {
+            offsetArray[i] = offsets.get(i);
+        }
+        return new Segment(file, FileChannel.open(file, StandardOpenOption.READ), terms.toArray(new String[0]), offsetArray);
+    }
+
+    private Segment loadSegment(Path file) throws IOException, GeneralSecurityException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer trailer = ByteBuffer.allocate(12);
+            channel.read(trailer, channel.size() - 12);
+            trailer.flip();
+            long dictionaryOffset = trailer.getLong();
+            if (trailer.getInt() != SEGMENT_MAGIC) {
+                throw new IOException("Bad segment trailer in " + file.getFileName());
+            }
+            ByteBuffer dictionary = ByteBuffer.wrap(cipher.unseal(RecordCipher.read(channel, dictionaryOffset), associatedData));
+            int count = dictionary.getInt();
+            String[] terms = new String[count];
+            long[] offsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                byte[] term = new byte[dictionary.getInt()];
+                dictionary.get(term);
+                terms[i] = new String(term, StandardCharsets.UTF_8);
+                offsets[i] = dictionary.getLong();
+            }
+            return new Segment(file, channel, terms, offsets);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void deleteAll() throws IOException {
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+        segments.clear();
+        buffer.clear();
+        bufferedPostings = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        nextSegment = 0;
+    }
+
+    /** The segment's place in age order: its own number, or for a merged one its newest source's. */
+    private static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(0, name.indexOf('.')));
+    }
+
+    /** Largest number in the name, so new names never reuse a merged segment's generation. */
+    private static int highestNumber(Path file) {
+        String name = file.getFileName().toString();
+        int highest = 0;
+        for (String part : name.substring(0, name.lastIndexOf('.')).split("\\.")) {
+            highest = Math.max(highest, Integer.parseInt(part));
+        }
+        return highest;
+    }
+
+    /** Distinct words of a message's text and file name. */
+    static Set<String> indexedWords(Message message) {
+        Set<String> words = new LinkedHashSet<>(TextNormalizer.words(message.getContent()));
+        if (message.getFileName() != null) {
+            words.addAll(TextNormalizer.words(message.getFileName()));
+        }
+        return words;
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
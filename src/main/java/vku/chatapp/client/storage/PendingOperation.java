@@ -0,0 +1,92 @@
+package vku.chatapp.client.storage;
+
+import vku.chatapp.common.enums.MessageStatus;
+import vku.chatapp.common.model.Message;
+import vku.chatapp.common.util.MessageCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A history change made while the server could not be reached, waiting in the outbox:
+ * either a message to save or a status change. A status change names its message by
+ * server id when known, otherwise by the client message id of a queued save.
+ */
+public final class PendingOperation {
+    public enum Kind { SAVE, STATUS }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final Kind kind;
+    private final long friendId;
+    private final Message message;
+    private final Long messageId;
+    private final String clientMessageId;
+    private final MessageStatus status;
+
+    private PendingOperation(Kind kind, long friendId, Message message, Long messageId,
+                             String clientMessageId, MessageStatus status) {
+        this.kind = kind;
+        this.friendId = friendId;
+        this.message = message;
+        this.messageId = messageId;
+        this.clientMessageId = clientMessageId;
+        this.status = status;
+    }
+
+    public static PendingOperation save(long friendId, Message message) {
+        return new PendingOperation(Kind.SAVE, friendId, message, null, message.getClientMessageId(), message.getStatus());
+    }
+
+    public static PendingOperation status(long friendId, Long messageId, String clientMessageId, MessageStatus status) {
+        return new PendingOperation(Kind.STATUS, friendId, null, messageId, clientMessageId, status);
+    }
+
+    public Kind getKind() { return kind; }
+
+    public long getFriendId() { return friendId; }
+
+    /** The queued message, SAVE only. */
+    public Message getMessage() { return message; }
+
+    public Long getMessageId() { return messageId; }
+
+    public String getClientMessageId() { return clientMessageId; }
+
+    public MessageStatus getStatus() { return status; }
+
+    /** [kind][friendId][status][messageId or -1][clientMessageId] then, for SAVE, the codec record. */
+    byte[] encode() {
+        byte[] clientId = clientMessageId != null ? clientMessageId.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] body = kind == Kind.SAVE ? MessageCodec.encode(message) : new byte[0];
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 1 + 8 + 4 + clientId.length + body.length);
+        buffer.put((byte) kind.ordinal());
+        buffer.putLong(friendId);
+        buffer.put(MessageCodec.statusToByte(status));
+        buffer.putLong(messageId != null ? messageId : -1L);
+        buffer.putInt(clientMessageId != null ? clientId.length : -1);
+        buffer.put(clientId);
+        buffer.put(body);
+        return buffer.array();
+    }
+
+    static PendingOperation decode(ByteBuffer buffer) {
+        Kind kind = KINDS[buffer.get()];
+        long friendId = buffer.getLong();
+        MessageStatus status = MessageCodec.statusFromByte(buffer.get());
+        long messageId = buffer.getLong();
+        int clientIdLength = buffer.getInt();
+        String clientId = null;
+        if (clientIdLength >= 0) {
+            byte[] bytes = new byte[clientIdLength];
+            buffer.get(bytes);
+            clientId = new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (kind == Kind.SAVE) {
+            Message message = MessageCodec.decode(buffer);
+            message.setStatus(status);
+            return new PendingOperation(kind, friendId, message, null, clientId, status);
+        }
+        return new PendingOperation(kind, friendId, null, messageId >= 0 ? messageId : null, clientId, status);
+    }
+}
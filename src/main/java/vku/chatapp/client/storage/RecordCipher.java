@@ -0,0 +1,96 @@
+package vku.chatapp.client.storage;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * Length-prefixed AES-GCM records shared by the local store files:
+ * {@code [int length][12-byte IV][ciphertext + tag]}. The associated data binds a record
+ * to the file it belongs in, so records cannot be swapped between conversations.
+ */
+final class RecordCipher {
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKey key;
+    private final SecureRandom random = new SecureRandom();
+
+    RecordCipher(SecretKey key) {
+        this.key = key;
+    }
+
+    ByteBuffer seal(byte[] plain, byte[] associatedData) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(associatedData);
+        byte[] sealed = cipher.doFinal(plain);
+
+        ByteBuffer record = ByteBuffer.allocate(4 + IV_BYTES + sealed.length);
+        record.putInt(IV_BYTES + sealed.length).put(iv).put(sealed).flip();
+        return record;
+    }
+
+    /** @param bytes the IV + ciphertext of a record, as returned by {@link #read} */
+    byte[] unseal(byte[] bytes, byte[] associatedData) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, bytes, 0, IV_BYTES));
+        cipher.updateAAD(associatedData);
+        return cipher.doFinal(bytes, IV_BYTES, bytes.length - IV_BYTES);
+    }
+
+    /** Writes a sealed record at the end of the file, returns its offset. */
+    static long append(FileChannel channel, ByteBuffer record) throws IOException {
+        long offset = channel.size();
+        while (record.hasRemaining()) {
+            channel.write(record, offset + record.position());
+        }
+        return offset;
+    }
+
+    /**
+     * The IV + ciphertext of the record at offset. A stale offset can land mid-record, so the
+     * length is checked against the file before anything is allocated.
+     */
+    static byte[] read(FileChannel channel, long offset) throws IOException {
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        if (!readFully(channel, lengthBuffer, offset)) {
+            throw new IOException("Truncated record length at " + offset);
+        }
+        int length = lengthBuffer.flip().getInt();
+        if (length < IV_BYTES || length > channel.size() - offset - 4) {
+            throw new IOException("Corrupt record length " + length + " at " + offset);
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        if (!readFully(channel, record, offset + 4)) {
+            throw new IOException("Truncated record at " + offset);
+        }
+        return record.array();
+    }
+
+    /** End offset of the record at offset, or -1 when its length is missing or impossible. */
+    static long recordEnd(FileChannel channel, long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        if (!readFully(channel, length, offset)) {
+            return -1;
+        }
+        int recordLength = length.flip().getInt();
+        return recordLength < IV_BYTES ? -1 : offset + 4 + recordLength;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,330 @@
+package vku.chatapp.client.util;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import vku.chatapp.client.rmi.LatencyHistogram;
+import vku.chatapp.common.constants.AppConstants;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches the FX thread for freezes and measures how quickly the UI reacts.
+ * <p>
+ * A sampler thread posts a ping with {@code Platform.runLater} every
+ * {@link AppConstants#FX_WATCHDOG_INTERVAL_MS}; how long it waits is the time the FX thread
+ * spent on whatever was queued ahead of it. A ping still waiting after
+ * {@link AppConstants#FX_STALL_THRESHOLD_MS} is a stall: the FX thread's stack is captured
+ * right then, i.e. what it is stuck in, and kept with the stall's final duration.
+ * <p>
+ * On the attached scene, pulse listeners record the gap between pulses while the UI is busy
+ * and the layout time of each pulse. Interactions ("Send message", "Open chat") are timed from
+ * the input to the end of the layout pass of the first pulse after their result is on screen.
+ */
+public class FxWatchdog {
+    private static FxWatchdog instance;
+
+    private static final int MAX_STALLS = 20;
+    private static final int STACK_LOG_DEPTH = 12;
+    // Longer gaps mean nothing asked for a pulse (idle), not a slow frame
+    private static final long IDLE_GAP_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    /** One FX thread stall and where the FX thread was when it was detected. */
+    public static final class Stall {
+        private final LocalDateTime detectedAt;
+        private final StackTraceElement[] stack;
+        private volatile long durationMillis = -1;
+
+        private Stall(LocalDateTime detectedAt, StackTraceElement[] stack) {
+            this.detectedAt = detectedAt;
+            this.stack = stack;
+        }
+
+        public LocalDateTime getDetectedAt() {
+            return detectedAt;
+        }
+
+        public StackTraceElement[] getStack() {
+            return stack;
+        }
+
+        /** -1 while the FX thread is still blocked. */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+
+    private static final class PendingInteraction {
+        final String name;
+        final long inputNanos;
+
+        PendingInteraction(String name, long inputNanos) {
+            this.name = name;
+            this.inputNanos = inputNanos;
+        }
+    }
+
+    private final LatencyHistogram runLaterDelay = new LatencyHistogram();
+    private final LatencyHistogram pulseInterval = new LatencyHistogram();
+    private final LatencyHistogram layoutTime = new LatencyHistogram();
+    // Input-to-render time by interaction name, in first-use order; guarded by itself
+    private final Map<String, LatencyHistogram> interactions = new LinkedHashMap<>();
+    // Most recent last; guarded by itself
+    private final Deque<Stall> stalls = new ArrayDeque<>();
+
+    private ScheduledExecutorService sampler;
+    private volatile Thread fxThread;
+    // When the ping in flight was posted, 0 if none
+    private final AtomicLong pingPostedAt = new AtomicLong();
+    private volatile Stall currentStall;
+
+    // FX thread only
+    private Scene scene;
+    private long lastPulseAt;
+    private long layoutStartedAt;
+    private final List<PendingInteraction> awaitingFrame = new ArrayList<>();
+    private final Runnable preLayout = this::onPreLayout;
+    private final Runnable postLayout = this::onPostLayout;
+
+    private FxWatchdog() {
+    }
+
+    public static FxWatchdog getInstance() {
+        if (instance == null) {
+            synchronized (FxWatchdog.class) {
+                if (instance == null) {
+                    instance = new FxWatchdog();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public synchronized void start() {
+        if (sampler != null) {
+            return;
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "FxWatchdog");
+            t.setDaemon(true);
+            // Must get to run while the FX thread spins
+            t.setPriority(Thread.MAX_PRIORITY);
+            return t;
+        });
+        sampler.scheduleAtFixedRate(this::sample, AppConstants.FX_WATCHDOG_INTERVAL_MS,
+                AppConstants.FX_WATCHDOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        System.out.println("✅ FX watchdog started");
+    }
+
+    /** Measures pulses of scene (replacing the previous one); FX thread. */
+    public void attach(Scene newScene) {
+        if (scene != null) {
+            scene.removePreLayoutPulseListener(preLayout);
+            scene.removePostLayoutPulseListener(postLayout);
+        }
+        scene = newScene;
+        lastPulseAt = 0;
+        if (scene != null) {
+            scene.addPreLayoutPulseListener(preLayout);
+            scene.addPostLayoutPulseListener(postLayout);
+        }
+    }
+
+    // ========== Interactions ==========
+
+    /**
+     * Records name as taking from inputNanos ({@link System#nanoTime()} at the input) to the
+     * next rendered pulse. Call on the FX thread once the result is in the scene graph.
+     */
+    public void recordOnNextFrame(String name, long inputNanos) {
+        if (scene == null) {
+            histogram(name).recordNanos(System.nanoTime() - inputNanos);
+            return;
+        }
+        awaitingFrame.add(new PendingInteraction(name, inputNanos));
+        Platform.requestNextPulse();
+    }
+
+    private LatencyHistogram histogram(String name) {
+        synchronized (interactions) {
+            return interactions.computeIfAbsent(name, n -> new LatencyHistogram());
+        }
+    }
+
+    // ========== FX thread ==========
+
+    private void onPreLayout() {
+        long now = System.nanoTime();
+        if (lastPulseAt != 0 && now - lastPulseAt < IDLE_GAP_NANOS) {
+            pulseInterval.recordNanos(now - lastPulseAt);
+        }
+        lastPulseAt = now;
+        layoutStartedAt = now;
+    }
+
+    private void onPostLayout() {
+        long now = System.nanoTime();
+        layoutTime.recordNanos(now - layoutStartedAt);
+        if (!awaitingFrame.isEmpty()) {
+            for (PendingInteraction pending : awaitingFrame) {
+                histogram(pending.name).recordNanos(now - pending.inputNanos);
+            }
+            awaitingFrame.clear();
+        }
+    }
+
+    private void pong() {
+        fxThread = Thread.currentThread();
+        long delay = System.nanoTime() - pingPostedAt.getAndSet(0);
+        runLaterDelay.recordNanos(delay);
+
+        Stall stall = currentStall;
+        if (stall != null) {
+            stall.durationMillis = TimeUnit.NANOSECONDS.toMillis(delay);
+            currentStall = null;
+            System.out.println("⚠️ FX thread was blocked for " + stall.durationMillis + " ms");
+        }
+    }
+
+    // ========== Sampler thread ==========
+
+    private void sample() {
+        try {
+            long now = System.nanoTime();
+            long posted = pingPostedAt.get();
+            if (posted == 0) {
+                pingPostedAt.set(now);
+                Platform.runLater(this::pong);
+                return;
+            }
+
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(now - posted);
+            Thread thread = fxThread;
+            if (waitedMillis >= AppConstants.FX_STALL_THRESHOLD_MS && currentStall == null && thread != null) {
+                Stall stall = new Stall(LocalDateTime.now(), thread.getStackTrace());
+                currentStall = stall;
+                synchronized (stalls) {
+                    if (stalls.size() == MAX_STALLS) {
+                        stalls.removeFirst();
+                    }
+                    stalls.addLast(stall);
+                }
+                logStall(stall, waitedMillis);
+            }
+        } catch (Exception e) {
+            // Keep sampling; a dead watchdog reports nothing
+            System.err.println("❌ FX watchdog: " + e.getMessage());
+        }
+    }
+
+    private void logStall(Stall stall, long waitedMillis) {
+        StringBuilder sb = new StringBuilder("⚠️ FX thread stalled (" + waitedMillis + " ms so far), at:");
+        StackTraceElement[] stack = stall.getStack();
+        for (int i = 0; i < Math.min(stack.length, STACK_LOG_DEPTH); i++) {
+            sb.append(System.lineSeparator()).append("    at ").append(stack[i]);
+        }
+        System.err.println(sb);
+    }
+
+    // ========== Metrics ==========
+
+    public List<Stall> getStalls() {
+        synchronized (stalls) {
+            return new ArrayList<>(stalls);
+        }
+    }
+
+    public String formatReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-48s %8s %9s %9s %9s %9s%n",
+                "UI latency", "Count", "Mean ms", "p50 ms", "p99 ms", "Max ms"));
+        for (Map.Entry<String, LatencyHistogram> entry : histograms().entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            sb.append(String.format("%-48s %8d %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(), h.getCount(),
+                    h.getMeanMicros() / 1000.0,
+                    h.percentileMicros(50) / 1000.0,
+                    h.percentileMicros(99) / 1000.0,
+                    h.getMaxMicros() / 1000.0));
+        }
+
+        List<Stall> recent = getStalls();
+        sb.append(String.format("FX stalls (>= %d ms): %d recorded%n", AppConstants.FX_STALL_THRESHOLD_MS, recent.size()));
+        for (int i = recent.size() - 1; i >= Math.max(0, recent.size() - 5); i--) {
+            Stall stall = recent.get(i);
+            StackTraceElement[] stack = stall.getStack();
+            sb.append(String.format("  %s  %s  %s%n",
+                    stall.getDetectedAt().format(TIME_FORMAT),
+                    stall.getDurationMillis() < 0 ? "ongoing" : stall.getDurationMillis() + " ms",
+                    stack.length > 0 ? stack[0] : "?"));
+        }
+        return sb.toString();
+    }
+
+    /** Histograms as CSV to file, and full stall stacks to a "-stalls.txt" file next to it. */
+    public void exportCsv(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("metric,count,mean_us,p50_us,p90_us,p99_us,p999_us,max_us");
+            for (Map.Entry<String, LatencyHistogram> entry : histograms().entrySet()) {
+                LatencyHistogram h = entry.getValue();
+                out.printf("%s,%d,%.1f,%d,%d,%d,%d,%d%n",
+                        entry.getKey(), h.getCount(), h.getMeanMicros(),
+                        h.percentileMicros(50), h.percentileMicros(90),
+                        h.percentileMicros(99), h.percentileMicros(99.9),
+                        h.getMaxMicros());
+            }
+        }
+
+        String name = file.getFileName().toString().replaceFirst("\\.csv$", "");
+        Path stallsFile = file.resolveSibling(name + "-stalls.txt");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(stallsFile, StandardCharsets.UTF_8))) {
+            for (Stall stall : getStalls()) {
+                out.printf("%s blocked %s%n", stall.getDetectedAt(),
+                        stall.getDurationMillis() < 0 ? "(ongoing)" : stall.getDurationMillis() + " ms");
+                for (StackTraceElement element : stall.getStack()) {
+                    out.println("    at " + element);
+                }
+                out.println();
+            }
+        }
+    }
+
+    private Map<String, LatencyHistogram> histograms() {
+        Map<String, LatencyHistogram> all = new LinkedHashMap<>();
+        all.put("FX runLater wait", runLaterDelay);
+        all.put("FX pulse interval (busy)", pulseInterval);
+        all.put("FX layout pass", layoutTime);
+        synchronized (interactions) {
+            interactions.forEach((name, h) -> all.put(name + " (input to render)", h));
+        }
+        return all;
+    }
+
+    public void reset() {
+        runLaterDelay.reset();
+        pulseInterval.reset();
+        layoutTime.reset();
+        synchronized (interactions) {
+            interactions.values().forEach(LatencyHistogram::reset);
+        }
+        synchronized (stalls) {
+            stalls.clear();
+        }
+    }
+}
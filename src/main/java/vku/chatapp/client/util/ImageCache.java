@@ -0,0 +1,158 @@
+package vku.chatapp.client.util;
+
+import javafx.scene.image.Image;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Decoded images by key, loaded on a small background pool; the common part of the avatar
+ * and thumbnail services.
+ * <p>
+ * Images are kept in an LRU bounded by their pixel bytes, not by count, since one tall
+ * picture can weigh as much as ten small ones. Concurrent requests for a key share one load.
+ * {@link #invalidate} also disowns loads already running for the key, so an image decoded
+ * from the old source is handed to its callers but never cached.
+ */
+public class ImageCache {
+
+    /** Produces the image for a key; runs on a pool thread. */
+    public interface Loader {
+        Image load() throws IOException;
+    }
+
+    private final ExecutorService pool;
+    private final long maxBytes;
+
+    // Decoded images, least recently used first; guarded by this
+    private final LinkedHashMap<String, Image> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+    // Loads in progress by key; a load may only cache its image while it is still listed here
+    private final Map<String, CompletableFuture<Image>> loading = new HashMap<>();
+
+    public ImageCache(String threadName, int threads, int priority, long maxBytes) {
+        this.maxBytes = maxBytes;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, threadName + "-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(priority);
+            return t;
+        });
+    }
+
+    /** The image if it is in memory; cheap enough for the FX thread. */
+    public synchronized Image getCached(String key) {
+        return memory.get(key);
+    }
+
+    /**
+     * The image for key, from memory or from loader. Completes on a pool thread; fails
+     * with the loader's exception.
+     */
+    public CompletableFuture<Image> load(String key, Loader loader) {
+        synchronized (this) {
+            Image cached = memory.get(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            CompletableFuture<Image> pending = loading.get(key);
+            if (pending != null) {
+                return pending;
+            }
+            CompletableFuture<Image> future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return loader.load();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, pool);
+            loading.put(key, future);
+            future.whenComplete((image, error) -> finish(key, future, image));
+            return future;
+        }
+    }
+
+    /** Runs work on the pool, for disk access that should stay off the FX thread like the loads. */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, pool);
+    }
+
+    /** Drops the images of matching keys and disowns their running loads. */
+    public synchronized void invalidate(Predicate<String> keys) {
+        memory.entrySet().removeIf(entry -> {
+            boolean match = keys.test(entry.getKey());
+            if (match) {
+                memoryBytes -= pixelBytes(entry.getValue());
+            }
+            return match;
+        });
+        loading.keySet().removeIf(keys);
+    }
+
+    public synchronized void clearMemory() {
+        memory.clear();
+        memoryBytes = 0;
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Writes bytes to target through a temp file and a move, so readers never see half a
+     * file even when two pool threads store the same one.
+     */
+    public static void store(Path target, byte[] bytes) throws IOException {
+        Path directory = target.getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "image", ".tmp");
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private synchronized void finish(String key, CompletableFuture<Image> future, Image image) {
+        // Invalidated meanwhile, or superseded by a newer load: not ours to cache
+        if (!loading.remove(key, future) || image == null) {
+            return;
+        }
+        Image previous = memory.put(key, image);
+        if (previous != null) {
+            memoryBytes -= pixelBytes(previous);
+        }
+        memoryBytes += pixelBytes(image);
+
+        Iterator<Image> eldest = memory.values().iterator();
+        while (memoryBytes > maxBytes && eldest.hasNext()) {
+            Image evicted = eldest.next();
+            if (evicted == image) {
+                // Never evict what was just asked for
+                break;
+            }
+            memoryBytes -= pixelBytes(evicted);
+            eldest.remove();
+        }
+    }
+
+    private static long pixelBytes(Image image) {
+        // Decoded as 32-bit pixels
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+}
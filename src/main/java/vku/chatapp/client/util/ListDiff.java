@@ -0,0 +1,87 @@
+package vku.chatapp.client.util;
+
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns a list into another with as few, as large, changes as possible.
+ * <p>
+ * On an {@code ObservableList} every {@code setAll} makes a bound ListView drop and rebuild
+ * all its cells; removing and inserting runs instead only touches the rows that changed.
+ * Items are compared by identity. When both lists keep their common items in the same order
+ * (the usual case for a filter over one master list) the target receives one removal per
+ * run of vanished items and one insertion per run of new ones; otherwise it falls back to
+ * {@code setAll}.
+ */
+public final class ListDiff {
+
+    private ListDiff() {
+    }
+
+    public static <T> void apply(List<T> target, List<T> wanted) {
+        Set<T> wantedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        wantedSet.addAll(wanted);
+
+        // Pass 1: drop what is no longer wanted, one range at a time, from the back
+        for (int end = target.size(); end > 0; ) {
+            if (wantedSet.contains(target.get(end - 1))) {
+                end--;
+                continue;
+            }
+            int start = end - 1;
+            while (start > 0 && !wantedSet.contains(target.get(start - 1))) {
+                start--;
+            }
+            target.subList(start, end).clear();
+            end = start;
+        }
+
+        // Pass 2: what is left must appear in wanted in the same order
+        Map<T, Integer> wantedIndex = new IdentityHashMap<>();
+        for (int i = 0; i < wanted.size(); i++) {
+            wantedIndex.put(wanted.get(i), i);
+        }
+        int previous = -1;
+        for (T item : target) {
+            int index = wantedIndex.get(item);
+            if (index <= previous) {
+                // Reordered (or duplicated): not worth a move-by-move diff
+                replace(target, wanted);
+                return;
+            }
+            previous = index;
+        }
+
+        // Pass 3: insert the runs of new items in front of the next kept one
+        int at = 0;
+        for (int i = 0; i < wanted.size(); ) {
+            if (at < target.size() && target.get(at) == wanted.get(i)) {
+                at++;
+                i++;
+                continue;
+            }
+            int runEnd = i;
+            while (runEnd < wanted.size() && (at >= target.size() || wanted.get(runEnd) != target.get(at))) {
+                runEnd++;
+            }
+            target.addAll(at, new ArrayList<>(wanted.subList(i, runEnd)));
+            at += runEnd - i;
+            i = runEnd;
+        }
+    }
+
+    private static <T> void replace(List<T> target, List<T> wanted) {
+        if (target instanceof ObservableList<T> observable) {
+            observable.setAll(wanted);
+        } else {
+            target.clear();
+            target.addAll(wanted);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package vku.chatapp.client.util;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import vku.chatapp.client.rmi.LatencyHistogram;
+import vku.chatapp.common.constants.AppConstants;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Applies UI state changes once per JavaFX pulse instead of one {@code Platform.runLater}
+ * each.
+ * <p>
+ * Updates are queued from any thread and run in order on the FX thread by an
+ * {@link AnimationTimer}, at the start of the next pulse, so they show up in the same frame.
+ * A keyed update replaces a pending update with the same key (in its queue slot), so a burst
+ * of e.g. friend list refreshes costs one refresh per frame. A pulse stops applying after
+ * {@link #FRAME_BUDGET_NANOS} and leaves the rest for the next one. The timer only runs
+ * while something is queued; an idle scheduler requests no pulses.
+ */
+public class UiUpdateScheduler {
+    private static UiUpdateScheduler instance;
+
+    // Half a 60 Hz frame; leaves the rest for layout, CSS and rendering
+    private static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(8);
+
+    private static final class Update {
+        final Object key;
+        Runnable action;
+
+        Update(Object key, Runnable action) {
+            this.key = key;
+            this.action = action;
+        }
+    }
+
+    private final Object lock = new Object();
+    // Both guarded by lock
+    private final ArrayDeque<Update> queue = new ArrayDeque<>();
+    private final Map<Object, Update> pendingByKey = new HashMap<>();
+    private boolean timerRunning;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+    // Metrics
+    private final LongAdder posted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder overBudgetPulses = new LongAdder();
+    private final AtomicLong maxQueueLength = new AtomicLong();
+    private final LatencyHistogram pulseTime = new LatencyHistogram();
+    private final LatencyHistogram updateTime = new LatencyHistogram();
+
+    private UiUpdateScheduler() {
+    }
+
+    public static UiUpdateScheduler getInstance() {
+        if (instance == null) {
+            synchronized (UiUpdateScheduler.class) {
+                if (instance == null) {
+                    instance = new UiUpdateScheduler();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** Runs the update on the FX thread at the next pulse (any thread). */
+    public void post(Runnable action) {
+        post(null, action);
+    }
+
+    /**
+     * Like {@link #post(Runnable)}, but while an update with an equal key is still waiting
+     * this one replaces it, so only the latest runs.
+     */
+    public void post(Object key, Runnable action) {
+        posted.increment();
+        boolean startTimer;
+        synchronized (lock) {
+            Update pending = key != null ? pendingByKey.get(key) : null;
+            if (pending != null) {
+                pending.action = action;
+                coalesced.increment();
+                return;
+            }
+            Update update = new Update(key, action);
+            queue.add(update);
+            if (key != null) {
+                pendingByKey.put(key, update);
+            }
+            maxQueueLength.accumulateAndGet(queue.size(), Math::max);
+            startTimer = !timerRunning;
+            timerRunning = true;
+        }
+
+        if (startTimer) {
+            // One hop per burst, not per update
+            if (Platform.isFxApplicationThread()) {
+                timer.start();
+            } else {
+                Platform.runLater(timer::start);
+            }
+        }
+    }
+
+    // ========== FX thread ==========
+
+    private void drain() {
+        long start = System.nanoTime();
+        int count = 0;
+        while (true) {
+            Update update;
+            synchronized (lock) {
+                update = queue.poll();
+                if (update == null) {
+                    timer.stop();
+                    timerRunning = false;
+                    break;
+                }
+                if (update.key != null) {
+                    pendingByKey.remove(update.key);
+                }
+            }
+
+            long updateStart = System.nanoTime();
+            try {
+                update.action.run();
+            } catch (Exception e) {
+                System.err.println("❌ UI update failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+            long elapsed = System.nanoTime() - updateStart;
+            updateTime.recordNanos(elapsed);
+            if (elapsed > TimeUnit.MILLISECONDS.toNanos(AppConstants.UI_SLOW_UPDATE_MS)) {
+                // The key, or the lambda class, is the only hint at who posted it
+                System.err.println("⚠️ Slow UI update (" + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms): "
+                        + (update.key != null ? update.key : update.action.getClass().getName()));
+            }
+            count++;
+
+            if (System.nanoTime() - start > FRAME_BUDGET_NANOS) {
+                overBudgetPulses.increment();
+                break;
+            }
+        }
+
+        if (count > 0) {
+            applied.add(count);
+            pulseTime.recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    // ========== Metrics ==========
+
+    public int getQueueLength() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    public LatencyHistogram getPulseTime() {
+        return pulseTime;
+    }
+
+    public LatencyHistogram getUpdateTime() {
+        return updateTime;
+    }
+
+    public String formatReport() {
+        return String.format("UI updates: %d posted, %d coalesced, %d applied, queue %d (max %d)%n"
+                        + "UI pulses: %d, mean %.2f ms, p99 %.2f ms, max %.2f ms, %d over budget%n"
+                        + "UI update: mean %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                posted.sum(), coalesced.sum(), applied.sum(), getQueueLength(), maxQueueLength.get(),
+                pulseTime.getCount(),
+                pulseTime.getMeanMicros() / 1000.0,
+                pulseTime.percentileMicros(99) / 1000.0,
+                pulseTime.getMaxMicros() / 1000.0,
+                overBudgetPulses.sum(),
+                updateTime.getMeanMicros() / 1000.0,
+                updateTime.percentileMicros(99) / 1000.0,
+                updateTime.getMaxMicros() / 1000.0);
+    }
+
+    public void reset() {
+        posted.reset();
+        coalesced.reset();
+        applied.reset();
+        overBudgetPulses.reset();
+        maxQueueLength.set(0);
+        pulseTime.reset();
+        updateTime.reset();
+    }
+}
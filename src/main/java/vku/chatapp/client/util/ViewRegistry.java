@@ -0,0 +1,168 @@
+package vku.chatapp.client.util;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hands out FXML views (root node plus controller), parsed ahead of time where possible.
+ * <p>
+ * {@link #preload} parses one spare instance of a view on a background thread;
+ * {@link #keepWarm} does the same and parses the next spare whenever one is taken, for views
+ * that are opened repeatedly such as the call window. {@link #take} returns the spare if
+ * there is one and otherwise parses on the caller's thread, as before. Each view is handed
+ * out once: controllers hold per-window state, so instances are never shared.
+ * <p>
+ * Only views whose controller {@code initialize()} registers nothing outside the view may be
+ * preloaded (call window, chat), since a spare may never be taken: their controllers attach
+ * listeners to app-wide services in a setter the taker calls, such as
+ * {@code setMessageHandler}. The login and main views connect and start services when created
+ * and are always parsed on demand.
+ */
+public class ViewRegistry {
+    private static ViewRegistry instance;
+
+    private final ExecutorService loader;
+    private final String stylesheet;
+
+    // Spare view by FXML path, parsed or being parsed; guarded by this
+    private final Map<String, CompletableFuture<View<?>>> spares = new HashMap<>();
+    // Paths that get a new spare after each take; guarded by this
+    private final Set<String> warm = new HashSet<>();
+
+    private ViewRegistry() {
+        this.loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ViewLoader");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        URL css = ViewRegistry.class.getResource("/css/styles.css");
+        this.stylesheet = css != null ? css.toExternalForm() : null;
+    }
+
+    public static ViewRegistry getInstance() {
+        if (instance == null) {
+            synchronized (ViewRegistry.class) {
+                if (instance == null) {
+                    instance = new ViewRegistry();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** A parsed FXML view. */
+    public static final class View<C> {
+        private final Parent root;
+        private final C controller;
+
+        private View(Parent root, C controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+
+        public Parent getRoot() {
+            return root;
+        }
+
+        public C getController() {
+            return controller;
+        }
+    }
+
+    // ========== Spares ==========
+
+    /** Parses one spare of fxmlPath in the background, unless there already is one. */
+    public synchronized void preload(String fxmlPath) {
+        spares.computeIfAbsent(fxmlPath, path -> CompletableFuture.supplyAsync(() -> parse(path), loader));
+    }
+
+    /** Like {@link #preload}, and keeps a spare ready after every {@link #take}. */
+    public synchronized void keepWarm(String fxmlPath) {
+        warm.add(fxmlPath);
+        preload(fxmlPath);
+    }
+
+    /**
+     * A view of fxmlPath for the caller to own: the preloaded spare when there is one,
+     * otherwise parsed now. Call from the FX thread.
+     */
+    @SuppressWarnings("unchecked")
+    public <C> View<C> take(String fxmlPath) throws IOException {
+        CompletableFuture<View<?>> spare;
+        synchronized (this) {
+            spare = spares.remove(fxmlPath);
+            if (warm.contains(fxmlPath)) {
+                preload(fxmlPath);
+            }
+        }
+
+        if (spare != null) {
+            try {
+                // Usually done; if not, the rest of the parse is still shorter than a new one
+                return (View<C>) spare.join();
+            } catch (CompletionException e) {
+                System.err.println("⚠️ Preloading " + fxmlPath + " failed, loading now: " + e.getCause());
+            }
+        }
+        return (View<C>) load(fxmlPath);
+    }
+
+    // ========== Scenes ==========
+
+    /** A scene for root with the app stylesheet, resolved once for all windows. */
+    public Scene createScene(Parent root, double width, double height) {
+        Scene scene = new Scene(root, width, height);
+        applyStylesheet(scene);
+        return scene;
+    }
+
+    public Scene createScene(Parent root) {
+        Scene scene = new Scene(root);
+        applyStylesheet(scene);
+        return scene;
+    }
+
+    private void applyStylesheet(Scene scene) {
+        if (stylesheet != null) {
+            scene.getStylesheets().add(stylesheet);
+        } else {
+            System.out.println("⚠️ CSS not found, using default styles");
+        }
+    }
+
+    // ========== Parsing ==========
+
+    private View<?> parse(String fxmlPath) {
+        try {
+            long start = System.nanoTime();
+            View<?> view = load(fxmlPath);
+            System.out.println("✅ Preloaded " + fxmlPath + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return view;
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private View<?> load(String fxmlPath) throws IOException {
+        URL location = ViewRegistry.class.getResource(fxmlPath);
+        if (location == null) {
+            throw new IOException("View not found: " + fxmlPath);
+        }
+        FXMLLoader fxmlLoader = new FXMLLoader(location);
+        Parent root = fxmlLoader.load();
+        return new View<>(root, fxmlLoader.getController());
+    }
+}
@@ -11,15 +11,65 @@ public class AppConstants {
     public static final String RMI_USER_SERVICE = "UserService";
     public static final String RMI_FRIEND_SERVICE = "FriendService";
     public static final String RMI_PEER_DISCOVERY_SERVICE = "PeerDiscoveryService";
+    public static final String RMI_MESSAGE_SERVICE = "MessageService";
+    public static final int RMI_GATEWAY_THREADS = 8;
+    public static final int RMI_GATEWAY_QUEUE = 64;
+    public static final long RMI_CALL_TIMEOUT_MS = 10000;
+    public static final long RMI_UPLOAD_TIMEOUT_MS = 60000;
+    public static final long RMI_CHUNK_TIMEOUT_MS = 30000;
+    public static final long RMI_HEALTH_CHECK_MS = 15000;
+    public static final long RMI_RECONNECT_MIN_MS = 500;
+    public static final long RMI_RECONNECT_MAX_MS = 30000;
+    public static final int RMI_COMPRESSION_THRESHOLD = 1024;
 
     // P2P
     public static final int P2P_PORT_START = 5000;
     public static final int P2P_PORT_END = 5999;
 
+    // Heartbeat (server must keep peers alive longer than the slowest interval)
+    public static final long HEARTBEAT_ACTIVE_MS = 5000;
+    public static final long HEARTBEAT_IDLE_MS = 15000;
+    public static final long HEARTBEAT_MINIMIZED_MS = 30000;
+
+    // Avatar (largest first; 256 covers the 120 px profile view on HiDPI screens)
+    public static final int[] AVATAR_SIZES = {256, 128, 64};
+    public static final float AVATAR_JPEG_QUALITY = 0.85f;
+    public static final int AVATAR_CHUNK_BYTES = 64 * 1024;
+    public static final long AVATAR_MEMORY_BYTES = 16L * 1024 * 1024;
+    public static final int AVATAR_LOAD_THREADS = 2;
+    public static final double CHAT_AVATAR_SIZE = 40;
+
+    // Chat image thumbnails
+    public static final int THUMBNAIL_WIDTH = 280;
+    public static final float THUMBNAIL_JPEG_QUALITY = 0.85f;
+    public static final long THUMBNAIL_MEMORY_BYTES = 48L * 1024 * 1024;
+    public static final int THUMBNAIL_THREADS = 2;
+
+    // FX thread watchdog (a ping this late means the FX thread is blocked)
+    public static final long FX_WATCHDOG_INTERVAL_MS = 100;
+    public static final long FX_STALL_THRESHOLD_MS = 250;
+    public static final long UI_SLOW_UPDATE_MS = 50;
+
+    // User search (search-as-you-type)
+    public static final int USER_SEARCH_LIMIT = 20;
+    public static final long USER_SEARCH_DEBOUNCE_MS = 250;
+    public static final long USER_SEARCH_CACHE_TTL_MS = 30000;
+
     // Message
     public static final int MAX_MESSAGE_LENGTH = 10000;
+    public static final int MESSAGE_SYNC_BATCH = 100;
+    public static final long MESSAGE_SYNC_RETRY_MS = 10000;
+    public static final int MESSAGE_SEARCH_LIMIT = 50;
+    public static final long MESSAGE_SEARCH_FLUSH_MS = 30000;
+    public static final long LOCAL_STORE_CLOSE_TIMEOUT_MS = 3000;
+    public static final int CHAT_HISTORY_PAGE = 100;
     public static final int MAX_FILE_SIZE_MB = 100;
 
+    // Conversation prefetch (after login, on hover)
+    public static final int PREFETCH_CONVERSATIONS = 5;
+    public static final int PREFETCH_THREADS = 2;
+    public static final long PREFETCH_TTL_MS = 30000;
+
     // OTP
     public static final int OTP_LENGTH = 6;
     public static final int OTP_EXPIRY_MINUTES = 5;
@@ -0,0 +1,39 @@
+package vku.chatapp.common.dto;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Per-friend conversation state shown in the friend list: unread badge and last-message preview.
+ * Maintained incrementally by the server (on save / read), never recounted.
+ */
+public class ConversationSummary implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long friendId;
+    private int unreadCount;
+    private String lastMessagePreview;
+    private Long lastSenderId;
+    private LocalDateTime lastMessageAt;
+
+    public ConversationSummary() {}
+
+    public ConversationSummary(Long friendId) {
+        this.friendId = friendId;
+    }
+
+    public Long getFriendId() { return friendId; }
+    public void setFriendId(Long friendId) { this.friendId = friendId; }
+
+    public int getUnreadCount() { return unreadCount; }
+    public void setUnreadCount(int unreadCount) { this.unreadCount = unreadCount; }
+
+    public String getLastMessagePreview() { return lastMessagePreview; }
+    public void setLastMessagePreview(String lastMessagePreview) { this.lastMessagePreview = lastMessagePreview; }
+
+    public Long getLastSenderId() { return lastSenderId; }
+    public void setLastSenderId(Long lastSenderId) { this.lastSenderId = lastSenderId; }
+
+    public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+    public void setLastMessageAt(LocalDateTime lastMessageAt) { this.lastMessageAt = lastMessageAt; }
+}
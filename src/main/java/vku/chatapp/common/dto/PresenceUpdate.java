@@ -0,0 +1,48 @@
+package vku.chatapp.common.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a combined heartbeat call: the friends whose presence changed
+ * since the version the client last saw.
+ * When {@code fullSnapshot} is true, {@code online} holds every online friend
+ * and the client should treat everyone else as offline.
+ */
+public class PresenceUpdate implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long version;
+    private boolean fullSnapshot;
+    private List<PeerInfo> online;
+    private List<Long> offline;
+
+    public PresenceUpdate() {
+        this.online = new ArrayList<>();
+        this.offline = new ArrayList<>();
+    }
+
+    public PresenceUpdate(long version, boolean fullSnapshot, List<PeerInfo> online, List<Long> offline) {
+        this.version = version;
+        this.fullSnapshot = fullSnapshot;
+        this.online = online;
+        this.offline = offline;
+    }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public boolean isFullSnapshot() { return fullSnapshot; }
+    public void setFullSnapshot(boolean fullSnapshot) { this.fullSnapshot = fullSnapshot; }
+
+    public List<PeerInfo> getOnline() { return online; }
+    public void setOnline(List<PeerInfo> online) { this.online = online; }
+
+    public List<Long> getOffline() { return offline; }
+    public void setOffline(List<Long> offline) { this.offline = offline; }
+
+    public boolean isEmpty() {
+        return !fullSnapshot && online.isEmpty() && offline.isEmpty();
+    }
+}
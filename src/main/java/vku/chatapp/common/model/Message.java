@@ -10,6 +10,8 @@ public class Message implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private Long id;
+    // ✅ Set by the client that creates the message; the server saves each one only once
+    private String clientMessageId;
     private Long senderId;
     private Long receiverId;
     private Long groupId;
@@ -29,6 +31,9 @@ public class Message implements Serializable {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
+
     public Long getSenderId() { return senderId; }
     public void setSenderId(Long senderId) { this.senderId = senderId; }
 
@@ -3,11 +3,13 @@
 
 package vku.chatapp.common.rmi;
 
+import vku.chatapp.common.dto.ConversationSummary;
 import vku.chatapp.common.model.Message;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.util.List;
+import java.util.Map;
 
 public interface IMessageService extends Remote {
     /**
@@ -15,18 +17,52 @@ public interface IMessageService extends Remote {
      */
     Message saveMessage(Message message) throws RemoteException;
 
+    /**
+     * ✅ Save many messages in one call, results in the same order.
+     * Idempotent: a message whose clientMessageId was already saved is not stored again,
+     * the stored copy is returned instead, so a client can safely retry an upload.
+     */
+    List<Message> saveMessages(List<Message> messages) throws RemoteException;
+
     /**
      * Get conversation history between two users
      */
     List<Message> getConversationHistory(Long user1Id, Long user2Id, int limit) throws RemoteException;
 
+    /**
+     * ✅ Messages with id greater than afterMessageId, oldest first, at most limit.
+     * Lets a client with a local cache fetch only what it has not seen; call again
+     * with the last returned id to page.
+     */
+    List<Message> getMessagesSince(Long user1Id, Long user2Id, long afterMessageId, int limit) throws RemoteException;
+
     /**
      * Update message status (DELIVERED, READ)
      */
     boolean updateMessageStatus(Long messageId, String status) throws RemoteException;
 
+    /**
+     * ✅ Batch form of updateMessageStatus (messageId -> status), returns how many were applied
+     */
+    int updateMessageStatuses(Map<Long, String> statuses) throws RemoteException;
+
     /**
      * Get unread message count for a user
      */
     int getUnreadCount(Long userId) throws RemoteException;
+
+    /**
+     * ✅ Unread count per friend (friendId -> count), one call for the whole friend list
+     */
+    Map<Long, Integer> getUnreadCounts(Long userId) throws RemoteException;
+
+    /**
+     * ✅ Unread count + last-message preview per friend
+     */
+    Map<Long, ConversationSummary> getConversationSummaries(Long userId) throws RemoteException;
+
+    /**
+     * ✅ Mark every message from friendId to userId as READ, returns how many changed
+     */
+    int markConversationRead(Long userId, Long friendId) throws RemoteException;
 }
\ No newline at end of file
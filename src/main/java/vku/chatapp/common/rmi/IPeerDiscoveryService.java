@@ -4,6 +4,7 @@
 package vku.chatapp.common.rmi;
 
 import vku.chatapp.common.dto.PeerInfo;
+import vku.chatapp.common.dto.PresenceUpdate;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
@@ -25,4 +26,12 @@ public interface IPeerDiscoveryService extends Remote {
      * @return PeerInfo if user is online, null otherwise
      */
     PeerInfo getPeerInfo(Long userId) throws RemoteException;
+
+    /**
+     * Heartbeat and presence poll in one round trip.
+     * @param userId The user sending the heartbeat
+     * @param presenceVersion Last version the client applied, 0 for a full snapshot
+     * @return Friends that came online or went offline since {@code presenceVersion}
+     */
+    PresenceUpdate heartbeat(Long userId, long presenceVersion) throws RemoteException;
 }
\ No newline at end of file
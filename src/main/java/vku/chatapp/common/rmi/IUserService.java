@@ -14,4 +14,12 @@ public interface IUserService extends Remote {
     boolean updateProfile(Long userId, String displayName, String bio, String avatarUrl) throws RemoteException;
     boolean updateStatus(Long userId, UserStatus status) throws RemoteException;
     String uploadAvatar(Long userId, byte[] imageData, String fileName) throws RemoteException;
+
+    // ✅ Chunked avatar upload: begin -> chunks -> complete.
+    // sizes[i] is the square edge in px of a JPEG rendition of lengths[i] bytes, largest first.
+    String beginAvatarUpload(Long userId, String fileName, int[] sizes, long[] lengths) throws RemoteException;
+    boolean uploadAvatarChunk(String uploadId, int size, long offset, byte[] chunk) throws RemoteException;
+    /** Returns the URL of the largest rendition; the others are stored alongside it. */
+    String completeAvatarUpload(String uploadId) throws RemoteException;
+    void abortAvatarUpload(String uploadId) throws RemoteException;
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package vku.chatapp.common.rmi.socket;
+
+import vku.chatapp.common.constants.AppConstants;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Buffers RMI writes and emits one frame per flush. Frames at or above
+ * {@link AppConstants#RMI_COMPRESSION_THRESHOLD} are deflated when that makes them smaller;
+ * small calls go out raw so chatty traffic pays no compression cost.
+ * <p>
+ * Frame layout: type byte (0 = raw, 1 = deflate), int body length,
+ * then for deflate frames an int raw length, then the body.
+ */
+class FramedDeflaterOutputStream extends OutputStream {
+    static final int FRAME_RAW = 0;
+    static final int FRAME_DEFLATE = 1;
+    static final int MAX_FRAME = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] buffer = new byte[MAX_FRAME];
+    private final byte[] compressed = new byte[MAX_FRAME + 64];
+    private int count;
+    private boolean closed;
+
+    FramedDeflaterOutputStream(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length) {
+            writeFrame();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == buffer.length) {
+                writeFrame();
+            }
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeFrame();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeFrame() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        SocketStats stats = SocketStats.getInstance();
+        stats.payloadWritten(count);
+
+        int compressedLength = count >= AppConstants.RMI_COMPRESSION_THRESHOLD ? deflate() : -1;
+        if (compressedLength > 0 && compressedLength < count) {
+            out.writeByte(FRAME_DEFLATE);
+            out.writeInt(compressedLength);
+            out.writeInt(count);
+            out.write(compressed, 0, compressedLength);
+            stats.frameWritten(true);
+        } else {
+            out.writeByte(FRAME_RAW);
+            out.writeInt(count);
+            out.write(buffer, 0, count);
+            stats.frameWritten(false);
+        }
+        count = 0;
+    }
+
+    /** Returns the deflated length, or -1 if it would not fit (incompressible data). */
+    private int deflate() {
+        deflater.reset();
+        deflater.setInput(buffer, 0, count);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished() && length < compressed.length) {
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        return deflater.finished() ? length : -1;
+    }
+}
@@ -0,0 +1,108 @@
+package vku.chatapp.common.rmi.socket;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads frames written by {@link FramedDeflaterOutputStream}.
+ */
+class FramedInflaterInputStream extends InputStream {
+    private final DataInputStream in;
+    private final Inflater inflater = new Inflater();
+    private final byte[] buffer = new byte[FramedDeflaterOutputStream.MAX_FRAME];
+    private final byte[] compressed = new byte[FramedDeflaterOutputStream.MAX_FRAME + 64];
+    private int position;
+    private int limit;
+    private boolean closed;
+
+    FramedInflaterInputStream(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !readFrame()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !readFrame()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        inflater.end();
+        in.close();
+    }
+
+    private boolean readFrame() throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            return false;
+        }
+
+        int bodyLength = in.readInt();
+        if (bodyLength <= 0 || bodyLength > compressed.length) {
+            throw new IOException("Corrupt RMI frame length: " + bodyLength);
+        }
+
+        if (type == FramedDeflaterOutputStream.FRAME_RAW) {
+            in.readFully(buffer, 0, bodyLength);
+            limit = bodyLength;
+        } else if (type == FramedDeflaterOutputStream.FRAME_DEFLATE) {
+            int rawLength = in.readInt();
+            if (rawLength <= 0 || rawLength > buffer.length) {
+                throw new IOException("Corrupt RMI frame raw length: " + rawLength);
+            }
+            in.readFully(compressed, 0, bodyLength);
+            limit = inflate(bodyLength, rawLength);
+        } else {
+            throw new IOException("Unknown RMI frame type: " + type);
+        }
+        position = 0;
+        return true;
+    }
+
+    private int inflate(int bodyLength, int rawLength) throws IOException {
+        inflater.reset();
+        inflater.setInput(compressed, 0, bodyLength);
+        try {
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(buffer, n, rawLength - n);
+                if (inflated == 0 && inflater.needsInput()) {
+                    throw new EOFException("Truncated RMI frame");
+                }
+                n += inflated;
+            }
+            return n;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt RMI frame", e);
+        }
+    }
+}
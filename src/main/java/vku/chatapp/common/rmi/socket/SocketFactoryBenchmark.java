@@ -0,0 +1,132 @@
+package vku.chatapp.common.rmi.socket;
+
+import vku.chatapp.common.enums.MessageStatus;
+import vku.chatapp.common.enums.MessageType;
+import vku.chatapp.common.model.Message;
+
+import java.io.Serializable;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.rmi.server.UnicastRemoteObject;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Loopback comparison of the default RMI sockets against the tuned factories.
+ * Usage: {@code SocketFactoryBenchmark [smallCalls] [largeCalls]}
+ * <p>
+ * Each mode exports a local echo service and measures a chatty small call
+ * (ping) and a conversation-history sized payload (200 messages).
+ */
+public class SocketFactoryBenchmark {
+
+    public interface EchoService extends Remote {
+        Object echo(Object payload) throws RemoteException;
+    }
+
+    private static class EchoServiceImpl implements EchoService {
+        @Override
+        public Object echo(Object payload) {
+            return payload;
+        }
+    }
+
+    enum Mode {
+        DEFAULT(null, null),
+        NODELAY(new TunedClientSocketFactory(false), new TunedServerSocketFactory(false)),
+        NODELAY_DEFLATE(new TunedClientSocketFactory(true), new TunedServerSocketFactory(true));
+
+        final RMIClientSocketFactory csf;
+        final RMIServerSocketFactory ssf;
+
+        Mode(RMIClientSocketFactory csf, RMIServerSocketFactory ssf) {
+            this.csf = csf;
+            this.ssf = ssf;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int smallCalls = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int largeCalls = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        ArrayList<Message> history = sampleHistory(200);
+
+        System.out.printf("%-16s %10s %10s %10s %12s %14s%n",
+                "Mode", "ping p50", "ping p99", "hist p50", "hist p99", "wire KB/hist");
+
+        for (Mode mode : Mode.values()) {
+            EchoServiceImpl impl = new EchoServiceImpl();
+            EchoService stub = mode.csf == null
+                    ? (EchoService) UnicastRemoteObject.exportObject(impl, 0)
+                    : (EchoService) UnicastRemoteObject.exportObject(impl, 0, mode.csf, mode.ssf);
+            try {
+                // Warm up connections and class loading
+                for (int i = 0; i < 200; i++) {
+                    stub.echo(i);
+                    stub.echo(history);
+                }
+
+                long[] ping = measure(stub, "ping", smallCalls);
+
+                SocketStats.getInstance().reset();
+                long[] hist = measure(stub, history, largeCalls);
+                long wire = SocketStats.getInstance().getWireBytesWritten();
+
+                System.out.printf("%-16s %8.3fms %8.3fms %8.3fms %10.3fms %14s%n",
+                        mode,
+                        percentile(ping, 50) / 1e6, percentile(ping, 99) / 1e6,
+                        percentile(hist, 50) / 1e6, percentile(hist, 99) / 1e6,
+                        // Round trip, both directions; DEFAULT sockets are not counted
+                        mode == Mode.DEFAULT ? "n/a" : String.format("%.1f", wire / 1024.0 / largeCalls));
+            } finally {
+                UnicastRemoteObject.unexportObject(impl, true);
+            }
+        }
+
+        System.out.println();
+        System.out.print(SocketStats.getInstance().formatReport());
+    }
+
+    private static long[] measure(EchoService stub, Serializable payload, int calls) throws RemoteException {
+        long[] samples = new long[calls];
+        for (int i = 0; i < calls; i++) {
+            long start = System.nanoTime();
+            stub.echo(payload);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static ArrayList<Message> sampleHistory(int size) {
+        String[] phrases = {
+                "Chào bạn, hôm nay thế nào?",
+                "Mình gửi file báo cáo nhé",
+                "Ok, để mình xem rồi trả lời sau",
+                "Tối nay họp nhóm lúc 8 giờ",
+                "Cảm ơn bạn nhiều!"
+        };
+        ArrayList<Message> list = new ArrayList<>(size);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < size; i++) {
+            Message m = new Message();
+            m.setId((long) i);
+            m.setSenderId(i % 2 == 0 ? 1L : 2L);
+            m.setReceiverId(i % 2 == 0 ? 2L : 1L);
+            m.setContent(phrases[i % phrases.length] + " #" + i);
+            m.setType(MessageType.TEXT);
+            m.setStatus(MessageStatus.READ);
+            m.setSentAt(now.minusMinutes(size - i));
+            list.add(m);
+        }
+        return list;
+    }
+}
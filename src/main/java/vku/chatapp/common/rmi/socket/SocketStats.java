@@ -0,0 +1,69 @@
+package vku.chatapp.common.rmi.socket;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters for sockets created by the tuned RMI socket factories.
+ * "Wire" bytes are what actually crossed the network, "payload" bytes are
+ * what RMI wrote before compression.
+ */
+public class SocketStats {
+    private static final SocketStats INSTANCE = new SocketStats();
+
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsAccepted = new LongAdder();
+    private final LongAdder wireBytesWritten = new LongAdder();
+    private final LongAdder wireBytesRead = new LongAdder();
+    private final LongAdder payloadBytesWritten = new LongAdder();
+    private final LongAdder compressedFrames = new LongAdder();
+    private final LongAdder rawFrames = new LongAdder();
+
+    private SocketStats() {}
+
+    public static SocketStats getInstance() {
+        return INSTANCE;
+    }
+
+    void connectionOpened() { connectionsOpened.increment(); }
+    void connectionAccepted() { connectionsAccepted.increment(); }
+    void wireWritten(long n) { wireBytesWritten.add(n); }
+    void wireRead(long n) { wireBytesRead.add(n); }
+    void payloadWritten(long n) { payloadBytesWritten.add(n); }
+    void frameWritten(boolean compressed) {
+        if (compressed) {
+            compressedFrames.increment();
+        } else {
+            rawFrames.increment();
+        }
+    }
+
+    public long getConnectionsOpened() { return connectionsOpened.sum(); }
+    public long getConnectionsAccepted() { return connectionsAccepted.sum(); }
+    public long getWireBytesWritten() { return wireBytesWritten.sum(); }
+    public long getWireBytesRead() { return wireBytesRead.sum(); }
+    public long getPayloadBytesWritten() { return payloadBytesWritten.sum(); }
+    public long getCompressedFrames() { return compressedFrames.sum(); }
+    public long getRawFrames() { return rawFrames.sum(); }
+
+    public void reset() {
+        connectionsOpened.reset();
+        connectionsAccepted.reset();
+        wireBytesWritten.reset();
+        wireBytesRead.reset();
+        payloadBytesWritten.reset();
+        compressedFrames.reset();
+        rawFrames.reset();
+    }
+
+    public String formatReport() {
+        long payload = getPayloadBytesWritten();
+        long wire = getWireBytesWritten();
+        return String.format(
+                "Connections opened: %d, accepted: %d%n" +
+                "Bytes written: %d payload -> %d wire (%.1f%%), read: %d wire%n" +
+                "Frames: %d compressed, %d raw%n",
+                getConnectionsOpened(), getConnectionsAccepted(),
+                payload, wire, payload == 0 ? 100.0 : wire * 100.0 / payload, getWireBytesRead(),
+                getCompressedFrames(), getRawFrames());
+    }
+}
@@ -0,0 +1,49 @@
+package vku.chatapp.common.rmi.socket;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+
+/**
+ * Client half of the tuned factories. The server exports its services with this
+ * factory, so it travels inside the stub; both ends must use the same compress flag.
+ * equals/hashCode matter: RMI only reuses connections between equal factories.
+ */
+public class TunedClientSocketFactory implements RMIClientSocketFactory, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean compress;
+
+    public TunedClientSocketFactory(boolean compress) {
+        this.compress = compress;
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return new TunedSocket(host, port, compress);
+    }
+
+    /**
+     * Lets socket reads on the calling thread block up to timeoutMs (0 to clear) even when the
+     * RMI response timeout is shorter; for calls known to be slow. Returns the previous value,
+     * to restore in a finally block.
+     */
+    public static int setThreadReadTimeout(int timeoutMs) {
+        return TunedSocket.setThreadReadTimeout(timeoutMs);
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TunedClientSocketFactory && ((TunedClientSocketFactory) o).compress == compress;
+    }
+
+    @Override
+    public int hashCode() {
+        return Boolean.hashCode(compress) + 31 * TunedClientSocketFactory.class.hashCode();
+    }
+}
@@ -0,0 +1,41 @@
+package vku.chatapp.common.rmi.socket;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMISocketFactory;
+
+/**
+ * Global replacement for the JDK default socket factory. Applies to every object
+ * exported without its own factories (including the registry), so it only sets
+ * TCP_NODELAY and counts bytes; compression needs both ends and lives in
+ * {@link TunedClientSocketFactory}.
+ */
+public class TunedRMISocketFactory extends RMISocketFactory {
+    private static volatile boolean installed;
+
+    /**
+     * Installs the factory once per JVM; RMISocketFactory can only be set a single time.
+     */
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        try {
+            RMISocketFactory.setSocketFactory(new TunedRMISocketFactory());
+            installed = true;
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not install tuned RMI socket factory: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return new TunedSocket(host, port, false);
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        return new TunedServerSocket(port, false);
+    }
+}
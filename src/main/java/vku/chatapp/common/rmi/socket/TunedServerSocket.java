@@ -0,0 +1,23 @@
+package vku.chatapp.common.rmi.socket;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+class TunedServerSocket extends ServerSocket {
+    private final boolean compress;
+
+    TunedServerSocket(int port, boolean compress) throws IOException {
+        super(port);
+        this.compress = compress;
+    }
+
+    @Override
+    public Socket accept() throws IOException {
+        TunedSocket socket = new TunedSocket(compress);
+        implAccept(socket);
+        socket.setTcpNoDelay(true);
+        SocketStats.getInstance().connectionAccepted();
+        return socket;
+    }
+}
@@ -0,0 +1,33 @@
+package vku.chatapp.common.rmi.socket;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.rmi.server.RMIServerSocketFactory;
+
+/**
+ * Server half of the tuned factories. Export with
+ * {@code UnicastRemoteObject.exportObject(impl, port, new TunedClientSocketFactory(c), new TunedServerSocketFactory(c))}.
+ * Keep the registry on the default factories: clients look it up before they have our stub.
+ */
+public class TunedServerSocketFactory implements RMIServerSocketFactory {
+    private final boolean compress;
+
+    public TunedServerSocketFactory(boolean compress) {
+        this.compress = compress;
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        return new TunedServerSocket(port, compress);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TunedServerSocketFactory && ((TunedServerSocketFactory) o).compress == compress;
+    }
+
+    @Override
+    public int hashCode() {
+        return Boolean.hashCode(compress) + 31 * TunedServerSocketFactory.class.hashCode();
+    }
+}
@@ -0,0 +1,149 @@
+package vku.chatapp.common.rmi.socket;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+
+/**
+ * Socket used by the tuned RMI factories: TCP_NODELAY, byte counting and,
+ * when both ends agree, framed deflate compression.
+ * <p>
+ * Reads honour a per-thread read timeout ({@link #setThreadReadTimeout}) on top of the one the
+ * RMI transport sets: the client reads a reply on the calling thread, so one slow call (an
+ * upload) can wait longer than the global response timeout without raising it for every call.
+ */
+class TunedSocket extends Socket {
+    // 0: no override for this thread
+    private static final ThreadLocal<Integer> THREAD_READ_TIMEOUT = ThreadLocal.withInitial(() -> 0);
+
+    private final boolean compress;
+    private InputStream in;
+    private OutputStream out;
+    // What the transport asked for, and what is applied to the socket right now
+    private volatile int requestedTimeout;
+    private int appliedTimeout;
+
+    /** Unconnected socket, filled in by {@link TunedServerSocket#accept()}. */
+    TunedSocket(boolean compress) {
+        this.compress = compress;
+    }
+
+    TunedSocket(String host, int port, boolean compress) throws IOException {
+        super(host, port);
+        this.compress = compress;
+        setTcpNoDelay(true);
+        SocketStats.getInstance().connectionOpened();
+    }
+
+    /** Sets the calling thread's read timeout (ms, 0 for none); returns the previous one. */
+    static int setThreadReadTimeout(int timeoutMs) {
+        int previous = THREAD_READ_TIMEOUT.get();
+        THREAD_READ_TIMEOUT.set(timeoutMs);
+        return previous;
+    }
+
+    @Override
+    public synchronized void setSoTimeout(int timeout) throws SocketException {
+        requestedTimeout = timeout;
+        appliedTimeout = timeout;
+        super.setSoTimeout(timeout);
+    }
+
+    /** Only ever lengthens a finite timeout; an infinite one stays infinite. */
+    private synchronized void applyThreadTimeout() throws SocketException {
+        int override = THREAD_READ_TIMEOUT.get();
+        int wanted = override > 0 && requestedTimeout > 0 ? Math.max(requestedTimeout, override) : requestedTimeout;
+        if (wanted != appliedTimeout) {
+            super.setSoTimeout(wanted);
+            appliedTimeout = wanted;
+        }
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+        if (in == null) {
+            InputStream counted = new CountingInputStream(super.getInputStream(), this);
+            in = compress ? new FramedInflaterInputStream(counted) : counted;
+        }
+        return in;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+        if (out == null) {
+            OutputStream counted = new CountingOutputStream(super.getOutputStream());
+            out = compress ? new FramedDeflaterOutputStream(counted) : new PayloadCountingOutputStream(counted);
+        }
+        return out;
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final TunedSocket socket;
+
+        CountingInputStream(InputStream in, TunedSocket socket) {
+            super(in);
+            this.socket = socket;
+        }
+
+        @Override
+        public int read() throws IOException {
+            socket.applyThreadTimeout();
+            int b = super.read();
+            if (b >= 0) {
+                SocketStats.getInstance().wireRead(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            socket.applyThreadTimeout();
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                SocketStats.getInstance().wireRead(n);
+            }
+            return n;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            SocketStats.getInstance().wireWritten(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            SocketStats.getInstance().wireWritten(len);
+        }
+    }
+
+    /** Without compression payload and wire bytes are the same. */
+    private static class PayloadCountingOutputStream extends FilterOutputStream {
+        PayloadCountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            SocketStats.getInstance().payloadWritten(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            SocketStats.getInstance().payloadWritten(len);
+        }
+    }
+}
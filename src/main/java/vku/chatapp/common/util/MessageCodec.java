@@ -0,0 +1,136 @@
+package vku.chatapp.common.util;
+
+import vku.chatapp.common.enums.MessageStatus;
+import vku.chatapp.common.enums.MessageType;
+import vku.chatapp.common.model.Message;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Compact binary form of a {@link Message} for on-disk stores.
+ * Far smaller and faster than Java serialization: fixed-width numbers,
+ * length-prefixed UTF-8 strings, -1 for null. Status and read/delivery times are
+ * not part of the record; stores keep those in a side table because they change.
+ * Version 2 appends the client message id; version 1 records still decode.
+ */
+public final class MessageCodec {
+    private static final byte VERSION = 2;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final MessageType[] TYPES = MessageType.values();
+    private static final MessageStatus[] STATUSES = MessageStatus.values();
+
+    private MessageCodec() {}
+
+    public static byte[] encode(Message message) {
+        byte[] content = utf8(message.getContent());
+        byte[] fileUrl = utf8(message.getFileUrl());
+        byte[] fileName = utf8(message.getFileName());
+        byte[] clientMessageId = utf8(message.getClientMessageId());
+
+        int size = 1 + 8 * 4 + 1 + 8 + 8
+                + stringSize(content) + stringSize(fileUrl) + stringSize(fileName) + stringSize(clientMessageId);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+
+        buffer.put(VERSION);
+        buffer.putLong(orNone(message.getId()));
+        buffer.putLong(orNone(message.getSenderId()));
+        buffer.putLong(orNone(message.getReceiverId()));
+        buffer.putLong(orNone(message.getGroupId()));
+        buffer.put(message.getType() != null ? (byte) message.getType().ordinal() : -1);
+        buffer.putLong(message.getSentAt() != null ? toEpochMillis(message.getSentAt()) : -1);
+        buffer.putLong(orNone(message.getFileSize()));
+        putString(buffer, content);
+        putString(buffer, fileUrl);
+        putString(buffer, fileName);
+        putString(buffer, clientMessageId);
+        return buffer.array();
+    }
+
+    public static Message decode(ByteBuffer buffer) {
+        try {
+            byte version = buffer.get();
+            if (version != 1 && version != VERSION) {
+                throw new IllegalArgumentException("Unknown message record version: " + version);
+            }
+
+            Message message = new Message();
+            message.setId(noneToNull(buffer.getLong()));
+            message.setSenderId(noneToNull(buffer.getLong()));
+            message.setReceiverId(noneToNull(buffer.getLong()));
+            message.setGroupId(noneToNull(buffer.getLong()));
+            byte type = buffer.get();
+            message.setType(type >= 0 ? TYPES[type] : null);
+            long sentAt = buffer.getLong();
+            message.setSentAt(sentAt >= 0 ? fromEpochMillis(sentAt) : null);
+            message.setFileSize(noneToNull(buffer.getLong()));
+            message.setContent(getString(buffer));
+            message.setFileUrl(getString(buffer));
+            message.setFileName(getString(buffer));
+            if (version >= 2) {
+                message.setClientMessageId(getString(buffer));
+            }
+            return message;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated message record", e);
+        }
+    }
+
+    public static byte statusToByte(MessageStatus status) {
+        return status != null ? (byte) status.ordinal() : -1;
+    }
+
+    public static MessageStatus statusFromByte(byte value) {
+        return value >= 0 && value < STATUSES.length ? STATUSES[value] : null;
+    }
+
+    public static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    public static LocalDateTime fromEpochMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+    }
+
+    private static long orNone(Long value) {
+        return value != null ? value : -1L;
+    }
+
+    private static Long noneToNull(long value) {
+        return value != -1L ? value : null;
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int stringSize(byte[] bytes) {
+        return 4 + (bytes != null ? bytes.length : 0);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupt string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
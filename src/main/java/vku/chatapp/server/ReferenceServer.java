@@ -0,0 +1,164 @@
+package vku.chatapp.server;
+
+import vku.chatapp.common.constants.AppConstants;
+import vku.chatapp.common.rmi.socket.TunedClientSocketFactory;
+import vku.chatapp.common.rmi.socket.TunedServerSocketFactory;
+import vku.chatapp.server.auth.AuthServiceImpl;
+import vku.chatapp.server.auth.PasswordHasher;
+import vku.chatapp.server.discovery.PeerDiscoveryServiceImpl;
+import vku.chatapp.server.friend.FriendAdjacencyIndex;
+import vku.chatapp.server.friend.FriendServiceImpl;
+import vku.chatapp.server.message.MessageServiceImpl;
+import vku.chatapp.server.user.UserDirectory;
+import vku.chatapp.server.user.UserDirectorySnapshot;
+import vku.chatapp.server.user.UserServiceImpl;
+
+import java.nio.file.Path;
+import java.rmi.Remote;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+
+/**
+ * Self-contained stand-in for the production server, for local development and load tests.
+ * Everything is in memory or on local disk; no database or cloud services are needed.
+ * Users, the friend graph and messages are kept under the data directory across restarts.
+ * <p>
+ * Usage: {@code ReferenceServer [--port 1099] [--compress] [--data ./server-data] [--friends edges.csv]}
+ */
+public class ReferenceServer {
+    private final int port;
+    private final boolean compress;
+    private final Path dataDirectory;
+    private final FriendAdjacencyIndex friendIndex;
+    private final UserDirectory userDirectory;
+
+    private Registry registry;
+    private UserDirectorySnapshot userSnapshot;
+    private PeerDiscoveryServiceImpl peerDiscoveryService;
+    private MessageServiceImpl messageService;
+    private FriendServiceImpl friendService;
+    private UserServiceImpl userService;
+    private AuthServiceImpl authService;
+
+    public ReferenceServer(int port, boolean compress, Path dataDirectory) {
+        this.port = port;
+        this.compress = compress;
+        this.dataDirectory = dataDirectory;
+        this.friendIndex = new FriendAdjacencyIndex();
+        this.userDirectory = new UserDirectory();
+    }
+
+    public FriendAdjacencyIndex getFriendIndex() {
+        return friendIndex;
+    }
+
+    public UserDirectory getUserDirectory() {
+        return userDirectory;
+    }
+
+    public void start() throws Exception {
+        // Registry stays on default sockets: clients look it up before they have our stubs
+        registry = LocateRegistry.createRegistry(port);
+
+        // Users first: friendships and messages refer to their ids
+        userSnapshot = new UserDirectorySnapshot(userDirectory, dataDirectory.resolve("users.snap"));
+
+        peerDiscoveryService = new PeerDiscoveryServiceImpl(friendIndex);
+        peerDiscoveryService.start();
+        bind(AppConstants.RMI_PEER_DISCOVERY_SERVICE, peerDiscoveryService);
+
+        authService = new AuthServiceImpl(userDirectory, new PasswordHasher());
+        authService.start();
+        bind(AppConstants.RMI_AUTH_SERVICE, authService);
+
+        userService = new UserServiceImpl(userDirectory, dataDirectory);
+        bind(AppConstants.RMI_USER_SERVICE, userService);
+
+        messageService = new MessageServiceImpl(dataDirectory);
+        bind(AppConstants.RMI_MESSAGE_SERVICE, messageService);
+
+        friendService = new FriendServiceImpl(friendIndex, userDirectory, dataDirectory.resolve("friends.snap"));
+        friendService.addListener(peerDiscoveryService);
+        bind(AppConstants.RMI_FRIEND_SERVICE, friendService);
+
+        System.out.println("✅ Reference server listening on port " + port
+                + (compress ? " (compressed transport)" : ""));
+    }
+
+    public void stop() {
+        try {
+            if (peerDiscoveryService != null) {
+                peerDiscoveryService.stop();
+                UnicastRemoteObject.unexportObject(peerDiscoveryService, true);
+            }
+            if (authService != null) {
+                authService.stop();
+                UnicastRemoteObject.unexportObject(authService, true);
+            }
+            if (userService != null) {
+                UnicastRemoteObject.unexportObject(userService, true);
+            }
+            if (messageService != null) {
+                UnicastRemoteObject.unexportObject(messageService, true);
+                messageService.close();
+            }
+            if (friendService != null) {
+                UnicastRemoteObject.unexportObject(friendService, true);
+                friendService.close();
+            }
+            if (userSnapshot != null) {
+                userSnapshot.close();
+            }
+            if (registry != null) {
+                UnicastRemoteObject.unexportObject(registry, true);
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Error stopping server: " + e.getMessage());
+        }
+    }
+
+    private void bind(String name, Remote service) throws Exception {
+        Remote stub = UnicastRemoteObject.exportObject(service, 0,
+                new TunedClientSocketFactory(compress), new TunedServerSocketFactory(compress));
+        registry.rebind(name, stub);
+        System.out.println("📡 Bound " + name);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = AppConstants.RMI_PORT;
+        boolean compress = false;
+        Path friendsFile = null;
+        Path dataDirectory = Path.of("server-data");
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--compress":
+                    compress = true;
+                    break;
+                case "--data":
+                    dataDirectory = Path.of(args[++i]);
+                    break;
+                case "--friends":
+                    friendsFile = Path.of(args[++i]);
+                    break;
+                default:
+                    System.err.println("⚠️ Unknown option: " + args[i]);
+            }
+        }
+
+        ReferenceServer server = new ReferenceServer(port, compress, dataDirectory);
+        if (friendsFile != null) {
+            int edges = server.getFriendIndex().loadEdges(friendsFile);
+            System.out.println("✅ Loaded " + edges + " friendships from " + friendsFile);
+        }
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "Server-Shutdown"));
+
+        // RMI export threads are non-daemon; park the main thread as well
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,120 @@
+package vku.chatapp.server.auth;
+
+import vku.chatapp.common.dto.AuthResponse;
+import vku.chatapp.common.dto.LoginRequest;
+import vku.chatapp.common.dto.RegisterRequest;
+import vku.chatapp.server.user.UserDirectory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Login storm against {@link AuthServiceImpl}: many client threads logging in at once,
+ * as after a server restart. Reports logins/s, fast "busy" rejections and latency,
+ * then session validation throughput.
+ * Usage: {@code AuthBenchmark [users] [clientThreads] [seconds]}
+ */
+public class AuthBenchmark {
+    private static final long BUSY_BACKOFF_MS = 100;
+
+    public static void main(String[] args) throws Exception {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        UserDirectory directory = new UserDirectory();
+        PasswordHasher hasher = new PasswordHasher();
+        AuthServiceImpl auth = new AuthServiceImpl(directory, hasher);
+        auth.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < userCount; i++) {
+            AuthResponse registered = auth.register(new RegisterRequest("user" + i, "user" + i + "@bench", "secret" + i, "User " + i));
+            if (!registered.isSuccess()) {
+                throw new IllegalStateException(registered.getMessage());
+            }
+            directory.findByEmail("user" + i + "@bench").setEmailVerified(true);
+        }
+        System.out.printf("Registered %d users in %.1fs (%d hash threads)%n",
+                userCount, (System.nanoTime() - start) / 1e9, Runtime.getRuntime().availableProcessors());
+
+        AtomicLong ok = new AtomicLong();
+        AtomicLong busy = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + seconds * 1000L;
+        CountDownLatch done = new CountDownLatch(clients);
+
+        start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            new Thread(() -> {
+                long[] samples = new long[1 << 16];
+                int n = 0;
+                String lastToken = null;
+                for (int i = client; System.currentTimeMillis() < deadline; i += clients) {
+                    int user = i % userCount;
+                    long s = System.nanoTime();
+                    AuthResponse response = auth.login(new LoginRequest("user" + user + "@bench", "secret" + user, false));
+                    long elapsed = System.nanoTime() - s;
+                    if (response.isSuccess()) {
+                        ok.incrementAndGet();
+                        lastToken = response.getSessionToken();
+                        if (n < samples.length) {
+                            samples[n++] = elapsed;
+                        }
+                    } else if (response.getMessage().startsWith("Server is busy")) {
+                        busy.incrementAndGet();
+                        // A real client backs off before retrying
+                        sleepQuietly(BUSY_BACKOFF_MS);
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                }
+                synchronized (latencies) {
+                    latencies.add(Arrays.copyOf(samples, n));
+                    if (lastToken != null) {
+                        tokens.add(lastToken);
+                    }
+                }
+                done.countDown();
+            }, "Client-" + c).start();
+        }
+        done.await();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%d clients, %.1fs: %d logins (%.0f/s), %d busy rejections, %d failures%n",
+                clients, elapsed, ok.get(), ok.get() / elapsed, busy.get(), failed.get());
+        if (all.length > 0) {
+            System.out.printf("Login latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                    all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6, all[all.length - 1] / 1e6);
+        }
+
+        int validations = 2_000_000;
+        start = System.nanoTime();
+        int valid = 0;
+        for (int i = 0; i < validations; i++) {
+            if (auth.validateSession(tokens.get(i % tokens.size()))) {
+                valid++;
+            }
+        }
+        double perCall = (System.nanoTime() - start) / (double) validations;
+        System.out.printf("validateSession: %.0f ns/call (%d/%d valid), %d live sessions%n",
+                perCall, valid, validations, auth.getSessions().size());
+
+        auth.stop();
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
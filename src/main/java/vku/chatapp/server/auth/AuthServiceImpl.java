@@ -0,0 +1,242 @@
+package vku.chatapp.server.auth;
+
+import vku.chatapp.common.constants.AppConstants;
+import vku.chatapp.common.dto.AuthResponse;
+import vku.chatapp.common.dto.LoginRequest;
+import vku.chatapp.common.dto.RegisterRequest;
+import vku.chatapp.common.enums.UserStatus;
+import vku.chatapp.common.model.User;
+import vku.chatapp.common.rmi.IAuthService;
+import vku.chatapp.server.user.UserDirectory;
+
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory reference implementation of {@link IAuthService}.
+ * <ul>
+ *   <li>BCrypt runs on the bounded {@link PasswordHasher} pool; when it is saturated,
+ *       logins fail fast with "server busy" instead of piling up on RMI threads.</li>
+ *   <li>Sessions live in a {@link SessionCache}, so {@link #validateSession} costs a map lookup.</li>
+ *   <li>No mail server: OTPs are printed to the console.</li>
+ * </ul>
+ */
+public class AuthServiceImpl implements IAuthService {
+    private static final String BUSY_MESSAGE = "Server is busy, please try again in a moment";
+
+    private final UserDirectory users;
+    private final PasswordHasher hasher;
+    private final SessionCache sessions;
+    private final Map<String, PendingOtp> otps = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    private static final class PendingOtp {
+        final String code;
+        final long expiresAt;
+
+        PendingOtp(String code, long expiresAt) {
+            this.code = code;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public AuthServiceImpl(UserDirectory users, PasswordHasher hasher) {
+        this.users = users;
+        this.hasher = hasher;
+        this.sessions = new SessionCache(TimeUnit.MINUTES.toMillis(AppConstants.SESSION_TIMEOUT_MINUTES));
+    }
+
+    public void start() {
+        sessions.start();
+    }
+
+    public void stop() {
+        sessions.stop();
+        hasher.shutdown();
+    }
+
+    public SessionCache getSessions() {
+        return sessions;
+    }
+
+    // ========== Login / logout ==========
+
+    @Override
+    public AuthResponse login(LoginRequest request) {
+        if (request == null || isBlank(request.getEmail()) || isBlank(request.getPassword())) {
+            return new AuthResponse(false, "Email and password are required");
+        }
+
+        String login = request.getEmail().trim();
+        User user = users.findByEmail(login);
+        if (user == null) {
+            user = users.findByUsername(login);
+        }
+        if (user == null) {
+            return new AuthResponse(false, "Invalid email or password");
+        }
+
+        boolean valid;
+        try {
+            valid = hasher.verify(request.getPassword(), user.getPasswordHash());
+        } catch (RejectedExecutionException e) {
+            return new AuthResponse(false, BUSY_MESSAGE);
+        }
+        if (!valid) {
+            return new AuthResponse(false, "Invalid email or password");
+        }
+        if (!user.isEmailVerified()) {
+            return new AuthResponse(false, "Please verify your email before logging in");
+        }
+
+        user.setStatus(UserStatus.ONLINE);
+        AuthResponse response = new AuthResponse(true, "Login successful");
+        response.setUser(withoutPassword(user));
+        response.setSessionToken(sessions.create(user.getId()));
+        return response;
+    }
+
+    @Override
+    public boolean logout(String sessionToken) {
+        Long userId = sessions.validate(sessionToken);
+        if (userId == null) {
+            return false;
+        }
+        sessions.invalidate(sessionToken);
+        User user = users.get(userId);
+        if (user != null) {
+            user.setStatus(UserStatus.OFFLINE);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean validateSession(String sessionToken) {
+        return sessions.validate(sessionToken) != null;
+    }
+
+    // ========== Registration ==========
+
+    @Override
+    public AuthResponse register(RegisterRequest request) {
+        if (request == null || isBlank(request.getUsername()) || isBlank(request.getEmail())
+                || isBlank(request.getPassword())) {
+            return new AuthResponse(false, "Username, email and password are required");
+        }
+        String username = request.getUsername().trim();
+        String email = request.getEmail().trim();
+
+        // Cheap checks before spending a hash
+        if (users.findByUsername(username) != null) {
+            return new AuthResponse(false, "Username already taken");
+        }
+        if (users.findByEmail(email) != null) {
+            return new AuthResponse(false, "Email already registered");
+        }
+
+        String passwordHash;
+        try {
+            passwordHash = hasher.hash(request.getPassword());
+        } catch (RejectedExecutionException e) {
+            return new AuthResponse(false, BUSY_MESSAGE);
+        }
+
+        User user = users.create(username, email, passwordHash, request.getDisplayName());
+        if (user == null) {
+            // Lost a race with a concurrent registration
+            return new AuthResponse(false, "Username or email already registered");
+        }
+
+        issueOtp(email, "verification");
+        AuthResponse response = new AuthResponse(true, "Registration successful. Please check your email for the OTP.");
+        response.setUser(withoutPassword(user));
+        return response;
+    }
+
+    @Override
+    public boolean verifyEmail(String email, String otp) {
+        User user = users.findByEmail(email);
+        if (user == null || !consumeOtp(email, otp)) {
+            return false;
+        }
+        user.setEmailVerified(true);
+        users.markDirty();
+        return true;
+    }
+
+    // ========== Password reset ==========
+
+    @Override
+    public boolean sendPasswordResetOtp(String email) {
+        if (users.findByEmail(email) == null) {
+            return false;
+        }
+        issueOtp(email, "password reset");
+        return true;
+    }
+
+    @Override
+    public boolean resetPassword(String email, String otp, String newPassword) {
+        User user = users.findByEmail(email);
+        if (user == null || isBlank(newPassword) || !consumeOtp(email, otp)) {
+            return false;
+        }
+        try {
+            user.setPasswordHash(hasher.hash(newPassword));
+            users.markDirty();
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+        int ended = sessions.invalidateUser(user.getId());
+        System.out.println("🔑 Password reset for " + email + ", ended " + ended + " sessions");
+        return true;
+    }
+
+    // ========== Helpers ==========
+
+    private void issueOtp(String email, String purpose) {
+        StringBuilder code = new StringBuilder(AppConstants.OTP_LENGTH);
+        for (int i = 0; i < AppConstants.OTP_LENGTH; i++) {
+            code.append(random.nextInt(10));
+        }
+        long expiresAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(AppConstants.OTP_EXPIRY_MINUTES);
+        otps.put(key(email), new PendingOtp(code.toString(), expiresAt));
+        System.out.println("📧 OTP (" + purpose + ") for " + email + ": " + code);
+    }
+
+    private boolean consumeOtp(String email, String otp) {
+        if (email == null || otp == null) {
+            return false;
+        }
+        PendingOtp pending = otps.get(key(email));
+        if (pending == null || System.currentTimeMillis() > pending.expiresAt || !pending.code.equals(otp.trim())) {
+            return false;
+        }
+        return otps.remove(key(email), pending);
+    }
+
+    /** Copy for the wire; the hash never leaves the server. */
+    private static User withoutPassword(User user) {
+        User copy = new User(user.getId(), user.getUsername(), user.getEmail());
+        copy.setDisplayName(user.getDisplayName());
+        copy.setAvatarUrl(user.getAvatarUrl());
+        copy.setBio(user.getBio());
+        copy.setStatus(user.getStatus());
+        copy.setCreatedAt(user.getCreatedAt());
+        copy.setLastSeen(user.getLastSeen());
+        copy.setEmailVerified(user.isEmailVerified());
+        return copy;
+    }
+
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,112 @@
+package vku.chatapp.server.auth;
+
+import vku.chatapp.common.util.EncryptionUtil;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs BCrypt on a dedicated pool with one thread per core and a short bounded queue.
+ * BCrypt is deliberately CPU-bound, so more threads than cores only adds contention.
+ * When a login storm outruns the pool, new requests are turned away at once
+ * ({@link RejectedExecutionException}) instead of queueing until every caller times out;
+ * RMI threads are never blocked on hashing for longer than {@link #MAX_WAIT_MS}.
+ */
+public class PasswordHasher {
+    private static final int QUEUE_PER_THREAD = 8;
+    static final long MAX_WAIT_MS = 5000;
+
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public PasswordHasher() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public PasswordHasher(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD),
+                r -> {
+                    Thread t = new Thread(r, "BCrypt-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @throws RejectedExecutionException when the pool is saturated or the hash did not
+     *         finish within {@link #MAX_WAIT_MS}
+     */
+    public boolean verify(String password, String hash) {
+        if (password == null || hash == null) {
+            return false;
+        }
+        return run(() -> {
+            try {
+                return EncryptionUtil.verifyPassword(password, hash);
+            } catch (IllegalArgumentException e) {
+                // Malformed stored hash
+                return false;
+            }
+        });
+    }
+
+    /** Same admission rules as {@link #verify}. */
+    public String hash(String password) {
+        return run(() -> EncryptionUtil.hashPassword(password));
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = pool.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+
+        try {
+            T result = future.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+            completed.incrementAndGet();
+            return result;
+        } catch (TimeoutException e) {
+            // Drops it from the queue if it has not started; a running hash just finishes
+            future.cancel(false);
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while hashing");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,125 @@
+package vku.chatapp.server.auth;
+
+import vku.chatapp.common.util.EncryptionUtil;
+import vku.chatapp.server.util.HashedTimingWheel;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live session tokens with a sliding idle timeout.
+ * Validation is one map lookup plus a timestamp write, no hashing and no locks.
+ * Expiry is driven by a {@link HashedTimingWheel}, so idle sessions are dropped
+ * without ever scanning the map.
+ */
+public class SessionCache {
+    private static final long WHEEL_TICK_MS = 5000;
+    private static final int WHEEL_SIZE = 512;
+
+    static final class Session {
+        final String token;
+        final long userId;
+        volatile long lastAccess;
+
+        Session(String token, long userId, long now) {
+            this.token = token;
+            this.userId = userId;
+            this.lastAccess = now;
+        }
+    }
+
+    private final long timeoutMs;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> tokensByUser = new ConcurrentHashMap<>();
+    private final HashedTimingWheel<Session> expiryWheel;
+
+    public SessionCache(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        this.expiryWheel = new HashedTimingWheel<>("SessionExpiry", WHEEL_TICK_MS, WHEEL_SIZE, this::checkExpiry);
+    }
+
+    public void start() {
+        expiryWheel.start();
+    }
+
+    public void stop() {
+        expiryWheel.stop();
+    }
+
+    public String create(long userId) {
+        long now = System.currentTimeMillis();
+        Session session = new Session(EncryptionUtil.generateToken(), userId, now);
+        sessions.put(session.token, session);
+        tokensByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(session.token);
+        expiryWheel.schedule(session, now + timeoutMs);
+        return session.token;
+    }
+
+    /**
+     * @return the session's user id, or null if the token is unknown or idle too long.
+     *         A successful validation extends the session.
+     */
+    public Long validate(String token) {
+        Session session = token != null ? sessions.get(token) : null;
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        // The wheel may be up to one tick late; never honour an expired token in between
+        if (now - session.lastAccess >= timeoutMs) {
+            remove(session);
+            return null;
+        }
+        session.lastAccess = now;
+        return session.userId;
+    }
+
+    public boolean invalidate(String token) {
+        Session session = token != null ? sessions.get(token) : null;
+        return session != null && remove(session);
+    }
+
+    /** Ends every session of a user, e.g. after a password reset. */
+    public int invalidateUser(long userId) {
+        Set<String> tokens = tokensByUser.get(userId);
+        if (tokens == null) {
+            return 0;
+        }
+        int removed = 0;
+        for (String token : tokens) {
+            if (invalidate(token)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private boolean remove(Session session) {
+        if (!sessions.remove(session.token, session)) {
+            return false;
+        }
+        tokensByUser.computeIfPresent(session.userId, (id, tokens) -> {
+            tokens.remove(session.token);
+            return tokens.isEmpty() ? null : tokens;
+        });
+        return true;
+    }
+
+    private long checkExpiry(Session session, long now) {
+        if (sessions.get(session.token) != session) {
+            // Logged out or already expired
+            return -1;
+        }
+        long deadline = session.lastAccess + timeoutMs;
+        if (now < deadline) {
+            return deadline;
+        }
+        remove(session);
+        return -1;
+    }
+}
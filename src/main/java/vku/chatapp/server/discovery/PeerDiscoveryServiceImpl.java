@@ -0,0 +1,201 @@
+package vku.chatapp.server.discovery;
+
+import vku.chatapp.common.constants.AppConstants;
+import vku.chatapp.common.dto.PeerInfo;
+import vku.chatapp.common.dto.PresenceUpdate;
+import vku.chatapp.common.rmi.IPeerDiscoveryService;
+import vku.chatapp.server.friend.FriendAdjacencyIndex;
+import vku.chatapp.server.friend.FriendshipListener;
+import vku.chatapp.server.util.HashedTimingWheel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory reference implementation of {@link IPeerDiscoveryService}.
+ * <ul>
+ *   <li>Peers live in a {@link ShardedPeerRegistry}; a heartbeat is a single volatile write.</li>
+ *   <li>Stale peers are expired by a {@link HashedTimingWheel}, never by scanning.</li>
+ *   <li>Presence changes are fanned out to online friends' inboxes at join/leave time,
+ *       so {@link #heartbeat} returns a ready-made delta.</li>
+ *   <li>Friend lists come from the shared {@link FriendAdjacencyIndex}; new or removed
+ *       friendships are pushed to both sides when they are online.</li>
+ * </ul>
+ */
+public class PeerDiscoveryServiceImpl implements IPeerDiscoveryService, FriendshipListener {
+    // Must outlive the slowest client heartbeat (minimized window) with margin for one lost beat
+    static final long PEER_TIMEOUT_MS = AppConstants.HEARTBEAT_MINIMIZED_MS * 2 + 5000;
+    private static final long WHEEL_TICK_MS = 1000;
+    private static final int WHEEL_SIZE = 128;
+
+    private final ShardedPeerRegistry registry;
+    private final FriendAdjacencyIndex friends;
+    private final HashedTimingWheel<PeerEntry> expiryWheel;
+
+    public PeerDiscoveryServiceImpl(FriendAdjacencyIndex friends) {
+        this.registry = new ShardedPeerRegistry(64);
+        this.friends = friends;
+        this.expiryWheel = new HashedTimingWheel<>("PeerExpiry", WHEEL_TICK_MS, WHEEL_SIZE, this::checkExpiry);
+    }
+
+    public void start() {
+        expiryWheel.start();
+    }
+
+    public void stop() {
+        expiryWheel.stop();
+    }
+
+    @Override
+    public boolean registerPeer(PeerInfo peerInfo) {
+        if (peerInfo == null || peerInfo.getUserId() == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        PeerEntry created = registry.register(peerInfo.getUserId(), peerInfo.getAddress(), peerInfo.getPort(), now);
+        if (created != null) {
+            expiryWheel.schedule(created, now + PEER_TIMEOUT_MS);
+            fanOut(created.userId, true);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean unregisterPeer(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        PeerEntry removed = registry.remove(userId);
+        if (removed == null) {
+            return false;
+        }
+        // The wheel drops the entry on its next tick (no longer the registered instance)
+        fanOut(userId, false);
+        return true;
+    }
+
+    @Override
+    public List<PeerInfo> getOnlineFriends(Long userId) {
+        List<PeerInfo> result = new ArrayList<>();
+        if (userId == null) {
+            return result;
+        }
+        for (PeerEntry entry : registry.getAll(friends.getFriends(userId))) {
+            result.add(entry.toPeerInfo());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean updateHeartbeat(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        PeerEntry entry = registry.get(userId);
+        if (entry == null) {
+            return false;
+        }
+        entry.lastHeartbeat = System.currentTimeMillis();
+        return true;
+    }
+
+    @Override
+    public PeerInfo getPeerInfo(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        PeerEntry entry = registry.get(userId);
+        return entry != null ? entry.toPeerInfo() : null;
+    }
+
+    @Override
+    public PresenceUpdate heartbeat(Long userId, long presenceVersion) {
+        if (userId == null) {
+            return null;
+        }
+        PeerEntry entry = registry.get(userId);
+        if (entry == null) {
+            // Not registered (e.g. server restarted): version 0 keeps the client asking for snapshots
+            return new PresenceUpdate(0, true, getOnlineFriends(userId), new ArrayList<>());
+        }
+        entry.lastHeartbeat = System.currentTimeMillis();
+
+        synchronized (entry) {
+            if (!entry.isInSync(presenceVersion)) {
+                // Client is new or missed a response: start over from a snapshot
+                entry.clearChanges();
+                return new PresenceUpdate(entry.nextVersion(), true, getOnlineFriends(userId), new ArrayList<>());
+            }
+
+            List<PeerInfo> online = new ArrayList<>();
+            List<Long> offline = new ArrayList<>();
+            for (Map.Entry<Long, Boolean> change : entry.drainChanges().entrySet()) {
+                if (change.getValue()) {
+                    PeerEntry friend = registry.get(change.getKey());
+                    if (friend != null) {
+                        online.add(friend.toPeerInfo());
+                        continue;
+                    }
+                }
+                offline.add(change.getKey());
+            }
+            return new PresenceUpdate(entry.nextVersion(), false, online, offline);
+        }
+    }
+
+    public int getOnlineCount() {
+        return registry.size();
+    }
+
+    // ========== Friend graph changes ==========
+
+    @Override
+    public void onFriendshipAdded(long userId, long friendId) {
+        exchangePresence(userId, friendId, true);
+    }
+
+    @Override
+    public void onFriendshipRemoved(long userId, long friendId) {
+        // The other side shows as offline from now on
+        exchangePresence(userId, friendId, false);
+    }
+
+    private void exchangePresence(long userId, long friendId, boolean visible) {
+        PeerEntry user = registry.get(userId);
+        PeerEntry friend = registry.get(friendId);
+        if (user == null || friend == null) {
+            return;
+        }
+        user.recordChange(friendId, visible);
+        friend.recordChange(userId, visible);
+    }
+
+    // ========== Internals ==========
+
+    /**
+     * Pushes a join/leave into every online friend's inbox: O(degree) once per event,
+     * instead of every friend recomputing on every heartbeat.
+     */
+    private void fanOut(long userId, boolean online) {
+        for (PeerEntry friend : registry.getAll(friends.getFriends(userId))) {
+            friend.recordChange(userId, online);
+        }
+    }
+
+    private long checkExpiry(PeerEntry entry, long now) {
+        if (registry.get(entry.userId) != entry) {
+            // Unregistered or replaced since it was scheduled
+            return -1;
+        }
+        long deadline = entry.lastHeartbeat + PEER_TIMEOUT_MS;
+        if (now < deadline) {
+            return deadline;
+        }
+        if (registry.remove(entry.userId, entry)) {
+            System.out.println("⏱️ Peer expired: " + entry.userId);
+            fanOut(entry.userId, false);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,65 @@
+package vku.chatapp.server.discovery;
+
+import vku.chatapp.common.dto.PeerInfo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Server-side state of one online peer.
+ * The heartbeat timestamp is a volatile write so heartbeats never take a lock;
+ * the presence inbox is guarded by the entry itself.
+ */
+class PeerEntry {
+    final long userId;
+    volatile String address;
+    volatile int port;
+    volatile long lastHeartbeat;
+
+    // Friends whose presence changed since the last heartbeat response (friendId -> online)
+    private final Map<Long, Boolean> pendingChanges = new LinkedHashMap<>();
+    private long version;
+    private long lastSentVersion = -1;
+
+    PeerEntry(long userId, String address, int port, long now) {
+        this.userId = userId;
+        this.address = address;
+        this.port = port;
+        this.lastHeartbeat = now;
+    }
+
+    PeerInfo toPeerInfo() {
+        PeerInfo info = new PeerInfo(userId, address, port);
+        info.setLastHeartbeat(lastHeartbeat);
+        return info;
+    }
+
+    synchronized void recordChange(long friendId, boolean online) {
+        // Coalesce: only the latest state per friend matters
+        pendingChanges.remove(friendId);
+        pendingChanges.put(friendId, online);
+    }
+
+    /**
+     * Returns true when the client's version is the one we last sent, i.e. it has
+     * applied every earlier delta and can safely receive the next one.
+     */
+    synchronized boolean isInSync(long clientVersion) {
+        return clientVersion != 0 && clientVersion == lastSentVersion;
+    }
+
+    synchronized Map<Long, Boolean> drainChanges() {
+        Map<Long, Boolean> changes = new LinkedHashMap<>(pendingChanges);
+        pendingChanges.clear();
+        return changes;
+    }
+
+    synchronized void clearChanges() {
+        pendingChanges.clear();
+    }
+
+    synchronized long nextVersion() {
+        lastSentVersion = ++version;
+        return lastSentVersion;
+    }
+}
@@ -0,0 +1,87 @@
+package vku.chatapp.server.discovery;
+
+import vku.chatapp.common.constants.AppConstants;
+import vku.chatapp.common.dto.PeerInfo;
+import vku.chatapp.common.dto.PresenceUpdate;
+import vku.chatapp.server.friend.FriendAdjacencyIndex;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process load test for {@link PeerDiscoveryServiceImpl} (no RMI, measures the service itself).
+ * Usage: {@code PresenceLoadTest [users] [avgFriends] [seconds] [threads]}
+ * <p>
+ * Every simulated client heartbeats at the active interval with its last presence version;
+ * a small fraction logs out and back in each second to generate presence churn.
+ */
+public class PresenceLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int avgFriends = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        FriendAdjacencyIndex friends = new FriendAdjacencyIndex();
+        Random random = new Random(42);
+        for (long u = 1; u <= users; u++) {
+            for (int i = 0; i < avgFriends / 2; i++) {
+                friends.addFriendship(u, 1 + random.nextInt(users));
+            }
+        }
+        System.out.println("Graph: " + users + " users, ~" + avgFriends + " friends each");
+
+        PeerDiscoveryServiceImpl service = new PeerDiscoveryServiceImpl(friends);
+        service.start();
+
+        long start = System.nanoTime();
+        for (long u = 1; u <= users; u++) {
+            service.registerPeer(new PeerInfo(u, "10.0.0." + (u % 250), 5000 + (int) (u % 1000)));
+        }
+        System.out.printf("Registered %d peers in %.0f ms%n", users, (System.nanoTime() - start) / 1e6);
+
+        long[] versions = new long[users + 1];
+        LongAdder heartbeats = new LongAdder();
+        LongAdder deltaEntries = new LongAdder();
+        long deadline = System.currentTimeMillis() + seconds * 1000L;
+        // Real clients beat every HEARTBEAT_ACTIVE_MS; run flat out to find the ceiling
+        System.out.println("Required rate for " + users + " active clients: "
+                + users * 1000L / AppConstants.HEARTBEAT_ACTIVE_MS + " heartbeats/s");
+
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            Thread thread = new Thread(() -> {
+                Random r = new Random(worker);
+                try {
+                    while (System.currentTimeMillis() < deadline) {
+                        for (long u = 1 + worker; u <= users; u += threads) {
+                            if (r.nextInt(1000) == 0) {
+                                // Churn: reconnect
+                                service.unregisterPeer(u);
+                                service.registerPeer(new PeerInfo(u, "10.0.0.1", 5000));
+                            }
+                            PresenceUpdate update = service.heartbeat(u, versions[(int) u]);
+                            versions[(int) u] = update.getVersion();
+                            if (!update.isFullSnapshot()) {
+                                deltaEntries.add(update.getOnline().size() + update.getOffline().size());
+                            }
+                            heartbeats.increment();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "LoadTest-" + t);
+            thread.start();
+        }
+        done.await();
+
+        System.out.printf("%d heartbeats in %ds = %.0f/s on %d threads, %d presence changes delivered, %d online%n",
+                heartbeats.sum(), seconds, heartbeats.sum() / (double) seconds, threads,
+                deltaEntries.sum(), service.getOnlineCount());
+        service.stop();
+    }
+}
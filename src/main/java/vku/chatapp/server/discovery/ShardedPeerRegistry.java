@@ -0,0 +1,152 @@
+package vku.chatapp.server.discovery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Online peers split over power-of-two shards, each a plain HashMap behind its own
+ * read/write lock. Joins and leaves lock one shard; friend-list lookups group their
+ * ids by shard and take each shard's read lock once per batch instead of once per id.
+ */
+class ShardedPeerRegistry {
+    private final Shard[] shards;
+    private final int mask;
+
+    private static class Shard {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final Map<Long, PeerEntry> peers = new HashMap<>();
+    }
+
+    ShardedPeerRegistry(int shardCount) {
+        int size = Integer.highestOneBit(Math.max(1, shardCount - 1)) << 1;
+        this.shards = new Shard[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    private int shardIndex(long userId) {
+        // Spread sequential ids (auto-increment keys) across shards
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    PeerEntry get(long userId) {
+        Shard shard = shards[shardIndex(userId)];
+        shard.lock.readLock().lock();
+        try {
+            return shard.peers.get(userId);
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a new entry, or updates the endpoint of the existing one in place.
+     * @return the new entry if the user was offline, null if it was already registered
+     */
+    PeerEntry register(long userId, String address, int port, long now) {
+        Shard shard = shards[shardIndex(userId)];
+        shard.lock.writeLock().lock();
+        try {
+            PeerEntry existing = shard.peers.get(userId);
+            if (existing != null) {
+                existing.address = address;
+                existing.port = port;
+                existing.lastHeartbeat = now;
+                return null;
+            }
+            PeerEntry entry = new PeerEntry(userId, address, port, now);
+            shard.peers.put(userId, entry);
+            return entry;
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    PeerEntry remove(long userId) {
+        Shard shard = shards[shardIndex(userId)];
+        shard.lock.writeLock().lock();
+        try {
+            return shard.peers.remove(userId);
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the entry only if it is still the given instance (expiry must not
+     * evict a peer that re-registered in the meantime).
+     */
+    boolean remove(long userId, PeerEntry expected) {
+        Shard shard = shards[shardIndex(userId)];
+        shard.lock.writeLock().lock();
+        try {
+            return shard.peers.remove(userId, expected);
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Online entries among {@code userIds}, one read lock per touched shard.
+     */
+    List<PeerEntry> getAll(long[] userIds) {
+        List<PeerEntry> result = new ArrayList<>();
+        if (userIds.length == 0) {
+            return result;
+        }
+
+        // Bucket ids by shard (counting sort on the shard index)
+        int[] counts = new int[shards.length + 1];
+        for (long id : userIds) {
+            counts[shardIndex(id) + 1]++;
+        }
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+        long[] grouped = new long[userIds.length];
+        int[] cursor = counts.clone();
+        for (long id : userIds) {
+            grouped[cursor[shardIndex(id)]++] = id;
+        }
+
+        for (int s = 0; s < shards.length; s++) {
+            int from = counts[s];
+            int to = counts[s + 1];
+            if (from == to) {
+                continue;
+            }
+            Shard shard = shards[s];
+            shard.lock.readLock().lock();
+            try {
+                for (int i = from; i < to; i++) {
+                    PeerEntry entry = shard.peers.get(grouped[i]);
+                    if (entry != null) {
+                        result.add(entry);
+                    }
+                }
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        return result;
+    }
+
+    int size() {
+        int total = 0;
+        for (Shard shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                total += shard.peers.size();
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,81 @@
+package vku.chatapp.server.friend;
+
+import vku.chatapp.server.util.LongSetIndex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BiConsumer;
+
+/**
+ * Friend graph as one sorted {@code long[]} per user (see {@link LongSetIndex}).
+ * Friend lists change rarely and are read on every presence fan-out and friend-list
+ * poll, so reads are lock-free and allocation-free.
+ */
+public class FriendAdjacencyIndex {
+    private final LongSetIndex adjacency = new LongSetIndex();
+
+    /** Sorted friend ids; callers must not modify the returned array. */
+    public long[] getFriends(long userId) {
+        return adjacency.get(userId);
+    }
+
+    public boolean areFriends(long userId, long otherId) {
+        return adjacency.contains(userId, otherId);
+    }
+
+    public int degree(long userId) {
+        return getFriends(userId).length;
+    }
+
+    public int userCount() {
+        return adjacency.keyCount();
+    }
+
+    public void addFriendship(long a, long b) {
+        if (a == b) {
+            return;
+        }
+        adjacency.add(a, b);
+        adjacency.add(b, a);
+    }
+
+    public void removeFriendship(long a, long b) {
+        adjacency.remove(a, b);
+        adjacency.remove(b, a);
+    }
+
+    public void forEachUser(BiConsumer<Long, long[]> action) {
+        adjacency.forEach(action);
+    }
+
+    public void clear() {
+        adjacency.clear();
+    }
+
+    /**
+     * Loads "userId,friendId" lines (one edge per line, # comments allowed).
+     */
+    public int loadEdges(Path file) throws IOException {
+        int edges = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int comma = line.indexOf(',');
+                if (comma < 0) {
+                    continue;
+                }
+                addFriendship(Long.parseLong(line.substring(0, comma).trim()),
+                        Long.parseLong(line.substring(comma + 1).trim()));
+                edges++;
+            }
+        }
+        return edges;
+    }
+}
@@ -0,0 +1,310 @@
+package vku.chatapp.server.friend;
+
+import vku.chatapp.common.dto.UserDTO;
+import vku.chatapp.common.enums.FriendRequestStatus;
+import vku.chatapp.common.model.Friend;
+import vku.chatapp.common.model.User;
+import vku.chatapp.common.rmi.IFriendService;
+import vku.chatapp.common.util.MessageCodec;
+import vku.chatapp.server.user.UserDirectory;
+import vku.chatapp.server.util.LongSetIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory reference implementation of {@link IFriendService}.
+ * <ul>
+ *   <li>Friendships live in the shared {@link FriendAdjacencyIndex}.</li>
+ *   <li>Open requests are indexed twice, by receiver (pending) and by sender (sent),
+ *       as sorted request-id arrays, so every list query is O(degree) with no locking.</li>
+ *   <li>Mutations are serialized on the service. They are rare next to the constant
+ *       list polling, and a dirty graph is written to a compact binary snapshot
+ *       every few seconds and on close.</li>
+ * </ul>
+ */
+public class FriendServiceImpl implements IFriendService, Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x46524E44; // "FRND"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final long SNAPSHOT_INTERVAL_SECONDS = 5;
+
+    private final FriendAdjacencyIndex friends;
+    private final UserDirectory users;
+    private final Path snapshotFile;
+
+    private final Map<Long, Friend> requests = new ConcurrentHashMap<>();
+    private final LongSetIndex pendingByReceiver = new LongSetIndex();
+    private final LongSetIndex sentBySender = new LongSetIndex();
+    private final List<FriendshipListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService snapshotter;
+
+    private long nextRequestId = 1;
+    private volatile boolean dirty;
+
+    public FriendServiceImpl(FriendAdjacencyIndex friends, UserDirectory users, Path snapshotFile) throws IOException {
+        this.friends = friends;
+        this.users = users;
+        this.snapshotFile = snapshotFile;
+
+        if (Files.exists(snapshotFile)) {
+            long start = System.currentTimeMillis();
+            restore();
+            System.out.println("✅ Friend graph restored: " + friends.userCount() + " users, "
+                    + requests.size() + " open requests in " + (System.currentTimeMillis() - start) + " ms");
+        }
+
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "FriendGraph-Snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotter.scheduleWithFixedDelay(this::snapshotIfDirty,
+                SNAPSHOT_INTERVAL_SECONDS, SNAPSHOT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void addListener(FriendshipListener listener) {
+        listeners.add(listener);
+    }
+
+    // ========== Requests ==========
+
+    @Override
+    public synchronized boolean sendFriendRequest(Long userId, Long friendId) {
+        if (userId == null || friendId == null || userId.equals(friendId)
+                || users.get(userId) == null || users.get(friendId) == null
+                || friends.areFriends(userId, friendId)
+                || findOpenRequest(userId, friendId) != null
+                || findOpenRequest(friendId, userId) != null) {
+            return false;
+        }
+
+        Friend request = new Friend();
+        request.setId(nextRequestId++);
+        request.setUserId(userId);
+        request.setFriendId(friendId);
+        request.setStatus(FriendRequestStatus.PENDING);
+        request.setRequestedAt(LocalDateTime.now());
+        addRequest(request);
+        dirty = true;
+        return true;
+    }
+
+    @Override
+    public boolean acceptFriendRequest(Long requestId) {
+        Friend request;
+        synchronized (this) {
+            request = removeRequest(requestId);
+            if (request == null) {
+                return false;
+            }
+            friends.addFriendship(request.getUserId(), request.getFriendId());
+            dirty = true;
+        }
+        for (FriendshipListener listener : listeners) {
+            listener.onFriendshipAdded(request.getUserId(), request.getFriendId());
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean rejectFriendRequest(Long requestId) {
+        if (removeRequest(requestId) == null) {
+            return false;
+        }
+        dirty = true;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean cancelFriendRequest(Long requestId, Long userId) {
+        Friend request = requestId != null ? requests.get(requestId) : null;
+        // Only the sender may cancel
+        if (request == null || !request.getUserId().equals(userId)) {
+            return false;
+        }
+        removeRequest(requestId);
+        dirty = true;
+        return true;
+    }
+
+    @Override
+    public boolean removeFriend(Long userId, Long friendId) {
+        if (userId == null || friendId == null) {
+            return false;
+        }
+        synchronized (this) {
+            if (!friends.areFriends(userId, friendId)) {
+                return false;
+            }
+            friends.removeFriendship(userId, friendId);
+            dirty = true;
+        }
+        for (FriendshipListener listener : listeners) {
+            listener.onFriendshipRemoved(userId, friendId);
+        }
+        return true;
+    }
+
+    // ========== Queries (lock-free) ==========
+
+    @Override
+    public List<UserDTO> getFriendList(Long userId) {
+        if (userId == null) {
+            return new ArrayList<>();
+        }
+        return users.toDTOs(friends.getFriends(userId));
+    }
+
+    @Override
+    public List<Friend> getPendingRequests(Long userId) {
+        return userId != null ? requestsFor(pendingByReceiver.get(userId)) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Friend> getSentRequests(Long userId) {
+        return userId != null ? requestsFor(sentBySender.get(userId)) : new ArrayList<>();
+    }
+
+    @Override
+    public UserDTO searchUserByUsername(String username) {
+        User user = users.findByUsername(username);
+        return user != null ? UserDirectory.toDTO(user) : null;
+    }
+
+    // ========== Internals ==========
+
+    private List<Friend> requestsFor(long[] requestIds) {
+        List<Friend> result = new ArrayList<>(requestIds.length);
+        for (long id : requestIds) {
+            Friend request = requests.get(id);
+            if (request != null) {
+                result.add(request);
+            }
+        }
+        return result;
+    }
+
+    /** O(sent-degree) scan of the sender's open requests. */
+    private Friend findOpenRequest(long senderId, long receiverId) {
+        for (long id : sentBySender.get(senderId)) {
+            Friend request = requests.get(id);
+            if (request != null && request.getFriendId() == receiverId) {
+                return request;
+            }
+        }
+        return null;
+    }
+
+    private void addRequest(Friend request) {
+        requests.put(request.getId(), request);
+        pendingByReceiver.add(request.getFriendId(), request.getId());
+        sentBySender.add(request.getUserId(), request.getId());
+    }
+
+    private Friend removeRequest(Long requestId) {
+        Friend request = requestId != null ? requests.remove(requestId) : null;
+        if (request != null) {
+            pendingByReceiver.remove(request.getFriendId(), requestId);
+            sentBySender.remove(request.getUserId(), requestId);
+        }
+        return request;
+    }
+
+    // ========== Snapshot ==========
+
+    private void snapshotIfDirty() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (IOException e) {
+            System.err.println("❌ Friend graph snapshot failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the graph to a temp file and atomically swaps it in.
+     * Layout: magic, version, next request id, edge count, edges (each once, low id first),
+     * request count, requests (id, from, to, requested-at millis).
+     */
+    public synchronized void snapshot() throws IOException {
+        dirty = false;
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(nextRequestId);
+
+            List<long[]> edges = new ArrayList<>();
+            friends.forEachUser((userId, row) -> {
+                for (long friendId : row) {
+                    if (userId < friendId) {
+                        edges.add(new long[]{userId, friendId});
+                    }
+                }
+            });
+            out.writeInt(edges.size());
+            for (long[] edge : edges) {
+                out.writeLong(edge[0]);
+                out.writeLong(edge[1]);
+            }
+
+            out.writeInt(requests.size());
+            for (Friend request : requests.values()) {
+                out.writeLong(request.getId());
+                out.writeLong(request.getUserId());
+                out.writeLong(request.getFriendId());
+                out.writeLong(MessageCodec.toEpochMillis(request.getRequestedAt()));
+            }
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void restore() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a friend graph snapshot: " + snapshotFile);
+            }
+            nextRequestId = in.readLong();
+
+            int edgeCount = in.readInt();
+            for (int i = 0; i < edgeCount; i++) {
+                friends.addFriendship(in.readLong(), in.readLong());
+            }
+
+            int requestCount = in.readInt();
+            for (int i = 0; i < requestCount; i++) {
+                Friend request = new Friend();
+                request.setId(in.readLong());
+                request.setUserId(in.readLong());
+                request.setFriendId(in.readLong());
+                request.setRequestedAt(MessageCodec.fromEpochMillis(in.readLong()));
+                request.setStatus(FriendRequestStatus.PENDING);
+                addRequest(request);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdownNow();
+        snapshot();
+    }
+}
@@ -0,0 +1,10 @@
+package vku.chatapp.server.friend;
+
+/**
+ * Notified after the friend graph changes (e.g. so presence can tell both sides).
+ */
+public interface FriendshipListener {
+    void onFriendshipAdded(long userId, long friendId);
+
+    void onFriendshipRemoved(long userId, long friendId);
+}
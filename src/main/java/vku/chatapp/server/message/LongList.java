@@ -0,0 +1,63 @@
+package vku.chatapp.server.message;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive long list (no boxing), synchronized so readers can
+ * copy a consistent tail while the writer appends.
+ */
+class LongList {
+    private long[] values;
+    private int size;
+
+    LongList(int initialCapacity) {
+        this.values = new long[Math.max(1, initialCapacity)];
+    }
+
+    synchronized void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    synchronized long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return values[index];
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Last {@code limit} values, newest first.
+     */
+    synchronized long[] newestFirst(int limit) {
+        int count = Math.min(limit, size);
+        long[] result = new long[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = values[size - 1 - i];
+        }
+        return result;
+    }
+
+    /**
+     * Up to {@code limit} values greater than {@code value}, oldest first.
+     * Only meaningful for lists appended in ascending order.
+     */
+    synchronized long[] after(long value, int limit) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return Arrays.copyOfRange(values, lo, lo + Math.min(limit, size - lo));
+    }
+}
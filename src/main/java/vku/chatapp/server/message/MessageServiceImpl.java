@@ -0,0 +1,465 @@
+package vku.chatapp.server.message;
+
+import vku.chatapp.common.dto.ConversationSummary;
+import vku.chatapp.common.enums.MessageStatus;
+import vku.chatapp.common.model.Message;
+import vku.chatapp.common.rmi.IMessageService;
+import vku.chatapp.common.util.MessageCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.rmi.RemoteException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File-backed reference implementation of {@link IMessageService}.
+ * <ul>
+ *   <li>Message bodies go to a {@link SegmentedMessageLog} and are never rewritten.</li>
+ *   <li>Each 1:1 conversation keeps the log offsets of its messages in order, so a history
+ *       read of depth N touches exactly N records, newest first, through the mapping.</li>
+ *   <li>Status changes go to the {@link StatusTable}.</li>
+ *   <li>Unread counters and previews are updated on every save / status change
+ *       and rebuilt from the log at startup.</li>
+ *   <li>Saves are idempotent by client message id, so clients replaying an offline
+ *       outbox after a lost reply never create duplicates.</li>
+ * </ul>
+ * Data is flushed to disk once a second; a crash loses at most that window.
+ */
+public class MessageServiceImpl implements IMessageService, Closeable {
+    private static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+    private static final int PREVIEW_LENGTH = 40;
+
+    private final SegmentedMessageLog log;
+    private final StatusTable statusTable;
+    private final Object appendLock = new Object();
+
+    // message id - 1 -> log offset
+    private final LongList offsetsById = new LongList(1024);
+    private final Map<ConversationKey, LongList> conversations = new ConcurrentHashMap<>();
+    // client message id -> message id; written under appendLock
+    private final Map<String, Long> idsByClientId = new ConcurrentHashMap<>();
+    // receiver -> (friend -> summary); guarded by the receiver's inner map
+    private final Map<Long, Map<Long, ConversationSummary>> summaries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public MessageServiceImpl(Path dataDirectory) throws IOException {
+        Files.createDirectories(dataDirectory);
+        this.log = new SegmentedMessageLog(dataDirectory.resolve("messages"), SEGMENT_BYTES);
+        this.statusTable = new StatusTable(dataDirectory.resolve("message-status.dat"));
+
+        long start = System.currentTimeMillis();
+        log.recover(this::indexRecovered);
+        System.out.println("✅ Message store recovered " + offsetsById.size() + " messages in "
+                + (System.currentTimeMillis() - start) + " ms");
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MessageStore-Flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Message saveMessage(Message message) throws RemoteException {
+        return save(message);
+    }
+
+    @Override
+    public List<Message> saveMessages(List<Message> messages) throws RemoteException {
+        List<Message> result = new ArrayList<>();
+        if (messages == null) {
+            return result;
+        }
+        for (Message message : messages) {
+            result.add(save(message));
+        }
+        return result;
+    }
+
+    private Message save(Message message) throws RemoteException {
+        Message stored = copyOf(message);
+        if (stored.getSentAt() == null) {
+            stored.setSentAt(LocalDateTime.now());
+        }
+        MessageStatus status = stored.getStatus() != null ? stored.getStatus() : MessageStatus.SENT;
+        stored.setStatus(status);
+        String clientId = stored.getClientMessageId();
+
+        synchronized (appendLock) {
+            Long existing = clientId != null ? idsByClientId.get(clientId) : null;
+            if (existing != null) {
+                // A retried upload: hand back what the first attempt stored, with the status the
+                // client folded into the retry since
+                return retried(existing, status);
+            }
+            long id = offsetsById.size() + 1L;
+            stored.setId(id);
+            try {
+                long offset = log.append(MessageCodec.encode(stored));
+                offsetsById.add(offset);
+                statusTable.set(id, status, System.currentTimeMillis());
+                indexConversation(stored, offset);
+                if (clientId != null) {
+                    idsByClientId.put(clientId, id);
+                }
+            } catch (IOException e) {
+                throw storageError(e);
+            }
+        }
+
+        onSaved(stored, status);
+        return stored;
+    }
+
+    @Override
+    public List<Message> getConversationHistory(Long user1Id, Long user2Id, int limit) {
+        List<Message> result = new ArrayList<>();
+        if (user1Id == null || user2Id == null || limit <= 0) {
+            return result;
+        }
+        LongList offsets = conversations.get(new ConversationKey(user1Id, user2Id));
+        if (offsets == null) {
+            return result;
+        }
+        for (long offset : offsets.newestFirst(limit)) {
+            result.add(readMessage(offset));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Message> getMessagesSince(Long user1Id, Long user2Id, long afterMessageId, int limit) {
+        List<Message> result = new ArrayList<>();
+        if (user1Id == null || user2Id == null || limit <= 0 || afterMessageId >= offsetsById.size()) {
+            return result;
+        }
+        LongList offsets = conversations.get(new ConversationKey(user1Id, user2Id));
+        if (offsets == null) {
+            return result;
+        }
+        // Ids and log offsets grow together, so "after this id" is "after its offset"
+        long afterOffset = afterMessageId >= 1 ? offsetsById.get((int) (afterMessageId - 1)) : -1;
+        for (long offset : offsets.after(afterOffset, limit)) {
+            result.add(readMessage(offset));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean updateMessageStatus(Long messageId, String status) throws RemoteException {
+        if (messageId == null || messageId < 1 || messageId > offsetsById.size()) {
+            return false;
+        }
+        MessageStatus newStatus;
+        try {
+            newStatus = MessageStatus.valueOf(status);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return false;
+        }
+
+        MessageStatus oldStatus;
+        synchronized (statusTable) {
+            oldStatus = statusTable.getStatus(messageId);
+            try {
+                statusTable.set(messageId, newStatus, System.currentTimeMillis());
+            } catch (IOException e) {
+                throw storageError(e);
+            }
+        }
+
+        if (oldStatus != MessageStatus.READ && newStatus == MessageStatus.READ) {
+            Message message = readMessage(offsetsById.get((int) (messageId - 1)));
+            adjustUnread(message.getReceiverId(), message.getSenderId(), -1);
+        }
+        return true;
+    }
+
+    @Override
+    public int updateMessageStatuses(Map<Long, String> statuses) throws RemoteException {
+        int applied = 0;
+        if (statuses == null) {
+            return applied;
+        }
+        for (Map.Entry<Long, String> entry : statuses.entrySet()) {
+            if (updateMessageStatus(entry.getKey(), entry.getValue())) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    @Override
+    public int getUnreadCount(Long userId) {
+        int total = 0;
+        for (ConversationSummary summary : getConversationSummaries(userId).values()) {
+            total += summary.getUnreadCount();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<Long, Integer> getUnreadCounts(Long userId) {
+        Map<Long, Integer> counts = new HashMap<>();
+        getConversationSummaries(userId).forEach((friendId, summary) -> {
+            if (summary.getUnreadCount() > 0) {
+                counts.put(friendId, summary.getUnreadCount());
+            }
+        });
+        return counts;
+    }
+
+    @Override
+    public Map<Long, ConversationSummary> getConversationSummaries(Long userId) {
+        Map<Long, ConversationSummary> copy = new HashMap<>();
+        Map<Long, ConversationSummary> byFriend = userId != null ? summaries.get(userId) : null;
+        if (byFriend == null) {
+            return copy;
+        }
+        synchronized (byFriend) {
+            byFriend.forEach((friendId, summary) -> copy.put(friendId, copyOf(summary)));
+        }
+        return copy;
+    }
+
+    @Override
+    public int markConversationRead(Long userId, Long friendId) throws RemoteException {
+        LongList offsets = userId != null && friendId != null
+                ? conversations.get(new ConversationKey(userId, friendId))
+                : null;
+        if (offsets == null) {
+            return 0;
+        }
+
+        int remaining = unreadFor(userId, friendId);
+        if (remaining <= 0) {
+            return 0;
+        }
+
+        // Walk back from the newest message until the unread ones are exhausted; the list only
+        // grows, so indices below the size read here stay put
+        int changed = 0;
+        long now = System.currentTimeMillis();
+        for (int i = offsets.size() - 1; i >= 0 && remaining > 0; i--) {
+            Message message = MessageCodec.decode(log.read(offsets.get(i)));
+            if (!friendId.equals(message.getSenderId())) {
+                continue;
+            }
+            synchronized (statusTable) {
+                if (statusTable.getStatus(message.getId()) != MessageStatus.READ) {
+                    try {
+                        statusTable.set(message.getId(), MessageStatus.READ, now);
+                    } catch (IOException e) {
+                        throw storageError(e);
+                    }
+                    changed++;
+                    remaining--;
+                }
+            }
+        }
+        adjustUnread(userId, friendId, -changed);
+        return changed;
+    }
+
+    public long getMessageCount() {
+        return offsetsById.size();
+    }
+
+    public void flush() {
+        try {
+            log.force();
+            statusTable.force();
+        } catch (Exception e) {
+            System.err.println("❌ Message store flush failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdownNow();
+        log.close();
+        statusTable.close();
+    }
+
+    // ========== Internals ==========
+
+    private void indexRecovered(long offset, ByteBuffer payload) {
+        Message message = MessageCodec.decode(payload);
+        offsetsById.add(offset);
+        indexConversation(message, offset);
+        if (message.getClientMessageId() != null) {
+            idsByClientId.put(message.getClientMessageId(), message.getId());
+        }
+        MessageStatus status = statusTable.getStatus(message.getId());
+        onSaved(message, status);
+    }
+
+    // Sender-side statuses give way to the retry's; one the receiver set (DELIVERED, READ) stays
+    private Message retried(long id, MessageStatus status) throws RemoteException {
+        boolean nowRead = false;
+        synchronized (statusTable) {
+            MessageStatus oldStatus = statusTable.getStatus(id);
+            boolean senderOwned = oldStatus == MessageStatus.SENDING || oldStatus == MessageStatus.SENT
+                    || oldStatus == MessageStatus.FAILED;
+            if (senderOwned && status != oldStatus) {
+                try {
+                    statusTable.set(id, status, System.currentTimeMillis());
+                } catch (IOException e) {
+                    throw storageError(e);
+                }
+                nowRead = status == MessageStatus.READ;
+            }
+        }
+
+        Message message = readMessage(offsetsById.get((int) (id - 1)));
+        if (nowRead) {
+            adjustUnread(message.getReceiverId(), message.getSenderId(), -1);
+        }
+        return message;
+    }
+
+    private void indexConversation(Message message, long offset) {
+        if (message.getSenderId() == null || message.getReceiverId() == null) {
+            return;
+        }
+        conversations.computeIfAbsent(new ConversationKey(message.getSenderId(), message.getReceiverId()),
+                key -> new LongList(16)).add(offset);
+    }
+
+    private void onSaved(Message message, MessageStatus status) {
+        Long sender = message.getSenderId();
+        Long receiver = message.getReceiverId();
+        if (sender == null || receiver == null) {
+            return;
+        }
+        updateSummary(receiver, sender, message, status != MessageStatus.READ ? 1 : 0);
+        updateSummary(sender, receiver, message, 0);
+    }
+
+    private void updateSummary(Long owner, Long friendId, Message message, int unreadDelta) {
+        Map<Long, ConversationSummary> byFriend = summaries.computeIfAbsent(owner, id -> new HashMap<>());
+        synchronized (byFriend) {
+            ConversationSummary summary = byFriend.computeIfAbsent(friendId, ConversationSummary::new);
+            summary.setUnreadCount(summary.getUnreadCount() + unreadDelta);
+            summary.setLastMessagePreview(preview(message.getContent()));
+            summary.setLastSenderId(message.getSenderId());
+            summary.setLastMessageAt(message.getSentAt());
+        }
+    }
+
+    private void adjustUnread(Long owner, Long friendId, int delta) {
+        if (owner == null || friendId == null || delta == 0) {
+            return;
+        }
+        Map<Long, ConversationSummary> byFriend = summaries.get(owner);
+        if (byFriend == null) {
+            return;
+        }
+        synchronized (byFriend) {
+            ConversationSummary summary = byFriend.get(friendId);
+            if (summary != null) {
+                summary.setUnreadCount(Math.max(0, summary.getUnreadCount() + delta));
+            }
+        }
+    }
+
+    private int unreadFor(Long owner, Long friendId) {
+        Map<Long, ConversationSummary> byFriend = summaries.get(owner);
+        if (byFriend == null) {
+            return 0;
+        }
+        synchronized (byFriend) {
+            ConversationSummary summary = byFriend.get(friendId);
+            return summary != null ? summary.getUnreadCount() : 0;
+        }
+    }
+
+    private Message readMessage(long offset) {
+        Message message = MessageCodec.decode(log.read(offset));
+        MessageStatus status = statusTable.getStatus(message.getId());
+        message.setStatus(status);
+        long changedAt = statusTable.getTimestamp(message.getId());
+        if (status == MessageStatus.DELIVERED) {
+            message.setDeliveredAt(MessageCodec.fromEpochMillis(changedAt));
+        } else if (status == MessageStatus.READ) {
+            message.setReadAt(MessageCodec.fromEpochMillis(changedAt));
+        }
+        return message;
+    }
+
+    private static RemoteException storageError(IOException e) {
+        return new RemoteException("Message store error: " + e.getMessage(), e);
+    }
+
+    private static String preview(String content) {
+        if (content == null) {
+            return "";
+        }
+        String preview = content.replace('\n', ' ');
+        return preview.length() > PREVIEW_LENGTH ? preview.substring(0, PREVIEW_LENGTH) + "…" : preview;
+    }
+
+    private static Message copyOf(Message source) {
+        Message copy = new Message();
+        copy.setId(source.getId());
+        copy.setClientMessageId(source.getClientMessageId());
+        copy.setSenderId(source.getSenderId());
+        copy.setReceiverId(source.getReceiverId());
+        copy.setGroupId(source.getGroupId());
+        copy.setContent(source.getContent());
+        copy.setType(source.getType());
+        copy.setStatus(source.getStatus());
+        copy.setFileUrl(source.getFileUrl());
+        copy.setFileName(source.getFileName());
+        copy.setFileSize(source.getFileSize());
+        copy.setSentAt(source.getSentAt());
+        copy.setDeliveredAt(source.getDeliveredAt());
+        copy.setReadAt(source.getReadAt());
+        return copy;
+    }
+
+    private static ConversationSummary copyOf(ConversationSummary source) {
+        ConversationSummary copy = new ConversationSummary(source.getFriendId());
+        copy.setUnreadCount(source.getUnreadCount());
+        copy.setLastMessagePreview(source.getLastMessagePreview());
+        copy.setLastSenderId(source.getLastSenderId());
+        copy.setLastMessageAt(source.getLastMessageAt());
+        return copy;
+    }
+
+    /** Unordered user pair. */
+    private static final class ConversationKey {
+        private final long low;
+        private final long high;
+
+        ConversationKey(long a, long b) {
+            this.low = Math.min(a, b);
+            this.high = Math.max(a, b);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ConversationKey)) {
+                return false;
+            }
+            ConversationKey other = (ConversationKey) o;
+            return low == other.low && high == other.high;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(low * 31 + high);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package vku.chatapp.server.message;
+
+import vku.chatapp.common.enums.MessageType;
+import vku.chatapp.common.model.Message;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Save throughput and history latency by depth for {@link MessageServiceImpl}.
+ * Usage: {@code MessageStoreBenchmark [messages] [conversations] [threads] [dataDir]}
+ */
+public class MessageStoreBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int conversations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        Path dataDir = args.length > 3 ? Path.of(args[3]) : Files.createTempDirectory("message-bench");
+
+        try (MessageServiceImpl store = new MessageServiceImpl(dataDir)) {
+            int perThread = messages / threads;
+            CountDownLatch done = new CountDownLatch(threads);
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                new Thread(() -> {
+                    try {
+                        for (int i = 0; i < perThread; i++) {
+                            long conversation = (worker * (long) perThread + i) % conversations;
+                            Message m = new Message();
+                            m.setSenderId(conversation * 2 + 1 + (i & 1));
+                            m.setReceiverId(conversation * 2 + 2 - (i & 1));
+                            m.setType(MessageType.TEXT);
+                            m.setContent("Benchmark message " + i + " in conversation " + conversation);
+                            store.saveMessage(m);
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    } finally {
+                        done.countDown();
+                    }
+                }, "Bench-" + t).start();
+            }
+            done.await();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long saved = (long) perThread * threads;
+            System.out.printf("Saved %d messages in %.2fs = %.0f saves/s on %d threads (%.0f/s per thread), %d in store%n",
+                    saved, seconds, saved / seconds, threads, saved / seconds / threads, store.getMessageCount());
+
+            System.out.printf("%-8s %10s %10s %10s%n", "Depth", "p50 us", "p99 us", "max us");
+            for (int depth : new int[]{20, 100, 500, 1000}) {
+                long[] samples = new long[2000];
+                for (int i = 0; i < samples.length; i++) {
+                    long conversation = i % conversations;
+                    long s = System.nanoTime();
+                    store.getConversationHistory(conversation * 2 + 1, conversation * 2 + 2, depth);
+                    samples[i] = System.nanoTime() - s;
+                }
+                Arrays.sort(samples);
+                System.out.printf("%-8d %10.1f %10.1f %10.1f%n", depth,
+                        samples[samples.length / 2] / 1e3,
+                        samples[samples.length * 99 / 100] / 1e3,
+                        samples[samples.length - 1] / 1e3);
+            }
+            System.out.println("Data: " + dataDir);
+        }
+    }
+}
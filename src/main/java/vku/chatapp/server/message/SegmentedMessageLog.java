@@ -0,0 +1,164 @@
+package vku.chatapp.server.message;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only record log split into fixed-size, preallocated, memory-mapped segments.
+ * Offsets are global: {@code offset / segmentBytes} is the segment index, so a read
+ * is one array lookup plus a slice of the mapping, with no syscalls and no copying.
+ * <p>
+ * Record layout: int payload length, int CRC32 of the payload, payload.
+ * A zero length marks the end of data (segments are zero-filled when created);
+ * recovery also stops at the first CRC mismatch, dropping a torn last write.
+ */
+class SegmentedMessageLog implements Closeable {
+    private static final int HEADER_BYTES = 8;
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(long offset, ByteBuffer payload);
+    }
+
+    private static class Segment {
+        final FileChannel channel;
+        final MappedByteBuffer map;
+
+        Segment(FileChannel channel, MappedByteBuffer map) {
+            this.channel = channel;
+            this.map = map;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final List<Segment> segments = new ArrayList<>();
+    private volatile Segment[] segmentView = new Segment[0];
+    private int writePosition;
+
+    SegmentedMessageLog(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+        for (int i = 0; i < files.size(); i++) {
+            if (!files.get(i).getFileName().toString().equals(segmentName(i))) {
+                throw new IOException("Missing or unexpected log segment: " + files.get(i));
+            }
+            openSegment(i);
+        }
+        if (segments.isEmpty()) {
+            openSegment(0);
+        }
+    }
+
+    /**
+     * Scans every record in order and positions the writer after the last valid one.
+     */
+    synchronized void recover(RecordVisitor visitor) {
+        CRC32 crc = new CRC32();
+        for (int s = 0; s < segments.size(); s++) {
+            MappedByteBuffer map = segments.get(s).map;
+            int position = 0;
+            while (position + HEADER_BYTES <= segmentBytes) {
+                int length = map.getInt(position);
+                if (length <= 0 || position + HEADER_BYTES + length > segmentBytes) {
+                    break;
+                }
+                ByteBuffer payload = map.slice(position + HEADER_BYTES, length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != map.getInt(position + 4)) {
+                    System.err.println("⚠️ Torn record at segment " + s + " offset " + position + ", truncating");
+                    break;
+                }
+                visitor.visit((long) s * segmentBytes + position, payload);
+                position += HEADER_BYTES + length;
+            }
+            writePosition = position;
+        }
+    }
+
+    /**
+     * @return the global offset of the new record
+     */
+    synchronized long append(byte[] payload) throws IOException {
+        int recordBytes = HEADER_BYTES + payload.length;
+        if (recordBytes > segmentBytes) {
+            throw new IOException("Record of " + payload.length + " bytes exceeds segment size");
+        }
+        if (writePosition + recordBytes > segmentBytes) {
+            openSegment(segments.size());
+            writePosition = 0;
+        }
+
+        int segmentIndex = segments.size() - 1;
+        MappedByteBuffer map = segments.get(segmentIndex).map;
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        map.put(writePosition + HEADER_BYTES, payload);
+        map.putInt(writePosition + 4, (int) crc.getValue());
+        // Length last: a crash before this leaves a zero length, i.e. no record
+        map.putInt(writePosition, payload.length);
+
+        long offset = (long) segmentIndex * segmentBytes + writePosition;
+        writePosition += recordBytes;
+        return offset;
+    }
+
+    /**
+     * Zero-copy view of the record payload at {@code offset}.
+     */
+    ByteBuffer read(long offset) {
+        Segment[] view = segmentView;
+        int segmentIndex = (int) (offset / segmentBytes);
+        int position = (int) (offset % segmentBytes);
+        MappedByteBuffer map = view[segmentIndex].map;
+        int length = map.getInt(position);
+        return map.slice(position + HEADER_BYTES, length);
+    }
+
+    /** Flushes the active segment to disk. */
+    synchronized void force() {
+        segments.get(segments.size() - 1).map.force();
+    }
+
+    long sizeBytes() {
+        return (long) segmentView.length * segmentBytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+    }
+
+    private void openSegment(int index) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(segmentName(index)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segments.add(new Segment(channel, map));
+        segmentView = segments.toArray(new Segment[0]);
+    }
+
+    private static String segmentName(int index) {
+        return String.format("%010d.log", index);
+    }
+}
@@ -0,0 +1,73 @@
+package vku.chatapp.server.message;
+
+import vku.chatapp.common.enums.MessageStatus;
+import vku.chatapp.common.util.MessageCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Mutable per-message state kept out of the append log: one 9-byte slot per message id
+ * (status byte + epoch millis of the last transition) in a memory-mapped file.
+ * A status update is a 9-byte write instead of rewriting the message record.
+ */
+class StatusTable implements Closeable {
+    private static final int SLOT_BYTES = 9;
+    private static final int GROW_SLOTS = 1 << 20;
+
+    private final FileChannel channel;
+    private MappedByteBuffer map;
+    private long capacitySlots;
+
+    StatusTable(Path file) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long existing = channel.size() / SLOT_BYTES;
+        remap(Math.max(existing, GROW_SLOTS));
+    }
+
+    synchronized void set(long messageId, MessageStatus status, long timestamp) throws IOException {
+        if (messageId >= capacitySlots) {
+            remap(Math.max(capacitySlots * 2, messageId + GROW_SLOTS));
+        }
+        int position = (int) (messageId * SLOT_BYTES);
+        map.putLong(position + 1, timestamp);
+        map.put(position, MessageCodec.statusToByte(status));
+    }
+
+    synchronized MessageStatus getStatus(long messageId) {
+        if (messageId >= capacitySlots) {
+            return null;
+        }
+        return MessageCodec.statusFromByte(map.get((int) (messageId * SLOT_BYTES)));
+    }
+
+    synchronized long getTimestamp(long messageId) {
+        if (messageId >= capacitySlots) {
+            return 0;
+        }
+        return map.getLong((int) (messageId * SLOT_BYTES) + 1);
+    }
+
+    synchronized void force() {
+        map.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void remap(long slots) throws IOException {
+        if (slots * SLOT_BYTES > Integer.MAX_VALUE) {
+            throw new IOException("Status table full");
+        }
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, slots * SLOT_BYTES);
+        capacitySlots = slots;
+    }
+}
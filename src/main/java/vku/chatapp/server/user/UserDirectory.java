@@ -0,0 +1,171 @@
+package vku.chatapp.server.user;
+
+import vku.chatapp.common.dto.UserDTO;
+import vku.chatapp.common.enums.UserStatus;
+import vku.chatapp.common.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory user table shared by the reference services.
+ * Usernames and emails are unique, compared case-insensitively.
+ * {@link UserDirectorySnapshot} keeps it on disk; edits made on a {@link User} directly must
+ * {@link #markDirty} to be saved.
+ */
+public class UserDirectory {
+    private final Map<Long, User> usersById = new ConcurrentHashMap<>();
+    private final Map<String, User> usersByUsername = new ConcurrentHashMap<>();
+    private final Map<String, User> usersByEmail = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final UserSearchIndex searchIndex = new UserSearchIndex();
+    // Changed since the last snapshot
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * @return the new user, or null if the username or email is taken
+     */
+    public synchronized User create(String username, String email, String passwordHash, String displayName) {
+        if (findByUsername(username) != null || findByEmail(email) != null) {
+            return null;
+        }
+        User user = new User(nextId.getAndIncrement(), username, email);
+        user.setPasswordHash(passwordHash);
+        user.setDisplayName(displayName != null ? displayName : username);
+        user.setStatus(UserStatus.OFFLINE);
+        user.setCreatedAt(LocalDateTime.now());
+        add(user);
+        return user;
+    }
+
+    /** Adds an existing user (snapshot restore, seeding). */
+    public synchronized void add(User user) {
+        usersById.put(user.getId(), user);
+        usersByUsername.put(key(user.getUsername()), user);
+        if (user.getEmail() != null) {
+            usersByEmail.put(key(user.getEmail()), user);
+        }
+        nextId.accumulateAndGet(user.getId() + 1, Math::max);
+        searchIndex.add(user.getId(), user.getUsername(), user.getDisplayName());
+        dirty.set(true);
+    }
+
+    /** Seeds many users with a single search-index build. */
+    public synchronized void addAll(Collection<User> users) {
+        for (User user : users) {
+            usersById.put(user.getId(), user);
+            usersByUsername.put(key(user.getUsername()), user);
+            if (user.getEmail() != null) {
+                usersByEmail.put(key(user.getEmail()), user);
+            }
+            nextId.accumulateAndGet(user.getId() + 1, Math::max);
+        }
+        searchIndex.addAll(usersById.values());
+        dirty.set(true);
+    }
+
+    /**
+     * Applies a profile edit; a changed display name is re-indexed for search.
+     * Null arguments leave the field unchanged.
+     */
+    public synchronized boolean updateProfile(long userId, String displayName, String bio, String avatarUrl) {
+        User user = get(userId);
+        if (user == null) {
+            return false;
+        }
+        if (displayName != null && !displayName.equals(user.getDisplayName())) {
+            searchIndex.remove(userId, user.getUsername(), user.getDisplayName());
+            user.setDisplayName(displayName);
+            searchIndex.add(userId, user.getUsername(), displayName);
+        }
+        if (bio != null) {
+            user.setBio(bio);
+        }
+        if (avatarUrl != null) {
+            user.setAvatarUrl(avatarUrl);
+        }
+        dirty.set(true);
+        return true;
+    }
+
+    /** Records a change made on a {@link User} directly (password, verification) for the next snapshot. */
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    /** Whether anything changed since the last call. */
+    boolean takeDirty() {
+        return dirty.getAndSet(false);
+    }
+
+    UserSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /** Best-first matches for search-as-you-type, see {@link UserSearchIndex#search}. */
+    public List<UserDTO> search(String query, int limit) {
+        return toDTOs(searchIndex.search(query, limit));
+    }
+
+    public User get(long userId) {
+        return usersById.get(userId);
+    }
+
+    public User findByUsername(String username) {
+        return username != null ? usersByUsername.get(key(username)) : null;
+    }
+
+    public User findByEmail(String email) {
+        return email != null ? usersByEmail.get(key(email)) : null;
+    }
+
+    public Collection<User> all() {
+        return usersById.values();
+    }
+
+    public int size() {
+        return usersById.size();
+    }
+
+    public UserDTO toDTO(long userId) {
+        User user = get(userId);
+        return user != null ? toDTO(user) : null;
+    }
+
+    /**
+     * DTOs for a list of ids, skipping unknown ones; sized up front so the list never regrows.
+     */
+    public List<UserDTO> toDTOs(long[] userIds) {
+        List<UserDTO> result = new ArrayList<>(userIds.length);
+        for (long id : userIds) {
+            User user = usersById.get(id);
+            if (user != null) {
+                result.add(toDTO(user));
+            }
+        }
+        return result;
+    }
+
+    public static UserDTO toDTO(User user) {
+        UserDTO dto = new UserDTO();
+        dto.setId(user.getId());
+        dto.setUsername(user.getUsername());
+        dto.setEmail(user.getEmail());
+        dto.setDisplayName(user.getDisplayName());
+        dto.setAvatarUrl(user.getAvatarUrl());
+        dto.setBio(user.getBio());
+        dto.setStatus(user.getStatus() != null ? user.getStatus() : UserStatus.OFFLINE);
+        return dto;
+    }
+
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
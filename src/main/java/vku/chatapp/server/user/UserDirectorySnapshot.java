@@ -0,0 +1,164 @@
+package vku.chatapp.server.user;
+
+import vku.chatapp.common.enums.UserStatus;
+import vku.chatapp.common.model.User;
+import vku.chatapp.common.util.MessageCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a {@link UserDirectory} on disk the way the friend graph is kept: restored from a
+ * compact binary snapshot on start, written again every few seconds when the directory changed,
+ * and on close. Presence is not kept; everyone comes back {@link UserStatus#OFFLINE}.
+ */
+public class UserDirectorySnapshot implements Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x55534552; // "USER"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final long SNAPSHOT_INTERVAL_SECONDS = 5;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final UserDirectory users;
+    private final Path snapshotFile;
+    private final ScheduledExecutorService snapshotter;
+
+    public UserDirectorySnapshot(UserDirectory users, Path snapshotFile) throws IOException {
+        this.users = users;
+        this.snapshotFile = snapshotFile;
+        Files.createDirectories(snapshotFile.toAbsolutePath().getParent());
+
+        if (Files.exists(snapshotFile)) {
+            long start = System.currentTimeMillis();
+            // Users seeded before the restore still need saving; the restored ones do not
+            boolean seeded = users.takeDirty();
+            restore();
+            users.takeDirty();
+            if (seeded) {
+                users.markDirty();
+            }
+            System.out.println("✅ User directory restored: " + users.size() + " users in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "UserDirectory-Snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotter.scheduleWithFixedDelay(this::snapshotIfDirty,
+                SNAPSHOT_INTERVAL_SECONDS, SNAPSHOT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void snapshotIfDirty() {
+        if (!users.takeDirty()) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (IOException e) {
+            users.markDirty();
+            System.err.println("❌ User directory snapshot failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the directory to a temp file and atomically swaps it in.
+     * Layout: magic, version, user count, users (id, username, email, password hash, display name,
+     * avatar url, bio, created-at and last-seen millis, email verified).
+     */
+    public synchronized void snapshot() throws IOException {
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        List<User> all = new ArrayList<>(users.all());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(all.size());
+            for (User user : all) {
+                out.writeLong(user.getId());
+                writeString(out, user.getUsername());
+                writeString(out, user.getEmail());
+                writeString(out, user.getPasswordHash());
+                writeString(out, user.getDisplayName());
+                writeString(out, user.getAvatarUrl());
+                writeString(out, user.getBio());
+                writeTime(out, user.getCreatedAt());
+                writeTime(out, user.getLastSeen());
+                out.writeBoolean(user.isEmailVerified());
+            }
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void restore() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a user directory snapshot: " + snapshotFile);
+            }
+            int count = in.readInt();
+            List<User> restored = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                User user = new User(in.readLong(), readString(in), readString(in));
+                user.setPasswordHash(readString(in));
+                user.setDisplayName(readString(in));
+                user.setAvatarUrl(readString(in));
+                user.setBio(readString(in));
+                user.setCreatedAt(readTime(in));
+                user.setLastSeen(readTime(in));
+                user.setEmailVerified(in.readBoolean());
+                user.setStatus(UserStatus.OFFLINE);
+                restored.add(user);
+            }
+            users.addAll(restored);
+        }
+    }
+
+    // Length-prefixed UTF-8, -1 for null; writeUTF would cap a bio at 64 KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time != null ? MessageCodec.toEpochMillis(time) : NO_TIME);
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        long millis = in.readLong();
+        return millis != NO_TIME ? MessageCodec.fromEpochMillis(millis) : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdownNow();
+        snapshot();
+    }
+}
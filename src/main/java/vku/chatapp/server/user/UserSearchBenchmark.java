@@ -0,0 +1,79 @@
+package vku.chatapp.server.user;
+
+import vku.chatapp.common.constants.AppConstants;
+import vku.chatapp.common.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Build time and query latency of {@link UserSearchIndex} over generated Vietnamese names.
+ * Usage: {@code UserSearchBenchmark [users] [queries]}
+ */
+public class UserSearchBenchmark {
+    private static final String[] FAMILY = {"Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Huỳnh", "Phan", "Vũ", "Võ", "Đặng"};
+    private static final String[] MIDDLE = {"Văn", "Thị", "Minh", "Quốc", "Thanh", "Hữu", "Ngọc", "Đức"};
+    private static final String[] GIVEN = {"An", "Bình", "Châu", "Dũng", "Đạt", "Giang", "Hà", "Huy", "Khoa", "Linh",
+            "Long", "Mai", "Nam", "Phúc", "Quân", "Sơn", "Tâm", "Thảo", "Trang", "Tuấn", "Vy", "Yến"};
+
+    public static void main(String[] args) {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        Random random = new Random(42);
+        List<User> users = new ArrayList<>(userCount);
+        for (int i = 1; i <= userCount; i++) {
+            String given = GIVEN[random.nextInt(GIVEN.length)];
+            User user = new User((long) i, given.toLowerCase() + "_" + Integer.toString(i, 36), null);
+            user.setDisplayName(FAMILY[random.nextInt(FAMILY.length)] + " "
+                    + MIDDLE[random.nextInt(MIDDLE.length)] + " " + given);
+            users.add(user);
+        }
+
+        UserDirectory directory = new UserDirectory();
+        long start = System.nanoTime();
+        directory.addAll(users);
+        System.out.printf("Indexed %d users in %.0f ms%n", userCount, (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        UserSearchIndex incremental = new UserSearchIndex();
+        int incrementalCount = Math.min(userCount, 20_000);
+        for (int i = 0; i < incrementalCount; i++) {
+            User user = users.get(i);
+            incremental.add(user.getId(), user.getUsername(), user.getDisplayName());
+        }
+        System.out.printf("Incremental add: %.1f us/user over the first %d users%n",
+                (System.nanoTime() - start) / 1e3 / incrementalCount, incrementalCount);
+
+        String[][] workloads = {
+                {"exact username", users.get(userCount / 2).getUsername()},
+                {"short prefix", "a"},
+                {"username prefix", "linh_"},
+                {"name, no marks", "van dat"},
+                {"name, marks", "Trần Thị Mai"},
+                {"typo", "nguyn"},
+                {"no match", "zzqx"}
+        };
+        System.out.printf("%-16s %8s %10s %10s%n", "Query", "hits", "p50 us", "p99 us");
+        for (String[] workload : workloads) {
+            String query = workload[1];
+            UserSearchIndex index = directory.getSearchIndex();
+            int hits = index.search(query, AppConstants.USER_SEARCH_LIMIT).length;
+            // Warm up
+            for (int i = 0; i < 2_000; i++) {
+                index.search(query, AppConstants.USER_SEARCH_LIMIT);
+            }
+            long[] samples = new long[queries];
+            for (int i = 0; i < queries; i++) {
+                long s = System.nanoTime();
+                index.search(query, AppConstants.USER_SEARCH_LIMIT);
+                samples[i] = System.nanoTime() - s;
+            }
+            Arrays.sort(samples);
+            System.out.printf("%-16s %8d %10.1f %10.1f%n", workload[0], hits,
+                    samples[queries / 2] / 1e3, samples[(int) (queries * 0.99)] / 1e3);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package vku.chatapp.server.user;
+
+import vku.chatapp.common.model.User;
+import vku.chatapp.common.util.TextNormalizer;
+import vku.chatapp.server.util.LongSetIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Search-as-you-type index over usernames and display names.
+ * <ul>
+ *   <li>Prefix matches come from two sorted key arrays (usernames, and display names from
+ *       every word start so "dat" and "van d" both find "Nguyễn Văn Đạt"). A query is one
+ *       binary search plus a scan of at most {@code limit} entries.</li>
+ *   <li>When no prefix matches, a trigram index supplies typo-tolerant
+ *       matches ("nguyn" → "nguyen").</li>
+ * </ul>
+ * Keys are folded with {@link TextNormalizer}. Arrays are copy-on-write, so searches take
+ * no lock; single adds cost one array copy, bulk loads go through {@link #addAll}.
+ */
+public class UserSearchIndex {
+    private static final int MIN_FUZZY_QUERY = 3;
+    private static final double FUZZY_MIN_OVERLAP = 0.6;
+    // Caps fuzzy work when every query trigram is common ("nguyn")
+    private static final int FUZZY_MAX_CANDIDATES = 1024;
+
+    /** Immutable sorted (key, id) pairs. */
+    private static final class PrefixArray {
+        static final PrefixArray EMPTY = new PrefixArray(new String[0], new long[0]);
+
+        final String[] keys;
+        final long[] ids;
+
+        PrefixArray(String[] keys, long[] ids) {
+            this.keys = keys;
+            this.ids = ids;
+        }
+
+        /** First index whose key is >= {@code key}. */
+        int lowerBound(String key) {
+            int lo = 0, hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        int indexOf(String key, long id) {
+            for (int i = lowerBound(key); i < keys.length && keys[i].equals(key); i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        PrefixArray with(String key, long id) {
+            if (indexOf(key, id) >= 0) {
+                return this;
+            }
+            int at = lowerBound(key);
+            String[] k = new String[keys.length + 1];
+            long[] v = new long[ids.length + 1];
+            System.arraycopy(keys, 0, k, 0, at);
+            System.arraycopy(ids, 0, v, 0, at);
+            k[at] = key;
+            v[at] = id;
+            System.arraycopy(keys, at, k, at + 1, keys.length - at);
+            System.arraycopy(ids, at, v, at + 1, ids.length - at);
+            return new PrefixArray(k, v);
+        }
+
+        PrefixArray without(String key, long id) {
+            int at = indexOf(key, id);
+            if (at < 0) {
+                return this;
+            }
+            String[] k = new String[keys.length - 1];
+            long[] v = new long[ids.length - 1];
+            System.arraycopy(keys, 0, k, 0, at);
+            System.arraycopy(ids, 0, v, 0, at);
+            System.arraycopy(keys, at + 1, k, at, keys.length - at - 1);
+            System.arraycopy(ids, at + 1, v, at, ids.length - at - 1);
+            return new PrefixArray(k, v);
+        }
+
+        static PrefixArray build(List<KeyedId> entries) {
+            entries.sort(null);
+            String[] k = new String[entries.size()];
+            long[] v = new long[entries.size()];
+            for (int i = 0; i < k.length; i++) {
+                k[i] = entries.get(i).key;
+                v[i] = entries.get(i).id;
+            }
+            return new PrefixArray(k, v);
+        }
+    }
+
+    /** Sort entry for bulk builds. */
+    private static final class KeyedId implements Comparable<KeyedId> {
+        final String key;
+        final long id;
+
+        KeyedId(String key, long id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(KeyedId other) {
+            int c = key.compareTo(other.key);
+            return c != 0 ? c : Long.compare(id, other.id);
+        }
+    }
+
+    private volatile PrefixArray usernames = PrefixArray.EMPTY;
+    private volatile PrefixArray names = PrefixArray.EMPTY;
+    private final LongSetIndex trigrams = new LongSetIndex();
+
+    // ========== Updates ==========
+
+    public synchronized void add(long userId, String username, String displayName) {
+        PrefixArray u = usernames;
+        PrefixArray n = names;
+        u = u.with(TextNormalizer.fold(username), userId);
+        for (String key : nameKeys(displayName)) {
+            n = n.with(key, userId);
+        }
+        usernames = u;
+        names = n;
+        for (long trigram : trigramsOf(username, displayName)) {
+            trigrams.add(trigram, userId);
+        }
+    }
+
+    public synchronized void remove(long userId, String username, String displayName) {
+        PrefixArray u = usernames.without(TextNormalizer.fold(username), userId);
+        PrefixArray n = names;
+        for (String key : nameKeys(displayName)) {
+            n = n.without(key, userId);
+        }
+        usernames = u;
+        names = n;
+        for (long trigram : trigramsOf(username, displayName)) {
+            trigrams.remove(trigram, userId);
+        }
+    }
+
+    /** Replaces the index contents; one sort instead of one array copy per user. */
+    public synchronized void addAll(Collection<User> entries) {
+        List<KeyedId> userKeys = new ArrayList<>(entries.size());
+        List<KeyedId> nameKeys = new ArrayList<>(entries.size() * 3);
+        List<long[]> userTrigrams = new ArrayList<>(entries.size());
+        Map<Long, int[]> rowSizes = new HashMap<>();
+
+        // Pass 1: prefix keys, and trigram row sizes
+        for (User entry : entries) {
+            userKeys.add(new KeyedId(TextNormalizer.fold(entry.getUsername()), entry.getId()));
+            for (String key : nameKeys(entry.getDisplayName())) {
+                nameKeys.add(new KeyedId(key, entry.getId()));
+            }
+            long[] userTrigramSet = trigramsOf(entry.getUsername(), entry.getDisplayName());
+            userTrigrams.add(userTrigramSet);
+            for (long trigram : userTrigramSet) {
+                rowSizes.computeIfAbsent(trigram, t -> new int[1])[0]++;
+            }
+        }
+
+        // Pass 2: fill trigram rows
+        Map<Long, long[]> rows = new HashMap<>(rowSizes.size() * 2);
+        rowSizes.forEach((trigram, size) -> {
+            rows.put(trigram, new long[size[0]]);
+            size[0] = 0;
+        });
+        int i = 0;
+        for (User entry : entries) {
+            for (long trigram : userTrigrams.get(i++)) {
+                rows.get(trigram)[rowSizes.get(trigram)[0]++] = entry.getId();
+            }
+        }
+
+        usernames = PrefixArray.build(userKeys);
+        names = PrefixArray.build(nameKeys);
+        trigrams.clear();
+        rows.forEach((trigram, row) -> {
+            Arrays.sort(row);
+            trigrams.addAll(trigram, distinct(row));
+        });
+    }
+
+    // ========== Search ==========
+
+    /**
+     * Up to {@code limit} user ids, best first: exact username, username prefix,
+     * display-name word prefix, then fuzzy (trigram) matches.
+     */
+    public long[] search(String query, int limit) {
+        String q = TextNormalizer.fold(query);
+        if (q.isEmpty() || limit <= 0) {
+            return new long[0];
+        }
+
+        long[] result = new long[limit];
+        int count = collectPrefix(usernames, q, result, 0);
+        if (count < limit) {
+            count = collectPrefix(names, q, result, count);
+        }
+        // Fuzzy only when the user probably mistyped; it costs far more than a prefix scan
+        if (count == 0 && q.length() >= MIN_FUZZY_QUERY) {
+            count = collectFuzzy(q, result, count);
+        }
+        return count == limit ? result : Arrays.copyOf(result, count);
+    }
+
+    private static int collectPrefix(PrefixArray array, String q, long[] result, int count) {
+        for (int i = array.lowerBound(q); i < array.keys.length && count < result.length; i++) {
+            if (!array.keys[i].startsWith(q)) {
+                break;
+            }
+            count = append(result, count, array.ids[i]);
+        }
+        return count;
+    }
+
+    /**
+     * A candidate must share {@link #FUZZY_MIN_OVERLAP} of the query's trigrams. By pigeonhole
+     * it then appears in at least one of the rarest (T - needed + 1) rows, so only those rows
+     * are merged for candidates; the rest are checked by binary search. At most
+     * {@link #FUZZY_MAX_CANDIDATES} candidates are examined (lowest ids first), so results for
+     * very unselective typos are approximate but the cost stays bounded.
+     */
+    private int collectFuzzy(String q, long[] result, int count) {
+        long[] queryTrigrams = trigramsOf(q, null);
+        if (queryTrigrams.length == 0) {
+            return count;
+        }
+        long[][] rows = new long[queryTrigrams.length][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = trigrams.get(queryTrigrams[i]);
+        }
+        Arrays.sort(rows, Comparator.comparingInt(r -> r.length));
+
+        int needed = Math.max(1, (int) Math.ceil(rows.length * FUZZY_MIN_OVERLAP));
+        int seedRows = rows.length - needed + 1;
+        int[] cursor = new int[seedRows];
+
+        List<long[]> scored = new ArrayList<>();
+        for (int examined = 0; examined < FUZZY_MAX_CANDIDATES; examined++) {
+            // Next smallest id across the seed rows (sorted merge, so no "seen" set)
+            long candidate = Long.MAX_VALUE;
+            for (int s = 0; s < seedRows; s++) {
+                if (cursor[s] < rows[s].length && rows[s][cursor[s]] < candidate) {
+                    candidate = rows[s][cursor[s]];
+                }
+            }
+            if (candidate == Long.MAX_VALUE) {
+                break;
+            }
+            for (int s = 0; s < seedRows; s++) {
+                if (cursor[s] < rows[s].length && rows[s][cursor[s]] == candidate) {
+                    cursor[s]++;
+                }
+            }
+
+            int hits = 0;
+            for (long[] row : rows) {
+                if (Arrays.binarySearch(row, candidate) >= 0) {
+                    hits++;
+                }
+            }
+            if (hits >= needed && !contains(result, count, candidate)) {
+                scored.add(new long[]{hits, candidate});
+            }
+        }
+
+        scored.sort((a, b) -> a[0] != b[0] ? Long.compare(b[0], a[0]) : Long.compare(a[1], b[1]));
+        for (int i = 0; i < scored.size() && count < result.length; i++) {
+            result[count++] = scored.get(i)[1];
+        }
+        return count;
+    }
+
+    // ========== Keys ==========
+
+    /** Display name from every word start: "nguyen van dat", "van dat", "dat". */
+    private static List<String> nameKeys(String displayName) {
+        String[] words = TextNormalizer.tokens(displayName);
+        List<String> keys = new ArrayList<>(words.length);
+        for (int i = 0; i < words.length; i++) {
+            keys.add(String.join(" ", Arrays.copyOfRange(words, i, words.length)));
+        }
+        return keys;
+    }
+
+    /** Distinct trigrams of every word, each packed as three 16-bit chars and scrambled. */
+    private static long[] trigramsOf(String username, String displayName) {
+        Set<Long> out = new HashSet<>();
+        addTrigrams(TextNormalizer.tokens(username), out);
+        addTrigrams(TextNormalizer.tokens(displayName), out);
+        long[] packed = new long[out.size()];
+        int i = 0;
+        for (long t : out) {
+            packed[i++] = t;
+        }
+        return packed;
+    }
+
+    private static void addTrigrams(String[] words, Set<Long> out) {
+        for (String word : words) {
+            for (int i = 0; i + 3 <= word.length(); i++) {
+                long packed = ((long) word.charAt(i) << 32) | ((long) word.charAt(i + 1) << 16) | word.charAt(i + 2);
+                // Odd multiplier is a bijection; spreads bits so Long.hashCode does not collide
+                out.add(packed * 0x9E3779B97F4A7C15L);
+            }
+        }
+    }
+
+    // ========== Helpers ==========
+
+    private static int append(long[] result, int count, long id) {
+        if (contains(result, count, id)) {
+            return count;
+        }
+        result[count] = id;
+        return count + 1;
+    }
+
+    /** Linear: result is at most a page of ids. */
+    private static boolean contains(long[] result, int count, long id) {
+        for (int i = 0; i < count; i++) {
+            if (result[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long[] distinct(long[] sorted) {
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+}
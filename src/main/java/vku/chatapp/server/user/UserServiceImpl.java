@@ -0,0 +1,178 @@
+package vku.chatapp.server.user;
+
+import vku.chatapp.common.constants.AppConstants;
+import vku.chatapp.common.dto.UserDTO;
+import vku.chatapp.common.enums.UserStatus;
+import vku.chatapp.common.model.User;
+import vku.chatapp.common.rmi.IUserService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.rmi.RemoteException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory reference implementation of {@link IUserService} over a {@link UserDirectory}.
+ * Search goes through the directory's {@link UserSearchIndex}; avatars are written to
+ * {@code <data>/avatars/<userId>_<size>.jpg} and served as file URLs.
+ */
+public class UserServiceImpl implements IUserService {
+    private static final long MAX_RENDITION_BYTES = 4L * 1024 * 1024;
+
+    private final UserDirectory users;
+    private final Path avatarDirectory;
+    private final Map<String, PendingUpload> uploads = new ConcurrentHashMap<>();
+
+    private static final class PendingUpload {
+        final long userId;
+        final int[] sizes;
+        final byte[][] data;
+
+        PendingUpload(long userId, int[] sizes, byte[][] data) {
+            this.userId = userId;
+            this.sizes = sizes;
+            this.data = data;
+        }
+
+        byte[] buffer(int size) {
+            for (int i = 0; i < sizes.length; i++) {
+                if (sizes[i] == size) {
+                    return data[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    public UserServiceImpl(UserDirectory users, Path dataDirectory) throws IOException {
+        this.users = users;
+        this.avatarDirectory = dataDirectory.resolve("avatars");
+        Files.createDirectories(avatarDirectory);
+    }
+
+    // ========== Lookup ==========
+
+    @Override
+    public UserDTO getUserById(Long userId) {
+        return userId != null ? users.toDTO(userId) : null;
+    }
+
+    @Override
+    public UserDTO getUserByUsername(String username) {
+        User user = users.findByUsername(username != null ? username.trim() : null);
+        return user != null ? UserDirectory.toDTO(user) : null;
+    }
+
+    @Override
+    public List<UserDTO> searchUsers(String query) {
+        if (query == null || query.isBlank()) {
+            return new ArrayList<>();
+        }
+        return users.search(query, AppConstants.USER_SEARCH_LIMIT);
+    }
+
+    // ========== Profile ==========
+
+    @Override
+    public boolean updateProfile(Long userId, String displayName, String bio, String avatarUrl) {
+        return userId != null && users.updateProfile(userId, displayName, bio, avatarUrl);
+    }
+
+    @Override
+    public boolean updateStatus(Long userId, UserStatus status) {
+        User user = userId != null ? users.get(userId) : null;
+        if (user == null || status == null) {
+            return false;
+        }
+        user.setStatus(status);
+        if (status == UserStatus.OFFLINE) {
+            user.setLastSeen(LocalDateTime.now());
+            users.markDirty();
+        }
+        return true;
+    }
+
+    // ========== Avatar ==========
+
+    @Override
+    public String uploadAvatar(Long userId, byte[] imageData, String fileName) throws RemoteException {
+        if (userId == null || users.get(userId) == null || imageData == null || imageData.length == 0) {
+            return null;
+        }
+        String url = writeAvatar(userId, AppConstants.AVATAR_SIZES[0], imageData);
+        users.updateProfile(userId, null, null, url);
+        return url;
+    }
+
+    @Override
+    public String beginAvatarUpload(Long userId, String fileName, int[] sizes, long[] lengths) {
+        if (userId == null || users.get(userId) == null || sizes == null || lengths == null
+                || sizes.length == 0 || sizes.length != lengths.length) {
+            return null;
+        }
+        byte[][] data = new byte[sizes.length][];
+        for (int i = 0; i < sizes.length; i++) {
+            if (lengths[i] <= 0 || lengths[i] > MAX_RENDITION_BYTES) {
+                return null;
+            }
+            data[i] = new byte[(int) lengths[i]];
+        }
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new PendingUpload(userId, sizes.clone(), data));
+        return uploadId;
+    }
+
+    @Override
+    public boolean uploadAvatarChunk(String uploadId, int size, long offset, byte[] chunk) {
+        PendingUpload upload = uploadId != null ? uploads.get(uploadId) : null;
+        byte[] buffer = upload != null ? upload.buffer(size) : null;
+        if (buffer == null || chunk == null || offset < 0 || offset + chunk.length > buffer.length) {
+            return false;
+        }
+        System.arraycopy(chunk, 0, buffer, (int) offset, chunk.length);
+        return true;
+    }
+
+    @Override
+    public String completeAvatarUpload(String uploadId) throws RemoteException {
+        PendingUpload upload = uploadId != null ? uploads.remove(uploadId) : null;
+        if (upload == null) {
+            return null;
+        }
+        String largestUrl = null;
+        for (int i = 0; i < upload.sizes.length; i++) {
+            String url = writeAvatar(upload.userId, upload.sizes[i], upload.data[i]);
+            if (i == 0) {
+                largestUrl = url;
+            }
+        }
+        users.updateProfile(upload.userId, null, null, largestUrl);
+        return largestUrl;
+    }
+
+    @Override
+    public void abortAvatarUpload(String uploadId) {
+        if (uploadId != null) {
+            uploads.remove(uploadId);
+        }
+    }
+
+    private String writeAvatar(long userId, int size, byte[] data) throws RemoteException {
+        Path target = avatarDirectory.resolve(userId + "_" + size + ".jpg");
+        Path temp = avatarDirectory.resolve(target.getFileName() + ".tmp");
+        try {
+            Files.write(temp, data);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return target.toUri().toString();
+        } catch (IOException e) {
+            throw new RemoteException("Failed to store avatar", e);
+        }
+    }
+}
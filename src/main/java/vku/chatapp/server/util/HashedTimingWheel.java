@@ -0,0 +1,117 @@
+package vku.chatapp.server.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timing wheel for large numbers of coarse timeouts (heartbeats, sessions).
+ * Scheduling is O(1) and the tick thread only looks at one bucket per tick,
+ * so nothing ever scans the whole key set.
+ * <p>
+ * Entries are not cancelled or moved when their deadline is extended. Instead the
+ * callback is asked for the key's real deadline when its bucket comes up, and the
+ * key is re-inserted if it is still alive. Hot paths (heartbeats) then only write
+ * a timestamp.
+ */
+public class HashedTimingWheel<K> {
+
+    @FunctionalInterface
+    public interface ExpiryCallback<K> {
+        /**
+         * @return the key's current deadline (epoch ms) to keep watching it,
+         *         or a negative value once it has expired and been handled
+         */
+        long onTick(K key, long now);
+    }
+
+    private final String name;
+    private final long tickMs;
+    private final List<Queue<K>> buckets;
+    private final ExpiryCallback<K> callback;
+    private final AtomicInteger size = new AtomicInteger();
+
+    private volatile long currentTick;
+    private volatile long startTime;
+    private ScheduledExecutorService ticker;
+
+    public HashedTimingWheel(String name, long tickMs, int wheelSize, ExpiryCallback<K> callback) {
+        this.name = name;
+        this.tickMs = tickMs;
+        this.callback = callback;
+        List<Queue<K>> wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+        this.buckets = List.copyOf(wheel);
+        this.startTime = System.currentTimeMillis();
+    }
+
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        startTime = System.currentTimeMillis();
+        currentTick = 0;
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name + "-Wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Watches {@code key} until {@code deadlineMs}. Deadlines beyond one wheel rotation
+     * land in the furthest bucket and get re-inserted when it comes up.
+     */
+    public void schedule(K key, long deadlineMs) {
+        long tick = currentTick;
+        long dueTick = (deadlineMs - startTime + tickMs - 1) / tickMs;
+        // Never the bucket being processed right now, never further than one rotation
+        long ticks = Math.max(1, Math.min(dueTick - tick, buckets.size() - 1));
+        buckets.get((int) ((tick + ticks) % buckets.size())).add(key);
+        size.incrementAndGet();
+    }
+
+    /** Keys currently in the wheel (a key scheduled twice counts twice). */
+    public int size() {
+        return size.get();
+    }
+
+    private void tick() {
+        try {
+            long tick = ++currentTick;
+            Queue<K> bucket = buckets.get((int) (tick % buckets.size()));
+            long now = System.currentTimeMillis();
+
+            // Only drain what was there when the tick started
+            for (int pending = bucket.size(); pending > 0; pending--) {
+                K key = bucket.poll();
+                if (key == null) {
+                    break;
+                }
+                size.decrementAndGet();
+
+                long deadline = callback.onTick(key, now);
+                if (deadline >= 0) {
+                    schedule(key, deadline);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("❌ " + name + " wheel tick failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package vku.chatapp.server.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Map from a long key to a set of longs, each set stored as a sorted {@code long[]}.
+ * Rows are copy-on-write and never mutated once published, so readers take no lock and
+ * can iterate a row without copying; membership is a binary search. Built for data
+ * that is read far more often than it changes (friend lists, request lists).
+ */
+public class LongSetIndex {
+    private static final long[] EMPTY = new long[0];
+
+    private final Map<Long, long[]> rows = new ConcurrentHashMap<>();
+
+    /** The row for {@code key}; callers must not modify the returned array. */
+    public long[] get(long key) {
+        return rows.getOrDefault(key, EMPTY);
+    }
+
+    public boolean contains(long key, long value) {
+        return Arrays.binarySearch(get(key), value) >= 0;
+    }
+
+    public void add(long key, long value) {
+        rows.compute(key, (k, row) -> insert(row, value));
+    }
+
+    /**
+     * Bulk load: merges {@code sortedValues} (ascending, distinct) into the row with one copy,
+     * instead of one copy per {@link #add}.
+     */
+    public void addAll(long key, long[] sortedValues) {
+        if (sortedValues.length == 0) {
+            return;
+        }
+        rows.compute(key, (k, row) -> row == null ? sortedValues.clone() : merge(row, sortedValues));
+    }
+
+    public void remove(long key, long value) {
+        rows.computeIfPresent(key, (k, row) -> delete(row, value));
+    }
+
+    public int keyCount() {
+        return rows.size();
+    }
+
+    public void forEach(BiConsumer<Long, long[]> action) {
+        rows.forEach(action);
+    }
+
+    public void clear() {
+        rows.clear();
+    }
+
+    private static long[] insert(long[] row, long value) {
+        if (row == null) {
+            return new long[]{value};
+        }
+        int index = Arrays.binarySearch(row, value);
+        if (index >= 0) {
+            return row;
+        }
+        int insertAt = -index - 1;
+        long[] copy = new long[row.length + 1];
+        System.arraycopy(row, 0, copy, 0, insertAt);
+        copy[insertAt] = value;
+        System.arraycopy(row, insertAt, copy, insertAt + 1, row.length - insertAt);
+        return copy;
+    }
+
+    private static long[] merge(long[] a, long[] b) {
+        long[] out = new long[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            long next;
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            out[n++] = next;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static long[] delete(long[] row, long value) {
+        int index = Arrays.binarySearch(row, value);
+        if (index < 0) {
+            return row;
+        }
+        if (row.length == 1) {
+            // Returning null removes the key
+            return null;
+        }
+        long[] copy = new long[row.length - 1];
+        System.arraycopy(row, 0, copy, 0, index);
+        System.arraycopy(row, index + 1, copy, index, row.length - index - 1);
+        return copy;
+    }
+}
@@ -0,0 +1,131 @@
+package vku.chatapp.client.model;
+
+import org.junit.jupiter.api.Test;
+import vku.chatapp.common.dto.UserDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FriendSearchIndexTest {
+
+    private static FriendViewModel friend(long id, String displayName, String username) {
+        UserDTO user = new UserDTO();
+        user.setId(id);
+        user.setDisplayName(displayName);
+        user.setUsername(username);
+        return new FriendViewModel(user);
+    }
+
+    private static FriendSearchIndex sample() {
+        FriendSearchIndex index = new FriendSearchIndex();
+        index.add(1, "Nguyễn Văn Đạt", "datnv");
+        index.add(2, "Lê Thị Lan", "lanle");
+        index.add(3, "Trần Minh", "minhtran");
+        return index;
+    }
+
+    @Test
+    void emptyIndexFindsNothing() {
+        FriendSearchIndex index = new FriendSearchIndex();
+        assertArrayEquals(new long[0], index.search(""));
+        assertArrayEquals(new long[0], index.search("dat"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void emptyQueryListsEveryone() {
+        assertArrayEquals(new long[]{1, 2, 3}, sample().search(""));
+        assertArrayEquals(new long[]{1, 2, 3}, sample().search(null));
+    }
+
+    @Test
+    void findsSubstringsOfNameOrUsernameIgnoringDiacritics() {
+        FriendSearchIndex index = sample();
+        assertArrayEquals(new long[]{1}, index.search("guy"));
+        assertArrayEquals(new long[]{1}, index.search("ĐẠT"));
+        assertArrayEquals(new long[]{2}, index.search("anle"));
+        assertArrayEquals(new long[]{1, 2, 3}, index.search("n"));
+        assertArrayEquals(new long[0], index.search("xyz"));
+    }
+
+    @Test
+    void matchNeverSpansNameAndUsername() {
+        FriendSearchIndex index = new FriendSearchIndex();
+        index.add(1, "An", "na");
+        assertArrayEquals(new long[0], index.search("anna"));
+        assertArrayEquals(new long[]{1}, index.search("an"));
+    }
+
+    @Test
+    void renamedFriendIsReindexed() {
+        FriendSearchIndex index = sample();
+        index.add(3, "Trần Hùng", "minhtran");
+
+        assertArrayEquals(new long[]{3}, index.search("hung"));
+        assertArrayEquals(new long[]{3}, index.search("minht"));
+        assertArrayEquals(new long[0], index.search("tran minh"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void removedFriendIsNotFound() {
+        FriendSearchIndex index = sample();
+        index.remove(2);
+        index.remove(99);
+
+        assertFalse(index.contains(2));
+        assertArrayEquals(new long[0], index.search("lan"));
+        assertArrayEquals(new long[]{1, 3}, index.search(""));
+    }
+
+    @Test
+    void survivesCompactionAfterManyRemovals() {
+        FriendSearchIndex index = new FriendSearchIndex();
+        for (long id = 0; id < 200; id++) {
+            index.add(id, "Friend " + id, "user" + id);
+        }
+        for (long id = 0; id < 200; id++) {
+            if (id % 10 != 7) {
+                index.remove(id);
+            }
+        }
+
+        assertEquals(20, index.size());
+        assertArrayEquals(new long[]{17, 177}, index.search("friend 17"));
+        assertArrayEquals(new long[]{197}, index.search("user197"));
+        assertTrue(index.contains(107));
+        assertFalse(index.contains(108));
+    }
+
+    @Test
+    void reorderMakesResultsFollowTheList() {
+        FriendSearchIndex index = sample();
+        index.reorder(List.of(3L, 1L, 2L));
+        assertArrayEquals(new long[]{3, 1, 2}, index.search("n"));
+
+        // Unknown ids are ignored, friends left out go last
+        index.reorder(List.of(2L, 99L));
+        assertArrayEquals(new long[]{2, 3, 1}, index.search(""));
+        assertArrayEquals(new long[]{1}, index.search("dat"));
+    }
+
+    @Test
+    void replaceAllKeepsListOrderAndSkipsDuplicates() {
+        FriendSearchIndex index = sample();
+        List<FriendViewModel> friends = new ArrayList<>();
+        friends.add(friend(5, "Zed", "zed"));
+        friends.add(friend(4, "Anna", "anna"));
+        friends.add(friend(5, "Zed", "zed"));
+
+        index.replaceAll(friends);
+        assertEquals(2, index.size());
+        assertArrayEquals(new long[]{5, 4}, index.search(""));
+        assertArrayEquals(new long[]{4}, index.search("ann"));
+        assertArrayEquals(new long[0], index.search("dat"));
+    }
+}
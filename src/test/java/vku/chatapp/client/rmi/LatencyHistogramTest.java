@@ -0,0 +1,90 @@
+package vku.chatapp.client.rmi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.percentileMicros(50));
+        assertEquals(0, histogram.percentileMicros(99.9));
+        assertEquals(0.0, histogram.getMeanMicros());
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 0; micros < 32; micros++) {
+            histogram.recordMicros(micros);
+        }
+        assertEquals(32, histogram.getCount());
+        assertEquals(15, histogram.percentileMicros(50));
+        assertEquals(31, histogram.percentileMicros(100));
+        assertEquals(31, histogram.getMaxMicros());
+        assertEquals(15.5, histogram.getMeanMicros());
+    }
+
+    @Test
+    void largeValuesStayWithinOneSixteenth() {
+        for (long micros = 32; micros < 5_000_000; micros = micros * 3 / 2 + 7) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.recordMicros(micros);
+            // A lone value is capped by the max; check the bucket with a larger neighbour
+            histogram.recordMicros(micros * 4);
+
+            long reported = histogram.percentileMicros(50);
+            assertTrue(reported >= micros, micros + " reported as " + reported);
+            assertTrue(reported - micros <= micros / 16, micros + " reported as " + reported);
+        }
+    }
+
+    @Test
+    void percentilesFollowTheDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.recordMicros(1_000);
+        }
+        histogram.recordMicros(250_000);
+
+        assertTrue(histogram.percentileMicros(50) < 1_100);
+        assertTrue(histogram.percentileMicros(99) < 1_100);
+        assertEquals(250_000, histogram.percentileMicros(100));
+    }
+
+    @Test
+    void nanosAreRecordedAsMicros() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(7_999);
+        assertEquals(7, histogram.getMaxMicros());
+        assertEquals(7, histogram.getTotalMicros());
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMicros(-5);
+        histogram.recordMicros(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.percentileMicros(50));
+        assertEquals((1L << 36) - 1, histogram.getMaxMicros());
+        assertEquals((1L << 36) - 1, histogram.percentileMicros(100));
+    }
+
+    @Test
+    void resetForgetsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMicros(123);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.getTotalMicros());
+        assertEquals(0, histogram.percentileMicros(99));
+    }
+}
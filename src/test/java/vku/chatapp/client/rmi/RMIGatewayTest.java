@@ -0,0 +1,48 @@
+package vku.chatapp.client.rmi;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.rmi.RemoteException;
+import java.rmi.ServerException;
+import java.rmi.UnmarshalException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RMIGatewayTest {
+
+    // What an older server sends back for a method it does not have
+    private static ServerException missingMethod() {
+        return new ServerException("RemoteException occurred in server thread",
+                new UnmarshalException("unrecognized method hash: method not supported by remote object"));
+    }
+
+    @Test
+    void detectsMissingMethodAsThrownByTheServer() {
+        assertTrue(RMIGateway.isMissingOnServer(missingMethod()));
+    }
+
+    @Test
+    void detectsMissingMethodThroughGatewayAndProxyWrappers() {
+        assertTrue(RMIGateway.isMissingOnServer(new RemoteException("wrapped", missingMethod())));
+        assertTrue(RMIGateway.isMissingOnServer(new ExecutionException(missingMethod())));
+        assertTrue(RMIGateway.isMissingOnServer(new CompletionException(missingMethod())));
+        assertTrue(RMIGateway.isMissingOnServer(new UndeclaredThrowableException(missingMethod())));
+    }
+
+    @Test
+    void bareUnmarshalExceptionIsABrokenConnectionNotAMissingMethod() {
+        assertFalse(RMIGateway.isMissingOnServer(new UnmarshalException("error unmarshalling return", new EOFException())));
+    }
+
+    @Test
+    void otherFailuresAreNotMissingMethods() {
+        assertFalse(RMIGateway.isMissingOnServer(null));
+        assertFalse(RMIGateway.isMissingOnServer(new ServerException("boom", new RemoteException("db down"))));
+        assertFalse(RMIGateway.isMissingOnServer(RMIGatewayException.timeout(10)));
+    }
+}
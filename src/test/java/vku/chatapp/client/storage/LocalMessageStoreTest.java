@@ -0,0 +1,250 @@
+package vku.chatapp.client.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import vku.chatapp.client.util.PreferenceManager;
+import vku.chatapp.common.enums.MessageStatus;
+import vku.chatapp.common.enums.MessageType;
+import vku.chatapp.common.model.Message;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalMessageStoreTest {
+    private static final long USER_ID = 900_001;
+    private static final long FRIEND_ID = 7;
+
+    private final LocalMessageStore store = LocalMessageStore.getInstance();
+    private String previousHome;
+    private Path home;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Resolves the preferences root first, so only the cache files move to the temp home
+        PreferenceManager.getInstance();
+        previousHome = System.getProperty("user.home");
+        home = Files.createTempDirectory("local-store-test");
+        System.setProperty("user.home", home.toString());
+        store.open(USER_ID);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.close().get(5, TimeUnit.SECONDS);
+        System.setProperty("user.home", previousHome);
+        PreferenceManager.getInstance().removePreference("local_store_key_" + USER_ID);
+        try (Stream<Path> files = Files.walk(home)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static Message message(long id, String content, MessageStatus status) {
+        Message message = new Message();
+        message.setId(id);
+        message.setSenderId(FRIEND_ID);
+        message.setReceiverId(USER_ID);
+        message.setContent(content);
+        message.setType(MessageType.TEXT);
+        message.setStatus(status);
+        message.setSentAt(LocalDateTime.of(2024, 1, 1, 12, 0).plusMinutes(id));
+        return message;
+    }
+
+    private LocalMessageStore.CachedHistory load(int limit) throws Exception {
+        return store.loadRecent(FRIEND_ID, limit).get(5, TimeUnit.SECONDS);
+    }
+
+    private List<Long> ids(LocalMessageStore.CachedHistory history) {
+        List<Long> ids = new ArrayList<>();
+        history.getMessages().forEach(m -> ids.add(m.getId()));
+        return ids;
+    }
+
+    private void reopen() throws Exception {
+        store.close().get(5, TimeUnit.SECONDS);
+        store.open(USER_ID);
+    }
+
+    private Path file(String name) {
+        return home.resolve(".vkuchat").resolve(String.valueOf(USER_ID)).resolve("messages").resolve(name);
+    }
+
+    private static void appendBytes(Path file, byte[] bytes) throws IOException {
+        Files.write(file, bytes, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    void emptyConversationHasNoHistory() throws Exception {
+        LocalMessageStore.CachedHistory history = load(10);
+        assertEquals(List.of(), history.getMessages());
+        assertEquals(0, history.getHighWatermark());
+    }
+
+    @Test
+    void recentMessagesRoundTripOldestFirst() throws Exception {
+        // Arrival order differs from id order
+        store.append(FRIEND_ID, List.of(message(3, "third", MessageStatus.SENT), message(1, "first", MessageStatus.READ)));
+        store.append(FRIEND_ID, message(2, "second", MessageStatus.DELIVERED));
+
+        LocalMessageStore.CachedHistory all = load(10);
+        assertEquals(List.of(1L, 2L, 3L), ids(all));
+        assertEquals(3, all.getHighWatermark());
+        Message first = all.getMessages().get(0);
+        assertEquals("first", first.getContent());
+        assertEquals(MessageStatus.READ, first.getStatus());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 12, 1), first.getSentAt());
+
+        // The last two appended, not the two highest ids
+        assertEquals(List.of(1L, 2L), ids(load(2)));
+    }
+
+    @Test
+    void messagesWithoutServerIdAreNotCached() throws Exception {
+        Message unsaved = message(1, "pending", MessageStatus.SENDING);
+        unsaved.setId(null);
+        store.append(FRIEND_ID, unsaved);
+
+        assertEquals(List.of(), load(10).getMessages());
+    }
+
+    @Test
+    void statusChangeReplacesTheCachedEntry() throws Exception {
+        store.append(FRIEND_ID, message(1, "hello", MessageStatus.SENT));
+        store.append(FRIEND_ID, message(1, "hello", MessageStatus.READ));
+        // Same status again, and no status at all, write nothing
+        store.append(FRIEND_ID, message(1, "hello", MessageStatus.READ));
+        store.append(FRIEND_ID, message(1, "hello", null));
+
+        LocalMessageStore.CachedHistory history = load(10);
+        assertEquals(List.of(1L), ids(history));
+        assertEquals(MessageStatus.READ, history.getMessages().get(0).getStatus());
+        reopen();
+        assertEquals(MessageStatus.READ, load(10).getMessages().get(0).getStatus());
+    }
+
+    @Test
+    void historySurvivesReopen() throws Exception {
+        store.append(FRIEND_ID, List.of(message(1, "a", MessageStatus.SENT), message(2, "b", MessageStatus.SENT)));
+        reopen();
+
+        LocalMessageStore.CachedHistory history = load(10);
+        assertEquals(List.of(1L, 2L), ids(history));
+        assertEquals(2, history.getHighWatermark());
+    }
+
+    @Test
+    void resetReplacesTheConversation() throws Exception {
+        store.append(FRIEND_ID, List.of(message(1, "old", MessageStatus.READ), message(2, "old", MessageStatus.READ)));
+        store.reset(FRIEND_ID, List.of(message(50, "new", MessageStatus.SENT)));
+
+        LocalMessageStore.CachedHistory history = load(10);
+        assertEquals(List.of(50L), ids(history));
+        assertEquals(50, history.getHighWatermark());
+    }
+
+    @Test
+    void tornTailsFromACrashAreCutOff() throws Exception {
+        store.append(FRIEND_ID, List.of(message(1, "a", MessageStatus.SENT), message(2, "b", MessageStatus.SENT)));
+        store.close().get(5, TimeUnit.SECONDS);
+        appendBytes(file(FRIEND_ID + ".idx"), new byte[7]);
+        appendBytes(file(FRIEND_ID + ".log"), new byte[]{0, 0, 0, 40, 1, 2, 3});
+        store.open(USER_ID);
+
+        assertEquals(List.of(1L, 2L), ids(load(10)));
+        store.append(FRIEND_ID, message(3, "c", MessageStatus.SENT));
+        reopen();
+        assertEquals(List.of(1L, 2L, 3L), ids(load(10)));
+    }
+
+    @Test
+    void corruptRecordDropsTheConversation() throws Exception {
+        store.append(FRIEND_ID, List.of(message(1, "a", MessageStatus.SENT), message(2, "b", MessageStatus.SENT)));
+        store.close().get(5, TimeUnit.SECONDS);
+        try (FileChannel log = FileChannel.open(file(FRIEND_ID + ".log"), StandardOpenOption.WRITE)) {
+            // Inside the last record's tag: fails authentication, not framing
+            log.write(ByteBuffer.wrap(new byte[]{0x55}), log.size() - 3);
+        }
+        store.open(USER_ID);
+
+        LocalMessageStore.CachedHistory history = load(10);
+        assertEquals(List.of(), history.getMessages());
+        assertEquals(0, history.getHighWatermark());
+        assertFalse(Files.exists(file(FRIEND_ID + ".log")));
+    }
+
+    @Test
+    void searchFindsCachedMessages() throws Exception {
+        store.append(FRIEND_ID, List.of(message(1, "lunch at noon", MessageStatus.SENT), message(2, "dinner", MessageStatus.SENT)));
+        store.append(FRIEND_ID + 1, message(3, "late lunch", MessageStatus.SENT));
+
+        List<Message> hits = store.search("lunch", 10).get(5, TimeUnit.SECONDS);
+        List<Long> ids = new ArrayList<>();
+        hits.forEach(m -> ids.add(m.getId()));
+        assertEquals(List.of(3L, 1L), ids);
+        assertEquals(List.of(), store.search("", 10).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void outboxKeepsOperationsInOrderUntilRemoved() throws Exception {
+        Message queued = message(1, "offline", MessageStatus.SENDING);
+        queued.setId(null);
+        queued.setClientMessageId("c-1");
+        store.appendPending(PendingOperation.save(FRIEND_ID, queued));
+        store.appendPending(PendingOperation.status(FRIEND_ID, 5L, null, MessageStatus.READ));
+        store.appendPending(PendingOperation.status(FRIEND_ID, null, "c-1", MessageStatus.READ));
+        reopen();
+
+        List<PendingOperation> pending = store.loadPending().get(5, TimeUnit.SECONDS);
+        assertEquals(3, pending.size());
+        assertEquals(PendingOperation.Kind.SAVE, pending.get(0).getKind());
+        assertEquals("offline", pending.get(0).getMessage().getContent());
+        assertEquals(Long.valueOf(5), pending.get(1).getMessageId());
+        assertEquals("c-1", pending.get(2).getClientMessageId());
+
+        store.removePending(2).get(5, TimeUnit.SECONDS);
+        pending = store.loadPending().get(5, TimeUnit.SECONDS);
+        assertEquals(1, pending.size());
+        assertEquals("c-1", pending.get(0).getClientMessageId());
+
+        store.removePending(1).get(5, TimeUnit.SECONDS);
+        assertTrue(store.loadPending().get(5, TimeUnit.SECONDS).isEmpty());
+    }
+
+    @Test
+    void outboxDropsATornTail() throws Exception {
+        store.appendPending(PendingOperation.status(FRIEND_ID, 5L, null, MessageStatus.READ));
+        store.close().get(5, TimeUnit.SECONDS);
+        appendBytes(file("outbox.log"), new byte[]{0, 0, 1, 0, 9, 9});
+        store.open(USER_ID);
+
+        assertEquals(1, store.loadPending().get(5, TimeUnit.SECONDS).size());
+        store.appendPending(PendingOperation.status(FRIEND_ID, 6L, null, MessageStatus.READ));
+        assertEquals(2, store.loadPending().get(5, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    void closedStoreIsEmptyAndIgnoresWrites() throws Exception {
+        store.close().get(5, TimeUnit.SECONDS);
+        store.append(FRIEND_ID, message(1, "dropped", MessageStatus.SENT));
+
+        assertEquals(List.of(), load(10).getMessages());
+        assertTrue(store.loadPending().get(5, TimeUnit.SECONDS).isEmpty());
+    }
+}
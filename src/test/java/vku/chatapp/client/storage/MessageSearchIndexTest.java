@@ -0,0 +1,276 @@
+package vku.chatapp.client.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import vku.chatapp.common.model.Message;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageSearchIndexTest {
+    private static final byte[] ASSOCIATED_DATA = "1:search".getBytes(StandardCharsets.UTF_8);
+
+    private Path root;
+    private Path directory;
+    private RecordCipher cipher;
+    private MessageSearchIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        root = Files.createTempDirectory("search-index-test");
+        directory = root.resolve("search");
+        cipher = new RecordCipher(new SecretKeySpec(new byte[32], "AES"));
+        index = new MessageSearchIndex(directory, cipher, ASSOCIATED_DATA);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static Message message(long id, String content) {
+        Message message = new Message();
+        message.setId(id);
+        message.setContent(content);
+        return message;
+    }
+
+    private List<Long> search(String query) throws Exception {
+        MessageSearchIndex.Hits hits = index.candidates(MessageSearchIndex.Query.parse(query));
+        List<Long> ids = new ArrayList<>();
+        while (hits.next()) {
+            ids.add(hits.id);
+        }
+        return ids;
+    }
+
+    @Test
+    void newIndexNeedsRebuildAndFindsNothing() throws Exception {
+        assertTrue(index.needsRebuild());
+        assertEquals(List.of(), search("hello"));
+    }
+
+    @Test
+    void emptyQueryIsEmpty() {
+        assertTrue(MessageSearchIndex.Query.parse("").isEmpty());
+        assertTrue(MessageSearchIndex.Query.parse("   ").isEmpty());
+        assertTrue(MessageSearchIndex.Query.parse(null).isEmpty());
+    }
+
+    @Test
+    void findsEveryWordNewestFirst() throws Exception {
+        index.add(7, message(1, "see you at lunch"), 0);
+        index.add(7, message(2, "lunch is late today"), 100);
+        index.add(8, message(3, "late lunch again"), 0);
+
+        assertEquals(List.of(3L, 2L, 1L), search("lunch "));
+        assertEquals(List.of(3L, 2L), search("late lunch "));
+        assertEquals(List.of(), search("breakfast "));
+    }
+
+    @Test
+    void hitsCarryFriendAndLogOffset() throws Exception {
+        index.add(42, message(5, "meeting notes"), 1234);
+
+        MessageSearchIndex.Hits hits = index.candidates(MessageSearchIndex.Query.parse("notes "));
+        assertTrue(hits.next());
+        assertEquals(5L, hits.id);
+        assertEquals(42L, hits.friendId);
+        assertEquals(1234L, hits.offset);
+        assertFalse(hits.next());
+    }
+
+    @Test
+    void lastWordIsAPrefixWhileTyping() throws Exception {
+        index.add(1, message(1, "hello there"), 0);
+        index.add(1, message(2, "help me"), 0);
+        index.add(1, message(3, "goodbye"), 0);
+
+        assertEquals(List.of(2L, 1L), search("hel"));
+        assertEquals(List.of(1L), search("hell"));
+        // One letter is too short to expand
+        assertEquals(List.of(), search("h"));
+    }
+
+    @Test
+    void ignoresCaseAndDiacritics() throws Exception {
+        index.add(1, message(1, "Xin chào các bạn"), 0);
+
+        assertEquals(List.of(1L), search("CHAO "));
+        assertEquals(List.of(1L), search("xin chao"));
+    }
+
+    @Test
+    void phraseNeedsWordsInOrder() {
+        MessageSearchIndex.Query phrase = MessageSearchIndex.Query.parse("\"good morning\"");
+        assertTrue(phrase.matches(message(1, "Good morning everyone")));
+        assertFalse(phrase.matches(message(2, "morning, good people")));
+    }
+
+    @Test
+    void messagesWithoutIdAreNotIndexed() throws Exception {
+        Message unsaved = message(1, "draft");
+        unsaved.setId(null);
+        index.add(1, unsaved, 0);
+
+        assertFalse(index.hasUnflushed());
+        assertEquals(List.of(), search("draft "));
+    }
+
+    @Test
+    void laterPostingOfTheSameMessageWins() throws Exception {
+        index.add(1, message(9, "status changed"), 10);
+        index.add(1, message(9, "status changed"), 90);
+
+        MessageSearchIndex.Hits hits = index.candidates(MessageSearchIndex.Query.parse("status "));
+        assertTrue(hits.next());
+        assertEquals(90L, hits.offset);
+        assertFalse(hits.next());
+    }
+
+    @Test
+    void flushedPostingsSurviveReopen() throws Exception {
+        index.add(1, message(1, "alpha beta"), 0);
+        index.rebuilt();
+        index.add(1, message(2, "beta gamma"), 50);
+        index.close();
+
+        index = new MessageSearchIndex(directory, cipher, ASSOCIATED_DATA);
+        assertFalse(index.needsRebuild());
+        assertEquals(List.of(2L, 1L), search("beta "));
+        assertEquals(List.of(2L), search("gam"));
+    }
+
+    @Test
+    void segmentsAndBufferAreSearchedTogether() throws Exception {
+        index.add(1, message(1, "shared word"), 0);
+        index.flush();
+        index.add(1, message(2, "shared again"), 0);
+
+        assertTrue(index.hasUnflushed());
+        assertEquals(List.of(2L, 1L), search("shared "));
+    }
+
+    @Test
+    void crashWithUnflushedPostingsForcesRebuild() throws Exception {
+        index.rebuilt();
+        index.add(1, message(1, "lost on crash"), 0);
+        // No close: the unflushed marker stays behind
+
+        MessageSearchIndex reopened = new MessageSearchIndex(directory, cipher, ASSOCIATED_DATA);
+        try {
+            assertTrue(reopened.needsRebuild());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void corruptSegmentForcesRebuild() throws Exception {
+        index.add(1, message(1, "soon corrupt"), 0);
+        index.rebuilt();
+        index.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path segment : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".seg"))::iterator) {
+                Files.write(segment, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13});
+            }
+        }
+
+        index = new MessageSearchIndex(directory, cipher, ASSOCIATED_DATA);
+        assertTrue(index.needsRebuild());
+        assertEquals(List.of(), search("corrupt "));
+    }
+
+    @Test
+    void manySegmentsAreMergedWithoutLosingHits() throws Exception {
+        for (long id = 1; id <= 20; id++) {
+            index.add(1, message(id, "common word" + id), id * 10);
+            index.flush();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.filter(f -> f.toString().endsWith(".seg")).count() <= 9);
+        }
+        List<Long> hits = search("common ");
+        assertEquals(20, hits.size());
+        assertEquals(20L, (long) hits.get(0));
+        assertEquals(1L, (long) hits.get(19));
+        assertEquals(List.of(7L), search("word7 "));
+    }
+
+    @Test
+    void prefixSearchReturnsTheNewestPostingOfAnUpsertedMessage() throws Exception {
+        index.add(1, message(9, "status changed"), 10);
+        index.flush();
+        index.add(1, message(9, "status changed"), 50);
+        index.flush();
+        index.add(1, message(9, "status changed"), 90);
+
+        MessageSearchIndex.Hits hits = index.candidates(MessageSearchIndex.Query.parse("stat"));
+        assertTrue(hits.next());
+        assertEquals(90L, hits.offset);
+        assertFalse(hits.next());
+    }
+
+    @Test
+    void mergesKeepTheNewestPostingAcrossReopen() throws Exception {
+        index.add(1, message(1, "kept word"), 10);
+        index.flush();
+        for (long id = 2; id <= 30; id++) {
+            index.add(1, message(id, "filler" + id), id);
+            index.flush();
+        }
+        index.add(1, message(1, "kept word"), 999);
+        index.rebuilt();
+        index.close();
+
+        index = new MessageSearchIndex(directory, cipher, ASSOCIATED_DATA);
+        assertFalse(index.needsRebuild());
+        for (String query : new String[]{"kept ", "kep"}) {
+            MessageSearchIndex.Hits hits = index.candidates(MessageSearchIndex.Query.parse(query));
+            assertTrue(hits.next());
+            assertEquals(999L, hits.offset);
+            assertFalse(hits.next());
+        }
+        assertEquals(List.of(17L), search("filler17 "));
+    }
+
+    @Test
+    void flushMergesOnlyASmallRun() throws Exception {
+        // One large segment first, then small flushes
+        for (long id = 1; id <= 2000; id++) {
+            index.add(1, message(id, "bulk text number" + id), id);
+        }
+        index.flush();
+        Path large;
+        try (Stream<Path> files = Files.list(directory)) {
+            large = files.filter(f -> f.toString().endsWith(".seg")).findFirst().orElseThrow();
+        }
+        for (long id = 3000; id < 3012; id++) {
+            index.add(1, message(id, "small"), id);
+            index.flush();
+        }
+
+        // The large segment was never rewritten
+        assertTrue(Files.exists(large));
+        assertEquals(12, search("small ").size());
+        assertEquals(2000, search("bulk ").size());
+    }
+}
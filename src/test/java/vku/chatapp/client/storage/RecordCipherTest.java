@@ -0,0 +1,84 @@
+package vku.chatapp.client.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecordCipherTest {
+    private static final byte[] ASSOCIATED_DATA = "1:7".getBytes(StandardCharsets.UTF_8);
+
+    private final RecordCipher cipher = new RecordCipher(new SecretKeySpec(new byte[32], "AES"));
+    private Path file;
+    private FileChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("record-cipher-test", ".log");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void recordsRoundTrip() throws Exception {
+        long first = RecordCipher.append(channel, cipher.seal(new byte[]{1, 2, 3}, ASSOCIATED_DATA));
+        long second = RecordCipher.append(channel, cipher.seal(new byte[0], ASSOCIATED_DATA));
+
+        assertArrayEquals(new byte[]{1, 2, 3}, cipher.unseal(RecordCipher.read(channel, first), ASSOCIATED_DATA));
+        assertArrayEquals(new byte[0], cipher.unseal(RecordCipher.read(channel, second), ASSOCIATED_DATA));
+        assertEquals(channel.size(), RecordCipher.recordEnd(channel, second));
+    }
+
+    @Test
+    void offsetInsideARecordIsRejectedWithoutAllocating() throws Exception {
+        RecordCipher.append(channel, cipher.seal(new byte[64], ASSOCIATED_DATA));
+        // A length far beyond the file, as a stale offset into ciphertext would read
+        channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), 20);
+
+        assertThrows(IOException.class, () -> RecordCipher.read(channel, 20));
+    }
+
+    @Test
+    void negativeOrTinyLengthIsCorrupt() throws Exception {
+        channel.write(ByteBuffer.allocate(8).putInt(0, -5).putInt(4, 3), 0);
+
+        assertThrows(IOException.class, () -> RecordCipher.read(channel, 0));
+        assertThrows(IOException.class, () -> RecordCipher.read(channel, 4));
+        assertEquals(-1, RecordCipher.recordEnd(channel, 0));
+    }
+
+    @Test
+    void readAtOrNearEndOfFileIsAnIOException() throws Exception {
+        RecordCipher.append(channel, cipher.seal(new byte[8], ASSOCIATED_DATA));
+        long size = channel.size();
+
+        assertThrows(IOException.class, () -> RecordCipher.read(channel, size));
+        assertThrows(IOException.class, () -> RecordCipher.read(channel, size - 2));
+        assertEquals(-1, RecordCipher.recordEnd(channel, size - 2));
+    }
+
+    @Test
+    void recordCutShortIsAnIOException() throws Exception {
+        RecordCipher.append(channel, cipher.seal(new byte[32], ASSOCIATED_DATA));
+        channel.truncate(channel.size() - 5);
+
+        assertThrows(IOException.class, () -> RecordCipher.read(channel, 0));
+    }
+}
@@ -0,0 +1,130 @@
+package vku.chatapp.client.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ListDiffTest {
+
+    /** Counts the range operations a diff makes. */
+    private static final class RecordingList extends ArrayList<String> {
+        int removals;
+        int insertions;
+
+        RecordingList(Collection<String> items) {
+            super(items);
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            removals++;
+            super.removeRange(fromIndex, toIndex);
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends String> items) {
+            insertions++;
+            return super.addAll(index, items);
+        }
+    }
+
+    // Distinct instances, so identity and equality differ
+    private static List<String> items(String... names) {
+        List<String> out = new ArrayList<>();
+        for (String name : names) {
+            out.add(new String(name));
+        }
+        return out;
+    }
+
+    @Test
+    void emptyToEmptyDoesNothing() {
+        RecordingList target = new RecordingList(List.of());
+        ListDiff.apply(target, List.of());
+
+        assertEquals(List.of(), target);
+        assertEquals(0, target.removals + target.insertions);
+    }
+
+    @Test
+    void fillsAnEmptyListInOneInsertion() {
+        List<String> wanted = items("a", "b", "c");
+        RecordingList target = new RecordingList(List.of());
+        ListDiff.apply(target, wanted);
+
+        assertEquals(wanted, target);
+        assertEquals(1, target.insertions);
+    }
+
+    @Test
+    void clearsInOneRemoval() {
+        RecordingList target = new RecordingList(items("a", "b", "c"));
+        ListDiff.apply(target, List.of());
+
+        assertEquals(List.of(), target);
+        assertEquals(1, target.removals);
+    }
+
+    @Test
+    void filterRemovesOneRangePerRunAndKeepsTheSameItems() {
+        List<String> master = items("a", "b", "c", "d", "e", "f");
+        RecordingList target = new RecordingList(master);
+        // Drops the runs b,c and e
+        List<String> wanted = List.of(master.get(0), master.get(3), master.get(5));
+
+        ListDiff.apply(target, wanted);
+        assertEquals(wanted, target);
+        assertSame(master.get(3), target.get(1));
+        assertEquals(2, target.removals);
+        assertEquals(0, target.insertions);
+    }
+
+    @Test
+    void widenedFilterInsertsOneRangePerRun() {
+        List<String> master = items("a", "b", "c", "d", "e", "f");
+        RecordingList target = new RecordingList(List.of(master.get(0), master.get(3)));
+
+        ListDiff.apply(target, master);
+        assertEquals(master, target);
+        assertEquals(0, target.removals);
+        // b,c before d, then e,f at the end
+        assertEquals(2, target.insertions);
+    }
+
+    @Test
+    void itemsAreComparedByIdentity() {
+        List<String> before = items("a", "b");
+        List<String> after = items("a", "b");
+        RecordingList target = new RecordingList(before);
+
+        ListDiff.apply(target, after);
+        assertSame(after.get(0), target.get(0));
+        assertSame(after.get(1), target.get(1));
+    }
+
+    @Test
+    void reorderFallsBackToReplacingEverything() {
+        List<String> master = items("a", "b", "c");
+        RecordingList target = new RecordingList(master);
+        List<String> reversed = List.of(master.get(2), master.get(1), master.get(0));
+
+        ListDiff.apply(target, reversed);
+        assertEquals(reversed, target);
+        assertSame(master.get(2), target.get(0));
+    }
+
+    @Test
+    void mixedChangeEndsInTheWantedOrder() {
+        List<String> master = items("a", "b", "c", "d", "e", "f", "g");
+        RecordingList target = new RecordingList(List.of(master.get(0), master.get(1), master.get(4), master.get(5)));
+        List<String> wanted = List.of(master.get(1), master.get(2), master.get(3), master.get(5), master.get(6));
+
+        ListDiff.apply(target, wanted);
+        assertEquals(wanted, target);
+    }
+}
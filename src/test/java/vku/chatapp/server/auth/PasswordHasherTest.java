@@ -0,0 +1,56 @@
+package vku.chatapp.server.auth;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHasherTest {
+    private final PasswordHasher hasher = new PasswordHasher(2);
+
+    @AfterEach
+    void tearDown() {
+        hasher.shutdown();
+    }
+
+    @Test
+    void hashVerifiesOnlyItsOwnPassword() {
+        String hash = hasher.hash("correct horse");
+
+        assertTrue(hasher.verify("correct horse", hash));
+        assertFalse(hasher.verify("wrong horse", hash));
+        assertEquals(3, hasher.getCompletedCount());
+    }
+
+    @Test
+    void samePasswordIsSaltedDifferently() {
+        assertNotEquals(hasher.hash("secret"), hasher.hash("secret"));
+    }
+
+    @Test
+    void missingInputIsRejectedWithoutHashing() {
+        assertFalse(hasher.verify(null, "$2a$10$abc"));
+        assertFalse(hasher.verify("secret", null));
+        assertEquals(0, hasher.getCompletedCount());
+    }
+
+    @Test
+    void malformedStoredHashFailsVerification() {
+        assertFalse(hasher.verify("secret", "not a bcrypt hash"));
+    }
+
+    @Test
+    void shutDownHasherTurnsRequestsAway() {
+        hasher.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> hasher.hash("secret"));
+        assertEquals(1, hasher.getRejectedCount());
+        assertEquals(0, hasher.getQueueDepth());
+    }
+}
@@ -0,0 +1,85 @@
+package vku.chatapp.server.auth;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionCacheTest {
+    private static final long TIMEOUT_MS = 200;
+
+    // Not started: validate() enforces the timeout on its own, the wheel only cleans up
+    private final SessionCache cache = new SessionCache(TIMEOUT_MS);
+
+    @AfterEach
+    void tearDown() {
+        cache.stop();
+    }
+
+    @Test
+    void createdTokenValidatesToItsUser() {
+        String token = cache.create(42);
+
+        assertEquals(Long.valueOf(42), cache.validate(token));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void unknownOrMissingTokenIsInvalid() {
+        assertNull(cache.validate("no-such-token"));
+        assertNull(cache.validate(null));
+        assertFalse(cache.invalidate(null));
+        assertFalse(cache.invalidate("no-such-token"));
+    }
+
+    @Test
+    void eachLoginGetsItsOwnToken() {
+        assertNotEquals(cache.create(1), cache.create(1));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void idleTokenExpires() throws Exception {
+        String token = cache.create(1);
+        Thread.sleep(TIMEOUT_MS + 50);
+
+        assertNull(cache.validate(token));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void validationSlidesTheTimeout() throws Exception {
+        String token = cache.create(1);
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(TIMEOUT_MS / 2);
+            assertEquals(Long.valueOf(1), cache.validate(token));
+        }
+    }
+
+    @Test
+    void invalidatedTokenIsGone() {
+        String token = cache.create(1);
+
+        assertTrue(cache.invalidate(token));
+        assertNull(cache.validate(token));
+        assertFalse(cache.invalidate(token));
+    }
+
+    @Test
+    void invalidateUserEndsOnlyThatUsersSessions() {
+        String first = cache.create(1);
+        String second = cache.create(1);
+        String other = cache.create(2);
+
+        assertEquals(2, cache.invalidateUser(1));
+        assertNull(cache.validate(first));
+        assertNull(cache.validate(second));
+        assertEquals(Long.valueOf(2), cache.validate(other));
+        assertEquals(0, cache.invalidateUser(1));
+        assertEquals(0, cache.invalidateUser(99));
+    }
+}
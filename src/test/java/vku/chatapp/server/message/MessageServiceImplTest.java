@@ -0,0 +1,96 @@
+package vku.chatapp.server.message;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import vku.chatapp.common.enums.MessageStatus;
+import vku.chatapp.common.enums.MessageType;
+import vku.chatapp.common.model.Message;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageServiceImplTest {
+    private static final long ALICE = 1;
+    private static final long BOB = 2;
+
+    private Path root;
+    private MessageServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createTempDirectory("message-service-test");
+        service = new MessageServiceImpl(root);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        service.close();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static Message message(long sender, long receiver, String clientId, MessageStatus status) {
+        Message message = new Message();
+        message.setSenderId(sender);
+        message.setReceiverId(receiver);
+        message.setContent("hello " + clientId);
+        message.setType(MessageType.TEXT);
+        message.setStatus(status);
+        message.setClientMessageId(clientId);
+        return message;
+    }
+
+    @Test
+    void retriedSaveReturnsTheFirstCopy() throws Exception {
+        Message first = service.saveMessage(message(ALICE, BOB, "c1", MessageStatus.SENT));
+        Message retry = service.saveMessage(message(ALICE, BOB, "c1", MessageStatus.SENT));
+
+        assertEquals(first.getId(), retry.getId());
+        assertEquals(1L, service.getMessageCount());
+        assertEquals(1, service.getUnreadCount(BOB));
+    }
+
+    @Test
+    void retriedSaveKeepsTheStatusFoldedIntoIt() throws Exception {
+        service.saveMessage(message(ALICE, BOB, "c1", MessageStatus.SENDING));
+        Message retry = service.saveMessage(message(ALICE, BOB, "c1", MessageStatus.FAILED));
+
+        assertEquals(MessageStatus.FAILED, retry.getStatus());
+        assertEquals(MessageStatus.FAILED, service.getConversationHistory(ALICE, BOB, 10).get(0).getStatus());
+    }
+
+    @Test
+    void retriedSaveDoesNotUndoTheReceiversStatus() throws Exception {
+        Message first = service.saveMessage(message(ALICE, BOB, "c1", MessageStatus.SENT));
+        service.updateMessageStatus(first.getId(), MessageStatus.READ.name());
+
+        Message retry = service.saveMessage(message(ALICE, BOB, "c1", MessageStatus.SENT));
+
+        assertEquals(MessageStatus.READ, retry.getStatus());
+        assertEquals(0, service.getUnreadCount(BOB));
+    }
+
+    @Test
+    void markConversationReadStopsAtTheUnreadCount() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            service.saveMessage(message(ALICE, BOB, "a" + i, MessageStatus.SENT));
+            service.saveMessage(message(BOB, ALICE, "b" + i, MessageStatus.SENT));
+        }
+
+        assertEquals(5, service.markConversationRead(BOB, ALICE));
+        assertEquals(0, service.getUnreadCount(BOB));
+        assertEquals(5, service.getUnreadCount(ALICE));
+        assertEquals(0, service.markConversationRead(BOB, ALICE));
+        for (Message message : service.getConversationHistory(ALICE, BOB, 10)) {
+            MessageStatus expected = message.getSenderId() == ALICE ? MessageStatus.READ : MessageStatus.SENT;
+            assertEquals(expected, message.getStatus());
+        }
+    }
+}
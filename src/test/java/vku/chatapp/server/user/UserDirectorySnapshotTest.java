@@ -0,0 +1,80 @@
+package vku.chatapp.server.user;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import vku.chatapp.common.enums.UserStatus;
+import vku.chatapp.common.model.User;
+import vku.chatapp.common.util.MessageCodec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserDirectorySnapshotTest {
+    private Path root;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createTempDirectory("user-directory-test");
+        file = root.resolve("users.snap");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void usersSurviveARestart() throws IOException {
+        UserDirectory users = new UserDirectory();
+        UserDirectorySnapshot snapshot = new UserDirectorySnapshot(users, file);
+        User alice = users.create("alice", "alice@example.com", "hash-a", "Alice Nguyễn");
+        users.create("bob", null, null, null);
+        users.updateProfile(alice.getId(), null, "Hi there", "https://avatars/alice.png");
+        alice.setEmailVerified(true);
+        alice.setStatus(UserStatus.ONLINE);
+        users.markDirty();
+        snapshot.close();
+
+        UserDirectory restored = new UserDirectory();
+        new UserDirectorySnapshot(restored, file).close();
+
+        assertEquals(2, restored.size());
+        User copy = restored.findByEmail("ALICE@example.com");
+        assertEquals(alice.getId(), copy.getId());
+        assertEquals("hash-a", copy.getPasswordHash());
+        assertEquals("Alice Nguyễn", copy.getDisplayName());
+        assertEquals("Hi there", copy.getBio());
+        assertEquals("https://avatars/alice.png", copy.getAvatarUrl());
+        assertEquals(true, copy.isEmailVerified());
+        assertEquals(UserStatus.OFFLINE, copy.getStatus());
+        // Kept to the millisecond
+        assertEquals(Long.valueOf(MessageCodec.toEpochMillis(alice.getCreatedAt())),
+                Long.valueOf(MessageCodec.toEpochMillis(copy.getCreatedAt())));
+        assertNull(restored.findByUsername("bob").getEmail());
+        assertEquals(1, restored.search("alice", 10).size());
+    }
+
+    @Test
+    void restoredIdsAreNotHandedOutAgain() throws IOException {
+        UserDirectory users = new UserDirectory();
+        UserDirectorySnapshot snapshot = new UserDirectorySnapshot(users, file);
+        users.create("alice", "alice@example.com", "hash", null);
+        users.create("bob", "bob@example.com", "hash", null);
+        snapshot.close();
+
+        UserDirectory restored = new UserDirectory();
+        new UserDirectorySnapshot(restored, file).close();
+
+        assertEquals(Long.valueOf(3), restored.create("carol", "carol@example.com", "hash", null).getId());
+    }
+}
@@ -0,0 +1,118 @@
+package vku.chatapp.server.user;
+
+import org.junit.jupiter.api.Test;
+import vku.chatapp.common.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class UserSearchIndexTest {
+
+    private static User user(long id, String username, String displayName) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setDisplayName(displayName);
+        return user;
+    }
+
+    private static UserSearchIndex sample() {
+        UserSearchIndex index = new UserSearchIndex();
+        index.add(1, "datnguyen", "Nguyễn Văn Đạt");
+        index.add(2, "dat", "Trần Đạt");
+        index.add(3, "lan", "Lê Thị Lan");
+        index.add(4, "minh", "Phạm Minh Dat");
+        return index;
+    }
+
+    @Test
+    void emptyIndexOrQueryFindsNothing() {
+        assertArrayEquals(new long[0], new UserSearchIndex().search("dat", 10));
+        assertArrayEquals(new long[0], sample().search("", 10));
+        assertArrayEquals(new long[0], sample().search("   ", 10));
+        assertArrayEquals(new long[0], sample().search(null, 10));
+        assertArrayEquals(new long[0], sample().search("dat", 0));
+    }
+
+    @Test
+    void usernameMatchesComeBeforeDisplayNameMatches() {
+        // Exact username, username prefix, then names with a word starting "dat"
+        assertArrayEquals(new long[]{2, 1, 4}, sample().search("dat", 10));
+    }
+
+    @Test
+    void displayNameMatchesFromAnyWordIgnoringDiacritics() {
+        UserSearchIndex index = sample();
+        assertArrayEquals(new long[]{1}, index.search("van d", 10));
+        assertArrayEquals(new long[]{1}, index.search("NGUYỄN", 10));
+        assertArrayEquals(new long[]{3}, index.search("thi l", 10));
+    }
+
+    @Test
+    void limitCapsTheResult() {
+        assertArrayEquals(new long[]{2, 1}, sample().search("dat", 2));
+    }
+
+    @Test
+    void typoFallsBackToTrigrams() {
+        UserSearchIndex index = new UserSearchIndex();
+        index.add(1, "nguyen", "Nguyen");
+        index.add(2, "lan", "Lan");
+
+        assertArrayEquals(new long[]{1}, index.search("nguyn", 10));
+    }
+
+    @Test
+    void shortQueriesAreNeverFuzzy() {
+        UserSearchIndex index = new UserSearchIndex();
+        index.add(1, "nguyen", "Nguyen");
+        assertArrayEquals(new long[0], index.search("gn", 10));
+    }
+
+    @Test
+    void removedUserIsNoLongerFound() {
+        UserSearchIndex index = sample();
+        index.remove(2, "dat", "Trần Đạt");
+
+        assertArrayEquals(new long[]{1, 4}, index.search("dat", 10));
+        assertArrayEquals(new long[0], index.search("tran", 10));
+        // Its trigrams are gone as well
+        assertArrayEquals(new long[0], index.search("trn", 10));
+    }
+
+    @Test
+    void addingTheSameUserTwiceDoesNotDuplicate() {
+        UserSearchIndex index = new UserSearchIndex();
+        index.add(1, "lan", "Lan");
+        index.add(1, "lan", "Lan");
+        assertArrayEquals(new long[]{1}, index.search("lan", 10));
+    }
+
+    @Test
+    void bulkLoadMatchesSingleAdds() {
+        List<User> users = new ArrayList<>();
+        users.add(user(1, "datnguyen", "Nguyễn Văn Đạt"));
+        users.add(user(2, "dat", "Trần Đạt"));
+        users.add(user(3, "lan", "Lê Thị Lan"));
+        users.add(user(4, "minh", "Phạm Minh Dat"));
+
+        UserSearchIndex bulk = new UserSearchIndex();
+        bulk.addAll(users);
+        UserSearchIndex single = sample();
+
+        for (String query : new String[]{"dat", "van", "le thi", "nguyn", "minh d", "x"}) {
+            assertArrayEquals(single.search(query, 10), bulk.search(query, 10), query);
+        }
+    }
+
+    @Test
+    void bulkLoadReplacesEarlierContents() {
+        UserSearchIndex index = sample();
+        index.addAll(List.of(user(9, "zed", "Zed")));
+
+        assertArrayEquals(new long[0], index.search("dat", 10));
+        assertArrayEquals(new long[]{9}, index.search("zed", 10));
+    }
+}
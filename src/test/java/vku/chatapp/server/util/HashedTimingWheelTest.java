@@ -0,0 +1,148 @@
+package vku.chatapp.server.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimingWheelTest {
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 16;
+
+    private HashedTimingWheel<String> wheel;
+
+    @AfterEach
+    void tearDown() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    // Expires a key once its deadline in the map has passed; removing the key cancels it
+    private HashedTimingWheel<String> expiringWheel(Map<String, Long> deadlines, Map<String, Long> expiredAt,
+                                                    CountDownLatch expired) {
+        return new HashedTimingWheel<>("Test", TICK_MS, WHEEL_SIZE, (key, now) -> {
+            Long deadline = deadlines.get(key);
+            if (deadline == null) {
+                return -1;
+            }
+            if (now < deadline) {
+                return deadline;
+            }
+            expiredAt.put(key, now);
+            expired.countDown();
+            return -1;
+        });
+    }
+
+    @Test
+    void expiresKeyNotBeforeItsDeadline() throws Exception {
+        Map<String, Long> deadlines = new ConcurrentHashMap<>();
+        Map<String, Long> expiredAt = new ConcurrentHashMap<>();
+        CountDownLatch expired = new CountDownLatch(1);
+        wheel = expiringWheel(deadlines, expiredAt, expired);
+        wheel.start();
+
+        long deadline = System.currentTimeMillis() + 50;
+        deadlines.put("a", deadline);
+        wheel.schedule("a", deadline);
+        assertEquals(1, wheel.size());
+
+        assertTrue(expired.await(2, TimeUnit.SECONDS));
+        assertTrue(expiredAt.get("a") >= deadline);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void extendedDeadlineIsHonouredWithoutRescheduling() throws Exception {
+        Map<String, Long> deadlines = new ConcurrentHashMap<>();
+        Map<String, Long> expiredAt = new ConcurrentHashMap<>();
+        CountDownLatch expired = new CountDownLatch(1);
+        wheel = expiringWheel(deadlines, expiredAt, expired);
+        wheel.start();
+
+        long start = System.currentTimeMillis();
+        deadlines.put("a", start + 30);
+        wheel.schedule("a", start + 30);
+        // Only the timestamp moves, like a heartbeat
+        long extended = start + 200;
+        deadlines.put("a", extended);
+
+        assertTrue(expired.await(2, TimeUnit.SECONDS));
+        assertTrue(expiredAt.get("a") >= extended);
+    }
+
+    @Test
+    void deadlineBeyondOneRotationStillWaits() throws Exception {
+        Map<String, Long> deadlines = new ConcurrentHashMap<>();
+        Map<String, Long> expiredAt = new ConcurrentHashMap<>();
+        CountDownLatch expired = new CountDownLatch(1);
+        wheel = expiringWheel(deadlines, expiredAt, expired);
+        wheel.start();
+
+        // Three rotations of 16 ticks
+        long deadline = System.currentTimeMillis() + 3 * WHEEL_SIZE * TICK_MS;
+        deadlines.put("far", deadline);
+        wheel.schedule("far", deadline);
+
+        assertTrue(expired.await(3, TimeUnit.SECONDS));
+        assertTrue(expiredAt.get("far") >= deadline);
+    }
+
+    @Test
+    void droppedKeyLeavesTheWheel() throws Exception {
+        Map<String, Long> deadlines = new ConcurrentHashMap<>();
+        Map<String, Long> expiredAt = new ConcurrentHashMap<>();
+        CountDownLatch expired = new CountDownLatch(1);
+        wheel = expiringWheel(deadlines, expiredAt, expired);
+        wheel.start();
+
+        long deadline = System.currentTimeMillis() + 1000;
+        deadlines.put("gone", deadline);
+        wheel.schedule("gone", deadline);
+        deadlines.remove("gone");
+
+        // Within one rotation its bucket comes up and the callback lets it go
+        long until = System.currentTimeMillis() + 2000;
+        while (wheel.size() > 0 && System.currentTimeMillis() < until) {
+            Thread.sleep(TICK_MS);
+        }
+        assertEquals(0, wheel.size());
+        assertFalse(expiredAt.containsKey("gone"));
+    }
+
+    @Test
+    void sameKeyScheduledTwiceCountsTwice() {
+        wheel = new HashedTimingWheel<>("Test", TICK_MS, WHEEL_SIZE, (key, now) -> -1);
+        long deadline = System.currentTimeMillis() + 1000;
+        wheel.schedule("a", deadline);
+        wheel.schedule("a", deadline);
+        assertEquals(2, wheel.size());
+    }
+
+    @Test
+    void failingCallbackDoesNotStopTheWheel() throws Exception {
+        CountDownLatch survived = new CountDownLatch(1);
+        wheel = new HashedTimingWheel<>("Test", TICK_MS, WHEEL_SIZE, (key, now) -> {
+            if (key.equals("bad")) {
+                throw new IllegalStateException("boom");
+            }
+            survived.countDown();
+            return -1;
+        });
+        wheel.start();
+
+        long now = System.currentTimeMillis();
+        wheel.schedule("bad", now);
+        wheel.schedule("good", now + 5 * TICK_MS);
+
+        assertTrue(survived.await(2, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,124 @@
+package vku.chatapp.server.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongSetIndexTest {
+
+    @Test
+    void unknownKeyIsEmpty() {
+        LongSetIndex index = new LongSetIndex();
+        assertArrayEquals(new long[0], index.get(1));
+        assertFalse(index.contains(1, 1));
+        assertEquals(0, index.keyCount());
+    }
+
+    @Test
+    void addKeepsRowSortedAndDistinct() {
+        LongSetIndex index = new LongSetIndex();
+        index.add(1, 30);
+        index.add(1, 10);
+        index.add(1, 20);
+        index.add(1, 10);
+
+        assertArrayEquals(new long[]{10, 20, 30}, index.get(1));
+        assertTrue(index.contains(1, 20));
+        assertFalse(index.contains(1, 25));
+        assertFalse(index.contains(2, 20));
+    }
+
+    @Test
+    void extremeValuesSortCorrectly() {
+        LongSetIndex index = new LongSetIndex();
+        index.add(1, Long.MAX_VALUE);
+        index.add(1, Long.MIN_VALUE);
+        index.add(1, 0);
+
+        assertArrayEquals(new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE}, index.get(1));
+    }
+
+    @Test
+    void addAllMergesAndDropsDuplicates() {
+        LongSetIndex index = new LongSetIndex();
+        index.add(1, 5);
+        index.add(1, 15);
+        index.addAll(1, new long[]{1, 5, 10, 20});
+
+        assertArrayEquals(new long[]{1, 5, 10, 15, 20}, index.get(1));
+    }
+
+    @Test
+    void addAllCopiesTheCallersArray() {
+        LongSetIndex index = new LongSetIndex();
+        long[] values = {1, 2, 3};
+        index.addAll(7, values);
+        values[0] = 99;
+
+        assertArrayEquals(new long[]{1, 2, 3}, index.get(7));
+    }
+
+    @Test
+    void addAllOfNothingCreatesNoRow() {
+        LongSetIndex index = new LongSetIndex();
+        index.addAll(1, new long[0]);
+        assertEquals(0, index.keyCount());
+    }
+
+    @Test
+    void removingTheLastValueDropsTheKey() {
+        LongSetIndex index = new LongSetIndex();
+        index.add(1, 10);
+        index.add(1, 20);
+
+        index.remove(1, 10);
+        assertArrayEquals(new long[]{20}, index.get(1));
+        index.remove(1, 20);
+        assertEquals(0, index.keyCount());
+        assertArrayEquals(new long[0], index.get(1));
+    }
+
+    @Test
+    void removingAMissingValueKeepsTheRow() {
+        LongSetIndex index = new LongSetIndex();
+        index.add(1, 10);
+        long[] before = index.get(1);
+
+        index.remove(1, 11);
+        index.remove(2, 10);
+        assertSame(before, index.get(1));
+    }
+
+    @Test
+    void publishedRowsAreNeverMutated() {
+        LongSetIndex index = new LongSetIndex();
+        index.add(1, 10);
+        long[] snapshot = index.get(1);
+
+        index.add(1, 5);
+        index.remove(1, 10);
+        assertArrayEquals(new long[]{10}, snapshot);
+    }
+
+    @Test
+    void forEachAndClearCoverEveryKey() {
+        LongSetIndex index = new LongSetIndex();
+        index.add(1, 10);
+        index.add(2, 20);
+
+        Map<Long, long[]> seen = new HashMap<>();
+        index.forEach(seen::put);
+        assertEquals(2, seen.size());
+        assertArrayEquals(new long[]{20}, seen.get(2L));
+
+        index.clear();
+        assertEquals(0, index.keyCount());
+    }
+}